@@ -38,11 +38,11 @@ public abstract class AbstractLispRouter implements LispRouter {
     private static final String DROP_MESSAGE_WARN =
                     "Drop message {} destined to router {} as channel is closed.";
 
-    private Channel channel;
-    private String channelId;
+    private volatile Channel channel;
+    private volatile String channelId;
 
-    private boolean connected;
-    private boolean subscribed;
+    private volatile boolean connected;
+    private volatile boolean subscribed;
     private LispRouterId routerId;
     private LispRouterAgent agent;
 
@@ -97,7 +97,20 @@ public abstract class AbstractLispRouter implements LispRouter {
 
     @Override
     public final void setSubscribed(boolean subscribed) {
-        this.subscribed = subscribed;
+        synchronized (this) {
+            if (this.subscribed == subscribed) {
+                return;
+            }
+            this.subscribed = subscribed;
+        }
+
+        // let the agent keep track of the subscribed routers; notified
+        // outside of the lock, hence concurrent updates may reach the agent
+        // out of order, and the agent follows isSubscribed() which always
+        // holds the latest update
+        if (agent != null) {
+            agent.updateRouterSubscription(routerId, subscribed);
+        }
     }
 
     @Override
@@ -60,4 +60,15 @@ public interface LispRouterAgent {
      * @param message  the message to process
      */
     void processDownstreamMessage(LispRouterId routerId, LispMessage message);
+
+    /**
+     * Updates the subscription state of a router. Notifies router listeners
+     * if the state of a connected router has changed. As concurrent updates
+     * may be notified out of order, the current state of the router takes
+     * precedence over the given state.
+     *
+     * @param routerId   the routerId of a router whose state has changed
+     * @param subscribed whether the router is subscribed
+     */
+    void updateRouterSubscription(LispRouterId routerId, boolean subscribed);
 }
@@ -40,4 +40,9 @@ public class LispRouterAgentAdapter implements LispRouterAgent {
     public void processDownstreamMessage(LispRouterId routerId, LispMessage message) {
 
     }
+
+    @Override
+    public void updateRouterSubscription(LispRouterId routerId, boolean subscribed) {
+
+    }
 }
@@ -19,26 +19,28 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.Recycler;
 import io.netty.util.ReferenceCountUtil;
 import org.onlab.packet.IpAddress;
 import org.onosproject.lisp.ctl.LispRouter;
-import org.onosproject.lisp.ctl.LispRouterFactory;
+import org.onosproject.lisp.ctl.impl.LispIngressStage.ShedPolicy;
 import org.onosproject.lisp.msg.protocols.LispEncapsulatedControl;
 import org.onosproject.lisp.msg.protocols.LispInfoReply;
 import org.onosproject.lisp.msg.protocols.LispInfoRequest;
 import org.onosproject.lisp.msg.protocols.LispMapNotify;
 import org.onosproject.lisp.msg.protocols.LispMapRegister;
+import org.onosproject.lisp.msg.protocols.LispMapReply;
 import org.onosproject.lisp.msg.protocols.LispMapRequest;
 import org.onosproject.lisp.msg.protocols.LispMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.onlab.packet.IpAddress.valueOf;
-import static org.onlab.util.Tools.groupedThreads;
 
 /**
  * Channel handler deals with the xTR connection and dispatches xTR messages
@@ -48,15 +50,89 @@ public class LispChannelHandler extends ChannelInboundHandlerAdapter {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
-    private final LispRouterFactory routerFactory = LispRouterFactory.getInstance();
+    private static final int MESSAGE_THREADS = 32;
+    private static final int DEFAULT_MESSAGE_QUEUE_CAPACITY = 10000;
+    private static final int DEFAULT_SEND_BATCH_SIZE = 32;
 
-    protected ExecutorService executorMessages =
-            Executors.newFixedThreadPool(32, groupedThreads("onos/lisp", "message-stats-%d", log));
+    // shared by the handlers of all LISP channels
+    private static final LispIngressStage MESSAGE_STAGE =
+            new LispIngressStage("message-stats", MESSAGE_THREADS,
+                                 DEFAULT_MESSAGE_QUEUE_CAPACITY);
+
+    // whether the message handling tasks are recycled
+    private static volatile boolean messagePooling;
+
+    // maximum number of outgoing messages which are flushed at once
+    private static volatile int sendBatchSize = DEFAULT_SEND_BATCH_SIZE;
+
+    // outgoing messages of the message handling tasks, written on the event loop
+    private final Queue<Object> outboundMessages = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+     * Obtains the processing stage of incoming LISP messages.
+     *
+     * @return message processing stage
+     */
+    static LispIngressStage messageStage() {
+        return MESSAGE_STAGE;
+    }
+
+    /**
+     * Configures whether the tasks which handle incoming messages are
+     * recycled, and whether outgoing messages are encoded into pooled
+     * buffers, instead of being allocated per message.
+     *
+     * @param enabled whether message pooling is enabled
+     */
+    static void setMessagePooling(boolean enabled) {
+        messagePooling = enabled;
+    }
+
+    /**
+     * Returns whether message pooling is enabled.
+     *
+     * @return whether message pooling is enabled
+     */
+    static boolean isMessagePooling() {
+        return messagePooling;
+    }
+
+    /**
+     * Configures the maximum number of outgoing messages which are flushed
+     * at once. On the native epoll transport, the messages which are flushed
+     * at once are sent through a single sendmmsg call.
+     *
+     * @param size send batch size; 1 flushes each message
+     */
+    static void setSendBatchSize(int size) {
+        sendBatchSize = Math.max(size, 1);
+    }
 
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 
-        executorMessages.execute(new LispMessageHandler(ctx, (LispMessage) msg));
+        LispMessage message = (LispMessage) msg;
+        LispMessageHandler handler = LispMessageHandler.newInstance(ctx, message);
+        if (!MESSAGE_STAGE.execute(message, handler)) {
+            handler.recycle();
+            try {
+                // answers the shed map-requests without looking up mappings
+                if (MESSAGE_STAGE.policy() == ShedPolicy.NEGATIVE_REPLY &&
+                        message instanceof LispEncapsulatedControl) {
+                    LispMessage innerMsg =
+                            extractLispMessage((LispEncapsulatedControl) message);
+                    if (innerMsg instanceof LispMapRequest) {
+                        LispMapResolver.getInstance()
+                                .processOverloadedMapRequest(message)
+                                .forEach(ctx::write);
+                        ctx.flush();
+                    }
+                }
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+        }
     }
 
     @Override
@@ -86,13 +162,54 @@ public class LispChannelHandler extends ChannelInboundHandlerAdapter {
         //TODO: add error handle mechanisms for each cases
     }
 
+    /**
+     * Sends the given message from a message handling task. The message is
+     * queued, and the messages which are queued until the event loop picks
+     * them up are written and flushed together, rather than one flush per
+     * message.
+     *
+     * @param ctx     channel handler context
+     * @param message LISP message, or a list of LISP messages
+     */
+    static void send(ChannelHandlerContext ctx, Object message) {
+        LispChannelHandler handler = (LispChannelHandler) ctx.handler();
+        handler.outboundMessages.add(message);
+        if (handler.drainScheduled.compareAndSet(false, true)) {
+            ctx.executor().execute(() -> handler.drainOutboundMessages(ctx));
+        }
+    }
+
+    /**
+     * Writes the queued outgoing messages, with a flush per send batch.
+     *
+     * @param ctx channel handler context
+     */
+    private void drainOutboundMessages(ChannelHandlerContext ctx) {
+        // cleared ahead of polling, so that no message queued later is missed
+        drainScheduled.set(false);
+
+        int batchSize = sendBatchSize;
+        int pending = 0;
+        Object message;
+        while ((message = outboundMessages.poll()) != null) {
+            ctx.write(message);
+            if (++pending >= batchSize) {
+                ctx.flush();
+                pending = 0;
+            }
+        }
+        if (pending > 0) {
+            ctx.flush();
+        }
+    }
+
     /**
      * Extracts LISP message from encapsulated control message.
      *
      * @param ecm Encapsulated Control Message
      * @return extracted LISP message
      */
-    private LispMessage extractLispMessage(LispEncapsulatedControl ecm) {
+    private static LispMessage extractLispMessage(LispEncapsulatedControl ecm) {
         LispMessage message = ecm.getControlMessage();
         message.configSender(ecm.getSender());
         return message;
@@ -100,16 +217,58 @@ public class LispChannelHandler extends ChannelInboundHandlerAdapter {
 
     /**
      * LISP message handler.
+     * <p>
+     * With message pooling, a handler is recycled once it has run or once
+     * its message has been shed. Only the handler is recycled, but not the
+     * message: a registered message is kept by the listeners and the mapping
+     * database, and the map-request of an ECM is re-encapsulated into the
+     * ECMs which are relayed to the ETRs and written after the handler has
+     * run.
      */
-    private final class LispMessageHandler implements Runnable {
+    static final class LispMessageHandler implements Runnable {
+
+        private static final Recycler<LispMessageHandler> RECYCLER =
+                new Recycler<LispMessageHandler>() {
+            @Override
+            protected LispMessageHandler newObject(Handle<LispMessageHandler> handle) {
+                return new LispMessageHandler(handle);
+            }
+        };
+
+        private final Recycler.Handle<LispMessageHandler> handle;
+        private ChannelHandlerContext ctx;
+        private LispMessage msg;
 
-        protected final ChannelHandlerContext ctx;
-        protected final LispMessage msg;
-        private LispRouter router;
+        private LispMessageHandler(Recycler.Handle<LispMessageHandler> handle) {
+            this.handle = handle;
+        }
+
+        /**
+         * Obtains a handler of the given message, which is recycled if
+         * message pooling is enabled.
+         *
+         * @param ctx channel handler context
+         * @param msg LISP message
+         * @return message handler
+         */
+        static LispMessageHandler newInstance(ChannelHandlerContext ctx,
+                                              LispMessage msg) {
+            LispMessageHandler handler =
+                    messagePooling ? RECYCLER.get() : new LispMessageHandler(null);
+            handler.ctx = ctx;
+            handler.msg = msg;
+            return handler;
+        }
 
-        public LispMessageHandler(ChannelHandlerContext ctx, LispMessage msg) {
-            this.ctx = ctx;
-            this.msg = msg;
+        /**
+         * Returns the handler to the pool, if it has been taken from it.
+         */
+        void recycle() {
+            ctx = null;
+            msg = null;
+            if (handle != null) {
+                handle.recycle(this);
+            }
         }
 
         @Override
@@ -120,12 +279,14 @@ public class LispChannelHandler extends ChannelInboundHandlerAdapter {
                 if (msg instanceof LispEncapsulatedControl) {
                     LispMessage innerMsg = extractLispMessage((LispEncapsulatedControl) msg);
                     if (innerMsg instanceof LispMapRequest) {
+                        LispSmrEngine.getInstance().setChannel(ctx.channel());
+                        LispMapPublisher.getInstance().setChannel(ctx.channel());
                         LispMapResolver mapResolver = LispMapResolver.getInstance();
                         List<LispMessage> lispMessages =
                                 mapResolver.processMapRequest(msg);
 
                         if (lispMessages != null) {
-                            lispMessages.forEach(ctx::writeAndFlush);
+                            lispMessages.forEach(message -> send(ctx, message));
                         }
                     }
                 }
@@ -134,17 +295,25 @@ public class LispChannelHandler extends ChannelInboundHandlerAdapter {
                 if (msg instanceof LispMapRegister) {
 
                     LispMapRegister register = (LispMapRegister) msg;
+                    LispRlocProber.getInstance().setChannel(ctx.channel());
                     IpAddress xtrAddress = valueOf(register.getSender().getAddress());
-                    router = routerFactory.getRouterInstance(xtrAddress);
-                    router.setChannel(ctx.channel());
-                    router.connectRouter();
+                    LispRouter router = LispRouterRegistry.getInstance()
+                                    .getRouter(xtrAddress, ctx.channel());
                     router.handleMessage(register);
 
                     LispMapServer mapServer = LispMapServer.getInstance();
                     LispMapNotify mapNotify = mapServer.processMapRegister(register);
 
                     if (mapNotify != null) {
-                        ctx.writeAndFlush(mapNotify);
+                        send(ctx, mapNotify);
+                    }
+                }
+
+                // process probe map-reply message
+                if (msg instanceof LispMapReply) {
+                    LispMapReply reply = (LispMapReply) msg;
+                    if (reply.isProbe()) {
+                        LispRlocProber.getInstance().handleProbeReply(reply.getNonce());
                     }
                 }
 
@@ -154,12 +323,13 @@ public class LispChannelHandler extends ChannelInboundHandlerAdapter {
                     LispInfoReply infoReply = mapServer.processInfoRequest(msg);
 
                     if (infoReply != null) {
-                        ctx.writeAndFlush(infoReply);
+                        send(ctx, infoReply);
                     }
                 }
             } finally {
                 // try to remove the received message form the buffer
                 ReferenceCountUtil.release(msg);
+                recycle();
             }
         }
     }
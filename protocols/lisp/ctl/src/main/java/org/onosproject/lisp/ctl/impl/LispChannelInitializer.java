@@ -17,26 +17,30 @@ package org.onosproject.lisp.ctl.impl;
 
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
-import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.DatagramChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Creates a ChannelInitializer for a server-side LISP channel.
  */
-public final class LispChannelInitializer extends ChannelInitializer<NioDatagramChannel> {
+public final class LispChannelInitializer extends ChannelInitializer<DatagramChannel> {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
+    private static final String LISP_RATE_LIMITER = "lispratelimiter";
+    private static final String LISP_HEADER_VALIDATOR = "lispheadervalidator";
     private static final String LISP_MESSAGE_DECODER = "lispmessagedecoder";
     private static final String LISP_MESSAGE_ENCODER = "lispmessageencoder";
     private static final String LISP_CHANNEL_HANDLER = "handler";
 
     @Override
-    protected void initChannel(NioDatagramChannel channel) throws Exception {
+    protected void initChannel(DatagramChannel channel) throws Exception {
         ChannelPipeline pipeline = channel.pipeline();
 
         LispChannelHandler handler = new LispChannelHandler();
 
+        pipeline.addLast(LISP_RATE_LIMITER, LispRateLimiter.getInstance());
+        pipeline.addLast(LISP_HEADER_VALIDATOR, LispHeaderValidator.getInstance());
         pipeline.addLast(LISP_MESSAGE_DECODER, new LispMessageDecoder());
         pipeline.addLast(LISP_MESSAGE_ENCODER, new LispMessageEncoder());
         pipeline.addLast(LISP_CHANNEL_HANDLER, handler);
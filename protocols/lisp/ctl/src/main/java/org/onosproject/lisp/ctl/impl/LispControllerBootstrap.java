@@ -23,6 +23,8 @@ import io.netty.channel.AbstractChannel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollDatagramChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
@@ -42,9 +44,12 @@ public class LispControllerBootstrap {
 
     private static final int LISP_DATA_PORT = 4341;
     private static final int LISP_CONTROL_PORT = 4342;
+    private static final int MAX_DATAGRAM_SIZE = 2048;
+    private static final int DEFAULT_RECEIVE_BATCH_SIZE = 32;
 
     // Configuration options
     protected List<Integer> lispPorts = ImmutableList.of(LISP_DATA_PORT, LISP_CONTROL_PORT);
+    private volatile int receiveBatchSize = DEFAULT_RECEIVE_BATCH_SIZE;
 
     private EventLoopGroup eventLoopGroup;
     private Class<? extends AbstractChannel> channelClass;
@@ -98,6 +103,24 @@ public class LispControllerBootstrap {
      */
     private void configBootstrapOptions(Bootstrap bootstrap) {
         bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+
+        // reads up to a batch of datagrams per wake-up of the event loop,
+        // each through its own system call, before the read is completed
+        // and the loop turns to the writes
+        bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR,
+                new FixedRecvByteBufAllocator(MAX_DATAGRAM_SIZE)
+                        .maxMessagesPerRead(receiveBatchSize));
+    }
+
+    /**
+     * Configures the maximum number of datagrams which are read per wake-up
+     * of the event loop. The size only takes effect when the bootstrap is
+     * started.
+     *
+     * @param size receive batch size; 1 reads a datagram at once
+     */
+    public void setReceiveBatchSize(int size) {
+        receiveBatchSize = Math.max(size, 1);
     }
 
     /**
@@ -123,8 +146,14 @@ public class LispControllerBootstrap {
         // try to use EpollEventLoopGroup if possible,
         // if OS does not support native Epoll, fallback to use netty NIO
         try {
-            eventLoopGroup = new EpollEventLoopGroup();
-            channelClass = EpollDatagramChannel.class;
+            if (Epoll.isAvailable()) {
+                eventLoopGroup = new EpollEventLoopGroup();
+                channelClass = EpollDatagramChannel.class;
+                return;
+            }
+            log.debug("Native (epoll) transport is unavailable. "
+                        + "Reason: {}. Proceeding with NIO event group.",
+                        Epoll.unavailabilityCause());
         } catch (NoClassDefFoundError e) {
             log.debug("Failed to initialize native (epoll) transport. "
                         + "Reason: {}. Proceeding with NIO event group.", e);
@@ -15,6 +15,10 @@
  */
 package org.onosproject.lisp.ctl.impl;
 
+import com.codahale.metrics.Gauge;
+import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
@@ -24,6 +28,10 @@ import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.Service;
+import org.onlab.metrics.MetricsComponent;
+import org.onlab.metrics.MetricsFeature;
+import org.onlab.metrics.MetricsService;
+import org.onlab.packet.IpAddress;
 import org.onlab.util.Tools;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
@@ -34,22 +42,31 @@ import org.onosproject.lisp.ctl.LispRouterAgent;
 import org.onosproject.lisp.ctl.LispRouterFactory;
 import org.onosproject.lisp.ctl.LispRouterId;
 import org.onosproject.lisp.ctl.LispRouterListener;
+import org.onosproject.lisp.ctl.impl.LispHeaderValidator.Violation;
+import org.onosproject.lisp.ctl.impl.LispIngressStage.ShedPolicy;
 import org.onosproject.lisp.msg.authentication.LispAuthenticationConfig;
 import org.onosproject.lisp.msg.protocols.LispInfoReply;
 import org.onosproject.lisp.msg.protocols.LispInfoRequest;
 import org.onosproject.lisp.msg.protocols.LispMessage;
+import org.onosproject.lisp.msg.protocols.LispType;
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Dictionary;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 
-import static java.util.concurrent.Executors.newFixedThreadPool;
-import static java.util.stream.Collectors.toConcurrentMap;
+import static java.util.Collections.unmodifiableCollection;
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.onlab.util.Tools.get;
 import static org.onlab.util.Tools.getIntegerProperty;
 import static org.onlab.util.Tools.groupedThreads;
@@ -63,11 +80,38 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class LispControllerImpl implements LispController {
 
     private static final String APP_ID = "org.onosproject.lisp-base";
+    private static final String METRICS_COMPONENT = "lisp";
 
     private static final Logger log = getLogger(LispControllerImpl.class);
 
     private static final String DEFAULT_LISP_AUTH_KEY = "onos";
     private static final short DEFAULT_LISP_AUTH_KEY_ID = 1;
+    private static final boolean DEFAULT_OFF_HEAP_MAPPING_STORE = false;
+    private static final int DEFAULT_MAPPING_SNAPSHOT_INTERVAL = 0;
+    private static final boolean DEFAULT_REGISTRATION_JOURNAL = false;
+    private static final boolean DEFAULT_EID_AGGREGATION = false;
+    private static final int DEFAULT_MAP_REQUEST_COALESCING_WINDOW = 0;
+    private static final boolean DEFAULT_SOLICIT_MAP_REQUEST = false;
+    private static final int DEFAULT_SMR_RATE_LIMIT = 100;
+    private static final boolean DEFAULT_MAP_SUBSCRIPTION = false;
+    private static final boolean DEFAULT_RLOC_PROBING = false;
+    private static final int DEFAULT_RLOC_PROBE_INTERVAL = 10;
+    private static final String DEFAULT_RLOC_PROBE_SOURCE = "";
+    private static final int DEFAULT_ROUTER_IDLE_TIMEOUT = 0;
+    private static final int DEFAULT_INGRESS_QUEUE_CAPACITY = 10000;
+    private static final String DEFAULT_INGRESS_SHED_POLICY = "drop_newest";
+    private static final int EVENT_THREADS = 4;
+    private static final boolean DEFAULT_RATE_LIMITING = false;
+    private static final int DEFAULT_MAP_REQUEST_RATE_LIMIT = 100;
+    private static final int DEFAULT_MAP_REGISTER_RATE_LIMIT = 10;
+    private static final int DEFAULT_INFO_REQUEST_RATE_LIMIT = 10;
+    private static final boolean DEFAULT_MESSAGE_POOLING = false;
+    private static final boolean DEFAULT_EARLY_REGISTER_AUTHENTICATION = false;
+    private static final int DEFAULT_RECEIVE_BATCH_SIZE = 32;
+    private static final int DEFAULT_SEND_BATCH_SIZE = 32;
+    private static final String LISP_DATA_DIR = "lisp";
+    private static final String MAPPING_SNAPSHOT_FILE = "mapping.snapshot";
+    private static final String REGISTRATION_JOURNAL_DIR = "journal";
 
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected CoreService coreService;
@@ -75,6 +119,9 @@ public class LispControllerImpl implements LispController {
     @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
     protected ComponentConfigService cfgService;
 
+    @Reference(cardinality = ReferenceCardinality.MANDATORY_UNARY)
+    protected MetricsService metricsService;
+
     @Property(name = "lispAuthKey", value = DEFAULT_LISP_AUTH_KEY,
             label = "Authentication key which is used to calculate authentication " +
                     "data for LISP control message; default value is onos")
@@ -87,13 +134,159 @@ public class LispControllerImpl implements LispController {
                     "default value is 1")
     private int lispAuthKeyId = DEFAULT_LISP_AUTH_KEY_ID;
 
-    ExecutorService executorMessages =
-            newFixedThreadPool(4, groupedThreads("onos/lisp", "event-stats-%d", log));
+    @Property(name = "enableOffHeapMappingStore", boolValue = DEFAULT_OFF_HEAP_MAPPING_STORE,
+            label = "Enable keeping EID-RLOC mapping records in off-heap memory, " +
+                    "which are decoded on demand; this reduces but does not " +
+                    "bound heap usage, as about 64 bytes per record and the " +
+                    "EID indexes stay on heap, and the space of expired records " +
+                    "is not reused, so that off-heap memory may only grow until " +
+                    "restart under churn; default is false")
+    private boolean enableOffHeapMappingStore = DEFAULT_OFF_HEAP_MAPPING_STORE;
+
+    @Property(name = "mappingSnapshotInterval", intValue = DEFAULT_MAPPING_SNAPSHOT_INTERVAL,
+            label = "Interval in seconds at which a snapshot of EID-RLOC mapping " +
+                    "database is taken for warm restart; 0 disables snapshot; " +
+                    "default value is 0")
+    private int mappingSnapshotInterval = DEFAULT_MAPPING_SNAPSHOT_INTERVAL;
+
+    @Property(name = "enableRegistrationJournal", boolValue = DEFAULT_REGISTRATION_JOURNAL,
+            label = "Enable journaling authenticated map-register messages, which are " +
+                    "replayed to recover EID-RLOC mapping database on restart, " +
+                    "instead of loading the mapping snapshot; default is false")
+    private boolean enableRegistrationJournal = DEFAULT_REGISTRATION_JOURNAL;
+
+    @Property(name = "enableEidAggregation", boolValue = DEFAULT_EID_AGGREGATION,
+            label = "Enable aggregating sibling IP EID prefixes which have the same " +
+                    "mapping, so that map-replies carry the covering prefix; " +
+                    "default is false")
+    private boolean enableEidAggregation = DEFAULT_EID_AGGREGATION;
+
+    @Property(name = "mapRequestCoalescingWindow", intValue = DEFAULT_MAP_REQUEST_COALESCING_WINDOW,
+            label = "Window in milliseconds in which identical map-requests are " +
+                    "coalesced, so that only the first one is relayed to ETR and " +
+                    "the others are replied by map resolver; 0 disables coalescing; " +
+                    "default value is 0")
+    private int mapRequestCoalescingWindow = DEFAULT_MAP_REQUEST_COALESCING_WINDOW;
+
+    @Property(name = "enableSolicitMapRequest", boolValue = DEFAULT_SOLICIT_MAP_REQUEST,
+            label = "Enable sending solicit-map-request messages to the ITRs which " +
+                    "have recently resolved an EID prefix whose mapping has changed; " +
+                    "default is false")
+    private boolean enableSolicitMapRequest = DEFAULT_SOLICIT_MAP_REQUEST;
+
+    @Property(name = "smrRateLimit", intValue = DEFAULT_SMR_RATE_LIMIT,
+            label = "Maximum number of solicit-map-request messages sent per second; " +
+                    "default value is 100")
+    private int smrRateLimit = DEFAULT_SMR_RATE_LIMIT;
+
+    @Property(name = "enableMapSubscription", boolValue = DEFAULT_MAP_SUBSCRIPTION,
+            label = "Enable ITRs to subscribe to EID prefixes with map-requests, " +
+                    "and publish mapping updates to the subscribers with " +
+                    "map-notify messages; default is false")
+    private boolean enableMapSubscription = DEFAULT_MAP_SUBSCRIPTION;
+
+    @Property(name = "enableRlocProbing", boolValue = DEFAULT_RLOC_PROBING,
+            label = "Enable probing the RLOCs of the registered mapping records, " +
+                    "so that unreachable RLOCs are neither selected to relay " +
+                    "map-requests nor regarded as available devices; " +
+                    "default is false")
+    private boolean enableRlocProbing = DEFAULT_RLOC_PROBING;
+
+    @Property(name = "rlocProbeInterval", intValue = DEFAULT_RLOC_PROBE_INTERVAL,
+            label = "Base interval in seconds at which an RLOC is probed, which " +
+                    "grows while the RLOC keeps replying; default value is 10")
+    private int rlocProbeInterval = DEFAULT_RLOC_PROBE_INTERVAL;
+
+    @Property(name = "rlocProbeSource", value = DEFAULT_RLOC_PROBE_SOURCE,
+            label = "Routable address of this map server which RLOC probes " +
+                    "and SMRs carry as ITR-RLOC; if empty, the local address " +
+                    "of the control channel is used, and neither is sent while " +
+                    "it is a wildcard or loopback address; default is empty")
+    private String rlocProbeSource = DEFAULT_RLOC_PROBE_SOURCE;
+    private IpAddress localRloc;
+
+    @Property(name = "routerIdleTimeout", intValue = DEFAULT_ROUTER_IDLE_TIMEOUT,
+            label = "Minimum time in seconds for which a router may stay silent " +
+                    "before it is removed, which is extended to three times its " +
+                    "registration interval, e.g., 180; 0 disables removing " +
+                    "silent routers; default value is 0")
+    private int routerIdleTimeout = DEFAULT_ROUTER_IDLE_TIMEOUT;
+
+    @Property(name = "ingressQueueCapacity", intValue = DEFAULT_INGRESS_QUEUE_CAPACITY,
+            label = "Maximum number of incoming LISP messages which are queued " +
+                    "in each processing stage; default value is 10000")
+    private int ingressQueueCapacity = DEFAULT_INGRESS_QUEUE_CAPACITY;
+
+    @Property(name = "ingressShedPolicy", value = DEFAULT_INGRESS_SHED_POLICY,
+            label = "Policy on the incoming LISP messages while a processing stage " +
+                    "is overloaded; drop_newest drops the arriving messages once " +
+                    "the queue is full, drop_by_type keeps accepting only " +
+                    "map-registers above 75% of the queue, and negative_reply also " +
+                    "answers the dropped map-requests with a short-TTL negative " +
+                    "map-reply; default is drop_newest")
+    private String ingressShedPolicy = DEFAULT_INGRESS_SHED_POLICY;
+
+    @Property(name = "enableRateLimiting", boolValue = DEFAULT_RATE_LIMITING,
+            label = "Enable limiting the rate of LISP control messages per source " +
+                    "address and message type, before they are decoded; " +
+                    "default is false")
+    private boolean enableRateLimiting = DEFAULT_RATE_LIMITING;
+
+    @Property(name = "mapRequestRateLimit", intValue = DEFAULT_MAP_REQUEST_RATE_LIMIT,
+            label = "Maximum number of map-requests, either plain or encapsulated, " +
+                    "accepted per second from a source; 0 disables the limit; " +
+                    "default value is 100")
+    private int mapRequestRateLimit = DEFAULT_MAP_REQUEST_RATE_LIMIT;
+
+    @Property(name = "mapRegisterRateLimit", intValue = DEFAULT_MAP_REGISTER_RATE_LIMIT,
+            label = "Maximum number of map-registers accepted per second from a " +
+                    "source; 0 disables the limit; default value is 10")
+    private int mapRegisterRateLimit = DEFAULT_MAP_REGISTER_RATE_LIMIT;
+
+    @Property(name = "infoRequestRateLimit", intValue = DEFAULT_INFO_REQUEST_RATE_LIMIT,
+            label = "Maximum number of info-requests accepted per second from a " +
+                    "source; 0 disables the limit; default value is 10")
+    private int infoRequestRateLimit = DEFAULT_INFO_REQUEST_RATE_LIMIT;
+
+    @Property(name = "enableMessagePooling", boolValue = DEFAULT_MESSAGE_POOLING,
+            label = "Enable recycling the tasks which handle incoming messages, " +
+                    "and encoding outgoing messages into pooled buffers; the " +
+                    "message objects are never recycled; default is false")
+    private boolean enableMessagePooling = DEFAULT_MESSAGE_POOLING;
+
+    @Property(name = "enableEarlyRegisterAuthentication",
+            boolValue = DEFAULT_EARLY_REGISTER_AUTHENTICATION,
+            label = "Enable checking the authentication data of map-registers " +
+                    "over the received bytes before decoding them, so that " +
+                    "forged map-registers are dropped without decoding their " +
+                    "records; default is false")
+    private boolean enableEarlyRegisterAuthentication =
+                                            DEFAULT_EARLY_REGISTER_AUTHENTICATION;
+
+    @Property(name = "receiveBatchSize", intValue = DEFAULT_RECEIVE_BATCH_SIZE,
+            label = "Maximum number of datagrams read per wake-up of the event " +
+                    "loop, each through its own system call, rather than " +
+                    "Netty's 16; it is fixed at activation and cannot be " +
+                    "changed at runtime; default value is 32")
+    private int receiveBatchSize = DEFAULT_RECEIVE_BATCH_SIZE;
+    private boolean receiveBatchSizeFixed;
+
+    @Property(name = "sendBatchSize", intValue = DEFAULT_SEND_BATCH_SIZE,
+            label = "Maximum number of outgoing messages flushed at once, through " +
+                    "a single sendmmsg call on the native epoll transport where " +
+                    "the kernel supports it; 1 disables batching; default value is 32")
+    private int sendBatchSize = DEFAULT_SEND_BATCH_SIZE;
+
+    final LispIngressStage eventStage = new LispIngressStage("event-stats",
+                                    EVENT_THREADS, DEFAULT_INGRESS_QUEUE_CAPACITY);
 
     protected LispRouterAgent agent = new DefaultLispRouterAgent();
 
     ConcurrentMap<LispRouterId, LispRouter> connectedRouters = Maps.newConcurrentMap();
 
+    // connected routers which are subscribed, maintained on subscription changes
+    ConcurrentMap<LispRouterId, LispRouter> subscribedRouters = Maps.newConcurrentMap();
+
     final LispAuthenticationConfig authConfig = LispAuthenticationConfig.getInstance();
     LispControllerBootstrap bootstrap = new LispControllerBootstrap();
 
@@ -102,12 +295,37 @@ public class LispControllerImpl implements LispController {
 
     private LispRouterFactory routerFactory = LispRouterFactory.getInstance();
 
+    final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+    private final Path dataDir = Paths.get(System.getProperty("karaf.data", "."), LISP_DATA_DIR);
+    LispMappingSnapshot mappingSnapshot =
+            new LispMappingSnapshot(dataDir.resolve(MAPPING_SNAPSHOT_FILE));
+    private LispRegistrationJournal registrationJournal;
+
+    private ScheduledExecutorService snapshotExecutor;
+    private ScheduledFuture<?> snapshotTask;
+
+    private MetricsComponent metricsComponent;
+    private final List<Map.Entry<MetricsFeature, String>> registeredMetrics =
+                                                        Lists.newArrayList();
+
     @Activate
     public void activate(ComponentContext context) {
         coreService.registerApplication(APP_ID, this::cleanup);
         cfgService.registerProperties(getClass());
-        initAuthConfig(context.getProperties());
+        snapshotExecutor = newSingleThreadScheduledExecutor(
+                groupedThreads("onos/lisp", "mapping-snapshot", log));
+        Dictionary<?, ?> properties = context.getProperties();
+        initAuthConfig(properties);
+        initMappingStoreConfig(properties);
+        initLocalRlocConfig(properties);
+        initMapResolverConfig(properties);
+        initReachabilityConfig(properties);
+        initIngressConfig(properties);
+        initTransportConfig(properties);
+        restoreMappingDatabase();
+        updateRegistrationJournal();
         routerFactory.setAgent(agent);
+        registerMetrics();
         bootstrap.start();
         log.info("Started");
     }
@@ -121,15 +339,84 @@ public class LispControllerImpl implements LispController {
         routerFactory.cleanAgent();
         connectedRouters.values().forEach(LispRouter::disconnectRouter);
         connectedRouters.clear();
+        subscribedRouters.clear();
+        LispRouterRegistry.getInstance().clear();
     }
 
     @Deactivate
     public void deactivate() {
+        receiveBatchSizeFixed = false;
+        removeMetrics();
+        stopRegistrationJournal();
+        cancelMappingSnapshot();
+        snapshotExecutor.shutdown();
+        snapshotExecutor = null;
+        LispSmrEngine.getInstance().stop();
+        LispMapPublisher.getInstance().stop();
+        LispRlocProber.getInstance().stop();
+        LispRouterSweeper.getInstance().stop();
         cleanup();
+        eventStage.shutdown();
         cfgService.unregisterProperties(getClass(), false);
         log.info("Stopped");
     }
 
+    /**
+     * Registers the counters of the message processing stages as gauges of
+     * the metrics service.
+     */
+    private void registerMetrics() {
+        metricsComponent = metricsService.registerComponent(METRICS_COMPONENT);
+
+        MetricsFeature ingress = metricsComponent.registerFeature("ingress");
+        registerGauge(ingress, "shedMessages",
+                      LispChannelHandler.messageStage()::shedMessages);
+        registerGauge(ingress, "shedEvents", eventStage::shedMessages);
+
+        LispHeaderValidator validator = LispHeaderValidator.getInstance();
+        MetricsFeature validation = metricsComponent.registerFeature("headerValidation");
+        for (Violation violation : Violation.values()) {
+            registerGauge(validation, "dropped" +
+                          CaseFormat.UPPER_UNDERSCORE.to(CaseFormat.UPPER_CAMEL,
+                                                         violation.name()),
+                          () -> validator.droppedPackets(violation));
+        }
+
+        LispRateLimiter limiter = LispRateLimiter.getInstance();
+        MetricsFeature rateLimiting = metricsComponent.registerFeature("rateLimiting");
+        registerGauge(rateLimiting, "passedMessages", limiter::passedMessages);
+        registerGauge(rateLimiting, "trackedSources", limiter::trackedSources);
+        registerGauge(rateLimiting, "droppedMapRequests",
+                      () -> limiter.droppedMessages(LispType.LISP_MAP_REQUEST) +
+                            limiter.droppedMessages(LispType.LISP_ENCAPSULATED_CONTROL));
+        registerGauge(rateLimiting, "droppedMapRegisters",
+                      () -> limiter.droppedMessages(LispType.LISP_MAP_REGISTER));
+        registerGauge(rateLimiting, "droppedInfoRequests",
+                      () -> limiter.droppedMessages(LispType.LISP_INFO));
+
+        LispMapResolver resolver = LispMapResolver.getInstance();
+        MetricsFeature coalescing = metricsComponent.registerFeature("mapRequestCoalescing");
+        registerGauge(coalescing, "forwardedRequests", resolver::forwardedRequests);
+        registerGauge(coalescing, "coalescedRequests", resolver::coalescedRequests);
+
+        MetricsFeature authentication = metricsComponent.registerFeature("authentication");
+        registerGauge(authentication, "forgedRegisters", LispMessageDecoder::forgedRegisters);
+    }
+
+    private <T> void registerGauge(MetricsFeature feature, String name, Gauge<T> gauge) {
+        metricsService.registerMetric(metricsComponent, feature, name, gauge);
+        registeredMetrics.add(Maps.immutableEntry(feature, name));
+    }
+
+    /**
+     * Removes the gauges from the metrics service.
+     */
+    private void removeMetrics() {
+        registeredMetrics.forEach(metric -> metricsService.removeMetric(
+                metricsComponent, metric.getKey(), metric.getValue()));
+        registeredMetrics.clear();
+    }
+
     @Modified
     public void modified(ComponentContext context) {
         readComponentConfiguration(context);
@@ -147,6 +434,329 @@ public class LispControllerImpl implements LispController {
         authConfig.updateLispAuthKeyId(getIntegerProperty(properties, "lispAuthKeyId"));
     }
 
+    /**
+     * Initializes the storage, the snapshot and the journal of the mapping
+     * database.
+     *
+     * @param properties a set of properties that contained in component context
+     */
+    private void initMappingStoreConfig(Dictionary<?, ?> properties) {
+        Boolean offHeapEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableOffHeapMappingStore");
+        enableOffHeapMappingStore = offHeapEnabled != null ?
+                        offHeapEnabled : DEFAULT_OFF_HEAP_MAPPING_STORE;
+        mapDb.enableOffHeapStore(enableOffHeapMappingStore);
+
+        Integer snapshotIntervalInt = getIntegerProperty(properties, "mappingSnapshotInterval");
+        mappingSnapshotInterval = snapshotIntervalInt != null ?
+                        snapshotIntervalInt : DEFAULT_MAPPING_SNAPSHOT_INTERVAL;
+        scheduleMappingSnapshot();
+
+        Boolean journalEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableRegistrationJournal");
+        enableRegistrationJournal = journalEnabled != null ?
+                        journalEnabled : DEFAULT_REGISTRATION_JOURNAL;
+
+        Boolean aggregationEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableEidAggregation");
+        enableEidAggregation = aggregationEnabled != null ?
+                        aggregationEnabled : DEFAULT_EID_AGGREGATION;
+        mapDb.enableAggregation(enableEidAggregation);
+    }
+
+    /**
+     * Initializes the RLOC of this map server, which is carried in the
+     * messages it originates.
+     *
+     * @param properties a set of properties that contained in component context
+     */
+    private void initLocalRlocConfig(Dictionary<?, ?> properties) {
+        String probeSourceStr = get(properties, "rlocProbeSource");
+        rlocProbeSource = probeSourceStr != null ?
+                        probeSourceStr.trim() : DEFAULT_RLOC_PROBE_SOURCE;
+        localRloc = null;
+        if (!rlocProbeSource.isEmpty()) {
+            try {
+                localRloc = IpAddress.valueOf(rlocProbeSource);
+            } catch (IllegalArgumentException e) {
+                log.warn("Invalid RLOC probe source {}", rlocProbeSource);
+            }
+            if (localRloc != null && !LispRlocProber.isUsableRloc(localRloc)) {
+                log.warn("RLOC probe source {} is not routable", rlocProbeSource);
+                localRloc = null;
+            }
+        }
+    }
+
+    /**
+     * Initializes map resolver configuration.
+     *
+     * @param properties a set of properties that contained in component context
+     */
+    private void initMapResolverConfig(Dictionary<?, ?> properties) {
+        Integer coalescingWindowInt = getIntegerProperty(properties,
+                                                "mapRequestCoalescingWindow");
+        mapRequestCoalescingWindow = coalescingWindowInt != null ?
+                        coalescingWindowInt : DEFAULT_MAP_REQUEST_COALESCING_WINDOW;
+        LispMapResolver.getInstance().setCoalescingWindow(mapRequestCoalescingWindow);
+
+        Boolean smrEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableSolicitMapRequest");
+        enableSolicitMapRequest = smrEnabled != null ?
+                        smrEnabled : DEFAULT_SOLICIT_MAP_REQUEST;
+
+        Integer smrRateLimitInt = getIntegerProperty(properties, "smrRateLimit");
+        smrRateLimit = smrRateLimitInt != null && smrRateLimitInt > 0 ?
+                        smrRateLimitInt : DEFAULT_SMR_RATE_LIMIT;
+
+        if (enableSolicitMapRequest) {
+            LispSmrEngine.getInstance().start(smrRateLimit, localRloc);
+        } else {
+            LispSmrEngine.getInstance().stop();
+        }
+
+        Boolean subscriptionEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableMapSubscription");
+        enableMapSubscription = subscriptionEnabled != null ?
+                        subscriptionEnabled : DEFAULT_MAP_SUBSCRIPTION;
+
+        if (enableMapSubscription) {
+            LispMapPublisher.getInstance().start(new InternalSubscriberListener());
+        } else {
+            LispMapPublisher.getInstance().stop();
+        }
+    }
+
+    /**
+     * Initializes the reachability tracking of routers and RLOCs.
+     *
+     * @param properties a set of properties that contained in component context
+     */
+    private void initReachabilityConfig(Dictionary<?, ?> properties) {
+        Boolean probingEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableRlocProbing");
+        enableRlocProbing = probingEnabled != null ?
+                        probingEnabled : DEFAULT_RLOC_PROBING;
+
+        Integer probeIntervalInt = getIntegerProperty(properties, "rlocProbeInterval");
+        rlocProbeInterval = probeIntervalInt != null && probeIntervalInt > 0 ?
+                        probeIntervalInt : DEFAULT_RLOC_PROBE_INTERVAL;
+
+        if (enableRlocProbing) {
+            LispRlocProber.getInstance().start(SECONDS.toMillis(rlocProbeInterval),
+                                               localRloc,
+                                               new InternalReachabilityListener());
+        } else {
+            LispRlocProber.getInstance().stop();
+        }
+
+        Integer idleTimeoutInt = getIntegerProperty(properties, "routerIdleTimeout");
+        routerIdleTimeout = idleTimeoutInt != null && idleTimeoutInt >= 0 ?
+                        idleTimeoutInt : DEFAULT_ROUTER_IDLE_TIMEOUT;
+
+        if (routerIdleTimeout > 0) {
+            LispRouterSweeper.getInstance().start(SECONDS.toMillis(routerIdleTimeout),
+                                                  agent::removeConnectedRouter);
+        } else {
+            LispRouterSweeper.getInstance().stop();
+        }
+    }
+
+    /**
+     * Initializes the queue capacity and the shedding policy of the stages
+     * which process incoming LISP messages, and the per-source rate limits
+     * which are applied ahead of them.
+     *
+     * @param properties a set of properties that contained in component context
+     */
+    private void initIngressConfig(Dictionary<?, ?> properties) {
+        Integer capacityInt = getIntegerProperty(properties, "ingressQueueCapacity");
+        ingressQueueCapacity = capacityInt != null && capacityInt > 0 ?
+                        capacityInt : DEFAULT_INGRESS_QUEUE_CAPACITY;
+
+        String policyStr = get(properties, "ingressShedPolicy");
+        ShedPolicy policy = ShedPolicy.parse(policyStr);
+        if (policy == null) {
+            if (policyStr != null) {
+                log.warn("Unknown ingress shed policy {}, using {}",
+                         policyStr, DEFAULT_INGRESS_SHED_POLICY);
+            }
+            policy = ShedPolicy.parse(DEFAULT_INGRESS_SHED_POLICY);
+        }
+        ingressShedPolicy = policy.name().toLowerCase();
+
+        LispChannelHandler.messageStage().configure(ingressQueueCapacity, policy);
+        eventStage.configure(ingressQueueCapacity, policy);
+
+        Boolean rateLimitingEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableRateLimiting");
+        enableRateLimiting = rateLimitingEnabled != null ?
+                        rateLimitingEnabled : DEFAULT_RATE_LIMITING;
+
+        Integer mapRequestRateInt = getIntegerProperty(properties, "mapRequestRateLimit");
+        mapRequestRateLimit = mapRequestRateInt != null && mapRequestRateInt >= 0 ?
+                        mapRequestRateInt : DEFAULT_MAP_REQUEST_RATE_LIMIT;
+
+        Integer mapRegisterRateInt = getIntegerProperty(properties, "mapRegisterRateLimit");
+        mapRegisterRateLimit = mapRegisterRateInt != null && mapRegisterRateInt >= 0 ?
+                        mapRegisterRateInt : DEFAULT_MAP_REGISTER_RATE_LIMIT;
+
+        Integer infoRequestRateInt = getIntegerProperty(properties, "infoRequestRateLimit");
+        infoRequestRateLimit = infoRequestRateInt != null && infoRequestRateInt >= 0 ?
+                        infoRequestRateInt : DEFAULT_INFO_REQUEST_RATE_LIMIT;
+
+        LispRateLimiter.getInstance().configure(enableRateLimiting, ImmutableMap.of(
+                LispType.LISP_MAP_REQUEST, mapRequestRateLimit,
+                LispType.LISP_ENCAPSULATED_CONTROL, mapRequestRateLimit,
+                LispType.LISP_MAP_REGISTER, mapRegisterRateLimit,
+                LispType.LISP_INFO, infoRequestRateLimit));
+
+        Boolean messagePoolingEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableMessagePooling");
+        enableMessagePooling = messagePoolingEnabled != null ?
+                        messagePoolingEnabled : DEFAULT_MESSAGE_POOLING;
+        LispChannelHandler.setMessagePooling(enableMessagePooling);
+
+        Boolean earlyAuthEnabled = Tools.isPropertyEnabled(properties,
+                                                "enableEarlyRegisterAuthentication");
+        enableEarlyRegisterAuthentication = earlyAuthEnabled != null ?
+                        earlyAuthEnabled : DEFAULT_EARLY_REGISTER_AUTHENTICATION;
+        LispMessageDecoder.setEarlyRegisterAuthentication(
+                                            enableEarlyRegisterAuthentication);
+    }
+
+    /**
+     * Initializes the batch sizes of receiving and sending datagrams. The
+     * receive batch size is fixed at activation, and a later change of it
+     * is rejected.
+     *
+     * @param properties a set of properties that contained in component context
+     */
+    private void initTransportConfig(Dictionary<?, ?> properties) {
+        Integer receiveBatchInt = getIntegerProperty(properties, "receiveBatchSize");
+        int newReceiveBatchSize = receiveBatchInt != null && receiveBatchInt > 0 ?
+                        receiveBatchInt : DEFAULT_RECEIVE_BATCH_SIZE;
+        if (!receiveBatchSizeFixed) {
+            receiveBatchSize = newReceiveBatchSize;
+            bootstrap.setReceiveBatchSize(receiveBatchSize);
+            receiveBatchSizeFixed = true;
+        } else if (newReceiveBatchSize != receiveBatchSize) {
+            log.warn("Rejected receive batch size {} as it cannot be changed at " +
+                     "runtime; {} stays in effect until reactivation",
+                     newReceiveBatchSize, receiveBatchSize);
+        }
+
+        Integer sendBatchInt = getIntegerProperty(properties, "sendBatchSize");
+        sendBatchSize = sendBatchInt != null && sendBatchInt > 0 ?
+                        sendBatchInt : DEFAULT_SEND_BATCH_SIZE;
+        LispChannelHandler.setSendBatchSize(sendBatchSize);
+    }
+
+    /**
+     * Restores the mapping database on activation. If the registration
+     * journal is enabled, the journal is replayed, as it is more recent than
+     * the mapping snapshot; otherwise the mapping snapshot is loaded.
+     */
+    private void restoreMappingDatabase() {
+        if (!enableRegistrationJournal) {
+            loadMappingSnapshot();
+            return;
+        }
+
+        LispRegistrationJournal journal =
+                new LispRegistrationJournal(dataDir.resolve(REGISTRATION_JOURNAL_DIR));
+        try {
+            int replayed = journal.replay(mapDb);
+            log.info("Replayed {} registrations from {}", replayed, journal.directory());
+        } catch (IOException e) {
+            log.warn("Failed to replay registration journal from {}", journal.directory(), e);
+        }
+    }
+
+    /**
+     * Starts or stops the registration journal in accordance with the
+     * configuration.
+     */
+    private synchronized void updateRegistrationJournal() {
+        if (enableRegistrationJournal && registrationJournal == null) {
+            LispRegistrationJournal journal =
+                    new LispRegistrationJournal(dataDir.resolve(REGISTRATION_JOURNAL_DIR));
+            try {
+                journal.start();
+            } catch (IOException e) {
+                log.warn("Failed to start registration journal in {}", journal.directory(), e);
+                return;
+            }
+            registrationJournal = journal;
+            LispMapServer.getInstance().setRegistrationJournal(journal);
+        } else if (!enableRegistrationJournal) {
+            stopRegistrationJournal();
+        }
+    }
+
+    /**
+     * Stops the registration journal after writing all of the pending
+     * registrations.
+     */
+    private synchronized void stopRegistrationJournal() {
+        if (registrationJournal != null) {
+            LispMapServer.getInstance().setRegistrationJournal(null);
+            registrationJournal.stop();
+            registrationJournal = null;
+        }
+    }
+
+    /**
+     * Loads the mapping snapshot which has been taken before restart, so that
+     * the mapping database serves the records which have not expired yet,
+     * even before the ETRs register their mappings again.
+     */
+    private void loadMappingSnapshot() {
+        try {
+            int restored = mappingSnapshot.load(mapDb);
+            log.info("Restored {} mapping records from {}", restored, mappingSnapshot.path());
+        } catch (IOException e) {
+            log.warn("Failed to load mapping snapshot from {}", mappingSnapshot.path(), e);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the mapping database.
+     */
+    private void takeMappingSnapshot() {
+        try {
+            int count = mappingSnapshot.write(mapDb);
+            log.debug("Stored {} mapping records into {}", count, mappingSnapshot.path());
+        } catch (IOException e) {
+            log.warn("Failed to store mapping snapshot into {}", mappingSnapshot.path(), e);
+        }
+    }
+
+    /**
+     * Schedules the periodic mapping snapshot with the configured interval.
+     */
+    private synchronized void scheduleMappingSnapshot() {
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+            snapshotTask = null;
+        }
+        if (mappingSnapshotInterval > 0) {
+            snapshotTask = snapshotExecutor.scheduleAtFixedRate(this::takeMappingSnapshot,
+                    mappingSnapshotInterval, mappingSnapshotInterval, SECONDS);
+        }
+    }
+
+    /**
+     * Cancels the periodic mapping snapshot, and takes the last snapshot.
+     */
+    private synchronized void cancelMappingSnapshot() {
+        if (snapshotTask != null) {
+            snapshotTask.cancel(false);
+            snapshotTask = null;
+            takeMappingSnapshot();
+        }
+    }
+
     /**
      * Extracts properties from the component configuration context.
      *
@@ -169,6 +779,51 @@ public class LispControllerImpl implements LispController {
             log.info("Configured. LISP authentication method is configured to {}", lispAuthKeyId);
         }
         authConfig.updateLispAuthKeyId(lispAuthKeyId);
+
+        initMappingStoreConfig(properties);
+        log.info("Configured. Off-heap mapping store is {}",
+                 enableOffHeapMappingStore ? "enabled" : "disabled");
+        log.info("Configured. Mapping snapshot interval is {} seconds",
+                 mappingSnapshotInterval);
+        log.info("Configured. EID prefix aggregation is {}",
+                 enableEidAggregation ? "enabled" : "disabled");
+
+        updateRegistrationJournal();
+        log.info("Configured. Registration journal is {}",
+                 enableRegistrationJournal ? "enabled" : "disabled");
+
+        initLocalRlocConfig(properties);
+        log.info("Configured. RLOC probe source is {}",
+                 rlocProbeSource.isEmpty() ? "the control channel address" : rlocProbeSource);
+
+        initMapResolverConfig(properties);
+        log.info("Configured. Map-request coalescing window is {} ms",
+                 mapRequestCoalescingWindow);
+        log.info("Configured. Solicit-map-request is {}, at most {} per second",
+                 enableSolicitMapRequest ? "enabled" : "disabled", smrRateLimit);
+        log.info("Configured. Map subscription is {}",
+                 enableMapSubscription ? "enabled" : "disabled");
+
+        initReachabilityConfig(properties);
+        log.info("Configured. RLOC-probing is {}, every {} seconds at least",
+                 enableRlocProbing ? "enabled" : "disabled", rlocProbeInterval);
+        log.info("Configured. Router idle timeout is {} seconds", routerIdleTimeout);
+
+        initIngressConfig(properties);
+        log.info("Configured. Ingress queue capacity is {}, with {} policy",
+                 ingressQueueCapacity, ingressShedPolicy);
+        log.info("Configured. Rate limiting is {}, per second and source at most " +
+                 "{} map-requests, {} map-registers and {} info-requests",
+                 enableRateLimiting ? "enabled" : "disabled", mapRequestRateLimit,
+                 mapRegisterRateLimit, infoRequestRateLimit);
+        log.info("Configured. Message pooling is {}",
+                 enableMessagePooling ? "enabled" : "disabled");
+        log.info("Configured. Early map-register authentication is {}",
+                 enableEarlyRegisterAuthentication ? "enabled" : "disabled");
+
+        initTransportConfig(properties);
+        log.info("Configured. Receive batch size is {}, send batch size is {}",
+                 receiveBatchSize, sendBatchSize);
     }
 
     @Override
@@ -178,11 +833,7 @@ public class LispControllerImpl implements LispController {
 
     @Override
     public Iterable<LispRouter> getSubscribedRouters() {
-        return connectedRouters.entrySet()
-                                .stream()
-                                .filter(e -> e.getValue().isSubscribed())
-                                .collect(toConcurrentMap(Map.Entry::getKey,
-                                         Map.Entry::getValue)).values();
+        return unmodifiableCollection(subscribedRouters.values());
     }
 
     @Override
@@ -238,6 +889,52 @@ public class LispControllerImpl implements LispController {
         lispMessageListeners.remove(listener);
     }
 
+    /**
+     * Marks the connected routers as subscribed while they subscribe to
+     * mapping updates.
+     */
+    private final class InternalSubscriberListener
+            implements LispMapPublisher.SubscriberListener {
+
+        @Override
+        public void subscriberAdded(IpAddress subscriber) {
+            LispRouter router = connectedRouters.get(new LispRouterId(subscriber));
+            if (router != null) {
+                router.setSubscribed(true);
+            }
+        }
+
+        @Override
+        public void subscriberRemoved(IpAddress subscriber) {
+            LispRouter router = connectedRouters.get(new LispRouterId(subscriber));
+            if (router != null) {
+                router.setSubscribed(false);
+            }
+        }
+    }
+
+    /**
+     * Marks the connected routers as disconnected while their RLOC is
+     * unreachable, and rebuilds the locator selection accordingly.
+     */
+    private final class InternalReachabilityListener
+            implements LispRlocProber.ReachabilityListener {
+
+        @Override
+        public void reachabilityChanged(IpAddress rloc, boolean reachable) {
+            LispMapResolver.getInstance().invalidateLocatorSelectors();
+
+            LispRouterId routerId = new LispRouterId(rloc);
+            LispRouter router = connectedRouters.get(routerId);
+            if (router != null && router.isConnected() != reachable) {
+                router.setConnected(reachable);
+                for (LispRouterListener listener : lispRouterListeners) {
+                    listener.routerChanged(routerId);
+                }
+            }
+        }
+    }
+
     /**
      * Implementation of a LISP agent which is responsible for keeping track of
      * connected LISP routers and the state in which they are in.
@@ -262,6 +959,9 @@ public class LispControllerImpl implements LispController {
             } else {
                 log.info("Added router {}", routerId);
                 connectedRouters.put(routerId, router);
+                if (router.isSubscribed()) {
+                    subscribedRouters.put(routerId, router);
+                }
                 for (LispRouterListener listener : lispRouterListeners) {
                     listener.routerAdded(routerId);
                 }
@@ -278,6 +978,8 @@ public class LispControllerImpl implements LispController {
             } else {
                 log.info("Removed router {}", routerId);
                 connectedRouters.remove(routerId);
+                subscribedRouters.remove(routerId);
+                LispRouterRegistry.getInstance().removeRouter(routerId.id());
                 for (LispRouterListener listener : lispRouterListeners) {
                     listener.routerRemoved(routerId);
                 }
@@ -290,12 +992,12 @@ public class LispControllerImpl implements LispController {
             switch (message.getType()) {
                 case LISP_MAP_REGISTER:
                 case LISP_MAP_REQUEST:
-                    executorMessages.execute(
+                    eventStage.execute(message,
                             new LispIncomingMessageHandler(routerId, message));
                     break;
                 case LISP_INFO:
                     if (message instanceof LispInfoRequest) {
-                        executorMessages.execute(
+                        eventStage.execute(message,
                                 new LispIncomingMessageHandler(routerId, message));
                     } else {
                         log.warn("Not incoming LISP control message");
@@ -313,12 +1015,12 @@ public class LispControllerImpl implements LispController {
             switch (message.getType()) {
                 case LISP_MAP_NOTIFY:
                 case LISP_MAP_REPLY:
-                    executorMessages.execute(
+                    eventStage.execute(message,
                             new LispOutgoingMessageHandler(routerId, message));
                     break;
                 case LISP_INFO:
                     if (message instanceof LispInfoReply) {
-                        executorMessages.execute(
+                        eventStage.execute(message,
                                 new LispOutgoingMessageHandler(routerId, message));
                     } else {
                         log.warn("Not outgoing LISP control message");
@@ -329,6 +1031,33 @@ public class LispControllerImpl implements LispController {
                     break;
             }
         }
+
+        @Override
+        public void updateRouterSubscription(LispRouterId routerId, boolean subscribed) {
+
+            LispRouter router = connectedRouters.get(routerId);
+            if (router == null) {
+                return;
+            }
+
+            // the current state is re-read along with the update of the
+            // index, so that the last notification leaves the latest state
+            boolean current;
+            boolean changed;
+            synchronized (subscribedRouters) {
+                current = router.isSubscribed();
+                changed = current ?
+                        subscribedRouters.put(routerId, router) == null :
+                        subscribedRouters.remove(routerId) != null;
+            }
+            if (changed) {
+                log.debug("Router {} is {}", routerId,
+                          current ? "subscribed" : "unsubscribed");
+                for (LispRouterListener listener : lispRouterListeners) {
+                    listener.routerChanged(routerId);
+                }
+            }
+        }
     }
 
     /**
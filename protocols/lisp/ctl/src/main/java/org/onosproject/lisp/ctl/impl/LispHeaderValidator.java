@@ -0,0 +1,369 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Header validator of incoming LISP control messages.
+ * <p>
+ * Walks the headers of a datagram in place, and checks the message type,
+ * the record and locator counts, the lengths of the addresses and the
+ * declared authentication data length against the size of the datagram,
+ * before any message object is built. The datagrams which do not pass are
+ * dropped and counted by the violation, so that a malformed or truncated
+ * message never reaches the message readers.
+ */
+@Sharable
+final class LispHeaderValidator extends ChannelInboundHandlerAdapter {
+
+    private static final Logger log = getLogger(LispHeaderValidator.class);
+
+    private static final int TYPE_SHIFT_BIT = 4;
+
+    private static final int MAP_REQUEST = 1;
+    private static final int MAP_REPLY = 2;
+    private static final int MAP_REGISTER = 3;
+    private static final int MAP_NOTIFY = 4;
+    private static final int INFO = 7;
+    private static final int ENCAPSULATED_CONTROL = 8;
+
+    // type, flags and counts (4) + nonce (8)
+    private static final int COMMON_HEADER_LENGTH = 12;
+    // common header + key ID (2) + authentication data length (2)
+    private static final int AUTH_HEADER_LENGTH = 16;
+    private static final int AUTH_LENGTH_INDEX = 14;
+    private static final int RECORD_COUNT_INDEX = 3;
+    private static final int ITR_RLOC_COUNT_INDEX = 2;
+
+    // TTL (4) + locator count, mask, action, reserved (4) + version (2)
+    private static final int MAP_RECORD_LENGTH = 10;
+    private static final int LOCATOR_COUNT_INDEX = 4;
+    // priorities, weights (4) + flags (2)
+    private static final int LOCATOR_LENGTH = 6;
+    // reserved (1) + mask length (1)
+    private static final int EID_RECORD_LENGTH = 2;
+    // TTL (4) + reserved (1) + mask length (1)
+    private static final int INFO_PREFIX_LENGTH = 6;
+
+    private static final int AFI_LENGTH = 2;
+    private static final int AFI_NO_ADDRESS = 0;
+    private static final int AFI_IP4 = 1;
+    private static final int AFI_IP6 = 2;
+    private static final int AFI_DISTINGUISHED_NAME = 17;
+    private static final int AFI_LCAF = 16387;
+    private static final int AFI_MAC = 16389;
+    private static final int IP4_LENGTH = 4;
+    private static final int IP6_LENGTH = 16;
+    private static final int MAC_LENGTH = 6;
+    private static final int LCAF_HEADER_LENGTH = 8;
+    private static final int LCAF_LENGTH_INDEX = 6;
+
+    // ECM header (4), and the inner IPv4 and UDP headers
+    private static final int ECM_HEADER_LENGTH = 4;
+    private static final int IP4_VERSION = 4;
+    private static final int IP4_MIN_HEADER_LENGTH = 20;
+    private static final int IP4_TOTAL_LENGTH_INDEX = 2;
+    private static final int UDP_HEADER_LENGTH = 8;
+
+    private static final int INVALID = -1;
+
+    /**
+     * Reasons for which a datagram is dropped.
+     */
+    enum Violation {
+
+        /** The message type is unknown or is not supported. */
+        UNKNOWN_TYPE,
+
+        /** The datagram is shorter than the fixed header of its type. */
+        TRUNCATED_HEADER,
+
+        /** The declared authentication data exceeds the datagram. */
+        AUTH_OVERRUN,
+
+        /** The records, locators or addresses exceed the datagram. */
+        RECORD_OVERRUN,
+
+        /** An address is of an unknown or unsupported family. */
+        UNKNOWN_AFI,
+
+        /** The encapsulated message is not a valid IPv4/UDP datagram. */
+        MALFORMED_ENCAPSULATION
+    }
+
+    private static final Violation[] VIOLATIONS = Violation.values();
+
+    private final AtomicLongArray droppedPackets = new AtomicLongArray(VIOLATIONS.length);
+
+    // non-instantiable (except for our Singleton)
+    private LispHeaderValidator() {
+    }
+
+    static LispHeaderValidator getInstance() {
+        return SingletonHelper.INSTANCE;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            Violation violation = validate(packet.content());
+            if (violation != null) {
+                droppedPackets.incrementAndGet(violation.ordinal());
+                if (log.isDebugEnabled()) {
+                    log.debug("Dropped a datagram from {}: {}",
+                              packet.sender(), violation);
+                }
+                ReferenceCountUtil.release(msg);
+                return;
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * Validates the headers of the LISP message in the given buffer, without
+     * modifying its indices.
+     *
+     * @param byteBuf buffer which holds a LISP message
+     * @return violation of the message, or null if the message is valid
+     */
+    static Violation validate(ByteBuf byteBuf) {
+        return validate(byteBuf, byteBuf.readerIndex(), byteBuf.writerIndex(), true);
+    }
+
+    private static Violation validate(ByteBuf buf, int start, int end,
+                                      boolean outer) {
+        if (start >= end) {
+            return Violation.TRUNCATED_HEADER;
+        }
+
+        int type = buf.getUnsignedByte(start) >> TYPE_SHIFT_BIT;
+        switch (type) {
+            case MAP_REQUEST:
+                return validateMapRequest(buf, start, end);
+            case MAP_REPLY:
+                return validateMapReply(buf, start, end);
+            case MAP_REGISTER:
+            case MAP_NOTIFY:
+                return validateMapRegister(buf, start, end);
+            case INFO:
+                return validateInfo(buf, start, end);
+            case ENCAPSULATED_CONTROL:
+                // an ECM never encapsulates another ECM
+                return outer ? validateEcm(buf, start, end) : Violation.UNKNOWN_TYPE;
+            default:
+                return Violation.UNKNOWN_TYPE;
+        }
+    }
+
+    private static Violation validateMapRequest(ByteBuf buf, int start, int end) {
+        if (end - start < COMMON_HEADER_LENGTH + AFI_LENGTH) {
+            return Violation.TRUNCATED_HEADER;
+        }
+
+        // the reader takes the whole byte as the ITR-RLOC count
+        int itrRlocCount = buf.getUnsignedByte(start + ITR_RLOC_COUNT_INDEX) + 1;
+        int recordCount = buf.getUnsignedByte(start + RECORD_COUNT_INDEX);
+        int index = start + COMMON_HEADER_LENGTH;
+
+        // source EID, ITR-RLOCs and EID records, each of which has an AFI
+        if ((long) itrRlocCount * AFI_LENGTH +
+                (long) recordCount * (EID_RECORD_LENGTH + AFI_LENGTH) > end - index) {
+            return Violation.RECORD_OVERRUN;
+        }
+
+        index = skipAddress(buf, index, end);
+        for (int i = 0; i < itrRlocCount && index >= 0; i++) {
+            index = skipAddress(buf, index, end);
+        }
+        for (int i = 0; i < recordCount && index >= 0; i++) {
+            index = skipAddress(buf, index + EID_RECORD_LENGTH, end);
+        }
+        return violation(index);
+    }
+
+    private static Violation validateMapReply(ByteBuf buf, int start, int end) {
+        if (end - start < COMMON_HEADER_LENGTH) {
+            return Violation.TRUNCATED_HEADER;
+        }
+        int recordCount = buf.getUnsignedByte(start + RECORD_COUNT_INDEX);
+        return violation(skipMapRecords(buf, start + COMMON_HEADER_LENGTH,
+                                        end, recordCount));
+    }
+
+    private static Violation validateMapRegister(ByteBuf buf, int start, int end) {
+        if (end - start < AUTH_HEADER_LENGTH) {
+            return Violation.TRUNCATED_HEADER;
+        }
+        int authLength = buf.getUnsignedShort(start + AUTH_LENGTH_INDEX);
+        if (authLength > end - start - AUTH_HEADER_LENGTH) {
+            return Violation.AUTH_OVERRUN;
+        }
+        int recordCount = buf.getUnsignedByte(start + RECORD_COUNT_INDEX);
+        return violation(skipMapRecords(buf, start + AUTH_HEADER_LENGTH + authLength,
+                                        end, recordCount));
+    }
+
+    private static Violation validateInfo(ByteBuf buf, int start, int end) {
+        if (end - start < AUTH_HEADER_LENGTH) {
+            return Violation.TRUNCATED_HEADER;
+        }
+        int authLength = buf.getUnsignedShort(start + AUTH_LENGTH_INDEX);
+        if (authLength > end - start - AUTH_HEADER_LENGTH) {
+            return Violation.AUTH_OVERRUN;
+        }
+
+        // only the EID prefix is checked, which is common to request and reply
+        int index = start + AUTH_HEADER_LENGTH + authLength + INFO_PREFIX_LENGTH;
+        return violation(skipAddress(buf, index, end));
+    }
+
+    private static Violation validateEcm(ByteBuf buf, int start, int end) {
+        int ipStart = start + ECM_HEADER_LENGTH;
+        if (end - ipStart < IP4_MIN_HEADER_LENGTH + UDP_HEADER_LENGTH) {
+            return Violation.TRUNCATED_HEADER;
+        }
+
+        int versionWithLength = buf.getUnsignedByte(ipStart);
+        int headerLength = (versionWithLength & 0x0f) * 4;
+        int totalLength = buf.getUnsignedShort(ipStart + IP4_TOTAL_LENGTH_INDEX);
+        if (versionWithLength >> 4 != IP4_VERSION ||
+                headerLength < IP4_MIN_HEADER_LENGTH ||
+                totalLength < headerLength + UDP_HEADER_LENGTH ||
+                totalLength > end - ipStart) {
+            return Violation.MALFORMED_ENCAPSULATION;
+        }
+
+        return validate(buf, ipStart + headerLength + UDP_HEADER_LENGTH,
+                        ipStart + totalLength, false);
+    }
+
+    /**
+     * Skips the given number of map records, along with their locators.
+     *
+     * @param buf         buffer
+     * @param index       index of the first record
+     * @param end         end of the message
+     * @param recordCount number of records
+     * @return index next to the last record, or a negative value if the
+     * records exceed the message or have an unknown address family
+     */
+    private static int skipMapRecords(ByteBuf buf, int index, int end, int recordCount) {
+        if ((long) recordCount * (MAP_RECORD_LENGTH + AFI_LENGTH) > end - index) {
+            return INVALID;
+        }
+
+        for (int i = 0; i < recordCount && index >= 0; i++) {
+            if (end - index < MAP_RECORD_LENGTH + AFI_LENGTH) {
+                return INVALID;
+            }
+            int locatorCount = buf.getUnsignedByte(index + LOCATOR_COUNT_INDEX);
+            index = skipAddress(buf, index + MAP_RECORD_LENGTH, end);
+
+            for (int j = 0; j < locatorCount && index >= 0; j++) {
+                index = skipAddress(buf, index + LOCATOR_LENGTH, end);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Skips an AFI-encoded address.
+     *
+     * @param buf   buffer
+     * @param index index of the address family identifier
+     * @param end   end of the message
+     * @return index next to the address, or a negative value if the address
+     * exceeds the message or has an unknown address family
+     */
+    private static int skipAddress(ByteBuf buf, int index, int end) {
+        if (index < 0 || end - index < AFI_LENGTH) {
+            return INVALID;
+        }
+
+        int afi = buf.getUnsignedShort(index);
+        int length;
+        switch (afi) {
+            case AFI_NO_ADDRESS:
+                length = AFI_LENGTH;
+                break;
+            case AFI_IP4:
+                length = AFI_LENGTH + IP4_LENGTH;
+                break;
+            case AFI_IP6:
+                length = AFI_LENGTH + IP6_LENGTH;
+                break;
+            case AFI_MAC:
+                length = AFI_LENGTH + MAC_LENGTH;
+                break;
+            case AFI_LCAF:
+                if (end - index < LCAF_HEADER_LENGTH) {
+                    return INVALID;
+                }
+                length = LCAF_HEADER_LENGTH +
+                        buf.getUnsignedShort(index + LCAF_LENGTH_INDEX);
+                break;
+            case AFI_DISTINGUISHED_NAME:
+                // a distinguished name is read up to the end of the message
+                return end;
+            default:
+                return Integer.MIN_VALUE;
+        }
+        return length > end - index ? INVALID : index + length;
+    }
+
+    private static Violation violation(int index) {
+        if (index == Integer.MIN_VALUE) {
+            return Violation.UNKNOWN_AFI;
+        }
+        return index < 0 ? Violation.RECORD_OVERRUN : null;
+    }
+
+    /**
+     * Returns the number of datagrams which have been dropped for the given
+     * violation.
+     *
+     * @param violation violation
+     * @return the number of dropped datagrams
+     */
+    long droppedPackets(Violation violation) {
+        return droppedPackets.get(violation.ordinal());
+    }
+
+    /**
+     * Prevents object instantiation from external.
+     */
+    private static final class SingletonHelper {
+        private static final String ILLEGAL_ACCESS_MSG = "Should not instantiate this class.";
+        private static final LispHeaderValidator INSTANCE = new LispHeaderValidator();
+
+        private SingletonHelper() {
+            throw new IllegalAccessError(ILLEGAL_ACCESS_MSG);
+        }
+    }
+}
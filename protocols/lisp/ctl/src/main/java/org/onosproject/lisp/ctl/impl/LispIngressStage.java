@@ -0,0 +1,191 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import org.onosproject.lisp.msg.protocols.LispMapRegister;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A processing stage of incoming LISP messages with a bounded queue.
+ * <p>
+ * Instead of queueing without bound under a flood, the stage sheds messages
+ * in accordance with its policy, and counts them. With the type-aware
+ * policies, the stage starts shedding all but map-register messages once
+ * the queue is filled above its high-water mark, so that the map server
+ * keeps serving registrations while the other messages are shed.
+ */
+final class LispIngressStage {
+
+    private static final Logger log = getLogger(LispIngressStage.class);
+
+    private static final long KEEP_ALIVE_SEC = 60;
+    private static final int HIGH_WATER_PERCENT = 75;
+
+    /**
+     * Policies on the messages which arrive while the stage is overloaded.
+     */
+    enum ShedPolicy {
+
+        /** Drops the newly arriving messages once the queue is full. */
+        DROP_NEWEST,
+
+        /** Drops all but map-register messages above the high-water mark. */
+        DROP_BY_TYPE,
+
+        /**
+         * Same as drop by type, but the map-requests which are shed are
+         * answered with a negative map-reply of short TTL.
+         */
+        NEGATIVE_REPLY;
+
+        /**
+         * Obtains a policy by its name, regardless of case.
+         *
+         * @param name policy name
+         * @return policy, or null if no policy has the name
+         */
+        static ShedPolicy parse(String name) {
+            for (ShedPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String name;
+    private final int threads;
+    private final AtomicLong shedMessages = new AtomicLong();
+
+    private volatile ThreadPoolExecutor executor;
+    private volatile ShedPolicy policy = ShedPolicy.DROP_NEWEST;
+    private volatile int highWater;
+
+    /**
+     * Creates a processing stage.
+     *
+     * @param name     name of the stage, which names its threads
+     * @param threads  number of processing threads
+     * @param capacity maximum number of queued messages
+     */
+    LispIngressStage(String name, int threads, int capacity) {
+        this.name = name;
+        this.threads = threads;
+        configure(capacity, ShedPolicy.DROP_NEWEST);
+    }
+
+    /**
+     * Configures the queue capacity and the shedding policy. Changing the
+     * capacity replaces the processing threads, while the queued messages
+     * are still processed by the former ones.
+     *
+     * @param capacity maximum number of queued messages
+     * @param policy   shedding policy
+     */
+    synchronized void configure(int capacity, ShedPolicy policy) {
+        checkArgument(capacity > 0, "Queue capacity must be positive");
+        this.policy = policy;
+        this.highWater = (int) ((long) capacity * HIGH_WATER_PERCENT / 100);
+
+        ThreadPoolExecutor current = executor;
+        if (current != null && !current.isShutdown() &&
+                current.getQueue().remainingCapacity() +
+                current.getQueue().size() == capacity) {
+            return;
+        }
+
+        ThreadPoolExecutor created = new ThreadPoolExecutor(threads, threads,
+                KEEP_ALIVE_SEC, SECONDS, new ArrayBlockingQueue<>(capacity),
+                groupedThreads("onos/lisp", name + "-%d", log));
+        created.allowCoreThreadTimeOut(true);
+        executor = created;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    /**
+     * Queues the task which processes the given message, unless the message
+     * is shed.
+     *
+     * @param message message to be processed
+     * @param task    task which processes the message
+     * @return true if the task has been queued, false if the message is shed
+     */
+    boolean execute(LispMessage message, Runnable task) {
+        ThreadPoolExecutor current = executor;
+        if (policy != ShedPolicy.DROP_NEWEST &&
+                current.getQueue().size() >= highWater &&
+                !(message instanceof LispMapRegister)) {
+            shedMessages.incrementAndGet();
+            return false;
+        }
+
+        try {
+            current.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            shedMessages.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the shedding policy.
+     *
+     * @return shedding policy
+     */
+    ShedPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Returns the number of queued messages.
+     *
+     * @return the number of queued messages
+     */
+    int queuedMessages() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Returns the number of messages which have been shed.
+     *
+     * @return the number of shed messages
+     */
+    long shedMessages() {
+        return shedMessages.get();
+    }
+
+    /**
+     * Stops processing after the queued messages are processed.
+     */
+    synchronized void shutdown() {
+        executor.shutdown();
+    }
+}
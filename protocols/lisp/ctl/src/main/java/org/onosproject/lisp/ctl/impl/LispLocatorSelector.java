@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.math.IntMath;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * A precomputed selection table over the locators of a mapping record.
+ * <p>
+ * Only the reachable locators with the best priority are eligible, and each
+ * of them occupies a number of slots which is proportional to its weight, so
+ * that a locator is selected with a single random index. As described in
+ * RFC 6830, priority 255 means that the locator must not be used, and if all
+ * eligible locators have zero weight, the load is split equally.
+ */
+final class LispLocatorSelector {
+
+    private static final int UNUSABLE_PRIORITY = 255;
+    private static final LispLocator[] EMPTY = new LispLocator[0];
+
+    private final LispLocator[] slots;
+
+    private LispLocatorSelector(LispLocator[] slots) {
+        this.slots = slots;
+    }
+
+    /**
+     * Builds a selection table over the given locators.
+     *
+     * @param locators locators of a mapping record
+     * @return locator selector
+     */
+    static LispLocatorSelector of(List<LispLocator> locators) {
+        return of(locators, locator -> true);
+    }
+
+    /**
+     * Builds a selection table over the given locators, among which only
+     * the ones satisfying the given reachability are eligible.
+     *
+     * @param locators  locators of a mapping record
+     * @param reachable reachability of a locator, e.g., from RLOC-probing
+     * @return locator selector
+     */
+    static LispLocatorSelector of(List<LispLocator> locators,
+                                  Predicate<LispLocator> reachable) {
+        List<LispLocator> eligibles = Lists.newArrayList();
+        int bestPriority = UNUSABLE_PRIORITY;
+        for (LispLocator locator : locators) {
+            if (locator.isRouted() && reachable.test(locator)) {
+                eligibles.add(locator);
+                bestPriority = Math.min(bestPriority, unsigned(locator.getPriority()));
+            }
+        }
+        if (bestPriority == UNUSABLE_PRIORITY) {
+            return new LispLocatorSelector(EMPTY);
+        }
+
+        List<LispLocator> candidates = Lists.newArrayList();
+        int gcd = 0;
+        for (LispLocator locator : eligibles) {
+            if (unsigned(locator.getPriority()) == bestPriority) {
+                candidates.add(locator);
+                gcd = IntMath.gcd(gcd, unsigned(locator.getWeight()));
+            }
+        }
+
+        // all-zero weights denote an equal share
+        if (gcd == 0) {
+            return new LispLocatorSelector(candidates.toArray(EMPTY));
+        }
+
+        List<LispLocator> slots = Lists.newArrayList();
+        for (LispLocator candidate : candidates) {
+            for (int i = 0; i < unsigned(candidate.getWeight()) / gcd; i++) {
+                slots.add(candidate);
+            }
+        }
+        return new LispLocatorSelector(slots.toArray(EMPTY));
+    }
+
+    /**
+     * Selects a locator in proportion to the weights.
+     *
+     * @return selected locator, or null if no locator is eligible
+     */
+    LispLocator select() {
+        if (slots.length == 0) {
+            return null;
+        }
+        return slots[ThreadLocalRandom.current().nextInt(slots.length)];
+    }
+
+    /**
+     * Returns the number of slots of the selection table.
+     *
+     * @return the number of slots
+     */
+    int size() {
+        return slots.length;
+    }
+
+    private static int unsigned(byte value) {
+        return value & 0xff;
+    }
+}
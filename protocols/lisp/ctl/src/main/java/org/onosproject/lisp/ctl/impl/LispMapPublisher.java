@@ -0,0 +1,565 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.channel.Channel;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.ctl.impl.map.PrefixTrie;
+import org.onosproject.lisp.msg.authentication.LispAuthenticationConfig;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapNotify.DefaultNotifyBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispMapNotify;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapReplyAction;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.slf4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.onosproject.lisp.msg.authentication.LispAuthenticationKeyEnum.valueOf;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Publisher of mapping updates to the subscribed ITRs.
+ * <p>
+ * ITRs subscribe to EID prefixes by setting the notification requested bit
+ * in map-requests, as described in the LISP publish/subscribe model. The
+ * subscriptions are indexed by prefix, so that a mapping change reaches the
+ * subscribers of covering and of more specific prefixes. Changes are
+ * collected and flushed periodically, and each subscriber receives a single
+ * map-notify which carries the latest mapping of every changed EID prefix.
+ * <p>
+ * Subscriptions are refreshed by every subscribing map-request, and expire
+ * if they are not refreshed within the subscription lifetime. Only an ITR
+ * which has registered its own site through authenticated map-registers may
+ * subscribe, only from its own address, and only to registered EID prefixes.
+ * The number of subscriptions is capped in total and per ITR.
+ */
+final class LispMapPublisher implements LispMappingDatabase.MappingChangeListener {
+
+    private static final Logger log = getLogger(LispMapPublisher.class);
+
+    private static final int MAP_NOTIFY_PORT = 4342;
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final long PURGE_INTERVAL_MS = 60000;
+    private static final long SUBSCRIPTION_LIFETIME_MS = 24 * 60 * 60 * 1000L;
+    private static final int MAX_MAP_RECORDS = 255;
+    private static final int MAX_SUBSCRIPTIONS = 100000;
+    private static final int MAX_SUBSCRIPTIONS_PER_SUBSCRIBER = 1000;
+    private static final int NEGATIVE_RECORD_TTL = 0;
+    private static final int IPV4_MAX_MASK_LENGTH = 32;
+    private static final int IPV6_MAX_MASK_LENGTH = 128;
+
+    private final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+    private final LispAuthenticationConfig authConfig = LispAuthenticationConfig.getInstance();
+
+    // subscribers keyed by the EID prefix which they have subscribed to
+    private final PrefixTrie<Subscription> ipv4Subscriptions =
+                                        new PrefixTrie<>(IPV4_MAX_MASK_LENGTH);
+    private final PrefixTrie<Subscription> ipv6Subscriptions =
+                                        new PrefixTrie<>(IPV6_MAX_MASK_LENGTH);
+    private final Map<LispEidRecord, Subscription> otherSubscriptions =
+                                                        Maps.newConcurrentMap();
+
+    // the number of subscriptions of each subscriber, and in total
+    private final Map<IpAddress, Integer> subscribers = Maps.newConcurrentMap();
+    private final AtomicInteger subscriptionCount = new AtomicInteger();
+
+    private final Set<LispEidRecord> changedEids = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong sentNotifies = new AtomicLong();
+
+    private volatile Channel channel;
+    private volatile SubscriberListener listener;
+    private volatile boolean running;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> flushTask;
+    private long lastPurge;
+
+    // non-instantiable (except for our Singleton)
+    private LispMapPublisher() {
+    }
+
+    static LispMapPublisher getInstance() {
+        return SingletonHelper.INSTANCE;
+    }
+
+    /**
+     * Starts to accept subscriptions and to publish mapping updates.
+     *
+     * @param listener listener which is notified when an ITR starts or stops
+     *                 to subscribe, or null
+     */
+    synchronized void start(SubscriberListener listener) {
+        this.listener = listener;
+        if (running) {
+            return;
+        }
+
+        executor = newSingleThreadScheduledExecutor(
+                                groupedThreads("onos/lisp", "map-publisher", log));
+        flushTask = executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS,
+                                                    FLUSH_INTERVAL_MS, MILLISECONDS);
+        mapDb.addMappingChangeListener(this);
+        running = true;
+    }
+
+    /**
+     * Stops publishing and discards all subscriptions.
+     */
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        mapDb.removeMappingChangeListener(this);
+        flushTask.cancel(false);
+        executor.shutdown();
+        flushTask = null;
+        executor = null;
+
+        ipv4Subscriptions.clear();
+        ipv6Subscriptions.clear();
+        otherSubscriptions.clear();
+        changedEids.clear();
+
+        SubscriberListener currentListener = listener;
+        if (currentListener != null) {
+            subscribers.keySet().forEach(currentListener::subscriberRemoved);
+        }
+        subscribers.clear();
+        subscriptionCount.set(0);
+        listener = null;
+    }
+
+    /**
+     * Returns whether the publisher is running.
+     *
+     * @return whether the publisher is running
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Configures the channel through which map-notify messages are sent.
+     *
+     * @param channel LISP control channel
+     */
+    void setChannel(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Subscribes the given ITR to the mapping updates of the given EIDs, or
+     * refreshes the existing subscriptions. The subscription is ignored if
+     * the ITR-RLOCs do not include the sender of the map-request, or if the
+     * sender is not an RLOC of any registered EID prefix; EIDs which are not
+     * registered are skipped.
+     *
+     * @param eids     endpoint identifier records
+     * @param itrRlocs RLOCs of the subscribing ITR
+     * @param sender   address of the ITR which has sent the map-request, to
+     *                 which map-notify messages are sent
+     */
+    void subscribe(List<LispEidRecord> eids, List<LispAfiAddress> itrRlocs,
+                   IpAddress sender) {
+        if (!running) {
+            return;
+        }
+
+        LispAfiAddress itrRloc = Iterables.find(itrRlocs, rloc ->
+                rloc instanceof LispIpAddress &&
+                ((LispIpAddress) rloc).getAddress().equals(sender), null);
+        if (itrRloc == null || mapDb.getEidRecordCountByRloc(itrRloc) == 0) {
+            log.debug("Ignored subscription of unregistered ITR {}", sender);
+            return;
+        }
+
+        long expireAt = System.currentTimeMillis() + SUBSCRIPTION_LIFETIME_MS;
+        for (LispEidRecord eid : eids) {
+            if (!isRegistered(eid)) {
+                continue;
+            }
+
+            Map<IpAddress, Long> expirations = subscription(eid).subscribers;
+            if (expirations.replace(sender, expireAt) != null) {
+                continue;
+            }
+            if (!canSubscribe(sender)) {
+                log.debug("Ignored subscription of ITR {} to {} over limit", sender, eid);
+                continue;
+            }
+            if (expirations.putIfAbsent(sender, expireAt) == null) {
+                addSubscriber(sender);
+            }
+        }
+    }
+
+    @Override
+    public void mappingChanged(LispEidRecord eid) {
+        if (running) {
+            changedEids.add(eid);
+        }
+    }
+
+    /**
+     * Returns the number of subscribed ITRs.
+     *
+     * @return the number of subscribers
+     */
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Returns the number of map-notify messages which have been published.
+     *
+     * @return the number of published map-notify messages
+     */
+    long sentNotifies() {
+        return sentNotifies.get();
+    }
+
+    /**
+     * Publishes the latest mapping of the changed EID prefixes to their
+     * subscribers. The changes are kept until there is a channel through
+     * which they can be published.
+     */
+    void flush() {
+        try {
+            long now = System.currentTimeMillis();
+            Channel currentChannel = channel;
+            if (currentChannel != null) {
+                publish(currentChannel, now);
+            }
+
+            if (now - lastPurge >= PURGE_INTERVAL_MS) {
+                purge(now);
+                lastPurge = now;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to publish mapping updates", e);
+        }
+    }
+
+    /**
+     * Publishes the latest mapping of the changed EID prefixes through the
+     * given channel.
+     *
+     * @param currentChannel LISP control channel
+     * @param now            current time in ms
+     */
+    private void publish(Channel currentChannel, long now) {
+        // latest mapping of each changed EID prefix, keyed by subscriber
+        Map<IpAddress, Map<LispEidRecord, LispMapRecord>> updates =
+                                                    Maps.newLinkedHashMap();
+        Iterator<LispEidRecord> changed = changedEids.iterator();
+        while (changed.hasNext()) {
+            LispEidRecord eid = changed.next();
+            changed.remove();
+
+            LispMapRecord mapRecord = currentMapRecord(eid);
+            forEachSubscription(eid, subscription ->
+                subscription.subscribers.forEach((subscriber, expireAt) -> {
+                    if (expireAt > now) {
+                        updates.computeIfAbsent(subscriber, k -> Maps.newLinkedHashMap())
+                               .put(eid, mapRecord);
+                    }
+                }));
+        }
+
+        List<LispMessage> notifies = Lists.newArrayList();
+        updates.forEach((subscriber, mapRecords) -> {
+            InetSocketAddress address = new InetSocketAddress(
+                                subscriber.toInetAddress(), MAP_NOTIFY_PORT);
+            for (List<LispMapRecord> records :
+                    Iterables.partition(mapRecords.values(), MAX_MAP_RECORDS)) {
+                notifies.add(buildNotify(records, address));
+            }
+        });
+
+        if (!notifies.isEmpty()) {
+            currentChannel.writeAndFlush(notifies);
+            sentNotifies.addAndGet(notifies.size());
+        }
+    }
+
+    /**
+     * Obtains the current mapping of the given EID prefix. If the EID prefix
+     * has been removed, a negative mapping record without any locator is
+     * returned, so that the subscribers withdraw the mapping.
+     *
+     * @param eid endpoint identifier
+     * @return current mapping record
+     */
+    private LispMapRecord currentMapRecord(LispEidRecord eid) {
+        LispMapRecord mapRecord = mapDb.getRegisteredMapRecord(eid);
+        if (mapRecord != null) {
+            return mapRecord;
+        }
+        return new DefaultMapRecordBuilder()
+                .withRecordTtl(NEGATIVE_RECORD_TTL)
+                .withMaskLength(eid.getMaskLength())
+                .withEidPrefixAfi(eid.getPrefix())
+                .withAction(LispMapReplyAction.NativelyForward)
+                .withIsAuthoritative(true)
+                .withLocators(Lists.newArrayList())
+                .build();
+    }
+
+    /**
+     * Builds a map-notify message towards the given subscriber.
+     *
+     * @param mapRecords mapping records to publish
+     * @param subscriber address of the subscriber
+     * @return map-notify message
+     */
+    private LispMapNotify buildNotify(List<LispMapRecord> mapRecords,
+                                      InetSocketAddress subscriber) {
+        LispMapNotify notify = new DefaultNotifyBuilder()
+                .withKeyId(authConfig.lispAuthKeyId())
+                .withAuthDataLength(valueOf(authConfig.lispAuthKeyId()).getHashLength())
+                .withAuthKey(authConfig.lispAuthKey())
+                .withNonce(ThreadLocalRandom.current().nextLong())
+                .withMapRecords(mapRecords)
+                .build();
+        notify.configSender(subscriber);
+        return notify;
+    }
+
+    /**
+     * Visits the subscriptions which are affected by a mapping change of the
+     * given EID prefix. For IP EID prefixes, these are the subscriptions to
+     * the prefix itself, to its covering prefixes and to its more specific
+     * prefixes.
+     *
+     * @param eid      endpoint identifier
+     * @param consumer subscription consumer
+     */
+    private void forEachSubscription(LispEidRecord eid, Consumer<Subscription> consumer) {
+        if (eid.getPrefix() instanceof LispIpAddress) {
+            LispIpAddress prefix = (LispIpAddress) eid.getPrefix();
+            PrefixTrie<Subscription> trie = subscriptionTrie(prefix);
+
+            // the prefix itself is visited as a more specific prefix
+            List<Subscription> covering = trie.matches(prefix, maskLength(eid));
+            covering.stream().filter(subscription -> !subscription.eid.equals(eid))
+                    .forEach(consumer);
+            trie.forEachCovered(prefix, maskLength(eid), consumer);
+        } else {
+            Subscription subscription = otherSubscriptions.get(eid);
+            if (subscription != null) {
+                consumer.accept(subscription);
+            }
+        }
+    }
+
+    /**
+     * Obtains the subscription of the given EID prefix, which is created
+     * if absent.
+     *
+     * @param eid endpoint identifier
+     * @return subscription
+     */
+    private Subscription subscription(LispEidRecord eid) {
+        if (!(eid.getPrefix() instanceof LispIpAddress)) {
+            return otherSubscriptions.computeIfAbsent(eid, Subscription::new);
+        }
+
+        LispIpAddress prefix = (LispIpAddress) eid.getPrefix();
+        PrefixTrie<Subscription> trie = subscriptionTrie(prefix);
+        Subscription subscription = trie.get(prefix, maskLength(eid));
+        if (subscription == null) {
+            synchronized (trie) {
+                subscription = trie.get(prefix, maskLength(eid));
+                if (subscription == null) {
+                    subscription = new Subscription(eid);
+                    trie.put(prefix, maskLength(eid), subscription);
+                }
+            }
+        }
+        return subscription;
+    }
+
+    /**
+     * Removes the expired subscriptions.
+     *
+     * @param now current time in ms
+     */
+    private void purge(long now) {
+        for (PrefixTrie<Subscription> trie : Arrays.asList(ipv4Subscriptions,
+                                                            ipv6Subscriptions)) {
+            List<Subscription> expired = Lists.newArrayList();
+            trie.forEach(subscription -> {
+                if (purge(subscription, now)) {
+                    expired.add(subscription);
+                }
+            });
+            synchronized (trie) {
+                for (Subscription subscription : expired) {
+                    LispIpAddress prefix = (LispIpAddress) subscription.eid.getPrefix();
+                    if (subscription.subscribers.isEmpty() &&
+                            trie.get(prefix, maskLength(subscription.eid)) == subscription) {
+                        trie.remove(prefix, maskLength(subscription.eid));
+                    }
+                }
+            }
+        }
+        Iterables.removeIf(otherSubscriptions.values(),
+                           subscription -> purge(subscription, now));
+    }
+
+    /**
+     * Removes the expired subscribers of the given subscription.
+     *
+     * @param subscription subscription
+     * @param now          current time in ms
+     * @return true if no subscriber is left
+     */
+    private boolean purge(Subscription subscription, long now) {
+        Iterator<Map.Entry<IpAddress, Long>> entries =
+                                    subscription.subscribers.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<IpAddress, Long> entry = entries.next();
+            if (entry.getValue() <= now) {
+                entries.remove();
+                removeSubscriber(entry.getKey());
+            }
+        }
+        return subscription.subscribers.isEmpty();
+    }
+
+    /**
+     * Checks whether the given ITR may subscribe to one more EID prefix.
+     *
+     * @param subscriber address of the ITR
+     * @return false if the total or the per-ITR limit has been reached
+     */
+    private boolean canSubscribe(IpAddress subscriber) {
+        return subscriptionCount.get() < MAX_SUBSCRIPTIONS &&
+               subscribers.getOrDefault(subscriber, 0) < MAX_SUBSCRIPTIONS_PER_SUBSCRIBER;
+    }
+
+    /**
+     * Checks whether a registered EID prefix matches the given EID prefix.
+     *
+     * @param eid endpoint identifier
+     * @return whether the EID prefix is registered
+     */
+    private boolean isRegistered(LispEidRecord eid) {
+        return mapDb.getMapRecordByEidRecord(eid, false) != null ||
+               mapDb.getMapRecordByEidRecord(eid, true) != null;
+    }
+
+    private void addSubscriber(IpAddress subscriber) {
+        subscriptionCount.incrementAndGet();
+        if (subscribers.merge(subscriber, 1, Integer::sum) == 1) {
+            SubscriberListener currentListener = listener;
+            if (currentListener != null) {
+                currentListener.subscriberAdded(subscriber);
+            }
+        }
+    }
+
+    private void removeSubscriber(IpAddress subscriber) {
+        subscriptionCount.decrementAndGet();
+        if (subscribers.computeIfPresent(subscriber,
+                (k, count) -> count > 1 ? count - 1 : null) == null) {
+            SubscriberListener currentListener = listener;
+            if (currentListener != null) {
+                currentListener.subscriberRemoved(subscriber);
+            }
+        }
+    }
+
+    private PrefixTrie<Subscription> subscriptionTrie(LispIpAddress address) {
+        return address instanceof LispIpv4Address ? ipv4Subscriptions : ipv6Subscriptions;
+    }
+
+    private int maskLength(LispEidRecord eid) {
+        return eid.getMaskLength() & 0xff;
+    }
+
+    /**
+     * The subscribers of an EID prefix along with the expiration time of
+     * their subscriptions.
+     */
+    private static final class Subscription {
+        private final LispEidRecord eid;
+        private final Map<IpAddress, Long> subscribers = Maps.newConcurrentMap();
+
+        Subscription(LispEidRecord eid) {
+            this.eid = eid;
+        }
+    }
+
+    /**
+     * A listener which is notified when an ITR starts or stops to subscribe.
+     */
+    interface SubscriberListener {
+
+        /**
+         * Notifies that the given ITR has subscribed to its first EID prefix.
+         *
+         * @param subscriber address of the ITR
+         */
+        void subscriberAdded(IpAddress subscriber);
+
+        /**
+         * Notifies that all subscriptions of the given ITR have expired.
+         *
+         * @param subscriber address of the ITR
+         */
+        void subscriberRemoved(IpAddress subscriber);
+    }
+
+    /**
+     * Prevents object instantiation from external.
+     */
+    private static final class SingletonHelper {
+        private static final String ILLEGAL_ACCESS_MSG = "Should not instantiate this class.";
+        private static final LispMapPublisher INSTANCE = new LispMapPublisher();
+
+        private SingletonHelper() {
+            throw new IllegalAccessError(ILLEGAL_ACCESS_MSG);
+        }
+    }
+}
@@ -15,8 +15,12 @@
  */
 package org.onosproject.lisp.ctl.impl;
 
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.onlab.packet.IpAddress;
 import org.onosproject.lisp.msg.protocols.DefaultLispEncapsulatedControl.DefaultEcmBuilder;
 import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
 import org.onosproject.lisp.msg.protocols.DefaultLispMapReply.DefaultReplyBuilder;
@@ -51,7 +55,9 @@ public final class LispMapResolver {
     private static final int ECM_DST_PORT = 4342;
     private static final int NEGATIVE_REPLY_DST_PORT = 4342;
     private static final int MAP_REPLY_RECORD_TTL = 15;
+    private static final int OVERLOAD_REPLY_RECORD_TTL = 1;
     private static final short MAP_VERSION_NUMBER = 0;
+    private static final int MAX_LOCATOR_SELECTORS = 10000;
     private static final String NO_ITR_RLOCS_MSG =
                                 "No ITR RLOC is found, cannot respond to ITR.";
     private static final String NO_ETR_RLOCS_MSG =
@@ -59,6 +65,19 @@ public final class LispMapResolver {
     private static final String NO_MAP_INFO_MSG  = "Map information is not found.";
 
     private LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+    private LispSmrEngine smrEngine = LispSmrEngine.getInstance();
+    private LispMapPublisher publisher = LispMapPublisher.getInstance();
+    private LispRlocProber prober = LispRlocProber.getInstance();
+
+    private volatile LispPendingRequestTable pendingRequests;
+
+    // selection tables are keyed by the content of the locator sets, as an
+    // off-heap record decodes a new locator set whenever it is read
+    private final LoadingCache<List<LispLocator>, LispLocatorSelector> selectors =
+            CacheBuilder.newBuilder()
+                    .maximumSize(MAX_LOCATOR_SELECTORS)
+                    .build(CacheLoader.from(locators ->
+                            LispLocatorSelector.of(locators, this::isReachable)));
 
     // non-instantiable (except for our Singleton)
     private LispMapResolver() {
@@ -79,6 +98,13 @@ public final class LispMapResolver {
         LispEncapsulatedControl ecm = (LispEncapsulatedControl) message;
         LispMapRequest request = (LispMapRequest) ecm.getControlMessage();
 
+        // subscribes ITR to the mapping updates of the requested EIDs
+        if (request.isNotificationRequested()) {
+            publisher.subscribe(request.getNotificationRequestedEids(),
+                                request.getItrRlocs(),
+                                IpAddress.valueOf(ecm.getSender().getAddress()));
+        }
+
         List<LispMapRecord> mapReplyRecords =
                 mapDb.getMapRecordByEidRecords(request.getEids(), true);
 
@@ -91,7 +117,8 @@ public final class LispMapResolver {
 
             // build natively-forward map reply messages based on map-request from ITR
             ReplyBuilder replyBuilder = initMapReplyBuilder(request);
-            replyBuilder.withMapRecords(getNegativeMapRecords(request.getEids()));
+            replyBuilder.withMapRecords(getNegativeMapRecords(request.getEids(),
+                                                              MAP_REPLY_RECORD_TTL));
             LispMessage mapReply = replyBuilder.build();
             mapReply.configSender(new InetSocketAddress(ecm.getSender().getAddress(),
                                                         NEGATIVE_REPLY_DST_PORT));
@@ -102,31 +129,19 @@ public final class LispMapResolver {
         } else {
 
             if (!mapReplyRecords.isEmpty()) {
-
-                List<LispMessage> mapReplies = Lists.newArrayList();
-
-                // build map-reply message based on map-request from ITR
-                ReplyBuilder replyBuilder = initMapReplyBuilder(request);
-                replyBuilder.withMapRecords(mapReplyRecords);
-
-                List<InetSocketAddress> addresses =
-                                        getItrAddresses(request.getItrRlocs(),
-                                                ecm.innerUdp().getSourcePort());
-
-                addresses.forEach(address -> {
-                    if (address != null) {
-                        LispMapReply reply = replyBuilder.build();
-                        reply.configSender(address);
-                        mapReplies.add(reply);
-                    } else {
-                        log.warn(NO_ITR_RLOCS_MSG);
-                    }
-                });
-
-                return mapReplies;
+                smrEngine.recordRequesters(mapReplyRecords, request.getItrRlocs());
+                return buildMapReplies(ecm, request, mapReplyRecords);
             }
 
             if (!mapRequestRecords.isEmpty()) {
+                smrEngine.recordRequesters(mapRequestRecords, request.getItrRlocs());
+
+                // an identical map-request has been relayed to ETR recently,
+                // so that we reply with the registered map records instead
+                LispPendingRequestTable table = pendingRequests;
+                if (table != null && !table.tryForward(request.getEids())) {
+                    return buildMapReplies(ecm, request, mapRequestRecords);
+                }
 
                 List<LispMessage> ecms = Lists.newArrayList();
 
@@ -150,6 +165,98 @@ public final class LispMapResolver {
         return ImmutableList.of();
     }
 
+    /**
+     * Handles encapsulated control message while the map resolver is
+     * overloaded, by replying with a negative map-reply of short TTL without
+     * looking up the mapping database, so that the ITR retries shortly.
+     *
+     * @param message encapsulated control message
+     * @return negative map-reply message
+     */
+    List<LispMessage> processOverloadedMapRequest(LispMessage message) {
+        LispEncapsulatedControl ecm = (LispEncapsulatedControl) message;
+        LispMapRequest request = (LispMapRequest) ecm.getControlMessage();
+
+        ReplyBuilder replyBuilder = initMapReplyBuilder(request);
+        replyBuilder.withMapRecords(getNegativeMapRecords(request.getEids(),
+                                                          OVERLOAD_REPLY_RECORD_TTL));
+        LispMessage mapReply = replyBuilder.build();
+        mapReply.configSender(new InetSocketAddress(ecm.getSender().getAddress(),
+                                                    NEGATIVE_REPLY_DST_PORT));
+        return ImmutableList.of(mapReply);
+    }
+
+    /**
+     * Configures the window in which identical map-requests are coalesced,
+     * so that only the first one is relayed to ETR.
+     *
+     * @param window coalescing window in milliseconds; 0 disables coalescing
+     */
+    void setCoalescingWindow(long window) {
+        LispPendingRequestTable table = pendingRequests;
+        if (window <= 0) {
+            pendingRequests = null;
+        } else if (table == null || table.window() != window) {
+            pendingRequests = new LispPendingRequestTable(window);
+        }
+    }
+
+    /**
+     * Returns the number of map-requests which have been relayed to ETR
+     * since coalescing was configured.
+     *
+     * @return the number of relayed map-requests, or 0 if coalescing is disabled
+     */
+    long forwardedRequests() {
+        LispPendingRequestTable table = pendingRequests;
+        return table == null ? 0 : table.forwardedRequests();
+    }
+
+    /**
+     * Returns the number of map-requests which have been coalesced into an
+     * identical in-flight map-request since coalescing was configured.
+     *
+     * @return the number of coalesced map-requests, or 0 if coalescing is disabled
+     */
+    long coalescedRequests() {
+        LispPendingRequestTable table = pendingRequests;
+        return table == null ? 0 : table.coalescedRequests();
+    }
+
+    /**
+     * Builds map-reply messages towards all ITR RLOCs of the given map-request.
+     *
+     * @param ecm        encapsulated control message from ITR
+     * @param request    map-request from ITR
+     * @param mapRecords map records to reply with
+     * @return map-reply messages
+     */
+    private List<LispMessage> buildMapReplies(LispEncapsulatedControl ecm,
+                                              LispMapRequest request,
+                                              List<LispMapRecord> mapRecords) {
+        List<LispMessage> mapReplies = Lists.newArrayList();
+
+        // build map-reply message based on map-request from ITR
+        ReplyBuilder replyBuilder = initMapReplyBuilder(request);
+        replyBuilder.withMapRecords(mapRecords);
+
+        List<InetSocketAddress> addresses =
+                                getItrAddresses(request.getItrRlocs(),
+                                        ecm.innerUdp().getSourcePort());
+
+        addresses.forEach(address -> {
+            if (address != null) {
+                LispMapReply reply = replyBuilder.build();
+                reply.configSender(address);
+                mapReplies.add(reply);
+            } else {
+                log.warn(NO_ITR_RLOCS_MSG);
+            }
+        });
+
+        return mapReplies;
+    }
+
     /**
      * Initializes MapReply builder without specifying map records.
      *
@@ -185,14 +292,16 @@ public final class LispMapResolver {
     /**
      * Obtains a collection of map records with natively-forward action.
      *
-     * @param eids endpoint identifier records
+     * @param eids      endpoint identifier records
+     * @param recordTtl TTL of the map records in minutes
      * @return a collection of map records with natively-forward action
      */
-    private List<LispMapRecord> getNegativeMapRecords(List<LispEidRecord> eids) {
+    private List<LispMapRecord> getNegativeMapRecords(List<LispEidRecord> eids,
+                                                      int recordTtl) {
         List<LispMapRecord> mapRecords = Lists.newArrayList();
 
         MapRecordBuilder recordBuilder = new DefaultMapRecordBuilder();
-        recordBuilder.withRecordTtl(MAP_REPLY_RECORD_TTL);
+        recordBuilder.withRecordTtl(recordTtl);
         recordBuilder.withLocators(Lists.newArrayList());
         recordBuilder.withIsAuthoritative(false);
         recordBuilder.withMapVersionNumber(MAP_VERSION_NUMBER);
@@ -225,6 +334,26 @@ public final class LispMapResolver {
         return addresses;
     }
 
+    /**
+     * Discards the locator selection tables, so that they are rebuilt with
+     * the current reachability of locators.
+     */
+    void invalidateLocatorSelectors() {
+        selectors.invalidateAll();
+    }
+
+    /**
+     * Checks whether the given locator is reachable in accordance with
+     * RLOC-probing.
+     *
+     * @param locator locator
+     * @return whether the locator is reachable
+     */
+    private boolean isReachable(LispLocator locator) {
+        return !(locator.getLocatorAfi() instanceof LispIpAddress) ||
+                prober.isReachable(((LispIpAddress) locator.getLocatorAfi()).getAddress());
+    }
+
     /**
      * Obtains a collection of valid ETR addresses with a port number specified.
      * These addresses will be used to relay map-request to ETR.
@@ -238,8 +367,9 @@ public final class LispMapResolver {
         List<InetSocketAddress> addresses = Lists.newArrayList();
         for (LispMapRecord mapRecord : mapRecords) {
 
-            // we only select the first locator record in all cases...
-            LispLocator locatorRecord = mapRecord.getLocators().get(0);
+            // selects a best-priority reachable locator in proportion to weight
+            LispLocator locatorRecord =
+                    selectors.getUnchecked(mapRecord.getLocators()).select();
             if (locatorRecord != null) {
                 addresses.add(new InetSocketAddress(((LispIpAddress)
                                 locatorRecord.getLocatorAfi()).getAddress()
@@ -67,6 +67,9 @@ public final class LispMapServer {
     private LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
     private LispAuthenticationConfig authConfig = LispAuthenticationConfig.getInstance();
 
+    // journal of the authenticated registrations, null if journaling is disabled
+    private volatile LispRegistrationJournal journal;
+
     // non-instantiable (except for our Singleton)
     private LispMapServer() {
     }
@@ -75,6 +78,16 @@ public final class LispMapServer {
         return SingletonHelper.INSTANCE;
     }
 
+    /**
+     * Configures the journal into which the authenticated map-register
+     * messages are appended.
+     *
+     * @param journal registration journal, or null to disable journaling
+     */
+    void setRegistrationJournal(LispRegistrationJournal journal) {
+        this.journal = journal;
+    }
+
     /**
      * Handles map-register message and replies with map-notify message.
      *
@@ -98,6 +111,11 @@ public final class LispMapServer {
             mapDb.putMapRecord(eidRecord, mapRecord, register.isProxyMapReply());
         });
 
+        LispRegistrationJournal currentJournal = journal;
+        if (currentJournal != null) {
+            currentJournal.append(register);
+        }
+
         // we only acknowledge back to ETR when want-map-notify bit is set to true
         // otherwise, we do not acknowledge back to ETR
         if (register.isWantMapNotify()) {
@@ -16,27 +16,113 @@
 package org.onosproject.lisp.ctl.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import org.onlab.packet.IpPrefix;
+import com.google.common.collect.Maps;
+import org.onlab.packet.IpAddress.Version;
 import org.onosproject.lisp.ctl.impl.map.ExpireMap;
+import org.onosproject.lisp.ctl.impl.map.ExactMatchIndex;
 import org.onosproject.lisp.ctl.impl.map.ExpireHashMap;
+import org.onosproject.lisp.ctl.impl.map.GeoIndex;
+import org.onosproject.lisp.ctl.impl.map.OffHeapRecordStore;
+import org.onosproject.lisp.ctl.impl.map.PrefixTrie;
+import org.onosproject.lisp.ctl.impl.map.PrefixTrie.Aggregate;
+import org.onosproject.lisp.ctl.impl.map.RefCountedInterner;
+import org.onosproject.lisp.msg.exceptions.LispWriterException;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
 import org.onosproject.lisp.msg.protocols.DefaultLispProxyMapRecord.DefaultMapWithProxyBuilder;
 import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
 import org.onosproject.lisp.msg.protocols.LispMapRecord;
 import org.onosproject.lisp.msg.protocols.LispProxyMapRecord;
 import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispDistinguishedNameAddress;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispIpv6Address;
+import org.onosproject.lisp.msg.types.LispMacAddress;
+import org.onosproject.lisp.msg.types.lcaf.LispGeoCoordinateLcafAddress;
+import org.slf4j.Logger;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * A singleton class that stores EID-RLOC mapping information.
+ * <p>
+ * Mapping records are kept in an expire map which takes care of the record
+ * TTL, while lookups are served by the secondary indexes. IP EID prefixes are
+ * indexed by persistent prefix tries, so that map-request readers never take
+ * a lock even under heavy map-register churn.
+ * <p>
+ * The locator sets of the mapping records are interned, so that the EID
+ * prefixes behind the same site share a single locator set and a single
+ * instance of each locator. Optionally, the mapping records can be kept
+ * serialized in direct memory and be decoded on demand, which keeps a large
+ * mapping database off the Java heap.
+ * <p>
+ * When aggregation is enabled, sibling IP EID prefixes with the same mapping
+ * content are answered with their covering prefix. Registered records remain
+ * the unit of TTL and refresh; the aggregates are derived from per-node trie
+ * summaries, and are split as soon as a sibling diverges.
  */
 public final class LispMappingDatabase {
 
+    private static final Logger log = getLogger(LispMappingDatabase.class);
+
     private static final long MINUTE_TO_MS_UNIT = 60 * 1000;
+    private static final double MINUTE_TO_DEGREE = 60.0;
+    private static final double SECOND_TO_DEGREE = 3600.0;
+    private static final int IPV4_MAX_MASK_LENGTH = 32;
+    private static final int IPV6_MAX_MASK_LENGTH = 128;
+    private static final int MAC_MAX_MASK_LENGTH = 48;
+
+    private ExpireMap<LispEidRecord, LispProxyMapRecord> map =
+                                    new ExpireHashMap<>(this::expireMapRecord);
+
+    // IP EID prefixes, which are updated by writers in copy-on-write manner;
+    // the tries are replaced as a whole when aggregation is toggled
+    private volatile PrefixTrie<LispProxyMapRecord> ipv4Trie =
+                                        new PrefixTrie<>(IPV4_MAX_MASK_LENGTH);
+    private volatile PrefixTrie<LispProxyMapRecord> ipv6Trie =
+                                        new PrefixTrie<>(IPV6_MAX_MASK_LENGTH);
+    private volatile boolean aggregationEnabled;
+
+    // geo-tagged EID prefixes, and geo-tagged RLOCs keyed by their EID prefix
+    private final GeoIndex<LispEidRecord> eidGeoIndex = new GeoIndex<>();
+    private final GeoIndex<Entry<LispEidRecord, LispLocator>> rlocGeoIndex =
+                                                                new GeoIndex<>();
 
-    private ExpireMap<LispEidRecord, LispProxyMapRecord> map = new ExpireHashMap<>();
+    // non-IP EID prefixes are exactly matched rather than prefix-matched
+    private final ExactMatchIndex<LispProxyMapRecord> macIndex = new ExactMatchIndex<>();
+    private final ExactMatchIndex<LispProxyMapRecord> nameIndex = new ExactMatchIndex<>();
+
+    // EID prefixes keyed by the address of the RLOCs they are mapped to
+    private final Map<LispAfiAddress, Set<LispEidRecord>> rlocIndex =
+                                                        Maps.newConcurrentMap();
+
+    // canonical locator sets and locators shared by the on-heap mapping records
+    private final RefCountedInterner<List<LispLocator>> locatorSets =
+                                                        new RefCountedInterner<>();
+    private final RefCountedInterner<LispLocator> locators = new RefCountedInterner<>();
+
+    // off-heap store of the mapping records, null if records are kept on heap
+    private volatile OffHeapRecordStore offHeapStore;
+
+    private final Set<MappingChangeListener> changeListeners =
+                                                    new CopyOnWriteArraySet<>();
 
     /**
      * Prevents object instantiation from external.
@@ -53,6 +139,29 @@ public final class LispMappingDatabase {
         return SingletonHelper.INSTANCE;
     }
 
+    /**
+     * Enables or disables keeping mapping records in off-heap memory.
+     * The change only applies to the records inserted afterward.
+     *
+     * @param enabled whether to keep mapping records in off-heap memory
+     */
+    public synchronized void enableOffHeapStore(boolean enabled) {
+        if (enabled && offHeapStore == null) {
+            offHeapStore = new OffHeapRecordStore();
+        } else if (!enabled) {
+            offHeapStore = null;
+        }
+    }
+
+    /**
+     * Returns whether mapping records are kept in off-heap memory.
+     *
+     * @return whether off-heap store is enabled
+     */
+    public boolean isOffHeapStoreEnabled() {
+        return offHeapStore != null;
+    }
+
     /**
      * Inserts a new EID-RLOC mapping record.
      *
@@ -60,13 +169,234 @@ public final class LispMappingDatabase {
      * @param rloc          route locator record
      * @param proxyMapReply proxy map reply flag
      */
-    public void putMapRecord(LispEidRecord eid, LispMapRecord rloc,
-                             boolean proxyMapReply) {
-        LispProxyMapRecord mapWithProxy = new DefaultMapWithProxyBuilder()
-                .withMapRecord(rloc)
-                .withIsProxyMapReply(proxyMapReply)
-                .build();
-        map.put(eid, mapWithProxy, rloc.getRecordTtl() * MINUTE_TO_MS_UNIT);
+    public synchronized void putMapRecord(LispEidRecord eid, LispMapRecord rloc,
+                                          boolean proxyMapReply) {
+        putMapRecord(eid, rloc, proxyMapReply,
+                     rloc.getRecordTtl() * MINUTE_TO_MS_UNIT);
+    }
+
+    /**
+     * Restores an EID-RLOC mapping record with the given remaining TTL, e.g.,
+     * from a snapshot. The record is not restored if a record of the same EID
+     * has been registered in the meantime, as the latter is always newer.
+     *
+     * @param eid           endpoint identifier
+     * @param rloc          route locator record
+     * @param proxyMapReply proxy map reply flag
+     * @param remainingMs   remaining TTL in ms
+     * @return whether the record has been restored
+     */
+    synchronized boolean restoreMapRecord(LispEidRecord eid, LispMapRecord rloc,
+                                          boolean proxyMapReply, long remainingMs) {
+        if (remainingMs <= 0 || map.containsKey(eid)) {
+            return false;
+        }
+        putMapRecord(eid, rloc, proxyMapReply, remainingMs);
+        return true;
+    }
+
+    /**
+     * Visits all of the EID-RLOC mapping records along with their remaining
+     * TTL. The records which expire during the visit are skipped.
+     *
+     * @param consumer mapping record consumer
+     */
+    void forEachMapRecord(MapRecordConsumer consumer) {
+        for (LispEidRecord eid : map.keySet()) {
+            LispProxyMapRecord record = map.get(eid);
+            long remainingMs = map.getRemainingTime(eid);
+            if (record != null && remainingMs > 0) {
+                consumer.accept(eid, record, remainingMs);
+            }
+        }
+    }
+
+    /**
+     * Inserts a new EID-RLOC mapping record which expires after the given
+     * amount of time, e.g., when replaying the registrations.
+     *
+     * @param eid           endpoint identifier
+     * @param rloc          route locator record
+     * @param proxyMapReply proxy map reply flag
+     * @param expireMs      TTL in ms
+     */
+    synchronized void putMapRecord(LispEidRecord eid, LispMapRecord rloc,
+                                   boolean proxyMapReply, long expireMs) {
+        LispProxyMapRecord mapWithProxy = buildMapRecord(rloc, proxyMapReply);
+
+        // the EID keyed indexes are replaced in place, so that readers never
+        // observe a missing record while the record is being refreshed
+        LispProxyMapRecord previous = map.get(eid);
+        publishMapRecord(eid, mapWithProxy);
+
+        // a refreshed record with the same locators keeps its index entries
+        if (previous == null || !isSameLocators(previous, mapWithProxy)) {
+            if (previous != null) {
+                unindexMapRecord(eid, previous);
+            }
+            indexMapRecord(eid, mapWithProxy);
+        }
+
+        map.put(eid, mapWithProxy, expireMs);
+
+        if (!changeListeners.isEmpty() &&
+                (previous == null || isMappingChanged(previous, mapWithProxy))) {
+            notifyMappingChanged(eid);
+        }
+
+        if (previous != null) {
+            releaseMapRecord(previous);
+        }
+    }
+
+    /**
+     * Enables or disables the aggregation of IP EID prefixes. When enabled,
+     * sibling prefixes with equal mapping content are answered with their
+     * covering prefix, and are split again as soon as their content diverges.
+     *
+     * @param enabled whether to aggregate IP EID prefixes
+     */
+    public synchronized void enableAggregation(boolean enabled) {
+        if (aggregationEnabled == enabled) {
+            return;
+        }
+
+        BiPredicate<LispProxyMapRecord, LispProxyMapRecord> equivalence =
+                                    enabled ? this::isSameMapping : null;
+        PrefixTrie<LispProxyMapRecord> newIpv4Trie =
+                                    new PrefixTrie<>(IPV4_MAX_MASK_LENGTH, equivalence);
+        PrefixTrie<LispProxyMapRecord> newIpv6Trie =
+                                    new PrefixTrie<>(IPV6_MAX_MASK_LENGTH, equivalence);
+
+        for (LispEidRecord eid : map.keySet()) {
+            LispProxyMapRecord record = map.get(eid);
+            if (record != null && eid.getPrefix() instanceof LispIpAddress) {
+                LispIpAddress prefix = (LispIpAddress) eid.getPrefix();
+                (prefix instanceof LispIpv4Address ? newIpv4Trie : newIpv6Trie)
+                        .put(prefix, maskLength(eid), record);
+            }
+        }
+
+        // disable the aggregated lookup before the tries are replaced
+        aggregationEnabled = false;
+        ipv4Trie = newIpv4Trie;
+        ipv6Trie = newIpv6Trie;
+        aggregationEnabled = enabled;
+    }
+
+    /**
+     * Returns whether IP EID prefixes are aggregated.
+     *
+     * @return whether aggregation is enabled
+     */
+    public boolean isAggregationEnabled() {
+        return aggregationEnabled;
+    }
+
+    /**
+     * Obtains the smallest set of IP EID-RLOC mapping records which is
+     * equivalent to the registered ones in terms of longest prefix match.
+     * If aggregation is disabled, all of the registered IP mapping records
+     * are returned.
+     *
+     * @return a list of aggregated EID-RLOC mapping records
+     */
+    public List<LispMapRecord> getAggregatedMapRecords() {
+        List<LispMapRecord> mapRecords = Lists.newArrayList();
+        ipv4Trie.forEachAggregate(aggregate ->
+                mapRecords.add(aggregateMapRecord(aggregate, Version.INET)));
+        ipv6Trie.forEachAggregate(aggregate ->
+                mapRecords.add(aggregateMapRecord(aggregate, Version.INET6)));
+        return ImmutableList.copyOf(mapRecords);
+    }
+
+    /**
+     * Obtains the number of distinct locator sets which are shared by the
+     * on-heap mapping records.
+     *
+     * @return the number of distinct locator sets
+     */
+    public int getLocatorSetCount() {
+        return locatorSets.size();
+    }
+
+    /**
+     * Obtains the number of on-heap mapping records which refer to the given
+     * locator set.
+     *
+     * @param locatorSet locator set
+     * @return the number of mapping records which refer to the locator set
+     */
+    public int getLocatorSetReferenceCount(List<LispLocator> locatorSet) {
+        return locatorSets.referenceCount(ImmutableList.copyOf(locatorSet));
+    }
+
+    /**
+     * Obtains the EID records which are mapped to the given RLOC address.
+     *
+     * @param rloc RLOC address
+     * @return a set of EID records
+     */
+    public Set<LispEidRecord> getEidRecordsByRloc(LispAfiAddress rloc) {
+        Set<LispEidRecord> eids = rlocIndex.get(rloc);
+        return eids == null ? ImmutableSet.of() : ImmutableSet.copyOf(eids);
+    }
+
+    /**
+     * Obtains the number of EID records which are mapped to the given RLOC
+     * address.
+     *
+     * @param rloc RLOC address
+     * @return the number of EID records
+     */
+    public int getEidRecordCountByRloc(LispAfiAddress rloc) {
+        Set<LispEidRecord> eids = rlocIndex.get(rloc);
+        return eids == null ? 0 : eids.size();
+    }
+
+    /**
+     * Obtains all of the RLOC addresses which are referred by the mapping
+     * records.
+     *
+     * @return a set of RLOC addresses
+     */
+    public Set<LispAfiAddress> getRlocs() {
+        return ImmutableSet.copyOf(rlocIndex.keySet());
+    }
+
+    /**
+     * Withdraws the given RLOC address from all of the mapping records which
+     * refer to it. The other locators of the affected records remain with
+     * their remaining TTL, while the records which are left without any
+     * locator are removed.
+     *
+     * @param rloc RLOC address
+     * @return the EID records which have been affected
+     */
+    public synchronized Set<LispEidRecord> withdrawRloc(LispAfiAddress rloc) {
+        Set<LispEidRecord> affected = getEidRecordsByRloc(rloc);
+
+        for (LispEidRecord eid : affected) {
+            LispProxyMapRecord record = map.get(eid);
+            if (record == null) {
+                continue;
+            }
+
+            LispMapRecord mapRecord = record.getMapRecord();
+            List<LispLocator> remaining = mapRecord.getLocators().stream()
+                    .filter(locator -> !rloc.equals(locator.getLocatorAfi()))
+                    .collect(Collectors.toList());
+            long remainingMs = map.getRemainingTime(eid);
+
+            if (remaining.isEmpty() || remainingMs <= 0) {
+                removeMapRecordByEid(eid);
+            } else {
+                putMapRecord(eid, copyMapRecord(mapRecord, remaining),
+                             record.isProxyMapReply(), remainingMs);
+            }
+        }
+
+        return affected;
     }
 
     /**
@@ -79,13 +409,50 @@ public final class LispMappingDatabase {
         return map.containsKey(eid);
     }
 
+    /**
+     * Obtains the EID-RLOC mapping record which has been registered with
+     * exactly the given endpoint identifier.
+     *
+     * @param eid endpoint identifier
+     * @return EID-RLOC mapping record, or null if there is no such record
+     */
+    LispMapRecord getRegisteredMapRecord(LispEidRecord eid) {
+        LispProxyMapRecord record = map.get(eid);
+        return record == null ? null : record.getMapRecord();
+    }
+
     /**
      * Removes an EID-RLOC mapping record with given endpoint identifier.
      *
      * @param eid endpoint identifier
      */
-    public void removeMapRecordByEid(LispEidRecord eid) {
-        map.remove(eid);
+    public synchronized void removeMapRecordByEid(LispEidRecord eid) {
+        LispProxyMapRecord record = map.remove(eid);
+        if (record != null) {
+            withdrawMapRecord(eid);
+            unindexMapRecord(eid, record);
+            releaseMapRecord(record);
+            notifyMappingChanged(eid);
+        }
+    }
+
+    /**
+     * Adds a listener which is notified when the locators of an EID prefix
+     * change, or when an EID prefix is registered or removed.
+     *
+     * @param listener mapping change listener
+     */
+    void addMappingChangeListener(MappingChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Removes a mapping change listener.
+     *
+     * @param listener mapping change listener
+     */
+    void removeMappingChangeListener(MappingChangeListener listener) {
+        changeListeners.remove(listener);
     }
 
     /**
@@ -112,13 +479,46 @@ public final class LispMappingDatabase {
      */
     public LispMapRecord getMapRecordByEidRecord(LispEidRecord eid, boolean proxyMapReply) {
 
-        for (LispEidRecord key : map.keySet()) {
-            if (isInRange(key, eid)) {
-                LispProxyMapRecord record = map.get(key);
-                if (record != null && record.isProxyMapReply() == proxyMapReply) {
-                    return record.getMapRecord();
+        LispProxyMapRecord exactRecord;
+
+        switch (eid.getPrefix().getAfi()) {
+            case IP4:
+            case IP6:
+                LispIpAddress prefix = (LispIpAddress) eid.getPrefix();
+                PrefixTrie<LispProxyMapRecord> trie = prefixTrie(prefix);
+
+                if (aggregationEnabled) {
+                    Aggregate<LispProxyMapRecord> aggregate =
+                                        trie.aggregate(prefix, maskLength(eid));
+                    if (aggregate != null &&
+                            aggregate.value().isProxyMapReply() == proxyMapReply) {
+                        return aggregateMapRecord(aggregate, aggregate.prefix());
+                    }
                 }
-            }
+
+                List<LispProxyMapRecord> records = trie.matches(prefix, maskLength(eid));
+                for (LispProxyMapRecord record : records) {
+                    if (record.isProxyMapReply() == proxyMapReply) {
+                        return record.getMapRecord();
+                    }
+                }
+                return null;
+            case MAC:
+                exactRecord = macIndex.get(macKey((LispMacAddress) eid.getPrefix(),
+                                                  maskLength(eid)));
+                break;
+            case DISTINGUISHED_NAME:
+                exactRecord = nameIndex.get(nameKey(
+                                (LispDistinguishedNameAddress) eid.getPrefix(),
+                                maskLength(eid)));
+                break;
+            default:
+                exactRecord = map.get(eid);
+                break;
+        }
+
+        if (exactRecord != null && exactRecord.isProxyMapReply() == proxyMapReply) {
+            return exactRecord.getMapRecord();
         }
 
         return null;
@@ -151,6 +551,16 @@ public final class LispMappingDatabase {
      * @return an EID-RLOC mapping record
      */
     public LispMapRecord getMapRecordByEidAddress(LispAfiAddress address) {
+        // a MAC address is mostly registered as a full-length prefix
+        LispProxyMapRecord exactRecord = null;
+        if (address instanceof LispMacAddress) {
+            exactRecord = macIndex.get(macKey((LispMacAddress) address,
+                                              MAC_MAX_MASK_LENGTH));
+        }
+        if (exactRecord != null) {
+            return exactRecord.getMapRecord();
+        }
+
         Optional<LispEidRecord> eidRecord =
                 map.keySet().stream().filter(k -> k.getPrefix().equals(address)).findFirst();
         return eidRecord.map(lispEidRecord ->
@@ -158,32 +568,528 @@ public final class LispMappingDatabase {
     }
 
     /**
-     * Generates CIDR style string from EID record.
+     * Obtains at most k geo-tagged EID-RLOC mapping records whose EID prefix
+     * is the nearest to the given coordinate.
+     *
+     * @param latitude  latitude in decimal degree, positive for north
+     * @param longitude longitude in decimal degree, positive for east
+     * @param k         maximum number of records
+     * @return a list of EID-RLOC mapping records ordered by distance
+     */
+    public List<LispMapRecord> getNearestMapRecords(double latitude,
+                                                    double longitude, int k) {
+        return toMapRecords(eidGeoIndex.nearest(latitude, longitude, k));
+    }
+
+    /**
+     * Obtains geo-tagged EID-RLOC mapping records whose EID prefix is located
+     * in the given bounding box.
+     *
+     * @param minLatitude  southern boundary in decimal degree
+     * @param minLongitude western boundary in decimal degree
+     * @param maxLatitude  northern boundary in decimal degree
+     * @param maxLongitude eastern boundary in decimal degree
+     * @return a list of EID-RLOC mapping records
+     */
+    public List<LispMapRecord> getMapRecordsWithin(double minLatitude,
+                                                   double minLongitude,
+                                                   double maxLatitude,
+                                                   double maxLongitude) {
+        return toMapRecords(eidGeoIndex.within(minLatitude, minLongitude,
+                                               maxLatitude, maxLongitude));
+    }
+
+    /**
+     * Obtains at most k registered geo-tagged locators which are the nearest
+     * to the given coordinate.
+     *
+     * @param latitude  latitude in decimal degree, positive for north
+     * @param longitude longitude in decimal degree, positive for east
+     * @param k         maximum number of locators
+     * @return a list of locators ordered by distance
+     */
+    public List<LispLocator> getNearestLocators(double latitude,
+                                                double longitude, int k) {
+        return rlocGeoIndex.nearest(latitude, longitude, k).stream()
+                .map(Entry::getValue).collect(Collectors.toList());
+    }
+
+    /**
+     * Obtains registered geo-tagged locators which are located in the given
+     * bounding box.
+     *
+     * @param minLatitude  southern boundary in decimal degree
+     * @param minLongitude western boundary in decimal degree
+     * @param maxLatitude  northern boundary in decimal degree
+     * @param maxLongitude eastern boundary in decimal degree
+     * @return a list of locators
+     */
+    public List<LispLocator> getLocatorsWithin(double minLatitude,
+                                               double minLongitude,
+                                               double maxLatitude,
+                                               double maxLongitude) {
+        return rlocGeoIndex.within(minLatitude, minLongitude,
+                                   maxLatitude, maxLongitude).stream()
+                .map(Entry::getValue).collect(Collectors.toList());
+    }
+
+    /**
+     * Converts a collection of EID records into EID-RLOC mapping records,
+     * skipping the records that have been expired in the meantime.
+     *
+     * @param eids endpoint identifier records
+     * @return a list of EID-RLOC mapping records
+     */
+    private List<LispMapRecord> toMapRecords(List<LispEidRecord> eids) {
+        List<LispMapRecord> mapRecords = Lists.newArrayList();
+        eids.forEach(eid -> {
+            LispProxyMapRecord record = map.get(eid);
+            if (record != null) {
+                mapRecords.add(record.getMapRecord());
+            }
+        });
+        return ImmutableList.copyOf(mapRecords);
+    }
+
+    /**
+     * Cleans up the secondary indexes of the mapping record which has been
+     * evicted due to TTL expiration. A new record might have been registered
+     * between the eviction and this callback, so we index it again.
+     *
+     * @param eid    endpoint identifier
+     * @param record expired EID-RLOC mapping record
+     */
+    private synchronized void expireMapRecord(LispEidRecord eid,
+                                              LispProxyMapRecord record) {
+        unindexMapRecord(eid, record);
+        releaseMapRecord(record);
+
+        LispProxyMapRecord current = map.get(eid);
+        if (current != null) {
+            indexMapRecord(eid, current);
+        } else {
+            withdrawMapRecord(eid);
+            notifyMappingChanged(eid);
+        }
+    }
+
+    /**
+     * Checks whether the given mapping records of the same EID prefix lead
+     * to different forwarding, that is, whether ITRs which have cached the
+     * previous record should be solicited to refresh it.
+     *
+     * @param previous previous EID-RLOC mapping record
+     * @param current  current EID-RLOC mapping record
+     * @return whether the mapping has been changed
+     */
+    private boolean isMappingChanged(LispProxyMapRecord previous,
+                                     LispProxyMapRecord current) {
+        if (previous instanceof OffHeapProxyMapRecord &&
+                current instanceof OffHeapProxyMapRecord) {
+            return !((OffHeapProxyMapRecord) previous)
+                    .isSameForwarding((OffHeapProxyMapRecord) current);
+        }
+
+        LispMapRecord previousRecord = previous.getMapRecord();
+        LispMapRecord currentRecord = current.getMapRecord();
+        return !Objects.equals(previousRecord.getAction(), currentRecord.getAction()) ||
+               !Objects.equals(previousRecord.getLocators(), currentRecord.getLocators());
+    }
+
+    /**
+     * Checks whether the given mapping records have the same locators.
+     *
+     * @param record1 EID-RLOC mapping record
+     * @param record2 EID-RLOC mapping record
+     * @return whether the locators are the same
+     */
+    private boolean isSameLocators(LispProxyMapRecord record1,
+                                   LispProxyMapRecord record2) {
+        if (record1 instanceof OffHeapProxyMapRecord &&
+                record2 instanceof OffHeapProxyMapRecord) {
+            return ((OffHeapProxyMapRecord) record1)
+                    .isSameLocators((OffHeapProxyMapRecord) record2);
+        }
+        if (record1 instanceof OffHeapProxyMapRecord ||
+                record2 instanceof OffHeapProxyMapRecord) {
+            // the store has been switched in between, which is rare
+            return false;
+        }
+
+        // interned locator sets are mostly compared by reference
+        return Objects.equals(record1.getMapRecord().getLocators(),
+                              record2.getMapRecord().getLocators());
+    }
+
+    /**
+     * Notifies the mapping change listeners of the given EID prefix.
+     *
+     * @param eid endpoint identifier
+     */
+    private void notifyMappingChanged(LispEidRecord eid) {
+        changeListeners.forEach(listener -> listener.mappingChanged(eid));
+    }
+
+    /**
+     * Builds a mapping record with proxy flag, which is kept in off-heap
+     * memory if the off-heap store is enabled. If the record cannot be
+     * serialized, we fall back to keep the record on heap.
      *
-     * @param eidRecord EID record
-     * @return CIDR style string
+     * @param rloc          route locator record
+     * @param proxyMapReply proxy map reply flag
+     * @return EID-RLOC mapping record with proxy flag
+     */
+    private LispProxyMapRecord buildMapRecord(LispMapRecord rloc,
+                                              boolean proxyMapReply) {
+        OffHeapRecordStore store = offHeapStore;
+        if (store != null) {
+            try {
+                return OffHeapProxyMapRecord.of(store, rloc, proxyMapReply);
+            } catch (LispWriterException e) {
+                log.warn("Failed to serialize map record, keep it on heap", e);
+            }
+        }
+
+        return new DefaultMapWithProxyBuilder()
+                .withMapRecord(internMapRecord(rloc))
+                .withIsProxyMapReply(proxyMapReply)
+                .build();
+    }
+
+    /**
+     * Rebuilds the mapping record with the canonical locator set. The
+     * locators of a locator set which is interned for the first time are
+     * interned as well, so that different locator sets share the same RLOCs.
+     *
+     * @param rloc route locator record
+     * @return route locator record which refers to the canonical locator set
+     */
+    private LispMapRecord internMapRecord(LispMapRecord rloc) {
+        List<LispLocator> locatorSet = locatorSets.intern(
+                ImmutableList.copyOf(rloc.getLocators()), this::internLocators);
+
+        return copyMapRecord(rloc, locatorSet);
+    }
+
+    /**
+     * Copies the mapping record with the given locators.
+     *
+     * @param rloc       route locator record
+     * @param locatorSet locators of the copied record
+     * @return copied route locator record
+     */
+    private LispMapRecord copyMapRecord(LispMapRecord rloc,
+                                        List<LispLocator> locatorSet) {
+        return new DefaultMapRecordBuilder()
+                .withRecordTtl(rloc.getRecordTtl())
+                .withMaskLength(rloc.getMaskLength())
+                .withAction(rloc.getAction())
+                .withIsAuthoritative(rloc.isAuthoritative())
+                .withMapVersionNumber(rloc.getMapVersionNumber())
+                .withEidPrefixAfi(rloc.getEidPrefixAfi())
+                .withLocators(locatorSet)
+                .build();
+    }
+
+    /**
+     * Builds a locator set which consists of the canonical locators.
+     *
+     * @param locatorSet locator set
+     * @return locator set of canonical locators
+     */
+    private List<LispLocator> internLocators(List<LispLocator> locatorSet) {
+        ImmutableList.Builder<LispLocator> builder = ImmutableList.builder();
+        locatorSet.forEach(locator -> builder.add(locators.intern(locator)));
+        return builder.build();
+    }
+
+    /**
+     * Releases the locator set or the off-heap memory of the mapping record
+     * which is no longer stored. Concurrent readers which still hold the
+     * record can decode it, as the released memory is never overwritten.
+     *
+     * @param record EID-RLOC mapping record
      */
-    private String cidrfy(LispEidRecord eidRecord) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(eidRecord.getPrefix().toString());
-        sb.append("/");
-        sb.append(eidRecord.getMaskLength());
-        return sb.toString();
+    private void releaseMapRecord(LispProxyMapRecord record) {
+        if (record instanceof OffHeapProxyMapRecord) {
+            ((OffHeapProxyMapRecord) record).release();
+            return;
+        }
+
+        List<LispLocator> locatorSet = record.getMapRecord().getLocators();
+        if (locatorSets.release(locatorSet)) {
+            locatorSet.forEach(locators::release);
+        }
     }
 
     /**
-     * Checks whether the EID record is included in the given EID record.
+     * Publishes the mapping record into the indexes which are keyed on the
+     * EID prefix only. The previous record of the same EID prefix, if any, is
+     * atomically replaced.
      *
-     * @param origin  the EID record to be compared
-     * @param compare the EID record to compare
-     * @return boolean result
+     * @param eid    endpoint identifier
+     * @param record EID-RLOC mapping record
      */
-    private boolean isInRange(LispEidRecord origin, LispEidRecord compare) {
+    private void publishMapRecord(LispEidRecord eid, LispProxyMapRecord record) {
+        LispAfiAddress prefix = eid.getPrefix();
+        if (prefix instanceof LispIpAddress) {
+            prefixTrie((LispIpAddress) prefix).put((LispIpAddress) prefix,
+                                                   maskLength(eid), record);
+        } else if (prefix instanceof LispMacAddress) {
+            macIndex.put(macKey((LispMacAddress) prefix, maskLength(eid)), record);
+        } else if (prefix instanceof LispDistinguishedNameAddress) {
+            nameIndex.put(nameKey((LispDistinguishedNameAddress) prefix,
+                                  maskLength(eid)), record);
+        } else if (prefix instanceof LispGeoCoordinateLcafAddress) {
+            LispGeoCoordinateLcafAddress geo = (LispGeoCoordinateLcafAddress) prefix;
+            eidGeoIndex.put(eid, latitude(geo), longitude(geo));
+        }
+    }
 
-        IpPrefix originIpPrefix = IpPrefix.valueOf(cidrfy(origin));
-        IpPrefix compareIpPrefix = IpPrefix.valueOf(cidrfy(compare));
+    /**
+     * Withdraws the EID prefix from the indexes which are keyed on the EID
+     * prefix only.
+     *
+     * @param eid endpoint identifier
+     */
+    private void withdrawMapRecord(LispEidRecord eid) {
+        LispAfiAddress prefix = eid.getPrefix();
+        if (prefix instanceof LispIpAddress) {
+            prefixTrie((LispIpAddress) prefix).remove((LispIpAddress) prefix,
+                                                      maskLength(eid));
+        } else if (prefix instanceof LispMacAddress) {
+            macIndex.remove(macKey((LispMacAddress) prefix, maskLength(eid)));
+        } else if (prefix instanceof LispDistinguishedNameAddress) {
+            nameIndex.remove(nameKey((LispDistinguishedNameAddress) prefix,
+                                     maskLength(eid)));
+        } else if (prefix instanceof LispGeoCoordinateLcafAddress) {
+            eidGeoIndex.remove(eid);
+        }
+    }
+
+    /**
+     * Adds the mapping record into the indexes which are derived from the
+     * content of the record, i.e., the RLOC reverse index and geo-tagged RLOCs.
+     *
+     * @param eid    endpoint identifier
+     * @param record EID-RLOC mapping record
+     */
+    private void indexMapRecord(LispEidRecord eid, LispProxyMapRecord record) {
+        for (LispLocator locator : record.getMapRecord().getLocators()) {
+            rlocIndex.computeIfAbsent(locator.getLocatorAfi(),
+                                      k -> ConcurrentHashMap.newKeySet()).add(eid);
+            if (locator.getLocatorAfi() instanceof LispGeoCoordinateLcafAddress) {
+                LispGeoCoordinateLcafAddress geo =
+                        (LispGeoCoordinateLcafAddress) locator.getLocatorAfi();
+                rlocGeoIndex.put(Maps.immutableEntry(eid, locator),
+                                 latitude(geo), longitude(geo));
+            }
+        }
+    }
+
+    /**
+     * Removes the mapping record from the indexes which are derived from the
+     * content of the record.
+     *
+     * @param eid    endpoint identifier
+     * @param record EID-RLOC mapping record
+     */
+    private void unindexMapRecord(LispEidRecord eid, LispProxyMapRecord record) {
+        for (LispLocator locator : record.getMapRecord().getLocators()) {
+            rlocIndex.computeIfPresent(locator.getLocatorAfi(), (k, eids) -> {
+                eids.remove(eid);
+                return eids.isEmpty() ? null : eids;
+            });
+            if (locator.getLocatorAfi() instanceof LispGeoCoordinateLcafAddress) {
+                rlocGeoIndex.remove(Maps.immutableEntry(eid, locator));
+            }
+        }
+    }
+
+    /**
+     * Obtains the exact match key of a MAC EID prefix.
+     *
+     * @param address    MAC address
+     * @param maskLength mask length
+     * @return mask length followed by the raw bytes of MAC address
+     */
+    private byte[] macKey(LispMacAddress address, int maskLength) {
+        return exactMatchKey(maskLength, address.getAddress().toBytes());
+    }
+
+    /**
+     * Obtains the exact match key of a distinguished name EID prefix.
+     *
+     * @param address    distinguished name address
+     * @param maskLength mask length
+     * @return mask length followed by the raw bytes of distinguished name
+     */
+    private byte[] nameKey(LispDistinguishedNameAddress address, int maskLength) {
+        return exactMatchKey(maskLength, address.getDistinguishedName()
+                                                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds an exact match key which distinguishes the EID prefixes of the
+     * same address with different mask lengths, as the mapping records do.
+     *
+     * @param maskLength mask length
+     * @param address    raw bytes of address
+     * @return exact match key
+     */
+    private byte[] exactMatchKey(int maskLength, byte[] address) {
+        byte[] key = new byte[address.length + 1];
+        key[0] = (byte) maskLength;
+        System.arraycopy(address, 0, key, 1, address.length);
+        return key;
+    }
+
+    /**
+     * Converts the latitude of geo coordinate LCAF address to decimal degree.
+     *
+     * @param geo geo coordinate LCAF address
+     * @return latitude in decimal degree, positive for north
+     */
+    private double latitude(LispGeoCoordinateLcafAddress geo) {
+        double degree = geo.getLatitudeDegree() +
+                        geo.getLatitudeMinute() / MINUTE_TO_DEGREE +
+                        geo.getLatitudeSecond() / SECOND_TO_DEGREE;
+        return geo.isNorth() ? degree : -degree;
+    }
+
+    /**
+     * Converts the longitude of geo coordinate LCAF address to decimal degree.
+     *
+     * @param geo geo coordinate LCAF address
+     * @return longitude in decimal degree, positive for east
+     */
+    private double longitude(LispGeoCoordinateLcafAddress geo) {
+        double degree = geo.getLongitudeDegree() +
+                        geo.getLongitudeMinute() / MINUTE_TO_DEGREE +
+                        geo.getLongitudeSecond() / SECOND_TO_DEGREE;
+        return geo.isEast() ? degree : -degree;
+    }
+
+    /**
+     * Checks whether the given mapping records have the same mapping content
+     * except for the EID prefix, so that they can be aggregated.
+     *
+     * @param record1 EID-RLOC mapping record
+     * @param record2 EID-RLOC mapping record
+     * @return whether the mapping records have the same content
+     */
+    private boolean isSameMapping(LispProxyMapRecord record1,
+                                  LispProxyMapRecord record2) {
+        if (record1 == record2) {
+            return true;
+        }
+        if (record1.isProxyMapReply() != record2.isProxyMapReply()) {
+            return false;
+        }
+        if (record1 instanceof OffHeapProxyMapRecord &&
+                record2 instanceof OffHeapProxyMapRecord) {
+            return ((OffHeapProxyMapRecord) record1)
+                    .isSameMapping((OffHeapProxyMapRecord) record2);
+        }
+
+        LispMapRecord mapRecord1 = record1.getMapRecord();
+        LispMapRecord mapRecord2 = record2.getMapRecord();
+
+        // interned locator sets are mostly compared by reference
+        return mapRecord1.getRecordTtl() == mapRecord2.getRecordTtl() &&
+               mapRecord1.isAuthoritative() == mapRecord2.isAuthoritative() &&
+               mapRecord1.getMapVersionNumber() == mapRecord2.getMapVersionNumber() &&
+               Objects.equals(mapRecord1.getAction(), mapRecord2.getAction()) &&
+               Objects.equals(mapRecord1.getLocators(), mapRecord2.getLocators());
+    }
+
+    /**
+     * Builds the mapping record of the given aggregate whose prefix is only
+     * given as address bytes.
+     *
+     * @param aggregate aggregate of IP EID prefixes
+     * @param version   IP address version
+     * @return aggregated EID-RLOC mapping record
+     */
+    private LispMapRecord aggregateMapRecord(Aggregate<LispProxyMapRecord> aggregate,
+                                             Version version) {
+        ByteBuffer address = ByteBuffer.wrap(aggregate.address());
+        LispIpAddress prefix = version == Version.INET ?
+                new LispIpv4Address(address.getInt()) :
+                new LispIpv6Address(address.getLong(), address.getLong());
+        return aggregateMapRecord(aggregate, prefix);
+    }
+
+    /**
+     * Builds the mapping record of the given aggregate.
+     *
+     * @param aggregate aggregate of IP EID prefixes
+     * @param prefix    aggregate prefix
+     * @return aggregated EID-RLOC mapping record
+     */
+    private LispMapRecord aggregateMapRecord(Aggregate<LispProxyMapRecord> aggregate,
+                                             LispIpAddress prefix) {
+        LispMapRecord record = aggregate.value().getMapRecord();
+
+        return new DefaultMapRecordBuilder()
+                .withRecordTtl(record.getRecordTtl())
+                .withMaskLength((byte) aggregate.maskLength())
+                .withAction(record.getAction())
+                .withIsAuthoritative(record.isAuthoritative())
+                .withMapVersionNumber(record.getMapVersionNumber())
+                .withEidPrefixAfi(prefix)
+                .withLocators(record.getLocators())
+                .build();
+    }
+
+    /**
+     * Obtains the prefix trie which indexes the given IP address family.
+     *
+     * @param address IP address
+     * @return prefix trie
+     */
+    private PrefixTrie<LispProxyMapRecord> prefixTrie(LispIpAddress address) {
+        return address instanceof LispIpv4Address ? ipv4Trie : ipv6Trie;
+    }
+
+    /**
+     * Obtains the unsigned mask length of the EID record.
+     *
+     * @param eid EID record
+     * @return mask length
+     */
+    private int maskLength(LispEidRecord eid) {
+        return eid.getMaskLength() & 0xff;
+    }
+
+    /**
+     * A consumer of EID-RLOC mapping records along with their remaining TTL.
+     */
+    interface MapRecordConsumer {
+
+        /**
+         * Consumes an EID-RLOC mapping record.
+         *
+         * @param eid         endpoint identifier
+         * @param record      EID-RLOC mapping record with proxy flag
+         * @param remainingMs remaining TTL in ms
+         */
+        void accept(LispEidRecord eid, LispProxyMapRecord record, long remainingMs);
+    }
+
+    /**
+     * A listener which is notified of the changes of EID-RLOC mappings.
+     */
+    interface MappingChangeListener {
 
-        return originIpPrefix.contains(compareIpPrefix);
+        /**
+         * Notifies that the mapping of the given EID prefix has been changed.
+         * This is called while the mapping database is locked, so that the
+         * listener should return quickly.
+         *
+         * @param eid endpoint identifier
+         */
+        void mappingChanged(LispEidRecord eid);
     }
 
     /**
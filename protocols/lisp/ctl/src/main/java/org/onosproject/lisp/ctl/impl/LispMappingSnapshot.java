@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+import org.onosproject.lisp.msg.exceptions.LispWriterException;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.MapRecordReader;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.MapRecordWriter;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispEidRecord.EidRecordReader;
+import org.onosproject.lisp.msg.protocols.LispEidRecord.EidRecordWriter;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * A snapshot of LISP mapping database, which is stored in a memory-mapped file.
+ * <p>
+ * A snapshot consists of a header, a sequence of mapping records along with
+ * their remaining TTL, and a CRC32 checksum of all preceding bytes. The
+ * snapshot is first written into a temporary file and then atomically renamed,
+ * so that a crash during the write never corrupts the previous snapshot.
+ */
+final class LispMappingSnapshot {
+
+    private static final Logger log = getLogger(LispMappingSnapshot.class);
+
+    private static final int MAGIC = 0x4c4d5353;
+    private static final int VERSION = 1;
+
+    // magic, version, timestamp and number of records
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 4;
+    // CRC32 checksum
+    private static final int TRAILER_LENGTH = 8;
+    private static final int ENTRY_LENGTH_SIZE = 4;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path path;
+
+    /**
+     * Creates a snapshot which is stored in the given file.
+     *
+     * @param path snapshot file path
+     */
+    LispMappingSnapshot(Path path) {
+        this.path = checkNotNull(path, "Snapshot path should not be null");
+    }
+
+    /**
+     * Obtains the snapshot file path.
+     *
+     * @return snapshot file path
+     */
+    Path path() {
+        return path;
+    }
+
+    /**
+     * Writes all of the mapping records of the given mapping database into
+     * the snapshot file, replacing the previous snapshot.
+     *
+     * @param mapDb mapping database
+     * @return the number of mapping records written
+     * @throws IOException if the snapshot file cannot be written
+     */
+    synchronized int write(LispMappingDatabase mapDb) throws IOException {
+        ByteBuf body = Unpooled.buffer();
+        try {
+            // the remaining TTLs are measured after this timestamp, so that
+            // the elapsed time is never underestimated on loading
+            long timestamp = System.currentTimeMillis();
+            int count = writeRecords(mapDb, body);
+            writeFile(timestamp, count, body);
+            return count;
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * Loads the mapping records of the snapshot file into the given mapping
+     * database. The time elapsed since the snapshot was taken is subtracted
+     * from the TTL of each record, and the expired records are skipped.
+     *
+     * @param mapDb mapping database
+     * @return the number of mapping records restored
+     * @throws IOException if the snapshot file cannot be read
+     */
+    synchronized int load(LispMappingDatabase mapDb) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH + TRAILER_LENGTH || size > Integer.MAX_VALUE) {
+                log.warn("Discarded mapping snapshot {} with invalid size {}", path, size);
+                return 0;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int trailerOffset = (int) size - TRAILER_LENGTH;
+
+            if (checksum(buffer, trailerOffset) != buffer.getLong(trailerOffset)) {
+                log.warn("Discarded mapping snapshot {} with invalid checksum", path);
+                return 0;
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Discarded mapping snapshot {} with unknown format", path);
+                return 0;
+            }
+
+            long elapsed = Math.max(0, System.currentTimeMillis() - buffer.getLong());
+            int count = buffer.getInt();
+
+            ByteBuffer content = buffer.duplicate();
+            content.limit(trailerOffset);
+            return readRecords(mapDb, Unpooled.wrappedBuffer(content.slice()),
+                               count, elapsed);
+        }
+    }
+
+    /**
+     * Serializes the mapping records of the given mapping database. Each
+     * record is prefixed with its length, so that a record which cannot be
+     * decoded later on can be skipped.
+     *
+     * @param mapDb mapping database
+     * @param body  buffer into which the records are written
+     * @return the number of records written
+     */
+    private int writeRecords(LispMappingDatabase mapDb, ByteBuf body) {
+        EidRecordWriter eidWriter = new EidRecordWriter();
+        MapRecordWriter recordWriter = new MapRecordWriter();
+        int[] count = new int[1];
+
+        mapDb.forEachMapRecord((eid, record, remainingMs) -> {
+            int start = body.writerIndex();
+            try {
+                body.writeInt(0);
+                body.writeLong(remainingMs);
+                body.writeBoolean(record.isProxyMapReply());
+                eidWriter.writeTo(body, eid);
+                recordWriter.writeTo(body, record.getMapRecord());
+            } catch (LispWriterException e) {
+                log.warn("Failed to write mapping record of {} into snapshot", eid, e);
+                body.writerIndex(start);
+                return;
+            }
+            body.setInt(start, body.writerIndex() - start - ENTRY_LENGTH_SIZE);
+            count[0]++;
+        });
+
+        return count[0];
+    }
+
+    /**
+     * Deserializes the mapping records and restores them into the given
+     * mapping database.
+     *
+     * @param mapDb   mapping database
+     * @param body    buffer from which the records are read
+     * @param count   the number of records
+     * @param elapsed time elapsed since the snapshot was taken in ms
+     * @return the number of records restored
+     */
+    private int readRecords(LispMappingDatabase mapDb, ByteBuf body,
+                            int count, long elapsed) {
+        EidRecordReader eidReader = new EidRecordReader();
+        MapRecordReader recordReader = new MapRecordReader();
+        int restored = 0;
+
+        for (int i = 0; i < count && body.readableBytes() >= ENTRY_LENGTH_SIZE; i++) {
+            ByteBuf entry = body.readSlice(body.readInt());
+
+            long remainingMs = entry.readLong() - elapsed;
+            boolean proxyMapReply = entry.readBoolean();
+            if (remainingMs <= 0) {
+                continue;
+            }
+
+            try {
+                LispEidRecord eid = eidReader.readFrom(entry);
+                LispMapRecord record = recordReader.readFrom(entry);
+                if (mapDb.restoreMapRecord(eid, record, proxyMapReply, remainingMs)) {
+                    restored++;
+                }
+            } catch (LispParseError | LispReaderException e) {
+                log.warn("Failed to read mapping record from snapshot", e);
+            }
+        }
+
+        return restored;
+    }
+
+    /**
+     * Writes the snapshot into a temporary memory-mapped file, and atomically
+     * replaces the snapshot file with the temporary file. The directory is
+     * synced as well, so that the replacement survives a crash.
+     *
+     * @param timestamp time when the snapshot was taken
+     * @param count     the number of records
+     * @param body      serialized records
+     * @throws IOException if the snapshot file cannot be written
+     */
+    private void writeFile(long timestamp, int count, ByteBuf body) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+
+        int trailerOffset = HEADER_LENGTH + body.readableBytes();
+        try (FileChannel channel = FileChannel.open(temp, CREATE, READ, WRITE,
+                                                    TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                                  trailerOffset + TRAILER_LENGTH);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(timestamp);
+            buffer.putInt(count);
+            buffer.put(body.nioBuffer());
+            buffer.putLong(checksum(buffer, trailerOffset));
+            buffer.force();
+        }
+
+        Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        if (parent != null) {
+            syncDirectory(parent);
+        }
+    }
+
+    /**
+     * Flushes the entries of the given directory to the storage device.
+     *
+     * @param directory directory
+     */
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // some platforms do not allow a directory to be opened or synced
+            log.debug("Failed to sync directory {}", directory, e);
+        }
+    }
+
+    /**
+     * Calculates CRC32 checksum of the leading bytes of the given buffer.
+     *
+     * @param buffer buffer
+     * @param length the number of leading bytes
+     * @return checksum
+     */
+    private static long checksum(ByteBuffer buffer, int length) {
+        ByteBuffer content = buffer.duplicate();
+        content.position(0);
+        content.limit(length);
+
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
@@ -19,24 +19,97 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import org.onosproject.lisp.msg.authentication.LispAuthenticationConfig;
+import org.onosproject.lisp.msg.protocols.LispMapRegisterView;
 import org.onosproject.lisp.msg.protocols.LispMessage;
 import org.onosproject.lisp.msg.protocols.LispMessageReader;
 import org.onosproject.lisp.msg.protocols.LispMessageReaderFactory;
+import org.onosproject.lisp.msg.protocols.LispMessageViewFactory;
+import org.slf4j.Logger;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Decode a LISP message from a ByteBuffer, for use in a netty pipeline.
+ * <p>
+ * If early register authentication is enabled, the authentication data of
+ * a map-register is checked over the received bytes through its view, and
+ * a forged map-register is dropped before any of its records is decoded.
  */
 public class LispMessageDecoder extends MessageToMessageDecoder<DatagramPacket> {
 
+    private static final Logger log = getLogger(LispMessageDecoder.class);
+
+    private static final int TYPE_SHIFT_BIT = 4;
+    private static final int MAP_REGISTER = 3;
+
+    private static final AtomicLong FORGED_REGISTERS = new AtomicLong();
+
+    private static volatile boolean earlyRegisterAuthentication;
+
+    /**
+     * Enables or disables checking the authentication data of map-registers
+     * before they are decoded.
+     *
+     * @param enabled whether to authenticate map-registers early
+     */
+    static void setEarlyRegisterAuthentication(boolean enabled) {
+        earlyRegisterAuthentication = enabled;
+    }
+
+    /**
+     * Returns whether map-registers are authenticated before they are decoded.
+     *
+     * @return whether early register authentication is enabled
+     */
+    static boolean isEarlyRegisterAuthentication() {
+        return earlyRegisterAuthentication;
+    }
+
+    /**
+     * Returns the number of map-registers which have been dropped before
+     * decoding as their authentication data does not match.
+     *
+     * @return the number of forged map-registers
+     */
+    static long forgedRegisters() {
+        return FORGED_REGISTERS.get();
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, DatagramPacket msg,
                           List<Object> list) throws Exception {
         ByteBuf byteBuf = msg.content();
+        if (earlyRegisterAuthentication && isForgedRegister(byteBuf)) {
+            FORGED_REGISTERS.incrementAndGet();
+            log.debug("Dropped a map-register from {} with wrong authentication data",
+                      msg.sender());
+            return;
+        }
+
         LispMessageReader reader = LispMessageReaderFactory.getReader(byteBuf);
         LispMessage message = (LispMessage) reader.readFrom(byteBuf);
         message.configSender(msg.sender());
         list.add(message);
     }
+
+    /**
+     * Checks whether the given buffer holds a map-register whose
+     * authentication data does not match, without decoding the message.
+     *
+     * @param byteBuf buffer which holds a LISP message
+     * @return true if the message is a forged map-register
+     */
+    private static boolean isForgedRegister(ByteBuf byteBuf) {
+        if (!byteBuf.isReadable() ||
+                byteBuf.getUnsignedByte(byteBuf.readerIndex()) >> TYPE_SHIFT_BIT != MAP_REGISTER) {
+            return false;
+        }
+        LispMapRegisterView view =
+                (LispMapRegisterView) LispMessageViewFactory.getView(byteBuf);
+        return !view.isAuthentic(LispAuthenticationConfig.getInstance().lispAuthKey());
+    }
 }
@@ -21,6 +21,7 @@ import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.MessageToMessageEncoder;
+import org.onosproject.lisp.msg.exceptions.LispWriterException;
 import org.onosproject.lisp.msg.protocols.LispMessage;
 
 import java.util.List;
@@ -28,15 +29,16 @@ import java.util.List;
 /**
  * Encode a LISP message for output into a ByteBuffer,
  * for use in a netty pipeline.
+ * <p>
+ * With message pooling, the messages are encoded into buffers of the
+ * channel allocator, which are released by the transport once written.
  */
 public class LispMessageEncoder extends MessageToMessageEncoder {
 
     @Override
     protected void encode(ChannelHandlerContext ctx, Object msg, List out) throws Exception {
         if (!(msg instanceof List)) {
-            ByteBuf byteBuf = Unpooled.buffer();
-            ((LispMessage) msg).writeTo(byteBuf);
-            out.add(new DatagramPacket(byteBuf, ((LispMessage) msg).getSender()));
+            out.add(encode(ctx, (LispMessage) msg));
             return;
         }
 
@@ -44,10 +46,21 @@ public class LispMessageEncoder extends MessageToMessageEncoder {
 
         for (LispMessage message : msgList) {
             if (message != null) {
-                ByteBuf byteBuf = Unpooled.buffer();
-                message.writeTo(byteBuf);
-                out.add(new DatagramPacket(byteBuf, message.getSender()));
+                out.add(encode(ctx, message));
             }
         }
     }
+
+    private DatagramPacket encode(ChannelHandlerContext ctx, LispMessage message)
+            throws LispWriterException {
+        ByteBuf byteBuf = ctx != null && LispChannelHandler.isMessagePooling() ?
+                ctx.alloc().ioBuffer() : Unpooled.buffer();
+        try {
+            message.writeTo(byteBuf);
+        } catch (LispWriterException | RuntimeException e) {
+            byteBuf.release();
+            throw e;
+        }
+        return new DatagramPacket(byteBuf, message.getSender());
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A table of pending requests keyed by their 64-bit nonce.
+ * <p>
+ * Nonces are kept in a primitive array with open addressing and linear
+ * probing, so that neither inserting nor removing a request allocates.
+ * Nonce 0 is reserved to denote an empty slot.
+ *
+ * @param <V> type of pending request
+ */
+final class LispNonceTable<V> {
+
+    private static final long EMPTY = 0L;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] nonces;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Creates a nonce table.
+     *
+     * @param expectedSize expected number of pending requests
+     */
+    LispNonceTable(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        nonces = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Inserts a pending request.
+     *
+     * @param nonce nonce of the request, which must not be 0
+     * @param value pending request
+     * @return false if the nonce is already in use
+     */
+    synchronized boolean put(long nonce, V value) {
+        checkArgument(nonce != EMPTY, "Nonce 0 is reserved");
+        if ((size + 1) * 2 > nonces.length) {
+            resize(nonces.length << 1);
+        }
+
+        int mask = nonces.length - 1;
+        int slot = slot(nonce, mask);
+        while (nonces[slot] != EMPTY) {
+            if (nonces[slot] == nonce) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        nonces[slot] = nonce;
+        values[slot] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Removes the pending request of the given nonce.
+     *
+     * @param nonce nonce of the request
+     * @return pending request, or null if no request is pending with the nonce
+     */
+    @SuppressWarnings("unchecked")
+    synchronized V remove(long nonce) {
+        if (nonce == EMPTY) {
+            return null;
+        }
+
+        int mask = nonces.length - 1;
+        int slot = slot(nonce, mask);
+        while (nonces[slot] != nonce) {
+            if (nonces[slot] == EMPTY) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        V value = (V) values[slot];
+        size--;
+
+        // shifts the following entries back, so that no tombstone is left
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (nonces[next] != EMPTY) {
+            int home = slot(nonces[next], mask);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                nonces[gap] = nonces[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        nonces[gap] = EMPTY;
+        values[gap] = null;
+        return value;
+    }
+
+    /**
+     * Returns the number of pending requests.
+     *
+     * @return the number of pending requests
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Removes all pending requests.
+     */
+    synchronized void clear() {
+        Arrays.fill(nonces, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldNonces = nonces;
+        Object[] oldValues = values;
+        nonces = new long[capacity];
+        values = new Object[capacity];
+
+        int mask = capacity - 1;
+        for (int i = 0; i < oldNonces.length; i++) {
+            if (oldNonces[i] != EMPTY) {
+                int slot = slot(oldNonces[i], mask);
+                while (nonces[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                nonces[slot] = oldNonces[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int slot(long nonce, int mask) {
+        long hash = nonce * GOLDEN_RATIO;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
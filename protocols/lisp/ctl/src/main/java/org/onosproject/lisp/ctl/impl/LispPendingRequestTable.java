@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A table of map-requests which have been forwarded to ETRs recently.
+ * <p>
+ * The first map-request for a set of EIDs within a coalescing window is the
+ * leader and gets forwarded; the identical map-requests which arrive before
+ * the window closes are followers, which the caller answers without involving
+ * the ETR again. Hence the ETR load grows with the number of distinct EIDs
+ * rather than with the number of requesting ITRs.
+ */
+final class LispPendingRequestTable {
+
+    private final Cache<List<LispEidRecord>, Boolean> pending;
+    private final long window;
+
+    private final AtomicLong forwardedRequests = new AtomicLong();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+
+    /**
+     * Creates a pending request table with the given coalescing window.
+     *
+     * @param window coalescing window in milliseconds
+     */
+    LispPendingRequestTable(long window) {
+        this(window, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a pending request table with the given coalescing window and
+     * time source.
+     *
+     * @param window coalescing window in milliseconds
+     * @param ticker time source
+     */
+    LispPendingRequestTable(long window, Ticker ticker) {
+        checkArgument(window > 0, "Coalescing window should be positive");
+        this.window = window;
+        this.pending = CacheBuilder.newBuilder()
+                .expireAfterWrite(window, TimeUnit.MILLISECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Registers a map-request for the given EIDs, and checks whether the
+     * map-request should be forwarded to the ETR.
+     *
+     * @param eids endpoint identifier records of the map-request
+     * @return true if no identical map-request is in flight, which means the
+     *         map-request should be forwarded; false if it is coalesced
+     */
+    boolean tryForward(List<LispEidRecord> eids) {
+        if (pending.asMap().putIfAbsent(ImmutableList.copyOf(eids), Boolean.TRUE) == null) {
+            forwardedRequests.incrementAndGet();
+            return true;
+        }
+        coalescedRequests.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Returns the coalescing window.
+     *
+     * @return coalescing window in milliseconds
+     */
+    long window() {
+        return window;
+    }
+
+    /**
+     * Returns the number of map-requests which are in flight.
+     *
+     * @return the number of in-flight map-requests
+     */
+    long size() {
+        pending.cleanUp();
+        return pending.size();
+    }
+
+    /**
+     * Returns the number of map-requests which have been forwarded.
+     *
+     * @return the number of forwarded map-requests
+     */
+    long forwardedRequests() {
+        return forwardedRequests.get();
+    }
+
+    /**
+     * Returns the number of map-requests which have been coalesced into an
+     * in-flight one.
+     *
+     * @return the number of coalesced map-requests
+     */
+    long coalescedRequests() {
+        return coalescedRequests.get();
+    }
+}
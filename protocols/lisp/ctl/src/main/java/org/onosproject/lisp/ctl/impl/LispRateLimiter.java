@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.util.ReferenceCountUtil;
+import org.onosproject.lisp.msg.protocols.LispType;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-source rate limiter of incoming LISP control messages.
+ * <p>
+ * Each source address has a token bucket per LISP message type, so that a
+ * single misbehaving xTR cannot starve the others. The message type is
+ * peeked from the first byte of the datagram, and the messages which exceed
+ * the budget of their source are dropped before being decoded.
+ * <p>
+ * A bucket is kept as the theoretical arrival time of the next conforming
+ * message (GCRA), which is a single long value per source and type. The
+ * sources which have been idle for a while are evicted, and once the table
+ * is full, the messages from the other sources share a single bucket.
+ */
+@Sharable
+final class LispRateLimiter extends ChannelInboundHandlerAdapter {
+
+    private static final int TYPE_SLOTS = 16;
+    private static final int MAX_SOURCES = 65536;
+    private static final long IDLE_TIMEOUT_NS = TimeUnit.SECONDS.toNanos(60);
+    private static final long EVICTION_INTERVAL_NS = TimeUnit.SECONDS.toNanos(10);
+    private static final long NANOS_PER_SEC = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<InetAddress, SourceBucket> buckets = Maps.newConcurrentMap();
+    private final SourceBucket overflowBucket = new SourceBucket(0);
+
+    private volatile Budget budget = new Budget(new long[TYPE_SLOTS], new long[TYPE_SLOTS]);
+    private volatile boolean enabled;
+
+    private final AtomicLong lastEviction = new AtomicLong();
+    private final AtomicLongArray droppedMessages = new AtomicLongArray(TYPE_SLOTS);
+    private final AtomicLong passedMessages = new AtomicLong();
+
+    // non-instantiable (except for our Singleton)
+    private LispRateLimiter() {
+    }
+
+    static LispRateLimiter getInstance() {
+        return SingletonHelper.INSTANCE;
+    }
+
+    /**
+     * Configures the budget of each source per message type.
+     *
+     * @param enabled whether rate limiting is enabled
+     * @param rates   messages per second allowed for each LISP type; a type
+     *                which is absent or has a non-positive rate is not limited
+     */
+    synchronized void configure(boolean enabled, Map<LispType, Integer> rates) {
+        long[] newIntervals = new long[TYPE_SLOTS];
+        long[] newTolerances = new long[TYPE_SLOTS];
+        rates.forEach((type, rate) -> {
+            if (rate != null && rate > 0) {
+                int slot = type.getTypeCode() & (TYPE_SLOTS - 1);
+                newIntervals[slot] = NANOS_PER_SEC / rate;
+
+                // allows a burst of a second worth of messages
+                newTolerances[slot] = newIntervals[slot] * (rate - 1);
+            }
+        });
+        budget = new Budget(newIntervals, newTolerances);
+        this.enabled = enabled;
+        if (!enabled) {
+            buckets.clear();
+        }
+    }
+
+    /**
+     * Returns whether rate limiting is enabled.
+     *
+     * @return whether rate limiting is enabled
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (enabled && msg instanceof DatagramPacket) {
+            DatagramPacket packet = (DatagramPacket) msg;
+            ByteBuf content = packet.content();
+            if (content.isReadable()) {
+                int type = (content.getUnsignedByte(content.readerIndex()) >> 4);
+                if (!tryAcquire(packet.sender().getAddress(), type, System.nanoTime())) {
+                    droppedMessages.incrementAndGet(type);
+                    ReferenceCountUtil.release(msg);
+                    return;
+                }
+                passedMessages.incrementAndGet();
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    /**
+     * Takes a token of the given message type from the bucket of the given
+     * source.
+     *
+     * @param source source address
+     * @param type   LISP type code
+     * @param now    current time in ns
+     * @return true if the message conforms to the budget
+     */
+    boolean tryAcquire(InetAddress source, int type, long now) {
+        Budget currentBudget = budget;
+        long interval = currentBudget.intervals[type];
+        if (interval == 0) {
+            return true;
+        }
+
+        SourceBucket bucket = buckets.get(source);
+        if (bucket == null) {
+            evictIdleSources(now);
+            if (buckets.size() >= MAX_SOURCES) {
+                bucket = overflowBucket;
+            } else {
+                bucket = buckets.computeIfAbsent(source, k -> new SourceBucket(now));
+            }
+        }
+        return bucket.tryAcquire(type, interval, currentBudget.tolerances[type], now);
+    }
+
+    /**
+     * Evicts the sources which have been idle for a while, at most once in
+     * an eviction interval.
+     *
+     * @param now current time in ns
+     */
+    private void evictIdleSources(long now) {
+        long last = lastEviction.get();
+        if (now - last < EVICTION_INTERVAL_NS || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        buckets.values().removeIf(bucket -> now - bucket.lastSeen > IDLE_TIMEOUT_NS);
+    }
+
+    /**
+     * Returns the number of tracked source addresses.
+     *
+     * @return the number of tracked sources
+     */
+    int trackedSources() {
+        return buckets.size();
+    }
+
+    /**
+     * Returns the number of messages which have passed the rate limiter.
+     *
+     * @return the number of passed messages
+     */
+    long passedMessages() {
+        return passedMessages.get();
+    }
+
+    /**
+     * Returns the number of messages of the given type which have been
+     * dropped by the rate limiter.
+     *
+     * @param type LISP type
+     * @return the number of dropped messages
+     */
+    long droppedMessages(LispType type) {
+        return droppedMessages.get(type.getTypeCode() & (TYPE_SLOTS - 1));
+    }
+
+    /**
+     * Token buckets of a source address, one per message type.
+     */
+    private static final class SourceBucket {
+        private final long[] arrivals = new long[TYPE_SLOTS];
+        private volatile long lastSeen;
+
+        SourceBucket(long now) {
+            this.lastSeen = now;
+            Arrays.fill(arrivals, Long.MIN_VALUE);
+        }
+
+        synchronized boolean tryAcquire(int type, long interval,
+                                        long tolerance, long now) {
+            lastSeen = now;
+            long arrival = Math.max(arrivals[type], now);
+            if (arrival - now > tolerance) {
+                return false;
+            }
+            arrivals[type] = arrival + interval;
+            return true;
+        }
+    }
+
+    /**
+     * The emission interval and the burst tolerance in ns per type, which
+     * are published at once; 0 means no limit.
+     */
+    private static final class Budget {
+        private final long[] intervals;
+        private final long[] tolerances;
+
+        Budget(long[] intervals, long[] tolerances) {
+            this.intervals = intervals;
+            this.tolerances = tolerances;
+        }
+    }
+
+    /**
+     * Prevents object instantiation from external.
+     */
+    private static final class SingletonHelper {
+        private static final String ILLEGAL_ACCESS_MSG = "Should not instantiate this class.";
+        private static final LispRateLimiter INSTANCE = new LispRateLimiter();
+
+        private SingletonHelper() {
+            throw new IllegalAccessError(ILLEGAL_ACCESS_MSG);
+        }
+    }
+}
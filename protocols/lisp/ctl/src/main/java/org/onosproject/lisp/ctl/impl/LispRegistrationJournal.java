@@ -0,0 +1,731 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+import org.onosproject.lisp.msg.exceptions.LispWriterException;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.MapRecordReader;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.MapRecordWriter;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRegister;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * An append-only journal of the authenticated map-register messages, which
+ * is stored in a sequence of memory-mapped segment files.
+ * <p>
+ * Registration events are queued on the message processing path, and are
+ * written in batches by a dedicated writer thread, which forces each batch to
+ * the storage device at once. Each entry is prefixed with its length and CRC32
+ * checksum, so that a torn write at the tail of a segment is detected and
+ * ignored on replay. When a segment is full, the journal rotates to a new
+ * segment, and once the number of sealed segments exceeds the limit, the
+ * sealed segments are compacted into one segment which only contains the
+ * latest unexpired registration of each EID prefix.
+ */
+final class LispRegistrationJournal {
+
+    private static final Logger log = getLogger(LispRegistrationJournal.class);
+
+    private static final int MAGIC = 0x4c524a53;
+    private static final int VERSION = 1;
+
+    // magic and version
+    private static final int SEGMENT_HEADER_LENGTH = 4 + 4;
+    // entry length and CRC32 checksum
+    private static final int ENTRY_HEADER_LENGTH = 4 + 4;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SEGMENT_GLOB = SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX;
+    private static final String SEGMENT_NAME_FORMAT = SEGMENT_PREFIX + "%020d" + SEGMENT_SUFFIX;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final int DEFAULT_MAX_SEGMENTS = 8;
+    private static final int DEFAULT_QUEUE_SIZE = 64 * 1024;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long STOP_TIMEOUT_SEC = 5;
+    private static final long MINUTE_TO_MS_UNIT = 60 * 1000;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final int batchSize;
+    private final BlockingQueue<RegistrationEvent> queue;
+
+    private final AtomicLong appendedEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+
+    private volatile boolean running;
+    private ExecutorService writer;
+
+    // the following fields are only accessed by the writer thread once started
+    private long nextSequence;
+    private Path activePath;
+    private FileChannel activeChannel;
+    private MappedByteBuffer activeBuffer;
+
+    /**
+     * Creates a registration journal with default configuration, which is
+     * stored in the given directory.
+     *
+     * @param directory journal directory
+     */
+    LispRegistrationJournal(Path directory) {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_SEGMENTS,
+             DEFAULT_QUEUE_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a registration journal which is stored in the given directory.
+     *
+     * @param directory   journal directory
+     * @param segmentSize size of a segment file in bytes
+     * @param maxSegments maximum number of sealed segments before compaction
+     * @param queueSize   maximum number of events waiting to be written
+     * @param batchSize   maximum number of events written at once
+     */
+    LispRegistrationJournal(Path directory, int segmentSize, int maxSegments,
+                            int queueSize, int batchSize) {
+        checkArgument(segmentSize > SEGMENT_HEADER_LENGTH + ENTRY_HEADER_LENGTH,
+                      "Segment size is too small");
+        checkArgument(maxSegments > 0, "Maximum number of segments should be positive");
+        checkArgument(batchSize > 0, "Batch size should be positive");
+
+        this.directory = checkNotNull(directory, "Journal directory should not be null");
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+    }
+
+    /**
+     * Obtains the journal directory.
+     *
+     * @return journal directory
+     */
+    Path directory() {
+        return directory;
+    }
+
+    /**
+     * Starts the journal writer. New events are appended to a new segment
+     * which follows all of the existing segments.
+     *
+     * @throws IOException if a new segment cannot be created
+     */
+    synchronized void start() throws IOException {
+        checkState(!running, "Journal has already been started");
+
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        nextSequence = segments.isEmpty() ? 0 :
+                       sequenceOf(segments.get(segments.size() - 1)) + 1;
+        openSegment();
+
+        running = true;
+        writer = newSingleThreadExecutor(groupedThreads("onos/lisp",
+                                                        "registration-journal", log));
+        writer.execute(this::writeLoop);
+    }
+
+    /**
+     * Stops the journal writer, after writing all of the queued events.
+     */
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(STOP_TIMEOUT_SEC, SECONDS)) {
+                log.warn("Timed out while waiting for registration journal writer");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    /**
+     * Returns whether the journal writer is running.
+     *
+     * @return whether the journal writer is running
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Appends an authenticated map-register message to the journal. The
+     * message is queued and written asynchronously; if the queue is full,
+     * the message is dropped and counted.
+     *
+     * @param register map-register message
+     */
+    void append(LispMapRegister register) {
+        if (!running) {
+            return;
+        }
+
+        RegistrationEvent event = new RegistrationEvent(System.currentTimeMillis(),
+                                                        register.getSender(),
+                                                        register.isProxyMapReply(),
+                                                        register.getMapRecords());
+        if (queue.offer(event)) {
+            appendedEvents.incrementAndGet();
+        } else {
+            droppedEvents.incrementAndGet();
+        }
+    }
+
+    /**
+     * Obtains the number of events which have been queued for writing.
+     *
+     * @return the number of appended events
+     */
+    long appendedEvents() {
+        return appendedEvents.get();
+    }
+
+    /**
+     * Obtains the number of events which have been dropped due to a full queue.
+     *
+     * @return the number of dropped events
+     */
+    long droppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Replays all of the registration events in the order of registration.
+     * The journal should not be running while being replayed.
+     *
+     * @param consumer registration event consumer
+     * @return the number of replayed events
+     * @throws IOException if a segment cannot be read
+     */
+    synchronized int replay(Consumer<RegistrationEvent> consumer) throws IOException {
+        checkState(!running, "Journal should be stopped before replay");
+
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+
+        int count = 0;
+        for (Path segment : segments()) {
+            count += readSegment(segment, consumer);
+        }
+        return count;
+    }
+
+    /**
+     * Replays all of the registration events into the given mapping database.
+     * Each mapping record is restored with its remaining TTL, and a mapping
+     * record whose latest registration has expired is removed.
+     *
+     * @param mapDb mapping database
+     * @return the number of replayed events
+     * @throws IOException if a segment cannot be read
+     */
+    int replay(LispMappingDatabase mapDb) throws IOException {
+        long now = System.currentTimeMillis();
+        return replay(event -> event.mapRecords().forEach(record -> {
+            LispEidRecord eid = eidRecord(record);
+            long remainingMs = expireAt(event, record) - now;
+            if (remainingMs > 0) {
+                mapDb.putMapRecord(eid, record, event.isProxyMapReply(), remainingMs);
+            } else {
+                mapDb.removeMapRecordByEid(eid);
+            }
+        }));
+    }
+
+    /**
+     * Writes queued events in batches until the journal is stopped.
+     */
+    private void writeLoop() {
+        List<RegistrationEvent> batch = Lists.newArrayListWithCapacity(batchSize);
+        ByteBuf byteBuf = Unpooled.buffer();
+        try {
+            while (running || !queue.isEmpty()) {
+                RegistrationEvent first = queue.poll(POLL_INTERVAL_MS, MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                for (RegistrationEvent event : batch) {
+                    writeEvent(event, byteBuf);
+                }
+                batch.clear();
+
+                // a batch is forced to the storage device at once
+                activeBuffer.force();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.error("Stopped registration journal due to I/O failure", e);
+            running = false;
+        } finally {
+            byteBuf.release();
+            closeSegment();
+        }
+    }
+
+    /**
+     * Writes an event into the active segment, rotating to a new segment if
+     * the active segment does not have enough room.
+     *
+     * @param event   registration event
+     * @param byteBuf buffer which is used to serialize the event
+     * @throws IOException if a new segment cannot be created
+     */
+    private void writeEvent(RegistrationEvent event, ByteBuf byteBuf) throws IOException {
+        byteBuf.clear();
+        try {
+            encode(event, byteBuf);
+        } catch (LispWriterException e) {
+            log.warn("Failed to serialize registration event {}", event, e);
+            return;
+        }
+
+        int length = byteBuf.readableBytes();
+        if (ENTRY_HEADER_LENGTH + length > segmentSize - SEGMENT_HEADER_LENGTH) {
+            log.warn("Dropped registration event {} which exceeds segment size", event);
+            return;
+        }
+        if (activeBuffer.remaining() < ENTRY_HEADER_LENGTH + length) {
+            rotate();
+        }
+        putEntry(activeBuffer, byteBuf);
+    }
+
+    /**
+     * Seals the active segment and opens a new one. The sealed segments are
+     * compacted if there are too many of them.
+     *
+     * @throws IOException if a new segment cannot be created
+     */
+    private void rotate() throws IOException {
+        closeSegment();
+        openSegment();
+
+        List<Path> sealed = segments();
+        sealed.remove(activePath);
+        if (sealed.size() > maxSegments) {
+            compact(sealed);
+        }
+    }
+
+    /**
+     * Compacts the given sealed segments into the last one of them, keeping
+     * only the latest unexpired registration of each EID prefix.
+     *
+     * @param sealed sealed segments in the order of sequence
+     */
+    private void compact(List<Path> sealed) {
+        long now = System.currentTimeMillis();
+        Map<LispEidRecord, RegistrationEvent> latest = Maps.newLinkedHashMap();
+
+        try {
+            for (Path segment : sealed) {
+                readSegment(segment, event -> event.mapRecords().forEach(record -> {
+                    LispEidRecord eid = eidRecord(record);
+
+                    // remove first, so that the map is ordered by the latest registration
+                    latest.remove(eid);
+                    if (expireAt(event, record) > now) {
+                        latest.put(eid, new RegistrationEvent(event.timestamp(),
+                                                              event.sender(),
+                                                              event.isProxyMapReply(),
+                                                              ImmutableList.of(record)));
+                    }
+                }));
+            }
+
+            ByteBuf content = Unpooled.buffer();
+            try {
+                for (RegistrationEvent event : latest.values()) {
+                    int start = content.writerIndex();
+                    content.writeZero(ENTRY_HEADER_LENGTH);
+                    encode(event, content);
+                    ByteBuf entry = content.slice(start + ENTRY_HEADER_LENGTH,
+                                                  content.writerIndex() - start - ENTRY_HEADER_LENGTH);
+                    content.setInt(start, entry.readableBytes());
+                    content.setInt(start + Integer.BYTES, (int) checksum(entry.nioBuffer()));
+                }
+                writeCompactedSegment(sealed.get(sealed.size() - 1), content);
+            } finally {
+                content.release();
+            }
+
+            // the compacted segment supersedes all of the preceding segments
+            for (Path segment : sealed.subList(0, sealed.size() - 1)) {
+                Files.delete(segment);
+            }
+            log.info("Compacted {} journal segments into {} registrations",
+                     sealed.size(), latest.size());
+        } catch (IOException | LispWriterException e) {
+            log.warn("Failed to compact registration journal", e);
+        }
+    }
+
+    /**
+     * Writes the compacted entries into a temporary file, and atomically
+     * replaces the given segment with the temporary file.
+     *
+     * @param target  segment to be replaced
+     * @param entries compacted entries
+     * @throws IOException if the compacted segment cannot be written
+     */
+    private void writeCompactedSegment(Path target, ByteBuf entries) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, CREATE,
+                                                    READ, WRITE, TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                                                  SEGMENT_HEADER_LENGTH + entries.readableBytes());
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.put(entries.nioBuffer());
+            buffer.force();
+        }
+        Files.move(temp, target, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    /**
+     * Creates a new segment with the next sequence number, and maps it into
+     * memory.
+     *
+     * @throws IOException if a new segment cannot be created
+     */
+    private void openSegment() throws IOException {
+        activePath = directory.resolve(String.format(SEGMENT_NAME_FORMAT, nextSequence++));
+        activeChannel = FileChannel.open(activePath, CREATE_NEW, READ, WRITE);
+        activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        activeBuffer.putInt(MAGIC);
+        activeBuffer.putInt(VERSION);
+    }
+
+    /**
+     * Forces the active segment to the storage device and closes it.
+     */
+    private void closeSegment() {
+        if (activeChannel == null) {
+            return;
+        }
+        try {
+            activeBuffer.force();
+            activeChannel.close();
+        } catch (IOException e) {
+            log.warn("Failed to close journal segment {}", activePath, e);
+        }
+        activeChannel = null;
+        activeBuffer = null;
+    }
+
+    /**
+     * Reads the registration events of the given segment. Reading stops at
+     * the end of written entries, or at the first corrupted entry.
+     *
+     * @param segment  segment file
+     * @param consumer registration event consumer
+     * @return the number of read events
+     * @throws IOException if the segment cannot be read
+     */
+    private int readSegment(Path segment, Consumer<RegistrationEvent> consumer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, READ)) {
+            long size = channel.size();
+            if (size < SEGMENT_HEADER_LENGTH || size > Integer.MAX_VALUE) {
+                log.warn("Skipped journal segment {} with invalid size {}", segment, size);
+                return 0;
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("Skipped journal segment {} with unknown format", segment);
+                return 0;
+            }
+
+            int count = 0;
+            while (buffer.remaining() >= ENTRY_HEADER_LENGTH) {
+                int length = buffer.getInt();
+                int crc = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+
+                ByteBuffer entry = buffer.slice();
+                entry.limit(length);
+                buffer.position(buffer.position() + length);
+                if ((int) checksum(entry.duplicate()) != crc) {
+                    log.warn("Found corrupted entry in journal segment {}", segment);
+                    break;
+                }
+
+                try {
+                    consumer.accept(decode(Unpooled.wrappedBuffer(entry)));
+                    count++;
+                } catch (LispParseError | LispReaderException e) {
+                    log.warn("Failed to read registration event from {}", segment, e);
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Obtains all of the segment files in the order of sequence.
+     *
+     * @return segment files
+     * @throws IOException if the journal directory cannot be listed
+     */
+    private List<Path> segments() throws IOException {
+        List<Path> segments = Lists.newArrayList();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_GLOB)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort((p1, p2) -> Long.compare(sequenceOf(p1), sequenceOf(p2)));
+        return segments;
+    }
+
+    /**
+     * Obtains the sequence number of the given segment file.
+     *
+     * @param segment segment file
+     * @return sequence number
+     */
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                                             name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Writes an entry, i.e., the length and checksum followed by the content.
+     *
+     * @param buffer  target buffer
+     * @param content entry content
+     */
+    private static void putEntry(ByteBuffer buffer, ByteBuf content) {
+        buffer.putInt(content.readableBytes());
+        buffer.putInt((int) checksum(content.nioBuffer()));
+        buffer.put(content.nioBuffer());
+    }
+
+    private static long checksum(ByteBuffer content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    private static LispEidRecord eidRecord(LispMapRecord record) {
+        return new LispEidRecord(record.getMaskLength(), record.getEidPrefixAfi());
+    }
+
+    private static long expireAt(RegistrationEvent event, LispMapRecord record) {
+        return event.timestamp() + record.getRecordTtl() * MINUTE_TO_MS_UNIT;
+    }
+
+    /**
+     * Serializes a registration event.
+     *
+     * @param event   registration event
+     * @param byteBuf target buffer
+     * @throws LispWriterException if a map record cannot be serialized
+     */
+    private static void encode(RegistrationEvent event, ByteBuf byteBuf)
+            throws LispWriterException {
+        byteBuf.writeLong(event.timestamp());
+
+        InetSocketAddress sender = event.sender();
+        if (sender == null || sender.getAddress() == null) {
+            byteBuf.writeByte(0);
+        } else {
+            byte[] address = sender.getAddress().getAddress();
+            byteBuf.writeByte(address.length);
+            byteBuf.writeBytes(address);
+            byteBuf.writeShort(sender.getPort());
+        }
+
+        byteBuf.writeBoolean(event.isProxyMapReply());
+        byteBuf.writeShort(event.mapRecords().size());
+
+        MapRecordWriter writer = new MapRecordWriter();
+        for (LispMapRecord record : event.mapRecords()) {
+            writer.writeTo(byteBuf, record);
+        }
+    }
+
+    /**
+     * Deserializes a registration event.
+     *
+     * @param byteBuf source buffer
+     * @return registration event
+     * @throws LispParseError      if a map record cannot be parsed
+     * @throws LispReaderException if a map record cannot be read
+     */
+    private static RegistrationEvent decode(ByteBuf byteBuf)
+            throws LispParseError, LispReaderException {
+        long timestamp = byteBuf.readLong();
+
+        InetSocketAddress sender = null;
+        int addressLength = byteBuf.readUnsignedByte();
+        if (addressLength > 0) {
+            byte[] address = new byte[addressLength];
+            byteBuf.readBytes(address);
+            int port = byteBuf.readUnsignedShort();
+            try {
+                sender = new InetSocketAddress(InetAddress.getByAddress(address), port);
+            } catch (UnknownHostException e) {
+                throw new LispReaderException("Invalid sender address length " + addressLength);
+            }
+        }
+
+        boolean proxyMapReply = byteBuf.readBoolean();
+        int recordCount = byteBuf.readUnsignedShort();
+
+        MapRecordReader reader = new MapRecordReader();
+        ImmutableList.Builder<LispMapRecord> records = ImmutableList.builder();
+        for (int i = 0; i < recordCount; i++) {
+            records.add(reader.readFrom(byteBuf));
+        }
+
+        return new RegistrationEvent(timestamp, sender, proxyMapReply, records.build());
+    }
+
+    /**
+     * An authenticated registration event, which consists of the registration
+     * time, the sender and the registered map records with their TTL.
+     */
+    static final class RegistrationEvent {
+        private final long timestamp;
+        private final InetSocketAddress sender;
+        private final boolean proxyMapReply;
+        private final List<LispMapRecord> mapRecords;
+
+        /**
+         * Initializes a registration event.
+         *
+         * @param timestamp     registration time in ms
+         * @param sender        sender of the map-register message
+         * @param proxyMapReply proxy map reply flag
+         * @param mapRecords    registered map records
+         */
+        RegistrationEvent(long timestamp, InetSocketAddress sender,
+                          boolean proxyMapReply, List<LispMapRecord> mapRecords) {
+            this.timestamp = timestamp;
+            this.sender = sender;
+            this.proxyMapReply = proxyMapReply;
+            this.mapRecords = mapRecords;
+        }
+
+        /**
+         * Obtains the registration time.
+         *
+         * @return registration time in ms
+         */
+        long timestamp() {
+            return timestamp;
+        }
+
+        /**
+         * Obtains the sender of the map-register message.
+         *
+         * @return sender address, or null if unknown
+         */
+        InetSocketAddress sender() {
+            return sender;
+        }
+
+        /**
+         * Obtains proxy map reply flag.
+         *
+         * @return proxy map reply flag
+         */
+        boolean isProxyMapReply() {
+            return proxyMapReply;
+        }
+
+        /**
+         * Obtains the registered map records.
+         *
+         * @return registered map records
+         */
+        List<LispMapRecord> mapRecords() {
+            return mapRecords;
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this)
+                    .add("timestamp", timestamp)
+                    .add("sender", sender)
+                    .add("proxyMapReply", proxyMapReply)
+                    .add("mapRecords", mapRecords).toString();
+        }
+    }
+}
@@ -0,0 +1,551 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.netty.channel.Channel;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRequest.DefaultRequestBuilder;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRequest;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispIpv6Address;
+import org.onosproject.lisp.msg.types.LispNoAddress;
+import org.slf4j.Logger;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * RLOC-probing engine.
+ * <p>
+ * The engine periodically sends map-requests with the probe bit set to the
+ * RLOCs of the registered mapping records, as described in RFC 6830, and
+ * correlates the probe map-replies by nonce. An RLOC which misses a number
+ * of consecutive probes is regarded as unreachable until it replies again.
+ * <p>
+ * All RLOCs are kept in a hashed timing wheel which is driven by a single
+ * thread, so that each tick only visits the RLOCs which are due. The probe
+ * interval of an RLOC grows while it keeps replying, drops to a short retry
+ * interval once a probe is missed, and is jittered, so that the probes are
+ * spread evenly over time.
+ */
+final class LispRlocProber implements LispMappingDatabase.MappingChangeListener {
+
+    private static final Logger log = getLogger(LispRlocProber.class);
+
+    private static final int PROBE_DST_PORT = 4342;
+    private static final long TICK_MS = 100;
+    private static final int WHEEL_SIZE = 1024;
+    private static final long PROBE_TIMEOUT_MS = 2000;
+    private static final long RETRY_INTERVAL_MS = 1000;
+    private static final int MAX_INTERVAL_FACTOR = 6;
+    private static final int UNREACHABLE_THRESHOLD = 3;
+    private static final double JITTER_RATIO = 0.1;
+    private static final int EXPECTED_PENDING_PROBES = 1024;
+
+    private final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+
+    private final ConcurrentMap<IpAddress, ProbeTarget> targets = Maps.newConcurrentMap();
+
+    // targets which are waiting to be placed into the wheel by the tick task
+    private final Queue<ProbeTarget> newTargets = new ConcurrentLinkedQueue<>();
+
+    private final LispNonceTable<ProbeTarget> pendingProbes =
+                                new LispNonceTable<>(EXPECTED_PENDING_PROBES);
+
+    private final AtomicLong sentProbes = new AtomicLong();
+    private final AtomicLong receivedReplies = new AtomicLong();
+
+    // wheel slots are accessed by the tick task only
+    private final ProbeTarget[] wheel = new ProbeTarget[WHEEL_SIZE];
+    private long currentTick;
+
+    private volatile ReachabilityListener listener;
+    private volatile Channel channel;
+    private volatile IpAddress configuredRloc;
+    private volatile boolean localRlocWarned;
+    private volatile long probeInterval;
+    private volatile boolean running;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> tickTask;
+
+    /**
+     * A listener which is notified of RLOC reachability changes.
+     */
+    interface ReachabilityListener {
+
+        /**
+         * Notifies that an RLOC has become reachable or unreachable.
+         *
+         * @param rloc      RLOC address
+         * @param reachable whether the RLOC is reachable
+         */
+        void reachabilityChanged(IpAddress rloc, boolean reachable);
+    }
+
+    // non-instantiable (except for our Singleton)
+    private LispRlocProber() {
+    }
+
+    static LispRlocProber getInstance() {
+        return SingletonHelper.INSTANCE;
+    }
+
+    /**
+     * Starts to probe the RLOCs of the registered mapping records.
+     *
+     * @param probeInterval base probe interval in ms
+     * @param localRloc     RLOC of this map server which is carried in the
+     *                      probes, or null to take the local address of the
+     *                      control channel
+     * @param listener      reachability listener
+     */
+    void start(long probeInterval, IpAddress localRloc,
+               ReachabilityListener listener) {
+        start(probeInterval, localRloc, listener, true);
+    }
+
+    /**
+     * Starts to probe the RLOCs of the registered mapping records.
+     *
+     * @param probeInterval base probe interval in ms
+     * @param localRloc     RLOC of this map server which is carried in the
+     *                      probes, or null to take the local address of the
+     *                      control channel
+     * @param listener      reachability listener
+     * @param ticking       whether the wheel is advanced by a timer; otherwise
+     *                      the caller advances it through {@link #tick()}
+     */
+    synchronized void start(long probeInterval, IpAddress localRloc,
+                            ReachabilityListener listener, boolean ticking) {
+        this.probeInterval = probeInterval;
+        this.configuredRloc = localRloc;
+        this.localRlocWarned = false;
+        this.listener = listener;
+        if (running) {
+            return;
+        }
+        running = true;
+
+        mapDb.addMappingChangeListener(this);
+        for (LispAfiAddress rloc : mapDb.getRlocs()) {
+            if (rloc instanceof LispIpAddress) {
+                addTarget(((LispIpAddress) rloc).getAddress());
+            }
+        }
+
+        if (ticking) {
+            executor = newSingleThreadScheduledExecutor(
+                                groupedThreads("onos/lisp", "rloc-prober", log));
+            tickTask = executor.scheduleAtFixedRate(this::tick, TICK_MS,
+                                                    TICK_MS, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops probing, and regards all RLOCs as reachable again.
+     */
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        mapDb.removeMappingChangeListener(this);
+        targets.values().stream().filter(target -> !target.reachable)
+                .forEach(target -> notifyReachabilityChanged(target.rloc, true));
+        if (executor != null) {
+            tickTask.cancel(false);
+            executor.shutdown();
+            tickTask = null;
+            executor = null;
+        }
+
+        targets.clear();
+        newTargets.clear();
+        pendingProbes.clear();
+        Arrays.fill(wheel, null);
+        listener = null;
+    }
+
+    /**
+     * Returns whether the engine is running.
+     *
+     * @return whether the engine is running
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Configures the channel through which probes are sent.
+     *
+     * @param channel LISP control channel
+     */
+    void setChannel(Channel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Returns whether the given RLOC is reachable. The RLOCs which are not
+     * probed are regarded as reachable.
+     *
+     * @param rloc RLOC address
+     * @return whether the RLOC is reachable
+     */
+    boolean isReachable(IpAddress rloc) {
+        ProbeTarget target = targets.get(rloc);
+        return target == null || target.reachable;
+    }
+
+    /**
+     * Handles a probe map-reply by correlating it with the pending probe.
+     *
+     * @param nonce nonce of the map-reply
+     */
+    void handleProbeReply(long nonce) {
+        if (running && pendingProbes.remove(nonce) != null) {
+            receivedReplies.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void mappingChanged(LispEidRecord eid) {
+        LispMapRecord record = mapDb.getRegisteredMapRecord(eid);
+        if (!running || record == null) {
+            return;
+        }
+        for (LispLocator locator : record.getLocators()) {
+            if (locator.getLocatorAfi() instanceof LispIpAddress) {
+                addTarget(((LispIpAddress) locator.getLocatorAfi()).getAddress());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of probed RLOCs.
+     *
+     * @return the number of probed RLOCs
+     */
+    int probedRlocs() {
+        return targets.size();
+    }
+
+    /**
+     * Returns the number of probes which have been sent.
+     *
+     * @return the number of sent probes
+     */
+    long sentProbes() {
+        return sentProbes.get();
+    }
+
+    /**
+     * Returns the number of probe replies which have been correlated.
+     *
+     * @return the number of received probe replies
+     */
+    long receivedReplies() {
+        return receivedReplies.get();
+    }
+
+    private void addTarget(IpAddress rloc) {
+        if (targets.containsKey(rloc)) {
+            return;
+        }
+        ProbeTarget target = new ProbeTarget(rloc, probeInterval);
+        if (targets.putIfAbsent(rloc, target) == null) {
+            newTargets.add(target);
+        }
+    }
+
+    /**
+     * Advances the wheel by one tick, and probes the RLOCs which are due.
+     */
+    void tick() {
+        if (!running) {
+            return;
+        }
+        try {
+            // new targets are spread over the first probe interval
+            ProbeTarget target;
+            while ((target = newTargets.poll()) != null) {
+                schedule(target, ThreadLocalRandom.current().nextLong(probeInterval));
+            }
+
+            int slot = (int) (currentTick & (WHEEL_SIZE - 1));
+            ProbeTarget due = wheel[slot];
+            wheel[slot] = null;
+
+            List<LispMessage> probes = Lists.newArrayList();
+            LispAfiAddress localRloc = null;
+            while (due != null) {
+                target = due;
+                due = target.next;
+                target.next = null;
+
+                if (target.rounds > 0) {
+                    target.rounds--;
+                    target.next = wheel[slot];
+                    wheel[slot] = target;
+                } else if (target.nonce != 0) {
+                    checkProbe(target);
+                } else {
+                    if (localRloc == null) {
+                        localRloc = localRloc();
+                    }
+                    probe(target, localRloc, probes);
+                }
+            }
+            currentTick++;
+
+            Channel currentChannel = channel;
+            if (!probes.isEmpty() && currentChannel != null) {
+                currentChannel.writeAndFlush(probes);
+                sentProbes.addAndGet(probes.size());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to probe RLOCs", e);
+        }
+    }
+
+    /**
+     * Sends a probe to the given target, unless its RLOC is no longer
+     * referred by any mapping record.
+     *
+     * @param target    probe target
+     * @param localRloc RLOC of this map server
+     * @param probes    probes to be sent during this tick
+     */
+    private void probe(ProbeTarget target, LispAfiAddress localRloc,
+                       List<LispMessage> probes) {
+        LispAfiAddress rloc = target.rloc.isIp4() ?
+                new LispIpv4Address(target.rloc) : new LispIpv6Address(target.rloc);
+        if (mapDb.getEidRecordCountByRloc(rloc) == 0) {
+            targets.remove(target.rloc, target);
+            if (!target.reachable) {
+                notifyReachabilityChanged(target.rloc, true);
+            }
+            return;
+        }
+
+        if (target.eid == null || !mapDb.hasEidRecord(target.eid)) {
+            target.eid = Iterables.getFirst(mapDb.getEidRecordsByRloc(rloc), null);
+        }
+        if (localRloc == null || target.eid == null || channel == null) {
+            schedule(target, jitter(target.interval));
+            return;
+        }
+
+        long nonce;
+        do {
+            nonce = ThreadLocalRandom.current().nextLong();
+        } while (nonce == 0 || !pendingProbes.put(nonce, target));
+        target.nonce = nonce;
+
+        LispMapRequest probe = new DefaultRequestBuilder()
+                .withIsProbe(true)
+                .withNonce(nonce)
+                .withSourceEid(new LispNoAddress())
+                .withItrRlocs(ImmutableList.of(localRloc))
+                .withEidRecords(ImmutableList.of(target.eid))
+                .build();
+        probe.configSender(new InetSocketAddress(target.rloc.toInetAddress(),
+                                                 PROBE_DST_PORT));
+        probes.add(probe);
+        schedule(target, PROBE_TIMEOUT_MS);
+    }
+
+    /**
+     * Checks whether the pending probe of the given target has been replied
+     * in time, and adapts the reachability and the probe interval.
+     *
+     * @param target probe target
+     */
+    private void checkProbe(ProbeTarget target) {
+        // if the probe is still pending, no reply has removed it in time
+        boolean replied = pendingProbes.remove(target.nonce) == null;
+        target.nonce = 0;
+
+        if (replied) {
+            target.missed = 0;
+            if (!target.reachable) {
+                target.reachable = true;
+                target.interval = probeInterval;
+                notifyReachabilityChanged(target.rloc, true);
+            } else {
+                target.interval = Math.min(target.interval * 2,
+                                           probeInterval * MAX_INTERVAL_FACTOR);
+            }
+        } else {
+            target.missed++;
+            if (target.reachable && target.missed >= UNREACHABLE_THRESHOLD) {
+                target.reachable = false;
+                target.interval = probeInterval;
+                notifyReachabilityChanged(target.rloc, false);
+            } else if (target.reachable) {
+                target.interval = RETRY_INTERVAL_MS;
+            }
+        }
+
+        // stale targets are dropped when their next probe is due
+        if (targets.get(target.rloc) == target) {
+            schedule(target, jitter(target.interval));
+        }
+    }
+
+    /**
+     * Places the given target into the wheel to be visited after the given
+     * delay.
+     *
+     * @param target probe target
+     * @param delay  delay in ms
+     */
+    private void schedule(ProbeTarget target, long delay) {
+        long ticks = Math.max(1, (delay + TICK_MS - 1) / TICK_MS);
+        int slot = (int) ((currentTick + ticks) & (WHEEL_SIZE - 1));
+        target.rounds = (int) ((ticks - 1) / WHEEL_SIZE);
+        target.next = wheel[slot];
+        wheel[slot] = target;
+    }
+
+    private long jitter(long interval) {
+        long range = (long) (interval * JITTER_RATIO);
+        if (range == 0) {
+            return interval;
+        }
+        return interval + ThreadLocalRandom.current().nextLong(-range, range + 1);
+    }
+
+    private void notifyReachabilityChanged(IpAddress rloc, boolean reachable) {
+        log.info("RLOC {} is {}", rloc, reachable ? "reachable" : "unreachable");
+        ReachabilityListener currentListener = listener;
+        if (currentListener != null) {
+            currentListener.reachabilityChanged(rloc, reachable);
+        }
+    }
+
+    /**
+     * Obtains the RLOC of this map server, which is carried in probes as
+     * ITR-RLOC.
+     *
+     * @return RLOC of this map server, or null if none is usable
+     */
+    private LispAfiAddress localRloc() {
+        LispAfiAddress rloc = selectLocalRloc(configuredRloc, channel);
+        if (rloc == null && !localRlocWarned) {
+            localRlocWarned = true;
+            log.warn("No usable local RLOC for RLOC-probing; configure " +
+                     "rlocProbeSource with a routable address of this map server");
+        }
+        return rloc;
+    }
+
+    /**
+     * Selects the RLOC of this map server which is carried in the messages
+     * it originates as ITR-RLOC. The configured RLOC takes precedence over
+     * the local address of the control channel. A wildcard or loopback
+     * address is never selected, as no reply would return to it.
+     *
+     * @param configured configured RLOC, or null if none is configured
+     * @param channel    LISP control channel, or null if it is not bound
+     * @return RLOC of this map server, or null if none is usable
+     */
+    static LispAfiAddress selectLocalRloc(IpAddress configured, Channel channel) {
+        IpAddress address = configured;
+        if (address == null) {
+            SocketAddress local = channel != null ? channel.localAddress() : null;
+            if (local instanceof InetSocketAddress &&
+                    ((InetSocketAddress) local).getAddress() != null) {
+                address = IpAddress.valueOf(((InetSocketAddress) local).getAddress());
+            }
+        }
+
+        if (address == null || !isUsableRloc(address)) {
+            return null;
+        }
+        return address.isIp4() ? new LispIpv4Address(address) :
+                                 new LispIpv6Address(address);
+    }
+
+    /**
+     * Returns whether the given address can be carried as ITR-RLOC.
+     *
+     * @param address IP address
+     * @return false if the address is a wildcard or loopback address
+     */
+    static boolean isUsableRloc(IpAddress address) {
+        InetAddress inetAddress = address.toInetAddress();
+        return !inetAddress.isAnyLocalAddress() && !inetAddress.isLoopbackAddress();
+    }
+
+    /**
+     * The probing state of an RLOC, which also serves as a wheel entry.
+     * Except for reachability, the state is accessed by the tick task only.
+     */
+    private static final class ProbeTarget {
+        private final IpAddress rloc;
+        private volatile boolean reachable = true;
+        private LispEidRecord eid;
+        private long interval;
+        private long nonce;
+        private int missed;
+        private int rounds;
+        private ProbeTarget next;
+
+        ProbeTarget(IpAddress rloc, long interval) {
+            this.rloc = rloc;
+            this.interval = interval;
+        }
+    }
+
+    /**
+     * Prevents object instantiation from external.
+     */
+    private static final class SingletonHelper {
+        private static final String ILLEGAL_ACCESS_MSG = "Should not instantiate this class.";
+        private static final LispRlocProber INSTANCE = new LispRlocProber();
+
+        private SingletonHelper() {
+            throw new IllegalAccessError(ILLEGAL_ACCESS_MSG);
+        }
+    }
+}
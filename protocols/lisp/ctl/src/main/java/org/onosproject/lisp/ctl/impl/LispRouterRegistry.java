@@ -0,0 +1,230 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.Maps;
+import io.netty.channel.Channel;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.ctl.LispRouter;
+import org.onosproject.lisp.ctl.LispRouterFactory;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * A registry of the LISP routers which have contacted the controller.
+ * <p>
+ * A router is built and connected only on its first contact; subsequent
+ * messages from the same address resolve the existing router in constant
+ * time, and only refresh its last-seen time in place.
+ */
+final class LispRouterRegistry {
+
+    private static final int CADENCE_WEIGHT = 8;
+
+    private final LispRouterFactory routerFactory = LispRouterFactory.getInstance();
+    private final LispRouterSweeper sweeper = LispRouterSweeper.getInstance();
+
+    private final ConcurrentMap<IpAddress, RouterEntry> routers = Maps.newConcurrentMap();
+
+    // non-instantiable (except for our Singleton)
+    private LispRouterRegistry() {
+    }
+
+    static LispRouterRegistry getInstance() {
+        return SingletonHelper.INSTANCE;
+    }
+
+    /**
+     * Obtains the router of the given address, which is built and connected
+     * through the given channel on its first contact, and marks the router
+     * as seen now.
+     *
+     * @param address address of the router
+     * @param channel channel through which the router is reached
+     * @return LISP router
+     */
+    LispRouter getRouter(IpAddress address, Channel channel) {
+        return getRouter(address, channel, System.currentTimeMillis());
+    }
+
+    /**
+     * Obtains the router of the given address, which is built and connected
+     * through the given channel on its first contact, and marks the router
+     * as seen at the given time.
+     *
+     * @param address address of the router
+     * @param channel channel through which the router is reached
+     * @param now     current time in ms
+     * @return LISP router
+     */
+    LispRouter getRouter(IpAddress address, Channel channel, long now) {
+        RouterEntry entry = routers.get(address);
+        if (entry == null) {
+            entry = addRouter(address, channel);
+        }
+
+        if (entry.channel != channel) {
+            entry.router.setChannel(channel);
+            entry.channel = channel;
+        }
+
+        // keeps a moving average of the interval between contacts
+        long lastSeen = entry.lastSeen;
+        if (lastSeen != 0) {
+            long cadence = entry.cadence;
+            entry.cadence = cadence == 0 ? now - lastSeen :
+                            cadence + (now - lastSeen - cadence) / CADENCE_WEIGHT;
+        }
+        entry.lastSeen = now;
+        return entry.router;
+    }
+
+    /**
+     * Builds the router of the given address and publishes it, unless a
+     * concurrent contact has published one first. Only the published router
+     * is connected, and the connect work runs outside of the map, as it calls
+     * back into the controller.
+     *
+     * @param address address of the router
+     * @param channel channel through which the router is reached
+     * @return router entry
+     */
+    private RouterEntry addRouter(IpAddress address, Channel channel) {
+        // the router gets its channel before it is published, so that
+        // concurrent contacts never observe a router without channel
+        RouterEntry created = new RouterEntry(routerFactory.getRouterInstance(address));
+        created.router.setChannel(channel);
+        created.channel = channel;
+        created.router.setConnected(true);
+
+        RouterEntry existing = routers.putIfAbsent(address, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        if (!created.router.connectRouter()) {
+            // the controller still holds a stale router of this address,
+            // hence connecting is retried on a later contact
+            created.router.setConnected(false);
+            routers.remove(address, created);
+            return created;
+        }
+        sweeper.track(address);
+        return created;
+    }
+
+    /**
+     * Obtains the time at which the router of the given address has been
+     * seen last.
+     *
+     * @param address address of the router
+     * @return last-seen time in ms, or 0 if the router is unknown
+     */
+    long getLastSeen(IpAddress address) {
+        RouterEntry entry = routers.get(address);
+        return entry == null ? 0 : entry.lastSeen;
+    }
+
+    /**
+     * Obtains the average interval at which the router of the given address
+     * contacts the controller, e.g., its registration interval.
+     *
+     * @param address address of the router
+     * @return average interval in ms, or 0 if it is not known yet
+     */
+    long getCadence(IpAddress address) {
+        RouterEntry entry = routers.get(address);
+        return entry == null ? 0 : entry.cadence;
+    }
+
+    /**
+     * Visits the addresses of the known routers along with their last-seen
+     * time.
+     *
+     * @param consumer consumer of a router address and its last-seen time in ms
+     */
+    void forEach(BiConsumer<IpAddress, Long> consumer) {
+        routers.forEach((address, entry) -> consumer.accept(address, entry.lastSeen));
+    }
+
+    /**
+     * Forgets the router of the given address, so that the router is built
+     * again on its next contact.
+     *
+     * @param address address of the router
+     */
+    void removeRouter(IpAddress address) {
+        routers.remove(address);
+    }
+
+    /**
+     * Forgets the router of the given address only if it has not been seen
+     * since the given time, so that a router which contacts the controller
+     * concurrently is not removed.
+     *
+     * @param address  address of the router
+     * @param lastSeen last-seen time in ms at which the router was found silent
+     * @return whether the router has been removed
+     */
+    boolean removeRouter(IpAddress address, long lastSeen) {
+        RouterEntry entry = routers.get(address);
+        return entry != null && entry.lastSeen == lastSeen &&
+                routers.remove(address, entry);
+    }
+
+    /**
+     * Returns the number of known routers.
+     *
+     * @return the number of routers
+     */
+    int size() {
+        return routers.size();
+    }
+
+    /**
+     * Forgets all routers.
+     */
+    void clear() {
+        routers.clear();
+    }
+
+    /**
+     * A router along with its mutable contact state.
+     */
+    private static final class RouterEntry {
+        private final LispRouter router;
+        private volatile Channel channel;
+        private volatile long lastSeen;
+        private volatile long cadence;
+
+        RouterEntry(LispRouter router) {
+            this.router = router;
+        }
+    }
+
+    /**
+     * Prevents object instantiation from external.
+     */
+    private static final class SingletonHelper {
+        private static final String ILLEGAL_ACCESS_MSG = "Should not instantiate this class.";
+        private static final LispRouterRegistry INSTANCE = new LispRouterRegistry();
+
+        private SingletonHelper() {
+            throw new IllegalAccessError(ILLEGAL_ACCESS_MSG);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.ctl.LispRouterId;
+import org.slf4j.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Idle router sweeper.
+ * <p>
+ * LISP routers talk to the controller over UDP, so that there is no
+ * connection whose closure tells that a router has gone. Instead, a router
+ * is regarded as gone once it has been silent for longer than its idle
+ * timeout, which is the larger of the configured timeout and a multiple of
+ * its own registration interval.
+ * <p>
+ * Routers are kept in a hashed timing wheel at their expected deadline, and
+ * receiving a message only refreshes the last-seen time of a router, which
+ * is checked when the deadline is reached. A silent router first becomes
+ * suspect, and is only removed if it is still silent after a hold time, so
+ * that a router which is merely late is not removed and added back.
+ */
+final class LispRouterSweeper {
+
+    private static final Logger log = getLogger(LispRouterSweeper.class);
+
+    private static final long TICK_MS = 1000;
+    private static final int WHEEL_SIZE = 512;
+    private static final int CADENCE_FACTOR = 3;
+    private static final int HOLD_DIVISOR = 2;
+
+    // routers which are waiting to be placed into the wheel by the tick task
+    private final Queue<IpAddress> newRouters = new ConcurrentLinkedQueue<>();
+
+    // wheel entries and slots are guarded by the entry map
+    private final Map<IpAddress, SweepEntry> entries = Maps.newHashMap();
+    private final SweepEntry[] wheel = new SweepEntry[WHEEL_SIZE];
+    private long currentTick;
+
+    private final AtomicLong sweptRouters = new AtomicLong();
+    private volatile int suspectRouters;
+
+    private volatile Consumer<LispRouterId> remover;
+    private volatile long idleTimeout;
+    private volatile boolean running;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> tickTask;
+
+    // non-instantiable (except for our Singleton)
+    private LispRouterSweeper() {
+    }
+
+    static LispRouterSweeper getInstance() {
+        return SingletonHelper.INSTANCE;
+    }
+
+    /**
+     * Starts to sweep the routers which have gone silent.
+     *
+     * @param idleTimeout minimum idle timeout in ms
+     * @param remover     consumer which removes a silent router
+     */
+    void start(long idleTimeout, Consumer<LispRouterId> remover) {
+        start(idleTimeout, remover, true);
+    }
+
+    /**
+     * Starts to sweep the routers which have gone silent.
+     *
+     * @param idleTimeout minimum idle timeout in ms
+     * @param remover     consumer which removes a silent router
+     * @param ticking     whether the wheel is advanced by a timer; otherwise
+     *                    the caller advances it through {@link #tick(long)}
+     */
+    synchronized void start(long idleTimeout, Consumer<LispRouterId> remover,
+                            boolean ticking) {
+        this.idleTimeout = idleTimeout;
+        this.remover = remover;
+        if (running) {
+            return;
+        }
+        running = true;
+
+        LispRouterRegistry.getInstance().forEach((address, lastSeen) -> track(address));
+
+        if (ticking) {
+            executor = newSingleThreadScheduledExecutor(
+                                groupedThreads("onos/lisp", "router-sweeper", log));
+            tickTask = executor.scheduleAtFixedRate(this::tick, TICK_MS,
+                                                    TICK_MS, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops sweeping routers.
+     */
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        if (executor != null) {
+            tickTask.cancel(false);
+            executor.shutdown();
+            tickTask = null;
+            executor = null;
+        }
+
+        newRouters.clear();
+        synchronized (entries) {
+            entries.clear();
+            Arrays.fill(wheel, null);
+        }
+        suspectRouters = 0;
+        remover = null;
+    }
+
+    /**
+     * Returns whether the sweeper is running.
+     *
+     * @return whether the sweeper is running
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts to track the liveness of the router of the given address.
+     *
+     * @param address address of the router
+     */
+    void track(IpAddress address) {
+        if (running && address != null) {
+            newRouters.add(address);
+        }
+    }
+
+    /**
+     * Returns the number of routers which have been removed as silent.
+     *
+     * @return the number of swept routers
+     */
+    long sweptRouters() {
+        return sweptRouters.get();
+    }
+
+    /**
+     * Returns the number of routers which are silent, but still in hold.
+     *
+     * @return the number of suspect routers
+     */
+    int suspectRouters() {
+        return suspectRouters;
+    }
+
+    /**
+     * Advances the wheel by one tick, and checks the routers which are due.
+     */
+    void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    /**
+     * Advances the wheel by one tick, and checks the routers which are due
+     * at the given time.
+     *
+     * @param now current time in ms
+     */
+    void tick(long now) {
+        if (!running) {
+            return;
+        }
+        try {
+            List<IpAddress> removed = Lists.newArrayList();
+            synchronized (entries) {
+
+                IpAddress address;
+                while ((address = newRouters.poll()) != null) {
+                    if (!entries.containsKey(address)) {
+                        SweepEntry entry = new SweepEntry(address);
+                        entries.put(address, entry);
+                        schedule(entry, timeout(address));
+                    }
+                }
+
+                int slot = (int) (currentTick & (WHEEL_SIZE - 1));
+                SweepEntry due = wheel[slot];
+                wheel[slot] = null;
+
+                while (due != null) {
+                    SweepEntry entry = due;
+                    due = entry.next;
+                    entry.next = null;
+
+                    if (entry.rounds > 0) {
+                        entry.rounds--;
+                        entry.next = wheel[slot];
+                        wheel[slot] = entry;
+                    } else {
+                        check(entry, now, removed);
+                    }
+                }
+                currentTick++;
+            }
+
+            // the controller is called back without holding the wheel
+            Consumer<LispRouterId> currentRemover = remover;
+            if (currentRemover != null) {
+                removed.forEach(address -> currentRemover.accept(new LispRouterId(address)));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sweep idle routers", e);
+        }
+    }
+
+    /**
+     * Checks whether the router of the given entry has been seen before its
+     * deadline, and marks it suspect or removes it otherwise.
+     *
+     * @param entry   sweep entry
+     * @param now     current time in ms
+     * @param removed addresses of the removed routers, which are yet to be
+     *                removed from the controller
+     */
+    private void check(SweepEntry entry, long now, List<IpAddress> removed) {
+        LispRouterRegistry registry = LispRouterRegistry.getInstance();
+        long lastSeen = registry.getLastSeen(entry.address);
+
+        // the router has been removed by other means
+        if (lastSeen == 0) {
+            drop(entry);
+            return;
+        }
+
+        long timeout = timeout(entry.address);
+        long deadline = lastSeen + timeout;
+        if (now < deadline) {
+            if (entry.suspect) {
+                entry.suspect = false;
+                suspectRouters--;
+                log.debug("Router {} has been seen again", entry.address);
+            }
+            schedule(entry, deadline - now);
+            return;
+        }
+
+        if (!entry.suspect) {
+            entry.suspect = true;
+            suspectRouters++;
+            log.debug("Router {} has been silent for {} ms", entry.address, now - lastSeen);
+            schedule(entry, timeout / HOLD_DIVISOR);
+            return;
+        }
+
+        // the router is removed only if it has not been seen meanwhile,
+        // otherwise it is checked again at the next tick
+        if (!registry.removeRouter(entry.address, lastSeen)) {
+            schedule(entry, TICK_MS);
+            return;
+        }
+
+        log.info("Router {} has been silent for {} ms, removing it",
+                 entry.address, now - lastSeen);
+        drop(entry);
+        sweptRouters.incrementAndGet();
+        removed.add(entry.address);
+    }
+
+    private void drop(SweepEntry entry) {
+        entries.remove(entry.address);
+        if (entry.suspect) {
+            suspectRouters--;
+        }
+    }
+
+    /**
+     * Obtains the idle timeout of the router of the given address, which
+     * follows its registration interval.
+     *
+     * @param address address of the router
+     * @return idle timeout in ms
+     */
+    private long timeout(IpAddress address) {
+        long cadence = LispRouterRegistry.getInstance().getCadence(address);
+        return Math.max(idleTimeout, cadence * CADENCE_FACTOR);
+    }
+
+    /**
+     * Places the given entry into the wheel to be visited after the given
+     * delay.
+     *
+     * @param entry sweep entry
+     * @param delay delay in ms
+     */
+    private void schedule(SweepEntry entry, long delay) {
+        long ticks = Math.max(1, (delay + TICK_MS - 1) / TICK_MS);
+        int slot = (int) ((currentTick + ticks) & (WHEEL_SIZE - 1));
+        entry.rounds = (int) ((ticks - 1) / WHEEL_SIZE);
+        entry.next = wheel[slot];
+        wheel[slot] = entry;
+    }
+
+    /**
+     * The sweeping state of a router, which also serves as a wheel entry.
+     */
+    private static final class SweepEntry {
+        private final IpAddress address;
+        private boolean suspect;
+        private int rounds;
+        private SweepEntry next;
+
+        SweepEntry(IpAddress address) {
+            this.address = address;
+        }
+    }
+
+    /**
+     * Prevents object instantiation from external.
+     */
+    private static final class SingletonHelper {
+        private static final String ILLEGAL_ACCESS_MSG = "Should not instantiate this class.";
+        private static final LispRouterSweeper INSTANCE = new LispRouterSweeper();
+
+        private SingletonHelper() {
+            throw new IllegalAccessError(ILLEGAL_ACCESS_MSG);
+        }
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import io.netty.channel.Channel;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.ctl.impl.map.PrefixTrie;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRequest.DefaultRequestBuilder;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRequest;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispNoAddress;
+import org.slf4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.onlab.util.Tools.groupedThreads;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Solicit-Map-Request (SMR) engine.
+ * <p>
+ * The engine records which ITRs have recently resolved each EID prefix. When
+ * the mapping of an EID prefix changes, the ITRs which may have cached it are
+ * solicited to refresh their map-cache with SMR map-requests, as described in
+ * RFC 6830, instead of waiting for the cached entry to expire.
+ * <p>
+ * Changes are collected and flushed periodically, so that a burst of changes
+ * results in a single SMR per ITR which carries all affected EID prefixes,
+ * and the number of SMR messages per second is capped. The SMRs which exceed
+ * the cap are carried over to the next flush.
+ */
+final class LispSmrEngine implements LispMappingDatabase.MappingChangeListener {
+
+    private static final Logger log = getLogger(LispSmrEngine.class);
+
+    private static final int SMR_DST_PORT = 4342;
+    private static final long FLUSH_INTERVAL_MS = 100;
+    private static final long PURGE_INTERVAL_MS = 60000;
+    private static final long MINUTE_TO_MS_UNIT = 60 * 1000;
+    private static final int MAX_EID_RECORDS = 255;
+    private static final int MAX_REQUESTERS = 64;
+    private static final int IPV4_MAX_MASK_LENGTH = 32;
+    private static final int IPV6_MAX_MASK_LENGTH = 128;
+
+    private final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+
+    // requesters keyed by the EID prefix which has been replied to them
+    private final PrefixTrie<RequesterSet> ipv4Requesters =
+                                        new PrefixTrie<>(IPV4_MAX_MASK_LENGTH);
+    private final PrefixTrie<RequesterSet> ipv6Requesters =
+                                        new PrefixTrie<>(IPV6_MAX_MASK_LENGTH);
+    private final Map<LispEidRecord, RequesterSet> otherRequesters =
+                                                        Maps.newConcurrentMap();
+
+    private final Set<LispEidRecord> changedEids = ConcurrentHashMap.newKeySet();
+
+    // SMRs which are waiting for the rate limit, accessed by the flush task only
+    private final Map<IpAddress, Set<LispEidRecord>> backlog = Maps.newLinkedHashMap();
+
+    private final AtomicLong sentSmrs = new AtomicLong();
+
+    private volatile Channel channel;
+    private volatile IpAddress configuredRloc;
+    private volatile int rateLimit;
+    private volatile boolean running;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> flushTask;
+    private long lastPurge;
+
+    // RLOC carried in SMRs, resolved once by the flush task
+    private LispAfiAddress localRloc;
+    private boolean localRlocResolved;
+
+    // non-instantiable (except for our Singleton)
+    private LispSmrEngine() {
+    }
+
+    static LispSmrEngine getInstance() {
+        return SingletonHelper.INSTANCE;
+    }
+
+    /**
+     * Starts to record requesters and to solicit them on mapping changes.
+     *
+     * @param rateLimit maximum number of SMR messages per second
+     * @param localRloc RLOC of this map server which is carried in SMR
+     *                  messages, or null to use the local address of the
+     *                  control channel
+     */
+    synchronized void start(int rateLimit, IpAddress localRloc) {
+        this.rateLimit = rateLimit;
+        this.configuredRloc = localRloc;
+        resetLocalRloc();
+        if (running) {
+            return;
+        }
+
+        executor = newSingleThreadScheduledExecutor(
+                                groupedThreads("onos/lisp", "smr-engine", log));
+        flushTask = executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS,
+                                                    FLUSH_INTERVAL_MS, MILLISECONDS);
+        mapDb.addMappingChangeListener(this);
+        running = true;
+    }
+
+    /**
+     * Stops the engine and discards the recorded requesters.
+     */
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        mapDb.removeMappingChangeListener(this);
+        flushTask.cancel(false);
+        executor.shutdown();
+        flushTask = null;
+        executor = null;
+
+        ipv4Requesters.clear();
+        ipv6Requesters.clear();
+        otherRequesters.clear();
+        changedEids.clear();
+        synchronized (backlog) {
+            backlog.clear();
+        }
+    }
+
+    /**
+     * Returns whether the engine is running.
+     *
+     * @return whether the engine is running
+     */
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Configures the channel through which SMR messages are sent.
+     *
+     * @param channel LISP control channel
+     */
+    void setChannel(Channel channel) {
+        this.channel = channel;
+        resetLocalRloc();
+    }
+
+    /**
+     * Makes the flush task resolve the RLOC of this map server again.
+     */
+    private void resetLocalRloc() {
+        synchronized (backlog) {
+            localRlocResolved = false;
+        }
+    }
+
+    /**
+     * Records the ITRs which have resolved the given mapping records.
+     *
+     * @param mapRecords mapping records which have been resolved
+     * @param itrRlocs   RLOCs of the requesting ITR
+     */
+    void recordRequesters(List<LispMapRecord> mapRecords,
+                          List<LispAfiAddress> itrRlocs) {
+        if (!running) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (LispMapRecord mapRecord : mapRecords) {
+            LispEidRecord eid = new LispEidRecord(mapRecord.getMaskLength(),
+                                                  mapRecord.getEidPrefixAfi());
+            long expireAt = now + mapRecord.getRecordTtl() * MINUTE_TO_MS_UNIT;
+            RequesterSet requesters = requesterSet(eid);
+            for (LispAfiAddress itrRloc : itrRlocs) {
+                if (itrRloc instanceof LispIpAddress) {
+                    requesters.add(((LispIpAddress) itrRloc).getAddress(), expireAt);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void mappingChanged(LispEidRecord eid) {
+        if (running) {
+            changedEids.add(eid);
+        }
+    }
+
+    /**
+     * Returns the number of SMR messages which have been sent.
+     *
+     * @return the number of sent SMR messages
+     */
+    long sentSmrs() {
+        return sentSmrs.get();
+    }
+
+    /**
+     * Returns the number of ITRs which are waiting for SMR messages due to
+     * the rate limit.
+     *
+     * @return the number of pending ITRs
+     */
+    int pendingRequesters() {
+        synchronized (backlog) {
+            return backlog.size();
+        }
+    }
+
+    /**
+     * Collects the requesters of the changed EID prefixes, and sends SMR
+     * messages to them within the rate limit.
+     */
+    void flush() {
+        try {
+            long now = System.currentTimeMillis();
+            List<LispMessage> smrs;
+
+            synchronized (backlog) {
+                Iterator<LispEidRecord> changed = changedEids.iterator();
+                while (changed.hasNext()) {
+                    LispEidRecord eid = changed.next();
+                    changed.remove();
+                    forEachRequesterSet(eid, requesters ->
+                        requesters.forEach(now, itr -> backlog.computeIfAbsent(itr,
+                                k -> Sets.newLinkedHashSet()).add(requesters.eid)));
+                }
+                smrs = drainBacklog();
+            }
+
+            Channel currentChannel = channel;
+            if (!smrs.isEmpty() && currentChannel != null) {
+                currentChannel.writeAndFlush(smrs);
+                sentSmrs.addAndGet(smrs.size());
+            }
+
+            if (now - lastPurge >= PURGE_INTERVAL_MS) {
+                purge(now);
+                lastPurge = now;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to flush SMR messages", e);
+        }
+    }
+
+    /**
+     * Builds SMR messages from the backlog, as many as the rate limit allows
+     * during a flush interval. The backlog is discarded if no local RLOC is
+     * usable, as the SMRs could not be answered.
+     *
+     * @return SMR messages
+     */
+    private List<LispMessage> drainBacklog() {
+        List<LispMessage> smrs = Lists.newArrayList();
+        if (backlog.isEmpty()) {
+            return smrs;
+        }
+
+        LispAfiAddress msRloc = localRloc();
+        if (msRloc == null) {
+            backlog.clear();
+            return smrs;
+        }
+
+        int budget = (int) Math.max(1, rateLimit * FLUSH_INTERVAL_MS / 1000);
+        Iterator<Map.Entry<IpAddress, Set<LispEidRecord>>> entries =
+                                                    backlog.entrySet().iterator();
+        while (entries.hasNext() && smrs.size() < budget) {
+            Map.Entry<IpAddress, Set<LispEidRecord>> entry = entries.next();
+            InetSocketAddress itr = new InetSocketAddress(
+                                    entry.getKey().toInetAddress(), SMR_DST_PORT);
+
+            Iterator<LispEidRecord> eids = entry.getValue().iterator();
+            while (eids.hasNext() && smrs.size() < budget) {
+                List<LispEidRecord> records = Lists.newArrayList();
+                while (eids.hasNext() && records.size() < MAX_EID_RECORDS) {
+                    records.add(eids.next());
+                    eids.remove();
+                }
+                smrs.add(buildSmr(msRloc, records, itr));
+            }
+
+            if (entry.getValue().isEmpty()) {
+                entries.remove();
+            }
+        }
+        return smrs;
+    }
+
+    /**
+     * Builds an SMR message towards the given ITR.
+     *
+     * @param msRloc  RLOC of this map server
+     * @param records EID records whose mapping has been changed
+     * @param itr     address of the ITR
+     * @return SMR message
+     */
+    private LispMapRequest buildSmr(LispAfiAddress msRloc, List<LispEidRecord> records,
+                                    InetSocketAddress itr) {
+        LispMapRequest smr = new DefaultRequestBuilder()
+                .withIsSmr(true)
+                .withNonce(ThreadLocalRandom.current().nextLong())
+                .withSourceEid(new LispNoAddress())
+                .withItrRlocs(ImmutableList.of(msRloc))
+                .withEidRecords(records)
+                .build();
+        smr.configSender(itr);
+        return smr;
+    }
+
+    /**
+     * Obtains the RLOC of this map server, which is carried in SMR messages.
+     * It is selected as for RLOC-probing, and resolved only once per channel
+     * and configuration.
+     *
+     * @return RLOC of this map server, or null if none is usable
+     */
+    private LispAfiAddress localRloc() {
+        if (!localRlocResolved) {
+            localRloc = LispRlocProber.selectLocalRloc(configuredRloc, channel);
+            localRlocResolved = true;
+            if (localRloc == null) {
+                log.warn("No usable local RLOC, SMR messages are not sent; " +
+                         "configure rlocProbeSource with a routable address " +
+                         "of this map server");
+            }
+        }
+        return localRloc;
+    }
+
+    /**
+     * Visits the requester sets which may have cached the mapping of the
+     * given EID prefix. For IP EID prefixes, these are the requesters of the
+     * prefix itself and of its covering prefixes.
+     *
+     * @param eid      endpoint identifier
+     * @param consumer requester set consumer
+     */
+    private void forEachRequesterSet(LispEidRecord eid, Consumer<RequesterSet> consumer) {
+        if (eid.getPrefix() instanceof LispIpAddress) {
+            LispIpAddress prefix = (LispIpAddress) eid.getPrefix();
+            requesterTrie(prefix).matches(prefix, maskLength(eid)).forEach(consumer);
+        } else {
+            RequesterSet requesters = otherRequesters.get(eid);
+            if (requesters != null) {
+                consumer.accept(requesters);
+            }
+        }
+    }
+
+    /**
+     * Obtains the requester set of the given EID prefix, which is created
+     * if absent.
+     *
+     * @param eid endpoint identifier
+     * @return requester set
+     */
+    private RequesterSet requesterSet(LispEidRecord eid) {
+        if (!(eid.getPrefix() instanceof LispIpAddress)) {
+            return otherRequesters.computeIfAbsent(eid, RequesterSet::new);
+        }
+
+        LispIpAddress prefix = (LispIpAddress) eid.getPrefix();
+        PrefixTrie<RequesterSet> trie = requesterTrie(prefix);
+        RequesterSet requesters = trie.get(prefix, maskLength(eid));
+        if (requesters == null) {
+            synchronized (trie) {
+                requesters = trie.get(prefix, maskLength(eid));
+                if (requesters == null) {
+                    requesters = new RequesterSet(eid);
+                    trie.put(prefix, maskLength(eid), requesters);
+                }
+            }
+        }
+        return requesters;
+    }
+
+    /**
+     * Removes the requester sets whose requesters have all expired.
+     *
+     * @param now current time in ms
+     */
+    private void purge(long now) {
+        for (PrefixTrie<RequesterSet> trie : Arrays.asList(ipv4Requesters, ipv6Requesters)) {
+            List<RequesterSet> expired = Lists.newArrayList();
+            trie.forEach(requesters -> {
+                if (requesters.purge(now)) {
+                    expired.add(requesters);
+                }
+            });
+            synchronized (trie) {
+                for (RequesterSet requesters : expired) {
+                    LispIpAddress prefix = (LispIpAddress) requesters.eid.getPrefix();
+                    if (requesters.isEmpty() &&
+                            trie.get(prefix, maskLength(requesters.eid)) == requesters) {
+                        trie.remove(prefix, maskLength(requesters.eid));
+                    }
+                }
+            }
+        }
+        Iterables.removeIf(otherRequesters.values(), requesters -> requesters.purge(now));
+    }
+
+    private PrefixTrie<RequesterSet> requesterTrie(LispIpAddress address) {
+        return address instanceof LispIpv4Address ? ipv4Requesters : ipv6Requesters;
+    }
+
+    private int maskLength(LispEidRecord eid) {
+        return eid.getMaskLength() & 0xff;
+    }
+
+    /**
+     * A compact set of the ITRs which have resolved an EID prefix, along
+     * with the time at which their map-cache entry expires. The set is
+     * bounded, and the entry closest to expiration is replaced when full.
+     */
+    private static final class RequesterSet {
+        private static final int INITIAL_CAPACITY = 4;
+
+        private final LispEidRecord eid;
+        private IpAddress[] addresses = new IpAddress[INITIAL_CAPACITY];
+        private long[] expireAts = new long[INITIAL_CAPACITY];
+        private int size;
+
+        RequesterSet(LispEidRecord eid) {
+            this.eid = eid;
+        }
+
+        synchronized void add(IpAddress address, long expireAt) {
+            for (int i = 0; i < size; i++) {
+                if (addresses[i].equals(address)) {
+                    expireAts[i] = expireAt;
+                    return;
+                }
+            }
+
+            if (size == addresses.length) {
+                if (size < MAX_REQUESTERS) {
+                    int capacity = Math.min(size * 2, MAX_REQUESTERS);
+                    addresses = Arrays.copyOf(addresses, capacity);
+                    expireAts = Arrays.copyOf(expireAts, capacity);
+                } else {
+                    int oldest = 0;
+                    for (int i = 1; i < size; i++) {
+                        if (expireAts[i] < expireAts[oldest]) {
+                            oldest = i;
+                        }
+                    }
+                    addresses[oldest] = address;
+                    expireAts[oldest] = expireAt;
+                    return;
+                }
+            }
+            addresses[size] = address;
+            expireAts[size] = expireAt;
+            size++;
+        }
+
+        synchronized void forEach(long now, Consumer<IpAddress> consumer) {
+            for (int i = 0; i < size; i++) {
+                if (expireAts[i] > now) {
+                    consumer.accept(addresses[i]);
+                }
+            }
+        }
+
+        /**
+         * Removes the expired requesters.
+         *
+         * @param now current time in ms
+         * @return true if no requester is left
+         */
+        synchronized boolean purge(long now) {
+            int live = 0;
+            for (int i = 0; i < size; i++) {
+                if (expireAts[i] > now) {
+                    addresses[live] = addresses[i];
+                    expireAts[live] = expireAts[i];
+                    live++;
+                }
+            }
+            Arrays.fill(addresses, live, size, null);
+            size = live;
+            return size == 0;
+        }
+
+        synchronized boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    /**
+     * Prevents object instantiation from external.
+     */
+    private static final class SingletonHelper {
+        private static final String ILLEGAL_ACCESS_MSG = "Should not instantiate this class.";
+        private static final LispSmrEngine INSTANCE = new LispSmrEngine();
+
+        private SingletonHelper() {
+            throw new IllegalAccessError(ILLEGAL_ACCESS_MSG);
+        }
+    }
+}
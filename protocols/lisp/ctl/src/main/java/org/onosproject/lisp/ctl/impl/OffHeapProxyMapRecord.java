@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.onosproject.lisp.ctl.impl.map.OffHeapRecordStore;
+import org.onosproject.lisp.ctl.impl.map.OffHeapRecordStore.Slice;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+import org.onosproject.lisp.msg.exceptions.LispWriterException;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.MapRecordReader;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.MapRecordWriter;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispProxyMapRecord;
+import org.onosproject.lisp.msg.types.LispAfiAddress.AfiAddressWriter;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * A LISP map record with proxy flag, whose map record is kept serialized in
+ * an off-heap record store and is decoded on demand.
+ * <p>
+ * The mapping content of two records can be compared on the serialized
+ * bytes in place, with the help of the offset and the hash of the locators
+ * which are kept on heap.
+ * <p>
+ * Only the map record is moved off heap. Each record still takes about 64
+ * bytes on heap for itself and its slice with compressed references, and
+ * the EID keys and index entries of the mapping database stay on heap.
+ */
+final class OffHeapProxyMapRecord implements LispProxyMapRecord {
+
+    // record TTL, locator count, EID mask length, flags, reserved and map version
+    private static final int HEADER_LENGTH = 10;
+    private static final int MASK_LENGTH_INDEX = 5;
+    private static final int ACTION_INDEX = 6;
+    private static final int ACTION_MASK = 0xe0;
+
+    private final Slice slice;
+    private final boolean proxyMapReply;
+    private final int locatorOffset;
+    private final int locatorHash;
+
+    /**
+     * Initializes off-heap LISP map record with proxy flag.
+     *
+     * @param slice         serialized map record
+     * @param proxyMapReply proxy map reply flag
+     * @param locatorOffset offset of the serialized locators
+     * @param locatorHash   hash of the serialized locators
+     */
+    private OffHeapProxyMapRecord(Slice slice, boolean proxyMapReply,
+                                  int locatorOffset, int locatorHash) {
+        this.slice = slice;
+        this.proxyMapReply = proxyMapReply;
+        this.locatorOffset = locatorOffset;
+        this.locatorHash = locatorHash;
+    }
+
+    /**
+     * Serializes the given map record into the given off-heap record store.
+     *
+     * @param store         off-heap record store
+     * @param mapRecord     map record
+     * @param proxyMapReply proxy map reply flag
+     * @return off-heap LISP map record with proxy flag
+     * @throws LispWriterException if the map record cannot be serialized
+     */
+    static OffHeapProxyMapRecord of(OffHeapRecordStore store,
+                                    LispMapRecord mapRecord,
+                                    boolean proxyMapReply)
+                                    throws LispWriterException {
+        ByteBuf byteBuf = Unpooled.buffer();
+        try {
+            new AfiAddressWriter().writeTo(byteBuf, mapRecord.getEidPrefixAfi());
+            int locatorOffset = HEADER_LENGTH + byteBuf.readableBytes();
+            byteBuf.clear();
+
+            new MapRecordWriter().writeTo(byteBuf, mapRecord);
+            int locatorHash = 1;
+            for (int i = locatorOffset; i < byteBuf.writerIndex(); i++) {
+                locatorHash = 31 * locatorHash + byteBuf.getByte(i);
+            }
+            return new OffHeapProxyMapRecord(store.store(byteBuf), proxyMapReply,
+                                             locatorOffset, locatorHash);
+        } finally {
+            byteBuf.release();
+        }
+    }
+
+    /**
+     * Checks whether the given record has the same reply action and the
+     * same locators, by comparing the serialized bytes.
+     *
+     * @param other off-heap LISP map record
+     * @return whether the forwarding of both records is the same
+     */
+    boolean isSameForwarding(OffHeapProxyMapRecord other) {
+        return (slice.getByte(ACTION_INDEX) & ACTION_MASK) ==
+                    (other.slice.getByte(ACTION_INDEX) & ACTION_MASK) &&
+               isSameLocators(other);
+    }
+
+    /**
+     * Checks whether the given record has the same mapping content except
+     * for the EID prefix, by comparing the serialized bytes.
+     *
+     * @param other off-heap LISP map record
+     * @return whether both records have the same content
+     */
+    boolean isSameMapping(OffHeapProxyMapRecord other) {
+        // all of the header but the EID mask length
+        return proxyMapReply == other.proxyMapReply &&
+               slice.contentEquals(0, other.slice, 0, MASK_LENGTH_INDEX) &&
+               slice.contentEquals(MASK_LENGTH_INDEX + 1, other.slice,
+                                   MASK_LENGTH_INDEX + 1,
+                                   HEADER_LENGTH - MASK_LENGTH_INDEX - 1) &&
+               isSameLocators(other);
+    }
+
+    /**
+     * Checks whether the given record has the same locators, by comparing
+     * the serialized bytes.
+     *
+     * @param other off-heap LISP map record
+     * @return whether both records have the same locators
+     */
+    boolean isSameLocators(OffHeapProxyMapRecord other) {
+        int length = slice.length() - locatorOffset;
+        return locatorHash == other.locatorHash &&
+               length == other.slice.length() - other.locatorOffset &&
+               slice.contentEquals(locatorOffset, other.slice,
+                                   other.locatorOffset, length);
+    }
+
+    /**
+     * Releases the serialized bytes of the map record. The map record must
+     * not be obtained any longer once it has been released.
+     */
+    void release() {
+        slice.release();
+    }
+
+    @Override
+    public LispMapRecord getMapRecord() {
+        try {
+            return new MapRecordReader().readFrom(slice.content());
+        } catch (LispParseError | LispReaderException e) {
+            // the record has been serialized by ourselves, so this should never happen
+            throw new IllegalStateException("Failed to decode off-heap map record", e);
+        }
+    }
+
+    @Override
+    public boolean isProxyMapReply() {
+        return proxyMapReply;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this)
+                .add("length", slice.length())
+                .add("proxyMapReply", proxyMapReply).toString();
+    }
+}
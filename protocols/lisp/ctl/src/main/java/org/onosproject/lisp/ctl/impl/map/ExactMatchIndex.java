@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl.map;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An open-addressed hash index which is keyed on raw bytes.
+ * It uses linear probing with backward shift deletion, so that neither
+ * lookup nor removal requires tombstones or per-entry node objects.
+ *
+ * @param <V> type of indexed value
+ */
+public final class ExactMatchIndex<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private byte[][] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
+
+    /**
+     * Creates an exact match index with default capacity.
+     */
+    public ExactMatchIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an exact match index with given initial capacity.
+     *
+     * @param capacity initial capacity
+     */
+    public ExactMatchIndex(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, capacity) * 2 - 1);
+        allocate(tableSize);
+    }
+
+    /**
+     * Associates the given value with the given key. The key is copied, so
+     * the caller can freely reuse the key array afterward.
+     *
+     * @param key   raw bytes of key
+     * @param value value to be associated with the key
+     * @return previously associated value, or null if there was no mapping
+     */
+    public synchronized V put(byte[] key, V value) {
+        checkNotNull(key, "Key should not be null");
+        checkNotNull(value, "Value should not be null");
+
+        int hash = hash(key);
+        int slot = find(key, hash);
+        if (keys[slot] != null) {
+            V previous = valueAt(slot);
+            values[slot] = value;
+            return previous;
+        }
+
+        keys[slot] = Arrays.copyOf(key, key.length);
+        values[slot] = value;
+        hashes[slot] = hash;
+        size++;
+
+        // keep the load factor below one half to bound the probe length
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Obtains the value associated with the given key.
+     *
+     * @param key raw bytes of key
+     * @return associated value, or null if there is no mapping
+     */
+    public synchronized V get(byte[] key) {
+        int slot = find(key, hash(key));
+        return keys[slot] == null ? null : valueAt(slot);
+    }
+
+    /**
+     * Removes the mapping for the given key.
+     *
+     * @param key raw bytes of key
+     * @return previously associated value, or null if there was no mapping
+     */
+    public synchronized V remove(byte[] key) {
+        int slot = find(key, hash(key));
+        if (keys[slot] == null) {
+            return null;
+        }
+
+        V previous = valueAt(slot);
+        int mask = keys.length - 1;
+
+        // shift the following entries of the same probe chain backward, so
+        // that the chain remains contiguous without leaving tombstones
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != null) {
+            int home = hashes[next] & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hashes[hole] = hashes[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = null;
+        values[hole] = null;
+        hashes[hole] = 0;
+        size--;
+
+        return previous;
+    }
+
+    /**
+     * Obtains the number of mappings.
+     *
+     * @return the number of mappings
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    public synchronized void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        Arrays.fill(hashes, 0);
+        size = 0;
+    }
+
+    /**
+     * Finds the slot which holds the given key, or the empty slot where the
+     * key should be placed.
+     *
+     * @param key  raw bytes of key
+     * @param hash hash of key
+     * @return slot index
+     */
+    private int find(byte[] key, int hash) {
+        int mask = keys.length - 1;
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && Arrays.equals(keys[slot], key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int tableSize) {
+        byte[][] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+
+        allocate(tableSize);
+        int mask = tableSize - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new byte[tableSize][];
+        values = new Object[tableSize];
+        hashes = new int[tableSize];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int slot) {
+        return (V) values[slot];
+    }
+
+    /**
+     * Calculates FNV-1a hash of the given bytes, followed by a final mix step
+     * to spread the entropy into the lower bits which are used as slot index.
+     *
+     * @param key raw bytes of key
+     * @return hash value
+     */
+    private static int hash(byte[] key) {
+        int hash = FNV_OFFSET_BASIS;
+        for (byte b : key) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+}
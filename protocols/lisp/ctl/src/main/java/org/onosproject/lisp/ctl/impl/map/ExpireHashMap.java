@@ -18,8 +18,8 @@ package org.onosproject.lisp.ctl.impl.map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -27,6 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
 
 /**
  * Default implementation of ExpireMap.
@@ -39,6 +40,25 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
     private final ConcurrentMap<K, ExpiredObject<K, V>> map = new ConcurrentHashMap<>();
     private final Lock writeLock = new ReentrantLock();
     private final Timer timer = new Timer("ExpireMapTimer", true);
+    private final BiConsumer<K, V> expiryListener;
+
+    /**
+     * Creates an expire map without expiry listener.
+     */
+    public ExpireHashMap() {
+        this(null);
+    }
+
+    /**
+     * Creates an expire map which notifies the given listener whenever an
+     * entry is evicted due to the expiration of its TTL. The listener is not
+     * invoked for the entries which are explicitly removed or cleared.
+     *
+     * @param expiryListener listener that consumes the expired key and value
+     */
+    public ExpireHashMap(BiConsumer<K, V> expiryListener) {
+        this.expiryListener = expiryListener;
+    }
 
     /**
      * An expired object that associates with a TimerTask instance.
@@ -50,6 +70,7 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
         private final V1 value;
         private final ExpiryTask<K1> task;
         private final long ttl;
+        private final long expireAt;
 
         public ExpiredObject(K1 key, V1 value) {
             this(key, value, DEFAULT_TTL);
@@ -59,6 +80,7 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
             this.value = value;
             this.task = new ExpiryTask<>(key);
             this.ttl = ttl;
+            this.expireAt = System.currentTimeMillis() + ttl;
             timer.schedule(this.task, ttl);
         }
 
@@ -73,6 +95,10 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
         long getTtl() {
             return ttl;
         }
+
+        long getExpireAt() {
+            return expireAt;
+        }
     }
 
     /**
@@ -92,16 +118,26 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
         }
 
         @Override
+        @SuppressWarnings("unchecked")
         public void run() {
             log.info("Removing element with key [{}]", key);
+            ExpiredObject<K, V> object = null;
             try {
                 writeLock.lock();
-                if (map.containsKey(key)) {
-                    map.remove(getKey());
+                ExpiredObject<K, V> current = map.get(key);
+
+                // the entry might have been replaced after this task was
+                // scheduled, in which case we should not evict the new value
+                if (current != null && current.getTask() == this) {
+                    object = map.remove(key);
                 }
             } finally {
                 writeLock.unlock();
             }
+
+            if (object != null && expiryListener != null) {
+                expiryListener.accept((K) key, object.getValue());
+            }
         }
     }
 
@@ -114,7 +150,7 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
             // key, we simply replace it with new value, and invalidate the
             // previously associated value
             final ExpiredObject<K, V> object =
-                    map.putIfAbsent(key, new ExpiredObject<>(key, value, expireMs));
+                    map.put(key, new ExpiredObject<>(key, value, expireMs));
 
             if (object != null) {
                 object.getTask().cancel();
@@ -160,7 +196,7 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
 
     @Override
     public Collection<V> values() {
-        Collection<V> values = Collections.emptyList();
+        Collection<V> values = new ArrayList<>(map.size());
         map.values().forEach(v -> values.add(v.getValue()));
         return values;
     }
@@ -185,6 +221,15 @@ public class ExpireHashMap<K, V> implements ExpireMap<K, V> {
         return (object == null ? null : object.getValue());
     }
 
+    @Override
+    public long getRemainingTime(K key) {
+        ExpiredObject<K, V> object = map.get(key);
+        if (object == null) {
+            return 0;
+        }
+        return Math.max(0, object.getExpireAt() - System.currentTimeMillis());
+    }
+
     @Override
     public int size() {
         return map.size();
@@ -168,6 +168,17 @@ public interface ExpireMap<K, V> {
      */
     V remove(K key);
 
+    /**
+     * Returns the remaining time in ms until the mapping for the specified key
+     * expires, or <tt>0</tt> if this map contains no mapping for the key.
+     *
+     * @param key key whose remaining time-to-live is to be returned
+     * @return remaining time-to-live in ms
+     * @throws NullPointerException if the specified key is null and this map
+     *         does not permit null keys
+     */
+    long getRemainingTime(K key);
+
     /**
      * Returns the number of key-value mappings in this map.  If the
      * map contains more than <tt>Integer.MAX_VALUE</tt> elements, returns
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl.map;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A spatial index which keeps items tagged with geo coordinates in a fixed
+ * size latitude/longitude grid, so that k-nearest and bounding-box queries
+ * only visit the grid cells around the queried coordinate.
+ *
+ * @param <T> type of indexed item
+ */
+public final class GeoIndex<T> {
+
+    private static final double DEFAULT_CELL_DEGREE = 1.0;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private static final double MIN_LATITUDE = -90.0;
+    private static final double MAX_LATITUDE = 90.0;
+    private static final double MIN_LONGITUDE = -180.0;
+    private static final double MAX_LONGITUDE = 180.0;
+
+    private final double cellDegree;
+    private final int latitudeCells;
+    private final int longitudeCells;
+
+    private final Map<Integer, Map<T, GeoPoint>> cells = Maps.newHashMap();
+    private final Map<T, GeoPoint> points = Maps.newHashMap();
+
+    /**
+     * Creates a geo index with one degree grid cell.
+     */
+    public GeoIndex() {
+        this(DEFAULT_CELL_DEGREE);
+    }
+
+    /**
+     * Creates a geo index with the given grid cell size.
+     *
+     * @param cellDegree the size of grid cell in degree
+     */
+    public GeoIndex(double cellDegree) {
+        checkArgument(cellDegree > 0 && cellDegree <= MAX_LATITUDE,
+                      "Cell size should be in range of (0, 90] degree");
+        this.cellDegree = cellDegree;
+        this.latitudeCells = (int) Math.ceil((MAX_LATITUDE - MIN_LATITUDE) / cellDegree);
+        this.longitudeCells = (int) Math.ceil((MAX_LONGITUDE - MIN_LONGITUDE) / cellDegree);
+    }
+
+    /**
+     * Indexes the given item at the given coordinate. If the item has already
+     * been indexed, its coordinate is replaced.
+     *
+     * @param item      item to be indexed
+     * @param latitude  latitude in decimal degree, positive for north
+     * @param longitude longitude in decimal degree, positive for east
+     */
+    public synchronized void put(T item, double latitude, double longitude) {
+        checkArgument(latitude >= MIN_LATITUDE && latitude <= MAX_LATITUDE,
+                      "Latitude is out of range");
+        checkArgument(longitude >= MIN_LONGITUDE && longitude <= MAX_LONGITUDE,
+                      "Longitude is out of range");
+        remove(item);
+
+        GeoPoint point = new GeoPoint(latitude, longitude,
+                                      latitudeCell(latitude), longitudeCell(longitude));
+        points.put(item, point);
+        cells.computeIfAbsent(cellId(point.latitudeCell, point.longitudeCell),
+                              k -> Maps.newHashMap()).put(item, point);
+    }
+
+    /**
+     * Removes the given item from the index.
+     *
+     * @param item item to be removed
+     * @return true if the item was indexed, false otherwise
+     */
+    public synchronized boolean remove(T item) {
+        GeoPoint point = points.remove(item);
+        if (point == null) {
+            return false;
+        }
+
+        int cellId = cellId(point.latitudeCell, point.longitudeCell);
+        Map<T, GeoPoint> cell = cells.get(cellId);
+        if (cell != null) {
+            cell.remove(item);
+            if (cell.isEmpty()) {
+                cells.remove(cellId);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtains at most k items which are the nearest to the given coordinate,
+     * ordered by the great-circle distance.
+     *
+     * @param latitude  latitude in decimal degree
+     * @param longitude longitude in decimal degree
+     * @param k         maximum number of items to be returned
+     * @return a list of nearest items
+     */
+    public synchronized List<T> nearest(double latitude, double longitude, int k) {
+        if (k <= 0 || points.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        // max heap, the farthest candidate is placed at the head
+        PriorityQueue<Candidate<T>> candidates = new PriorityQueue<>(k,
+                Comparator.comparingDouble((Candidate<T> c) -> c.distance).reversed());
+
+        int centerLatitudeCell = latitudeCell(latitude);
+        int centerLongitudeCell = longitudeCell(longitude);
+        int maxRing = Math.max(latitudeCells, longitudeCells);
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            visitRing(centerLatitudeCell, centerLongitudeCell, ring, cell ->
+                cell.forEach((item, point) -> {
+                    double distance = distance(latitude, longitude,
+                                               point.latitude, point.longitude);
+                    if (candidates.size() < k) {
+                        candidates.add(new Candidate<>(item, distance));
+                    } else if (distance < candidates.peek().distance) {
+                        candidates.poll();
+                        candidates.add(new Candidate<>(item, distance));
+                    }
+                }));
+
+            if (candidates.size() == k &&
+                    minRingDistance(latitude, ring + 1) > candidates.peek().distance) {
+                break;
+            }
+        }
+
+        List<T> result = Lists.newArrayListWithCapacity(candidates.size());
+        while (!candidates.isEmpty()) {
+            result.add(candidates.poll().item);
+        }
+        return ImmutableList.copyOf(Lists.reverse(result));
+    }
+
+    /**
+     * Obtains all items which are located in the given bounding box.
+     * If the minimum longitude is greater than the maximum longitude, the box
+     * is considered to cross the anti-meridian.
+     *
+     * @param minLatitude  southern boundary in decimal degree
+     * @param minLongitude western boundary in decimal degree
+     * @param maxLatitude  northern boundary in decimal degree
+     * @param maxLongitude eastern boundary in decimal degree
+     * @return a list of items located in the bounding box
+     */
+    public synchronized List<T> within(double minLatitude, double minLongitude,
+                                       double maxLatitude, double maxLongitude) {
+        if (minLatitude > maxLatitude || points.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        boolean wrapped = minLongitude > maxLongitude;
+        int fromLatitudeCell = latitudeCell(Math.max(minLatitude, MIN_LATITUDE));
+        int toLatitudeCell = latitudeCell(Math.min(maxLatitude, MAX_LATITUDE));
+        int fromLongitudeCell = longitudeCell(Math.max(minLongitude, MIN_LONGITUDE));
+        int toLongitudeCell = longitudeCell(Math.min(maxLongitude, MAX_LONGITUDE));
+        int longitudeSpan = Math.min(longitudeCells, wrapped ?
+                longitudeCells - fromLongitudeCell + toLongitudeCell + 1 :
+                toLongitudeCell - fromLongitudeCell + 1);
+
+        ImmutableList.Builder<T> builder = ImmutableList.builder();
+        for (int lat = fromLatitudeCell; lat <= toLatitudeCell; lat++) {
+            for (int i = 0; i < longitudeSpan; i++) {
+                Map<T, GeoPoint> cell =
+                        cells.get(cellId(lat, (fromLongitudeCell + i) % longitudeCells));
+                if (cell == null) {
+                    continue;
+                }
+                cell.forEach((item, point) -> {
+                    boolean inLatitude = point.latitude >= minLatitude &&
+                                         point.latitude <= maxLatitude;
+                    boolean inLongitude = wrapped ?
+                            point.longitude >= minLongitude || point.longitude <= maxLongitude :
+                            point.longitude >= minLongitude && point.longitude <= maxLongitude;
+                    if (inLatitude && inLongitude) {
+                        builder.add(item);
+                    }
+                });
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Obtains the number of indexed items.
+     *
+     * @return the number of indexed items
+     */
+    public synchronized int size() {
+        return points.size();
+    }
+
+    /**
+     * Removes all of the indexed items.
+     */
+    public synchronized void clear() {
+        points.clear();
+        cells.clear();
+    }
+
+    /**
+     * Calculates the great-circle distance between two coordinates using
+     * haversine formula.
+     *
+     * @param lat1 latitude of the first coordinate
+     * @param lon1 longitude of the first coordinate
+     * @param lat2 latitude of the second coordinate
+     * @param lon2 longitude of the second coordinate
+     * @return distance in kilometer
+     */
+    public static double distance(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                   Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                   Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    /**
+     * Visits all non-empty cells whose Chebyshev distance from the center
+     * cell equals to the given ring number. Longitude wraps around, while
+     * latitude is clamped at the poles.
+     *
+     * @param centerLat center latitude cell
+     * @param centerLon center longitude cell
+     * @param ring      ring number
+     * @param visitor   cell visitor
+     */
+    private void visitRing(int centerLat, int centerLon, int ring,
+                           Consumer<Map<T, GeoPoint>> visitor) {
+        int lonSpan = Math.min(2 * ring + 1, longitudeCells);
+        int lonStart = centerLon - Math.min(ring, (longitudeCells - 1) / 2);
+
+        for (int lat = centerLat - ring; lat <= centerLat + ring; lat++) {
+            if (lat < 0 || lat >= latitudeCells) {
+                continue;
+            }
+            boolean edgeRow = Math.abs(lat - centerLat) == ring;
+            for (int i = 0; i < lonSpan; i++) {
+                int lon = lonStart + i;
+                int lonOffset = Math.abs(lon - centerLon);
+                if (!edgeRow && lonOffset != ring) {
+                    continue;
+                }
+                Map<T, GeoPoint> cell =
+                        cells.get(cellId(lat, Math.floorMod(lon, longitudeCells)));
+                if (cell != null) {
+                    visitor.accept(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtains a lower bound of the distance between the given latitude and
+     * any coordinate which is located in the given ring or beyond.
+     *
+     * @param latitude latitude of the queried coordinate
+     * @param ring     ring number
+     * @return lower bound of the distance in kilometer
+     */
+    private double minRingDistance(double latitude, int ring) {
+        double gapDegree = Math.max(0, ring - 1) * cellDegree;
+        double latitudeBound = gapDegree * KM_PER_DEGREE;
+
+        // meridians converge toward the poles, so we take the narrowest
+        // longitude spacing in the latitude band covered by the ring
+        double farthestLatitude = Math.min(MAX_LATITUDE,
+                                           Math.abs(latitude) + (ring + 1) * cellDegree);
+        double longitudeGap = Math.toRadians(Math.min(gapDegree, MAX_LONGITUDE));
+        double longitudeBound = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0,
+                Math.cos(Math.toRadians(farthestLatitude)) * Math.sin(longitudeGap / 2)));
+
+        return Math.min(latitudeBound, longitudeBound);
+    }
+
+    private int latitudeCell(double latitude) {
+        return Math.min(latitudeCells - 1,
+                        (int) Math.floor((latitude - MIN_LATITUDE) / cellDegree));
+    }
+
+    private int longitudeCell(double longitude) {
+        return Math.min(longitudeCells - 1,
+                        (int) Math.floor((longitude - MIN_LONGITUDE) / cellDegree));
+    }
+
+    private int cellId(int latitudeCell, int longitudeCell) {
+        return latitudeCell * longitudeCells + longitudeCell;
+    }
+
+    /**
+     * A geo coordinate with its grid cell location.
+     */
+    private static final class GeoPoint {
+        private final double latitude;
+        private final double longitude;
+        private final int latitudeCell;
+        private final int longitudeCell;
+
+        GeoPoint(double latitude, double longitude,
+                 int latitudeCell, int longitudeCell) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.latitudeCell = latitudeCell;
+            this.longitudeCell = longitudeCell;
+        }
+    }
+
+    /**
+     * A candidate item of k-nearest query along with its distance.
+     *
+     * @param <T> type of item
+     */
+    private static final class Candidate<T> {
+        private final T item;
+        private final double distance;
+
+        Candidate(T item, double distance) {
+            this.item = item;
+            this.distance = distance;
+        }
+    }
+}
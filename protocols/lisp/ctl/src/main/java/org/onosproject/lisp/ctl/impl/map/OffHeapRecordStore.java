@@ -0,0 +1,252 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl.map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * A store which keeps serialized records in direct memory slabs, outside of
+ * the Java heap.
+ * <p>
+ * Records are appended to the current slab and never moved. Releasing a
+ * record only decreases the live count of its slab; once all records of a
+ * slab have been released, the slab becomes unreachable and its memory is
+ * reclaimed by the garbage collector. Since a slab is never recycled while a
+ * reader still holds one of its slices, readers can safely decode a slice
+ * without any synchronization with writers.
+ * <p>
+ * The space of a released record is never reused, so that a slab which
+ * keeps a single long-lived record holds its whole capacity. Under heavy
+ * churn of records with different lifetimes, the allocated memory may thus
+ * only grow until the store is dropped, e.g., by disabling it or restarting.
+ * <p>
+ * The store reduces, but does not bound, the heap usage of its owner: each
+ * stored record still takes a slice on heap, which is 32 bytes with
+ * compressed references, besides the object which refers to the slice.
+ */
+public final class OffHeapRecordStore {
+
+    private static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    private final int slabSize;
+    private Slab current;
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong liveBytes = new AtomicLong();
+
+    /**
+     * Creates an off-heap record store with default slab size.
+     */
+    public OffHeapRecordStore() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates an off-heap record store with given slab size.
+     *
+     * @param slabSize slab size in bytes
+     */
+    public OffHeapRecordStore(int slabSize) {
+        checkArgument(slabSize > 0, "Slab size should be positive");
+        this.slabSize = slabSize;
+    }
+
+    /**
+     * Copies the readable bytes of the given buffer into the store.
+     *
+     * @param content serialized record
+     * @return slice which refers to the stored bytes
+     */
+    public synchronized Slice store(ByteBuf content) {
+        int length = content.readableBytes();
+
+        Slab slab;
+        if (length > slabSize) {
+            // oversized records are kept in their own dedicated slab
+            slab = new Slab(length);
+            allocatedBytes.addAndGet(length);
+        } else {
+            if (current == null || current.remaining() < length) {
+                if (current != null && current.live.get() == 0) {
+                    allocatedBytes.addAndGet(-slabSize);
+                }
+                current = new Slab(slabSize);
+                allocatedBytes.addAndGet(slabSize);
+            }
+            slab = current;
+        }
+
+        int offset = slab.position;
+        ByteBuffer target = slab.buffer.duplicate();
+        target.position(offset);
+        target.limit(offset + length);
+        content.getBytes(content.readerIndex(), target);
+        slab.position += length;
+        slab.live.incrementAndGet();
+        liveBytes.addAndGet(length);
+
+        return new Slice(this, slab, offset, length);
+    }
+
+    /**
+     * Obtains the number of bytes of direct memory held by the current slab
+     * and by the slabs which still contain live records.
+     *
+     * @return allocated bytes
+     */
+    public long allocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Obtains the number of bytes held by live records.
+     *
+     * @return live bytes
+     */
+    public long liveBytes() {
+        return liveBytes.get();
+    }
+
+    private synchronized void release(Slice slice) {
+        if (slice.released) {
+            return;
+        }
+        slice.released = true;
+        liveBytes.addAndGet(-slice.length);
+        if (slice.slab.live.decrementAndGet() == 0 && slice.slab != current) {
+            allocatedBytes.addAndGet(-slice.slab.buffer.capacity());
+        }
+    }
+
+    /**
+     * A direct memory slab.
+     */
+    private static final class Slab {
+        private final ByteBuffer buffer;
+        private final AtomicInteger live = new AtomicInteger();
+        private int position;
+
+        Slab(int size) {
+            this.buffer = ByteBuffer.allocateDirect(size);
+        }
+
+        int remaining() {
+            return buffer.capacity() - position;
+        }
+    }
+
+    /**
+     * A reference to the serialized bytes of a record.
+     */
+    public static final class Slice {
+        private final OffHeapRecordStore store;
+        private final Slab slab;
+        private final int offset;
+        private final int length;
+        private boolean released;
+
+        private Slice(OffHeapRecordStore store, Slab slab, int offset, int length) {
+            this.store = store;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Obtains a buffer view of the stored bytes. The returned buffer must
+         * only be read, and does not need to be released.
+         *
+         * @return buffer view of the stored bytes
+         */
+        public ByteBuf content() {
+            ByteBuffer view = slab.buffer.duplicate();
+            view.position(offset);
+            view.limit(offset + length);
+            return Unpooled.wrappedBuffer(view.slice());
+        }
+
+        /**
+         * Checks whether a range of the stored bytes is equal to a range of
+         * the stored bytes of another slice, without copying any of them.
+         *
+         * @param index      start index in this slice
+         * @param other      other slice
+         * @param otherIndex start index in the other slice
+         * @param length     length of the ranges
+         * @return true if the ranges are in bounds and have equal bytes
+         */
+        public boolean contentEquals(int index, Slice other, int otherIndex, int length) {
+            if (index < 0 || otherIndex < 0 || length < 0 ||
+                    index + length > this.length || otherIndex + length > other.length) {
+                return false;
+            }
+
+            // absolute reads do not touch the position of the shared buffers
+            ByteBuffer buffer = slab.buffer;
+            ByteBuffer otherBuffer = other.slab.buffer;
+            int start = offset + index;
+            int otherStart = other.offset + otherIndex;
+            int i = 0;
+            for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                if (buffer.getLong(start + i) != otherBuffer.getLong(otherStart + i)) {
+                    return false;
+                }
+            }
+            for (; i < length; i++) {
+                if (buffer.get(start + i) != otherBuffer.get(otherStart + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Obtains a stored byte.
+         *
+         * @param index index in this slice
+         * @return stored byte
+         */
+        public byte getByte(int index) {
+            checkElementIndex(index, length);
+            return slab.buffer.get(offset + index);
+        }
+
+        /**
+         * Obtains the length of the stored bytes.
+         *
+         * @return length in bytes
+         */
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Releases the stored bytes. Releasing a slice more than once has no
+         * effect.
+         */
+        public void release() {
+            store.release(this);
+        }
+    }
+}
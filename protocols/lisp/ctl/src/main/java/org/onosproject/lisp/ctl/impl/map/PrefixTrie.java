@@ -0,0 +1,723 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl.map;
+
+import com.google.common.collect.ImmutableList;
+import org.onosproject.lisp.msg.types.LispIpAddress;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A persistent binary trie which is keyed on address prefixes.
+ * <p>
+ * Every modification copies the nodes along the path from the root to the
+ * modified prefix and shares all other nodes with the previous version.
+ * The new version is published through a single atomic reference, so that
+ * readers always traverse an immutable snapshot without any synchronization,
+ * while writers are serialized among themselves.
+ * <p>
+ * If an equivalence of values is given, each node also summarizes whether
+ * its address space is mapped to equivalent values. The summary is updated
+ * along the copied path, which allows to find the largest prefix whose whole
+ * address space is mapped to equivalent values, i.e., an aggregate, in time
+ * proportional to the prefix length.
+ * <p>
+ * Prefixes are given either as address bytes, or as LISP IP addresses whose
+ * bits are read in place, so that lookups need not copy the address.
+ *
+ * @param <V> type of value
+ */
+public final class PrefixTrie<V> {
+
+    private static final int BYTE_SIZE = 8;
+
+    // no value in the address space of a node
+    private static final byte EMPTY = 0;
+    // equivalent values in some parts of the address space, and no value in the others
+    private static final byte PARTIAL = 1;
+    // equivalent values in the whole address space
+    private static final byte UNIFORM = 2;
+    // values which are not equivalent
+    private static final byte MIXED = 3;
+
+    private final int maxLength;
+    private final BiPredicate<V, V> equivalence;
+    private final AtomicReference<Node<V>> root = new AtomicReference<>(null);
+    private volatile int size;
+
+    /**
+     * Creates a prefix trie with the given maximum prefix length in bits,
+     * e.g., 32 for IPv4 and 128 for IPv6 address.
+     *
+     * @param maxLength maximum prefix length
+     */
+    public PrefixTrie(int maxLength) {
+        this(maxLength, null);
+    }
+
+    /**
+     * Creates a prefix trie with the given maximum prefix length in bits,
+     * which summarizes the address space mapped to values that are equivalent
+     * in accordance with the given equivalence.
+     *
+     * @param maxLength   maximum prefix length
+     * @param equivalence equivalence of values, or null to disable aggregation
+     */
+    public PrefixTrie(int maxLength, BiPredicate<V, V> equivalence) {
+        checkArgument(maxLength > 0, "Maximum prefix length should be positive");
+        this.maxLength = maxLength;
+        this.equivalence = equivalence;
+    }
+
+    /**
+     * Associates the given value with the given prefix.
+     *
+     * @param address    address bytes in network byte order
+     * @param maskLength prefix length
+     * @param value      value
+     * @return previously associated value, or null if there was no mapping
+     */
+    public V put(byte[] address, int maskLength, V value) {
+        checkPrefix(address, maskLength);
+        return put(index -> bit(address, index), maskLength, value);
+    }
+
+    /**
+     * Associates the given value with the given prefix.
+     *
+     * @param address    prefix address
+     * @param maskLength prefix length
+     * @param value      value
+     * @return previously associated value, or null if there was no mapping
+     */
+    public V put(LispIpAddress address, int maskLength, V value) {
+        checkPrefix(address, maskLength);
+        return put(address::getBit, maskLength, value);
+    }
+
+    /**
+     * Removes the mapping of the given prefix.
+     *
+     * @param address    address bytes in network byte order
+     * @param maskLength prefix length
+     * @return previously associated value, or null if there was no mapping
+     */
+    public V remove(byte[] address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return remove(index -> bit(address, index), maskLength);
+    }
+
+    /**
+     * Removes the mapping of the given prefix.
+     *
+     * @param address    prefix address
+     * @param maskLength prefix length
+     * @return previously associated value, or null if there was no mapping
+     */
+    public V remove(LispIpAddress address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return remove(address::getBit, maskLength);
+    }
+
+    /**
+     * Obtains the value which is associated with exactly the given prefix.
+     *
+     * @param address    address bytes in network byte order
+     * @param maskLength prefix length
+     * @return associated value, or null if there is no mapping
+     */
+    public V get(byte[] address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return get(root.get(), index -> bit(address, index), maskLength);
+    }
+
+    /**
+     * Obtains the value which is associated with exactly the given prefix.
+     *
+     * @param address    prefix address
+     * @param maskLength prefix length
+     * @return associated value, or null if there is no mapping
+     */
+    public V get(LispIpAddress address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return get(root.get(), address::getBit, maskLength);
+    }
+
+    /**
+     * Obtains the values of all prefixes which contain the given prefix,
+     * ordered from the longest prefix to the shortest one.
+     *
+     * @param address    address bytes in network byte order
+     * @param maskLength prefix length
+     * @return values of covering prefixes
+     */
+    public List<V> matches(byte[] address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return matches(index -> bit(address, index), maskLength);
+    }
+
+    /**
+     * Obtains the values of all prefixes which contain the given prefix,
+     * ordered from the longest prefix to the shortest one.
+     *
+     * @param address    prefix address
+     * @param maskLength prefix length
+     * @return values of covering prefixes
+     */
+    public List<V> matches(LispIpAddress address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return matches(address::getBit, maskLength);
+    }
+
+    /**
+     * Visits the values of the given prefix and of all more specific prefixes
+     * which are contained in it.
+     *
+     * @param address    address bytes in network byte order
+     * @param maskLength prefix length
+     * @param consumer   value consumer
+     */
+    public void forEachCovered(byte[] address, int maskLength, Consumer<V> consumer) {
+        checkPrefix(address, maskLength);
+        forEachCovered(index -> bit(address, index), maskLength, consumer);
+    }
+
+    /**
+     * Visits the values of the given prefix and of all more specific prefixes
+     * which are contained in it.
+     *
+     * @param address    prefix address
+     * @param maskLength prefix length
+     * @param consumer   value consumer
+     */
+    public void forEachCovered(LispIpAddress address, int maskLength, Consumer<V> consumer) {
+        checkPrefix(address, maskLength);
+        forEachCovered(address::getBit, maskLength, consumer);
+    }
+
+    /**
+     * Obtains the value of the longest prefix which contains the given prefix.
+     *
+     * @param address    address bytes in network byte order
+     * @param maskLength prefix length
+     * @return value of the longest matching prefix, or null if there is none
+     */
+    public V longestMatch(byte[] address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return longestMatch(index -> bit(address, index), maskLength);
+    }
+
+    /**
+     * Obtains the value of the longest prefix which contains the given prefix.
+     *
+     * @param address    prefix address
+     * @param maskLength prefix length
+     * @return value of the longest matching prefix, or null if there is none
+     */
+    public V longestMatch(LispIpAddress address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return longestMatch(address::getBit, maskLength);
+    }
+
+    /**
+     * Obtains the largest aggregate which contains the given prefix, i.e.,
+     * the shortest prefix which contains the given prefix and whose whole
+     * address space is mapped to equivalent values, either by the prefix
+     * itself or by its more specific prefixes.
+     *
+     * @param address    address bytes in network byte order
+     * @param maskLength prefix length
+     * @return aggregate, or null if there is no such prefix or aggregation
+     *         is disabled
+     */
+    public Aggregate<V> aggregate(byte[] address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return aggregate(index -> bit(address, index), maskLength, address, null);
+    }
+
+    /**
+     * Obtains the largest aggregate which contains the given prefix, i.e.,
+     * the shortest prefix which contains the given prefix and whose whole
+     * address space is mapped to equivalent values, either by the prefix
+     * itself or by its more specific prefixes.
+     *
+     * @param address    prefix address
+     * @param maskLength prefix length
+     * @return aggregate, or null if there is no such prefix or aggregation
+     *         is disabled
+     */
+    public Aggregate<V> aggregate(LispIpAddress address, int maskLength) {
+        checkPrefix(address, maskLength);
+        return aggregate(address::getBit, maskLength, null, address);
+    }
+
+    /**
+     * Visits the aggregates which form the smallest longest-prefix-match
+     * table that is equivalent to the current snapshot. That is, the largest
+     * aggregates, and the prefixes which cannot be aggregated but are not
+     * redundant with their covering prefixes.
+     *
+     * @param consumer aggregate consumer
+     */
+    public void forEachAggregate(Consumer<Aggregate<V>> consumer) {
+        forEachAggregate(root.get(), new byte[(maxLength + BYTE_SIZE - 1) / BYTE_SIZE],
+                         0, null, consumer);
+    }
+
+    /**
+     * Visits all values of the current snapshot.
+     *
+     * @param consumer value consumer
+     */
+    public void forEach(Consumer<V> consumer) {
+        forEach(root.get(), consumer);
+    }
+
+    /**
+     * Obtains the number of prefixes.
+     *
+     * @return the number of prefixes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all prefixes.
+     */
+    public synchronized void clear() {
+        root.set(null);
+        size = 0;
+    }
+
+    private void checkPrefix(byte[] address, int maskLength) {
+        checkNotNull(address, "Address should not be null");
+        checkArgument(maskLength >= 0 && maskLength <= maxLength &&
+                      maskLength <= address.length * BYTE_SIZE,
+                      "Invalid prefix length %s", maskLength);
+    }
+
+    private void checkPrefix(LispIpAddress address, int maskLength) {
+        checkNotNull(address, "Address should not be null");
+        checkArgument(maskLength >= 0 && maskLength <= maxLength &&
+                      maskLength <= address.bitLength(),
+                      "Invalid prefix length %s", maskLength);
+    }
+
+    private static boolean bit(byte[] address, int index) {
+        return (address[index / BYTE_SIZE] & (0x80 >>> (index % BYTE_SIZE))) != 0;
+    }
+
+    private synchronized V put(Bits address, int maskLength, V value) {
+        checkNotNull(value, "Value should not be null");
+
+        V previous = get(root.get(), address, maskLength);
+        root.set(insert(root.get(), address, maskLength, 0, value));
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    private synchronized V remove(Bits address, int maskLength) {
+        V previous = get(root.get(), address, maskLength);
+        if (previous != null) {
+            root.set(delete(root.get(), address, maskLength, 0));
+            size--;
+        }
+        return previous;
+    }
+
+    private List<V> matches(Bits address, int maskLength) {
+        ImmutableList.Builder<V> builder = ImmutableList.builder();
+        Node<V> node = root.get();
+        for (int depth = 0; node != null; depth++) {
+            if (node.value != null) {
+                builder.add(node.value);
+            }
+            if (depth == maskLength) {
+                break;
+            }
+            node = address.get(depth) ? node.right : node.left;
+        }
+        return builder.build().reverse();
+    }
+
+    private void forEachCovered(Bits address, int maskLength, Consumer<V> consumer) {
+        Node<V> node = root.get();
+        for (int depth = 0; node != null && depth < maskLength; depth++) {
+            node = address.get(depth) ? node.right : node.left;
+        }
+        forEach(node, consumer);
+    }
+
+    private V longestMatch(Bits address, int maskLength) {
+        V match = null;
+        Node<V> node = root.get();
+        for (int depth = 0; node != null; depth++) {
+            if (node.value != null) {
+                match = node.value;
+            }
+            if (depth == maskLength) {
+                break;
+            }
+            node = address.get(depth) ? node.right : node.left;
+        }
+        return match;
+    }
+
+    /**
+     * Finds the largest aggregate which contains the given prefix, whose
+     * address is masked from either form of the given prefix.
+     *
+     * @param address    prefix address bits
+     * @param maskLength prefix length
+     * @param octets     prefix address bytes, or null
+     * @param prefix     prefix address, or null
+     * @return aggregate, or null if there is none
+     */
+    private Aggregate<V> aggregate(Bits address, int maskLength,
+                                   byte[] octets, LispIpAddress prefix) {
+        if (equivalence == null) {
+            return null;
+        }
+
+        V inherited = null;
+        Node<V> node = root.get();
+        for (int depth = 0; node != null; depth++) {
+            V value = effective(node, inherited);
+            if (value != null) {
+                return octets != null ?
+                        new Aggregate<>(mask(octets, depth), depth, value) :
+                        new Aggregate<>(prefix.mask(depth), depth, value);
+            }
+            if (depth == maskLength) {
+                break;
+            }
+            if (node.value != null) {
+                inherited = node.value;
+            }
+            node = address.get(depth) ? node.right : node.left;
+        }
+        return null;
+    }
+
+    private static <V> V get(Node<V> node, Bits address, int maskLength) {
+        for (int depth = 0; node != null && depth < maskLength; depth++) {
+            node = address.get(depth) ? node.right : node.left;
+        }
+        return node == null ? null : node.value;
+    }
+
+    private Node<V> insert(Node<V> node, Bits address,
+                           int maskLength, int depth, V value) {
+        if (depth == maskLength) {
+            return node == null ? newNode(value, null, null) :
+                                  newNode(value, node.left, node.right);
+        }
+
+        Node<V> left = node == null ? null : node.left;
+        Node<V> right = node == null ? null : node.right;
+        V current = node == null ? null : node.value;
+
+        if (address.get(depth)) {
+            right = insert(right, address, maskLength, depth + 1, value);
+        } else {
+            left = insert(left, address, maskLength, depth + 1, value);
+        }
+        return newNode(current, left, right);
+    }
+
+    private Node<V> delete(Node<V> node, Bits address,
+                           int maskLength, int depth) {
+        if (node == null) {
+            return null;
+        }
+
+        Node<V> left = node.left;
+        Node<V> right = node.right;
+        V value = node.value;
+
+        if (depth == maskLength) {
+            value = null;
+        } else if (address.get(depth)) {
+            right = delete(right, address, maskLength, depth + 1);
+        } else {
+            left = delete(left, address, maskLength, depth + 1);
+        }
+
+        // prune the branch which no longer holds any value
+        if (value == null && left == null && right == null) {
+            return null;
+        }
+        return newNode(value, left, right);
+    }
+
+    /**
+     * Creates a node, along with the summary of its address space which is
+     * derived from its own value and the summaries of its children.
+     *
+     * @param value value of the node
+     * @param left  left child
+     * @param right right child
+     * @return new node
+     */
+    private Node<V> newNode(V value, Node<V> left, Node<V> right) {
+        if (equivalence == null) {
+            return new Node<>(value, left, right, MIXED, null);
+        }
+
+        byte leftState = left == null ? EMPTY : left.state;
+        V leftSummary = left == null ? null : left.summary;
+        byte rightState = right == null ? EMPTY : right.state;
+        V rightSummary = right == null ? null : right.summary;
+
+        if (value != null) {
+            // the value of the node covers the holes in the address space
+            // which are not covered by its children
+            leftState = cover(leftState, leftSummary, value);
+            leftSummary = leftSummary == null ? value : leftSummary;
+            rightState = cover(rightState, rightSummary, value);
+            rightSummary = rightSummary == null ? value : rightSummary;
+        }
+
+        if (leftState == MIXED || rightState == MIXED) {
+            return new Node<>(value, left, right, MIXED, null);
+        }
+        if (leftState == EMPTY && rightState == EMPTY) {
+            return new Node<>(value, left, right, EMPTY, null);
+        }
+        if (leftState == EMPTY || rightState == EMPTY) {
+            return new Node<>(value, left, right, PARTIAL,
+                              leftState == EMPTY ? rightSummary : leftSummary);
+        }
+        if (!equivalence.test(leftSummary, rightSummary)) {
+            return new Node<>(value, left, right, MIXED, null);
+        }
+        byte state = leftState == UNIFORM && rightState == UNIFORM ? UNIFORM : PARTIAL;
+        return new Node<>(value, left, right, state, leftSummary);
+    }
+
+    /**
+     * Obtains the state of a child's address space, after its holes are
+     * covered by the given value of the parent.
+     *
+     * @param state   state of the child
+     * @param summary summary value of the child
+     * @param value   value of the parent
+     * @return covered state
+     */
+    private byte cover(byte state, V summary, V value) {
+        switch (state) {
+            case EMPTY:
+                return UNIFORM;
+            case PARTIAL:
+                return equivalence.test(summary, value) ? UNIFORM : MIXED;
+            default:
+                return state;
+        }
+    }
+
+    /**
+     * Obtains the value to which the whole address space of the node is
+     * effectively mapped, taking the value inherited from the covering
+     * prefixes into account.
+     *
+     * @param node      node
+     * @param inherited value of the longest covering prefix, or null
+     * @return effective value, or null if the address space is not mapped to
+     *         equivalent values
+     */
+    private V effective(Node<V> node, V inherited) {
+        switch (node.state) {
+            case UNIFORM:
+                return node.summary;
+            case PARTIAL:
+                return inherited != null && equivalence.test(node.summary, inherited) ?
+                        node.summary : null;
+            default:
+                return null;
+        }
+    }
+
+    private void forEachAggregate(Node<V> node, byte[] address, int depth,
+                                  V inherited, Consumer<Aggregate<V>> consumer) {
+        if (node == null) {
+            return;
+        }
+
+        V value = equivalence == null ? null : effective(node, inherited);
+        if (value != null) {
+            // the whole address space is aggregated, unless it is redundant
+            // with the covering prefix
+            if (inherited == null || !equivalence.test(value, inherited)) {
+                consumer.accept(new Aggregate<>(mask(address, depth), depth, value));
+            }
+            return;
+        }
+
+        if (node.value != null) {
+            if (inherited == null || equivalence == null ||
+                    !equivalence.test(node.value, inherited)) {
+                consumer.accept(new Aggregate<>(mask(address, depth), depth, node.value));
+            }
+            inherited = node.value;
+        }
+
+        if (depth == maxLength) {
+            return;
+        }
+        int index = depth / BYTE_SIZE;
+        byte mask = (byte) (0x80 >>> (depth % BYTE_SIZE));
+
+        address[index] &= ~mask;
+        forEachAggregate(node.left, address, depth + 1, inherited, consumer);
+        address[index] |= mask;
+        forEachAggregate(node.right, address, depth + 1, inherited, consumer);
+        address[index] &= ~mask;
+    }
+
+    /**
+     * Obtains a copy of the given address, whose bits beyond the given prefix
+     * length are cleared.
+     *
+     * @param address    address bytes
+     * @param maskLength prefix length
+     * @return masked address bytes
+     */
+    private static byte[] mask(byte[] address, int maskLength) {
+        byte[] masked = Arrays.copyOf(address, address.length);
+        for (int i = maskLength; i < masked.length * BYTE_SIZE; i++) {
+            masked[i / BYTE_SIZE] &= ~(0x80 >>> (i % BYTE_SIZE));
+        }
+        return masked;
+    }
+
+    private static <V> void forEach(Node<V> node, Consumer<V> consumer) {
+        if (node == null) {
+            return;
+        }
+        if (node.value != null) {
+            consumer.accept(node.value);
+        }
+        forEach(node.left, consumer);
+        forEach(node.right, consumer);
+    }
+
+    /**
+     * An aggregate, i.e., a prefix whose whole address space is mapped to
+     * equivalent values.
+     *
+     * @param <V> type of value
+     */
+    public static final class Aggregate<V> {
+        // either of the two forms is given, depending on the lookup key
+        private final byte[] address;
+        private final LispIpAddress prefix;
+        private final int maskLength;
+        private final V value;
+
+        private Aggregate(byte[] address, int maskLength, V value) {
+            this.address = address;
+            this.prefix = null;
+            this.maskLength = maskLength;
+            this.value = value;
+        }
+
+        private Aggregate(LispIpAddress prefix, int maskLength, V value) {
+            this.address = null;
+            this.prefix = prefix;
+            this.maskLength = maskLength;
+            this.value = value;
+        }
+
+        /**
+         * Obtains the address bytes of the aggregate prefix.
+         *
+         * @return address bytes in network byte order
+         */
+        public byte[] address() {
+            return address == null ? prefix.toOctets() :
+                                     Arrays.copyOf(address, address.length);
+        }
+
+        /**
+         * Obtains the aggregate prefix as a LISP IP address, which is only
+         * available if the aggregate was looked up by a LISP IP address.
+         *
+         * @return prefix address, or null
+         */
+        public LispIpAddress prefix() {
+            return prefix;
+        }
+
+        /**
+         * Obtains the prefix length of the aggregate.
+         *
+         * @return prefix length
+         */
+        public int maskLength() {
+            return maskLength;
+        }
+
+        /**
+         * Obtains a value to which the aggregate is mapped.
+         *
+         * @return representative value
+         */
+        public V value() {
+            return value;
+        }
+    }
+
+    /**
+     * Bits of a prefix address, counted from the most significant bit.
+     */
+    @FunctionalInterface
+    private interface Bits {
+        boolean get(int index);
+    }
+
+    /**
+     * An immutable trie node.
+     *
+     * @param <V> type of value
+     */
+    private static final class Node<V> {
+        private final V value;
+        private final Node<V> left;
+        private final Node<V> right;
+
+        // summary of the address space, which is only used for aggregation
+        private final byte state;
+        private final V summary;
+
+        Node(V value, Node<V> left, Node<V> right, byte state, V summary) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.state = state;
+            this.summary = summary;
+        }
+    }
+}
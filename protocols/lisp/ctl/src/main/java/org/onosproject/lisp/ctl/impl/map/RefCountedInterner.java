@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl.map;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An interner which maps equal values to a single canonical instance, and
+ * keeps the canonical instance as long as it is referenced.
+ * <p>
+ * Unlike weak interners, the canonical instance is discarded as soon as its
+ * reference count drops to zero, so that the owner can release the resources
+ * which are derived from the canonical instance at the same time.
+ *
+ * @param <T> type of interned value
+ */
+public final class RefCountedInterner<T> {
+
+    private final Map<T, Reference<T>> references = Maps.newHashMap();
+
+    /**
+     * Obtains the canonical instance which is equal to the given value, and
+     * increases its reference count. If there is no such instance, the given
+     * value becomes the canonical instance.
+     *
+     * @param value value
+     * @return canonical instance
+     */
+    public T intern(T value) {
+        return intern(value, Function.identity());
+    }
+
+    /**
+     * Obtains the canonical instance which is equal to the given value, and
+     * increases its reference count. If there is no such instance, the
+     * canonical instance is created from the given value by the given
+     * function, whose result should be equal to the given value.
+     *
+     * @param value        value
+     * @param canonicalize function which creates the canonical instance
+     * @return canonical instance
+     */
+    public synchronized T intern(T value, Function<T, T> canonicalize) {
+        checkNotNull(value, "Value should not be null");
+
+        Reference<T> reference = references.get(value);
+        if (reference == null) {
+            reference = new Reference<>(canonicalize.apply(value));
+            references.put(reference.value, reference);
+        }
+        reference.count++;
+        return reference.value;
+    }
+
+    /**
+     * Decreases the reference count of the canonical instance which is equal
+     * to the given value, and discards the instance if it is no longer
+     * referenced.
+     *
+     * @param value value
+     * @return true if the canonical instance has been discarded
+     */
+    public synchronized boolean release(T value) {
+        Reference<T> reference = references.get(value);
+        if (reference == null) {
+            return false;
+        }
+        if (--reference.count == 0) {
+            references.remove(value);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Obtains the reference count of the canonical instance which is equal
+     * to the given value.
+     *
+     * @param value value
+     * @return reference count, or 0 if there is no such instance
+     */
+    public synchronized int referenceCount(T value) {
+        Reference<T> reference = references.get(value);
+        return reference == null ? 0 : reference.count;
+    }
+
+    /**
+     * Obtains the number of canonical instances.
+     *
+     * @return the number of canonical instances
+     */
+    public synchronized int size() {
+        return references.size();
+    }
+
+    /**
+     * Discards all of the canonical instances.
+     */
+    public synchronized void clear() {
+        references.clear();
+    }
+
+    /**
+     * A canonical instance along with its reference count.
+     *
+     * @param <T> type of interned value
+     */
+    private static final class Reference<T> {
+        private final T value;
+        private int count;
+
+        Reference(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 
 /**
- * A package that contains ExpireMap interface and implementation classes.
+ * A package that contains ExpireMap interface and implementation classes,
+ * along with the secondary index structures of the LISP mapping database.
  */
 package org.onosproject.lisp.ctl.impl.map;
\ No newline at end of file
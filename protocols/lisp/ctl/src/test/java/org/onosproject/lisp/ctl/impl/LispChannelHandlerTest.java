@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.lisp.ctl.impl.LispChannelHandler.LispMessageHandler;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapReply.DefaultReplyBuilder;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests for LISP channel handler class.
+ */
+public class LispChannelHandlerTest {
+
+    private static final int DEFAULT_SEND_BATCH_SIZE = 32;
+
+    private FlushCounter flushCounter;
+    private LispChannelHandler handler;
+    private EmbeddedChannel channel;
+    private ChannelHandlerContext ctx;
+
+    /**
+     * Counts the flushes which pass towards the transport.
+     */
+    private static final class FlushCounter extends ChannelOutboundHandlerAdapter {
+        private int flushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) throws Exception {
+            flushes++;
+            super.flush(ctx);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        flushCounter = new FlushCounter();
+        handler = new LispChannelHandler();
+        channel = new EmbeddedChannel(flushCounter, handler);
+        ctx = channel.pipeline().context(handler);
+    }
+
+    @After
+    public void tearDown() {
+        LispChannelHandler.setSendBatchSize(DEFAULT_SEND_BATCH_SIZE);
+        LispChannelHandler.setMessagePooling(false);
+        channel.finishAndReleaseAll();
+    }
+
+    /**
+     * Tests that the queued messages are written with a flush per batch,
+     * once the event loop drains them.
+     */
+    @Test
+    public void testFlushPerBatch() {
+        LispChannelHandler.setSendBatchSize(2);
+
+        for (int i = 0; i < 5; i++) {
+            LispChannelHandler.send(ctx, "message" + i);
+        }
+
+        // nothing is written until the event loop runs the drain task
+        assertThat(flushCounter.flushes, is(0));
+        assertThat(channel.outboundMessages().size(), is(0));
+
+        channel.runPendingTasks();
+        assertThat(flushCounter.flushes, is(3));
+        assertThat(channel.outboundMessages().size(), is(5));
+        for (int i = 0; i < 5; i++) {
+            assertThat(channel.readOutbound(), is("message" + i));
+        }
+    }
+
+    /**
+     * Tests that a message queued after a drain schedules another drain.
+     */
+    @Test
+    public void testDrainAgain() {
+        LispChannelHandler.send(ctx, "message1");
+        LispChannelHandler.send(ctx, "message2");
+        channel.runPendingTasks();
+        assertThat(flushCounter.flushes, is(1));
+
+        LispChannelHandler.send(ctx, "message3");
+        channel.runPendingTasks();
+        assertThat(flushCounter.flushes, is(2));
+        assertThat(channel.outboundMessages().size(), is(3));
+    }
+
+    /**
+     * Tests that a send batch size of one flushes each message.
+     */
+    @Test
+    public void testUnbatched() {
+        LispChannelHandler.setSendBatchSize(1);
+
+        for (int i = 0; i < 3; i++) {
+            LispChannelHandler.send(ctx, "message" + i);
+        }
+        channel.runPendingTasks();
+        assertThat(flushCounter.flushes, is(3));
+    }
+
+    /**
+     * Tests that with message pooling, a message handler is reused once it
+     * has run, or once its message has been shed.
+     */
+    @Test
+    public void testHandlerRecycling() {
+        LispChannelHandler.setMessagePooling(true);
+        LispMessage reply = new DefaultReplyBuilder().withIsProbe(false).build();
+
+        LispMessageHandler handler1 = LispMessageHandler.newInstance(null, reply);
+        handler1.run();
+
+        // a shed message is not run, but its handler is recycled
+        LispMessageHandler handler2 = LispMessageHandler.newInstance(null, reply);
+        assertThat(handler2, is(sameInstance(handler1)));
+        handler2.recycle();
+
+        LispMessageHandler handler3 = LispMessageHandler.newInstance(null, reply);
+        assertThat(handler3, is(sameInstance(handler1)));
+        handler3.run();
+    }
+
+    /**
+     * Tests that without message pooling, a message handler is never reused.
+     */
+    @Test
+    public void testHandlerWithoutPooling() {
+        LispMessage reply = new DefaultReplyBuilder().withIsProbe(false).build();
+
+        LispMessageHandler handler1 = LispMessageHandler.newInstance(null, reply);
+        handler1.run();
+
+        LispMessageHandler handler2 = LispMessageHandler.newInstance(null, reply);
+        assertThat(handler2, is(not(sameInstance(handler1))));
+        handler2.run();
+    }
+}
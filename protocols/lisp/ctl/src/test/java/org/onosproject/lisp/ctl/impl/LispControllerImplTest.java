@@ -21,6 +21,7 @@ import com.google.common.collect.Lists;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.onlab.metrics.MetricsManager;
 import org.onlab.packet.IpAddress;
 import org.onosproject.cfg.ComponentConfigService;
 import org.onosproject.core.CoreService;
@@ -56,12 +57,15 @@ import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static junit.framework.TestCase.fail;
+import static org.easymock.EasyMock.anyInt;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
@@ -80,6 +84,7 @@ public class LispControllerImplTest {
     private LispRouter router3;
 
     private LispControllerImpl controller;
+    private MetricsManager metricsService;
     private LispRouterAgent agent;
     private TestRouterListener routerListener;
     private TestMessageListener messageListener;
@@ -182,6 +187,9 @@ public class LispControllerImplTest {
         controller.cfgService = mockConfigService;
         replay(mockConfigService);
 
+        metricsService = new MetricsManager();
+        controller.metricsService = metricsService;
+
         ComponentContext mockContext = createMock(ComponentContext.class);
         Dictionary<String, Object> properties = new Hashtable<>();
         properties.put("lispAuthKey", "onos");
@@ -190,6 +198,8 @@ public class LispControllerImplTest {
         replay(mockContext);
 
         LispControllerBootstrap bootstrap = createMock(LispControllerBootstrap.class);
+        bootstrap.setReceiveBatchSize(anyInt());
+        expectLastCall();
         bootstrap.start();
         expectLastCall();
         controller.bootstrap = bootstrap;
@@ -213,6 +223,17 @@ public class LispControllerImplTest {
         controller.deactivate();
     }
 
+    /**
+     * Tests that the counters are registered with the metrics service.
+     */
+    @Test
+    public void testMetrics() {
+        assertThat(metricsService.getMetrics().keySet(),
+                   hasItem(containsString("forgedRegisters")));
+        assertThat(metricsService.getMetrics().keySet(),
+                   hasItem(containsString("droppedMapRegisters")));
+    }
+
     /**
      * Tests adding and removing connected routers.
      */
@@ -265,6 +286,31 @@ public class LispControllerImplTest {
         assertThat(queriedRouterAfterRemoval, nullValue());
     }
 
+    /**
+     * Tests that a router is built only on its first contact.
+     */
+    @Test
+    public void testRouterRegistry() {
+        LispRouterRegistry registry = LispRouterRegistry.getInstance();
+        IpAddress address = routerId1.id();
+        ChannelAdapter channel = new ChannelAdapter();
+
+        LispRouter router = registry.getRouter(address, channel);
+        assertThat(router.isConnected(), is(true));
+        assertThat(controller.getRouter(routerId1), is(router));
+        assertThat(registry.getLastSeen(address) > 0, is(true));
+
+        // Test that subsequent contacts resolve the same router
+        assertThat(registry.getRouter(address, channel), is(router));
+        assertThat(registry.size(), is(1));
+        assertThat(routerListener.addedIds, hasSize(1));
+
+        // Test that a removed router is forgotten by the registry
+        agent.removeConnectedRouter(routerId1);
+        assertThat(registry.size(), is(0));
+        assertThat(registry.getLastSeen(address), is(0L));
+    }
+
     /**
      * Tests adding and removing subscribed routers.
      */
@@ -283,6 +329,22 @@ public class LispControllerImplTest {
                 controller.getSubscribedRouters()), hasSize(2));
         assertThat(Lists.newArrayList(
                 controller.getSubscribedRouters()), hasItems(router1, router2));
+
+        // Test updating the subscription state of a connected router
+        router2.setSubscribed(false);
+        agent.updateRouterSubscription(routerId2, false);
+        assertThat(Lists.newArrayList(
+                controller.getSubscribedRouters()), hasSize(1));
+        assertThat(routerListener.changedIds, hasItems(routerId2));
+
+        // Test that a stale notification does not override the current state
+        agent.updateRouterSubscription(routerId1, false);
+        assertThat(Lists.newArrayList(
+                controller.getSubscribedRouters()), hasItems(router1));
+
+        agent.removeConnectedRouter(routerId1);
+        assertThat(Lists.newArrayList(
+                controller.getSubscribedRouters()), hasSize(0));
     }
 
     /**
@@ -0,0 +1,224 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.onosproject.lisp.ctl.impl.LispHeaderValidator.Violation;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for LISP header validator class.
+ */
+public class LispHeaderValidatorTest {
+
+    private static final int TYPE_SHIFT_BIT = 4;
+    private static final int MAP_REQUEST = 1;
+    private static final int MAP_REPLY = 2;
+    private static final int MAP_REGISTER = 3;
+    private static final int MAP_REFERRAL = 5;
+    private static final int ENCAPSULATED_CONTROL = 8;
+
+    private static final int AFI_IP4 = 1;
+    private static final int AFI_IP6 = 2;
+    private static final int AFI_LCAF = 16387;
+    private static final int AFI_UNKNOWN = 9999;
+
+    private ByteBuf header(int type, int itrRlocCount, int recordCount) {
+        ByteBuf buffer = Unpooled.buffer();
+        buffer.writeByte(type << TYPE_SHIFT_BIT);
+        buffer.writeByte(0);
+        buffer.writeByte(itrRlocCount);
+        buffer.writeByte(recordCount);
+        buffer.writeLong(1L);
+        return buffer;
+    }
+
+    private ByteBuf registerHeader(int recordCount, int authLength) {
+        ByteBuf buffer = header(MAP_REGISTER, 0, recordCount);
+        buffer.writeShort(1);
+        buffer.writeShort(authLength);
+        return buffer;
+    }
+
+    private void writeIpv4(ByteBuf buffer) {
+        buffer.writeShort(AFI_IP4);
+        buffer.writeInt(0x0a010101);
+    }
+
+    private void writeMapRecord(ByteBuf buffer, int locatorCount) {
+        buffer.writeInt(60);
+        buffer.writeByte(locatorCount);
+        buffer.writeByte(32);
+        buffer.writeShort(0);
+        buffer.writeShort(0);
+        writeIpv4(buffer);
+        for (int i = 0; i < locatorCount; i++) {
+            buffer.writeInt(0x01640164);
+            buffer.writeShort(0);
+            writeIpv4(buffer);
+        }
+    }
+
+    /**
+     * Tests that well-formed messages pass.
+     */
+    @Test
+    public void testValidMessages() {
+        ByteBuf request = header(MAP_REQUEST, 0, 1);
+        writeIpv4(request);
+        writeIpv4(request);
+        request.writeShort(32);
+        writeIpv4(request);
+        assertThat(LispHeaderValidator.validate(request), is(nullValue()));
+
+        ByteBuf reply = header(MAP_REPLY, 0, 2);
+        writeMapRecord(reply, 1);
+        writeMapRecord(reply, 0);
+        assertThat(LispHeaderValidator.validate(reply), is(nullValue()));
+
+        ByteBuf register = registerHeader(1, 20);
+        register.writeZero(20);
+        writeMapRecord(register, 2);
+        assertThat(LispHeaderValidator.validate(register), is(nullValue()));
+
+        // the indices are left untouched
+        assertThat(register.readerIndex(), is(0));
+    }
+
+    /**
+     * Tests that unknown or unsupported types are rejected.
+     */
+    @Test
+    public void testUnknownType() {
+        assertThat(LispHeaderValidator.validate(header(0, 0, 0)),
+                   is(Violation.UNKNOWN_TYPE));
+        assertThat(LispHeaderValidator.validate(header(MAP_REFERRAL, 0, 0)),
+                   is(Violation.UNKNOWN_TYPE));
+        assertThat(LispHeaderValidator.validate(Unpooled.buffer()),
+                   is(Violation.TRUNCATED_HEADER));
+    }
+
+    /**
+     * Tests that the messages shorter than their fixed header are rejected.
+     */
+    @Test
+    public void testTruncatedHeader() {
+        ByteBuf reply = Unpooled.buffer();
+        reply.writeByte(MAP_REPLY << TYPE_SHIFT_BIT);
+        reply.writeZero(7);
+        assertThat(LispHeaderValidator.validate(reply), is(Violation.TRUNCATED_HEADER));
+
+        ByteBuf register = header(MAP_REGISTER, 0, 0);
+        assertThat(LispHeaderValidator.validate(register), is(Violation.TRUNCATED_HEADER));
+    }
+
+    /**
+     * Tests that a declared authentication data length beyond the datagram
+     * is rejected.
+     */
+    @Test
+    public void testAuthOverrun() {
+        ByteBuf register = registerHeader(0, 0xffff);
+        register.writeZero(20);
+        assertThat(LispHeaderValidator.validate(register), is(Violation.AUTH_OVERRUN));
+    }
+
+    /**
+     * Tests that records and locators beyond the datagram are rejected.
+     */
+    @Test
+    public void testRecordOverrun() {
+        // claims 255 records, but carries one
+        ByteBuf reply = header(MAP_REPLY, 0, 255);
+        writeMapRecord(reply, 1);
+        assertThat(LispHeaderValidator.validate(reply), is(Violation.RECORD_OVERRUN));
+
+        // a record whose locators are cut short
+        ByteBuf register = registerHeader(1, 0);
+        writeMapRecord(register, 2);
+        register.writerIndex(register.writerIndex() - 3);
+        assertThat(LispHeaderValidator.validate(register), is(Violation.RECORD_OVERRUN));
+
+        // claims 31 ITR-RLOCs, but carries one
+        ByteBuf request = header(MAP_REQUEST, 30, 0);
+        writeIpv4(request);
+        writeIpv4(request);
+        assertThat(LispHeaderValidator.validate(request), is(Violation.RECORD_OVERRUN));
+    }
+
+    /**
+     * Tests that the address lengths are checked by their family.
+     */
+    @Test
+    public void testAddressLength() {
+        // an IPv6 AFI followed by an IPv4 address
+        ByteBuf request = header(MAP_REQUEST, 0, 0);
+        writeIpv4(request);
+        request.writeShort(AFI_IP6);
+        request.writeInt(0x0a010101);
+        assertThat(LispHeaderValidator.validate(request), is(Violation.RECORD_OVERRUN));
+
+        // an LCAF address which claims more than it carries
+        ByteBuf lcaf = header(MAP_REQUEST, 0, 0);
+        writeIpv4(lcaf);
+        lcaf.writeShort(AFI_LCAF);
+        lcaf.writeInt(0);
+        lcaf.writeShort(100);
+        lcaf.writeZero(10);
+        assertThat(LispHeaderValidator.validate(lcaf), is(Violation.RECORD_OVERRUN));
+
+        ByteBuf unknown = header(MAP_REQUEST, 0, 0);
+        writeIpv4(unknown);
+        unknown.writeShort(AFI_UNKNOWN);
+        unknown.writeInt(0);
+        assertThat(LispHeaderValidator.validate(unknown), is(Violation.UNKNOWN_AFI));
+    }
+
+    /**
+     * Tests that the encapsulated message is validated as well.
+     */
+    @Test
+    public void testEncapsulatedControl() {
+        ByteBuf inner = header(MAP_REQUEST, 0, 0);
+        writeIpv4(inner);
+        writeIpv4(inner);
+
+        ByteBuf ecm = Unpooled.buffer();
+        ecm.writeByte(ENCAPSULATED_CONTROL << TYPE_SHIFT_BIT);
+        ecm.writeZero(3);
+        ecm.writeByte(0x45);
+        ecm.writeByte(0);
+        ecm.writeShort(20 + 8 + inner.readableBytes());
+        ecm.writeZero(16);
+        ecm.writeZero(8);
+        ecm.writeBytes(inner.duplicate());
+        assertThat(LispHeaderValidator.validate(ecm), is(nullValue()));
+
+        // an inner message which is cut short
+        ecm.writerIndex(ecm.writerIndex() - 2);
+        assertThat(LispHeaderValidator.validate(ecm), is(Violation.MALFORMED_ENCAPSULATION));
+
+        // an inner header which is not IPv4
+        ecm.writerIndex(ecm.writerIndex() + 2);
+        ecm.setByte(4, 0x60);
+        assertThat(LispHeaderValidator.validate(ecm), is(Violation.MALFORMED_ENCAPSULATION));
+    }
+}
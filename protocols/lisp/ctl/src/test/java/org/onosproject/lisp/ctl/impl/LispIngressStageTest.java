@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.lisp.ctl.impl.LispIngressStage.ShedPolicy;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRegister.DefaultRegisterBuilder;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+import org.onosproject.lisp.msg.protocols.LispType;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for LISP ingress stage class.
+ */
+public class LispIngressStageTest {
+
+    private static final int CAPACITY = 4;
+
+    private final LispMessage request = new LispMessageAdapter(LispType.LISP_MAP_REQUEST);
+    private final LispMessage register = new DefaultRegisterBuilder()
+                                                .withKeyId((short) 1)
+                                                .withAuthKey("onos")
+                                                .withNonce(1L)
+                                                .withMapRecords(ImmutableList.of())
+                                                .build();
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private LispIngressStage stage;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        stage = new LispIngressStage("ingress-test", 1, CAPACITY);
+
+        // blocks the only processing thread, so that messages are queued
+        CountDownLatch started = new CountDownLatch(1);
+        stage.execute(request, () -> {
+            started.countDown();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+    }
+
+    @After
+    public void tearDown() {
+        latch.countDown();
+        stage.shutdown();
+    }
+
+    /**
+     * Tests dropping the newest messages once the queue is full.
+     */
+    @Test
+    public void testDropNewest() {
+        for (int i = 0; i < CAPACITY; i++) {
+            assertThat(stage.execute(request, () -> { }), is(true));
+        }
+        assertThat(stage.execute(register, () -> { }), is(false));
+        assertThat(stage.queuedMessages(), is(CAPACITY));
+        assertThat(stage.shedMessages(), is(1L));
+    }
+
+    /**
+     * Tests that map-registers are still accepted above the high-water mark.
+     */
+    @Test
+    public void testDropByType() {
+        stage.configure(CAPACITY, ShedPolicy.DROP_BY_TYPE);
+
+        // the high-water mark is 3 out of 4
+        for (int i = 0; i < CAPACITY - 1; i++) {
+            assertThat(stage.execute(request, () -> { }), is(true));
+        }
+        assertThat(stage.execute(request, () -> { }), is(false));
+        assertThat(stage.execute(register, () -> { }), is(true));
+        assertThat(stage.execute(register, () -> { }), is(false));
+        assertThat(stage.shedMessages(), is(2L));
+    }
+}
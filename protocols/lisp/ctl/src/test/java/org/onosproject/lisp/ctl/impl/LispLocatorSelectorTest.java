@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator.DefaultLocatorBuilder;
+import org.onosproject.lisp.msg.protocols.LispLocator;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for LISP locator selector class.
+ */
+public class LispLocatorSelectorTest {
+
+    private static final int SELECTIONS = 100;
+
+    private final LispLocator locator1 = locator("123.9.1.1", 1, 30, true);
+    private final LispLocator locator2 = locator("123.9.1.2", 1, 70, true);
+    private final LispLocator locator3 = locator("123.9.1.3", 2, 100, true);
+    private final LispLocator locator4 = locator("123.9.1.4", 0, 100, false);
+
+    /**
+     * Tests selecting among the reachable locators with the best priority.
+     */
+    @Test
+    public void testWeightedSelection() {
+        LispLocatorSelector selector = LispLocatorSelector.of(
+                ImmutableList.of(locator1, locator2, locator3, locator4));
+
+        // weights 30 and 70 are reduced to 3 and 7 slots
+        assertThat(selector.size(), is(10));
+        for (int i = 0; i < SELECTIONS; i++) {
+            assertThat(selector.select(), anyOf(is(locator1), is(locator2)));
+        }
+    }
+
+    /**
+     * Tests selection with zero weights and unusable locators.
+     */
+    @Test
+    public void testUnweightedAndUnusable() {
+        LispLocatorSelector selector = LispLocatorSelector.of(ImmutableList.of(
+                locator("123.9.2.1", 1, 0, true), locator("123.9.2.2", 1, 0, true)));
+        assertThat(selector.size(), is(2));
+
+        selector = LispLocatorSelector.of(ImmutableList.of(
+                locator("123.9.3.1", 255, 100, true), locator4));
+        assertThat(selector.select(), nullValue());
+    }
+
+    /**
+     * Tests that the locators which are unreachable by probing are skipped.
+     */
+    @Test
+    public void testProbedReachability() {
+        LispLocatorSelector selector = LispLocatorSelector.of(
+                ImmutableList.of(locator1, locator2, locator3),
+                locator -> locator != locator1 && locator != locator2);
+
+        assertThat(selector.size(), is(1));
+        assertThat(selector.select(), is(locator3));
+    }
+
+    private LispLocator locator(String address, int priority, int weight,
+                                boolean reachable) {
+        return new DefaultLocatorBuilder()
+                .withPriority((byte) priority)
+                .withWeight((byte) weight)
+                .withRouted(reachable)
+                .withLocatorAfi(new LispIpv4Address(IpAddress.valueOf(address)))
+                .build();
+    }
+}
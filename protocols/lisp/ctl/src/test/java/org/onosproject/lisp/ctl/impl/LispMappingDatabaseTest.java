@@ -16,21 +16,32 @@
 package org.onosproject.lisp.ctl.impl;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
 import org.onlab.packet.IpAddress;
+import org.onlab.packet.MacAddress;
 import org.onosproject.lisp.msg.protocols.DefaultLispLocator.DefaultLocatorBuilder;
 import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
 import org.onosproject.lisp.msg.protocols.LispEidRecord;
 import org.onosproject.lisp.msg.protocols.LispLocator;
 import org.onosproject.lisp.msg.protocols.LispMapRecord;
 import org.onosproject.lisp.msg.protocols.LispMapRecord.MapRecordBuilder;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
 import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispMacAddress;
+import org.onosproject.lisp.msg.types.lcaf.LispGeoCoordinateLcafAddress.GeoCoordinateAddressBuilder;
 
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 /**
  * Tests for LISP EID RLOC Map class.
@@ -57,6 +68,35 @@ public class LispMappingDatabaseTest {
     private static final String EID_IP_PREFIX_2_32 = "10.1.2.1";
     private static final String EID_IP_PREFIX_2_24 = "10.1.2.0";
 
+    private static final String EID_IP_GEO = "10.3.1.0";
+    private static final String LOCATOR_IP_GEO_1 = "123.4.1.1";
+    private static final String LOCATOR_IP_GEO_2 = "123.4.1.2";
+
+    private static final String EID_IP_GEO_SUVA = "10.11.1.0";
+    private static final String EID_IP_GEO_APIA = "10.11.2.0";
+    private static final String EID_IP_GEO_SEOUL = "10.11.3.0";
+    private static final String LOCATOR_IP_GEO_EID = "123.12.1.1";
+
+    private static final String EID_MAC_1 = "00:00:00:00:00:01";
+    private static final String EID_MAC_2 = "00:00:00:00:00:02";
+    private static final String LOCATOR_IP_MAC = "123.5.1.1";
+
+    private static final String EID_IP_OFF_HEAP = "10.4.1.0";
+    private static final String LOCATOR_IP_OFF_HEAP_1 = "123.6.1.1";
+    private static final String LOCATOR_IP_OFF_HEAP_2 = "123.6.1.2";
+
+    private static final String EID_IP_SHARED_1 = "10.7.1.0";
+    private static final String EID_IP_SHARED_2 = "10.7.2.0";
+    private static final String LOCATOR_IP_SHARED = "123.9.1.1";
+
+    private static final String EID_IP_REVERSE_1 = "10.8.1.0";
+    private static final String EID_IP_REVERSE_2 = "10.8.2.0";
+    private static final String LOCATOR_IP_REVERSE_1 = "123.10.1.1";
+    private static final String LOCATOR_IP_REVERSE_2 = "123.10.1.2";
+    private static final String EID_IP_CHANGE = "10.10.1.0";
+    private static final String LOCATOR_IP_CHANGE_1 = "123.11.1.1";
+    private static final String LOCATOR_IP_CHANGE_2 = "123.11.1.2";
+
     final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
 
     @Before
@@ -184,4 +224,339 @@ public class LispMappingDatabaseTest {
         assertThat("Failed to fetch the RLOCs with /16 EID record",
                 mapRecord16.getLocatorCount(), is(1));
     }
+
+    @Test
+    public void testGeoLocatorQueries() {
+        byte cidr24 = (byte) 24;
+        LispIpv4Address eid = new LispIpv4Address(IpAddress.valueOf(EID_IP_GEO));
+
+        // Seoul: 37d 33m N 126d 58m E, Busan: 35d 10m N 129d 4m E
+        LispLocator seoul = geoLocator((short) 37, (byte) 33, (short) 126,
+                                       (byte) 58, LOCATOR_IP_GEO_1);
+        LispLocator busan = geoLocator((short) 35, (byte) 10, (short) 129,
+                                       (byte) 4, LOCATOR_IP_GEO_2);
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(cidr24);
+        builder.withEidPrefixAfi(eid);
+        builder.withLocators(ImmutableList.of(seoul, busan));
+        builder.withRecordTtl(60);
+        mapDb.putMapRecord(new LispEidRecord(cidr24, eid), builder.build(), true);
+
+        assertThat("Failed to fetch the nearest RLOC",
+                mapDb.getNearestLocators(37.0, 127.0, 1), contains(seoul));
+        assertThat("Failed to order the RLOCs by distance",
+                mapDb.getNearestLocators(35.0, 129.0, 2), contains(busan, seoul));
+        assertThat("Failed to fetch the RLOCs in bounding box",
+                mapDb.getLocatorsWithin(34.0, 128.0, 36.0, 130.0), contains(busan));
+    }
+
+    @Test
+    public void testGeoEidQueries() {
+        // Suva: 18d 8m S 178d 26m E, Apia: 13d 50m S 171d 45m W,
+        // Seoul: 37d 33m N 126d 58m E
+        LispEidRecord suva = geoEidRecord(false, (short) 18, (byte) 8, true,
+                                          (short) 178, (byte) 26, EID_IP_GEO_SUVA);
+        LispEidRecord apia = geoEidRecord(false, (short) 13, (byte) 50, false,
+                                          (short) 171, (byte) 45, EID_IP_GEO_APIA);
+        LispEidRecord seoul = geoEidRecord(true, (short) 37, (byte) 33, true,
+                                           (short) 126, (byte) 58, EID_IP_GEO_SEOUL);
+        for (LispEidRecord eidRecord : ImmutableList.of(suva, apia, seoul)) {
+            mapDb.putMapRecord(eidRecord, geoEidMapRecord(eidRecord), true);
+        }
+
+        try {
+            assertThat("Failed to fetch the nearest EID",
+                    eidPrefixes(mapDb.getNearestMapRecords(37.0, 127.0, 1)),
+                    contains(seoul.getPrefix()));
+            assertThat("Failed to order the EIDs across the anti-meridian",
+                    eidPrefixes(mapDb.getNearestMapRecords(-15.0, -179.0, 2)),
+                    contains(suva.getPrefix(), apia.getPrefix()));
+
+            assertThat("Failed to fetch the EIDs in bounding box",
+                    eidPrefixes(mapDb.getMapRecordsWithin(30.0, 120.0, 40.0, 130.0)),
+                    contains(seoul.getPrefix()));
+            assertThat("Failed to fetch the EIDs in box across the anti-meridian",
+                    eidPrefixes(mapDb.getMapRecordsWithin(-20.0, 170.0, -10.0, -170.0)),
+                    containsInAnyOrder(suva.getPrefix(), apia.getPrefix()));
+            assertThat("Unexpected EIDs are fetched in box without wrapping",
+                    eidPrefixes(mapDb.getMapRecordsWithin(-20.0, -170.0, -10.0, 170.0)),
+                    hasSize(0));
+        } finally {
+            mapDb.removeMapRecordByEid(suva);
+            mapDb.removeMapRecordByEid(apia);
+            mapDb.removeMapRecordByEid(seoul);
+        }
+    }
+
+    @Test
+    public void testMacExactMatch() {
+        byte cidr48 = (byte) 48;
+        LispMacAddress eid1 = new LispMacAddress(MacAddress.valueOf(EID_MAC_1));
+        LispMacAddress eid2 = new LispMacAddress(MacAddress.valueOf(EID_MAC_2));
+        LispIpv4Address locator = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_MAC));
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(cidr48);
+        builder.withEidPrefixAfi(eid1);
+        builder.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(locator).build()));
+        builder.withRecordTtl(60);
+        mapDb.putMapRecord(new LispEidRecord(cidr48, eid1), builder.build(), true);
+
+        LispMapRecord mapRecord1 =
+                mapDb.getMapRecordByEidRecord(new LispEidRecord(cidr48, eid1), true);
+        LispMapRecord mapRecord2 =
+                mapDb.getMapRecordByEidRecord(new LispEidRecord(cidr48, eid2), true);
+
+        assertThat("Failed to fetch the RLOCs with MAC EID record",
+                mapRecord1.getLocatorCount(), is(1));
+        assertThat("Unexpected RLOCs are fetched with MAC EID record",
+                mapRecord2, nullValue());
+
+        mapDb.removeMapRecordByEid(new LispEidRecord(cidr48, eid1));
+        assertThat("Failed to remove the MAC EID record",
+                mapDb.getMapRecordByEidAddress(eid1), nullValue());
+    }
+
+    @Test
+    public void testMacMaskLength() {
+        byte cidr48 = (byte) 48;
+        byte cidr24 = (byte) 24;
+        LispMacAddress eid = new LispMacAddress(MacAddress.valueOf(EID_MAC_1));
+        LispIpv4Address locator = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_MAC));
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(cidr24);
+        builder.withEidPrefixAfi(eid);
+        builder.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(locator).build()));
+        builder.withRecordTtl(60);
+        mapDb.putMapRecord(new LispEidRecord(cidr24, eid), builder.build(), true);
+
+        assertThat("Failed to fetch the RLOCs with MAC EID record",
+                mapDb.getMapRecordByEidRecord(new LispEidRecord(cidr24, eid), true),
+                notNullValue());
+        assertThat("Unexpected RLOCs are fetched with another mask length",
+                mapDb.getMapRecordByEidRecord(new LispEidRecord(cidr48, eid), true),
+                nullValue());
+
+        mapDb.removeMapRecordByEid(new LispEidRecord(cidr48, eid));
+        assertThat("Removed the MAC EID record of another mask length",
+                mapDb.getMapRecordByEidRecord(new LispEidRecord(cidr24, eid), true),
+                notNullValue());
+
+        mapDb.removeMapRecordByEid(new LispEidRecord(cidr24, eid));
+        assertThat("Failed to remove the MAC EID record",
+                mapDb.getMapRecordByEidRecord(new LispEidRecord(cidr24, eid), true),
+                nullValue());
+    }
+
+    @Test
+    public void testOffHeapStore() {
+        byte cidr24 = (byte) 24;
+        LispIpv4Address eid = new LispIpv4Address(IpAddress.valueOf(EID_IP_OFF_HEAP));
+        LispEidRecord eidRecord = new LispEidRecord(cidr24, eid);
+        LispIpv4Address locator1 = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_OFF_HEAP_1));
+        LispIpv4Address locator2 = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_OFF_HEAP_2));
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(cidr24);
+        builder.withEidPrefixAfi(eid);
+        builder.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(locator1).build(),
+                new DefaultLocatorBuilder().withLocatorAfi(locator2).build()));
+        builder.withRecordTtl(60);
+        LispMapRecord mapRecord = builder.build();
+
+        mapDb.enableOffHeapStore(true);
+        try {
+            mapDb.putMapRecord(eidRecord, mapRecord, true);
+
+            assertThat("Failed to decode the off-heap mapping record",
+                    mapDb.getMapRecordByEidRecord(eidRecord, true), is(mapRecord));
+
+            // a refresh with the same locators is compared in place
+            mapDb.putMapRecord(eidRecord, mapRecord, true);
+            assertThat(mapDb.getEidRecordsByRloc(locator1), contains(eidRecord));
+
+            builder.withLocators(ImmutableList.of(
+                    new DefaultLocatorBuilder().withLocatorAfi(locator2).build()));
+            mapDb.putMapRecord(eidRecord, builder.build(), true);
+            assertThat(mapDb.getEidRecordCountByRloc(locator1), is(0));
+            assertThat(mapDb.getEidRecordsByRloc(locator2), contains(eidRecord));
+
+            mapDb.removeMapRecordByEid(eidRecord);
+            assertThat("Failed to remove the off-heap mapping record",
+                    mapDb.getMapRecordByEidAddress(eid), nullValue());
+        } finally {
+            mapDb.enableOffHeapStore(false);
+        }
+    }
+
+    @Test
+    public void testLocatorSetInterning() {
+        byte cidr24 = (byte) 24;
+        LispEidRecord eidRecord1 = new LispEidRecord(cidr24,
+                new LispIpv4Address(IpAddress.valueOf(EID_IP_SHARED_1)));
+        LispEidRecord eidRecord2 = new LispEidRecord(cidr24,
+                new LispIpv4Address(IpAddress.valueOf(EID_IP_SHARED_2)));
+
+        mapDb.putMapRecord(eidRecord1, sharedMapRecord(eidRecord1), true);
+        mapDb.putMapRecord(eidRecord2, sharedMapRecord(eidRecord2), true);
+
+        List<LispLocator> locators1 =
+                mapDb.getMapRecordByEidRecord(eidRecord1, true).getLocators();
+        List<LispLocator> locators2 =
+                mapDb.getMapRecordByEidRecord(eidRecord2, true).getLocators();
+
+        assertThat("Failed to share the locator set",
+                locators1, sameInstance(locators2));
+        assertThat(mapDb.getLocatorSetReferenceCount(locators1), is(2));
+
+        mapDb.removeMapRecordByEid(eidRecord1);
+        assertThat(mapDb.getLocatorSetReferenceCount(locators1), is(1));
+
+        mapDb.removeMapRecordByEid(eidRecord2);
+        assertThat(mapDb.getLocatorSetReferenceCount(locators1), is(0));
+    }
+
+    @Test
+    public void testRlocReverseIndex() {
+        byte cidr24 = (byte) 24;
+        LispIpv4Address eid1 = new LispIpv4Address(IpAddress.valueOf(EID_IP_REVERSE_1));
+        LispIpv4Address eid2 = new LispIpv4Address(IpAddress.valueOf(EID_IP_REVERSE_2));
+        LispEidRecord eidRecord1 = new LispEidRecord(cidr24, eid1);
+        LispEidRecord eidRecord2 = new LispEidRecord(cidr24, eid2);
+        LispIpv4Address rloc1 = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_REVERSE_1));
+        LispIpv4Address rloc2 = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_REVERSE_2));
+
+        MapRecordBuilder builder1 = new DefaultMapRecordBuilder();
+        builder1.withMaskLength(cidr24);
+        builder1.withEidPrefixAfi(eid1);
+        builder1.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(rloc1).build(),
+                new DefaultLocatorBuilder().withLocatorAfi(rloc2).build()));
+        builder1.withRecordTtl(60);
+        mapDb.putMapRecord(eidRecord1, builder1.build(), true);
+
+        MapRecordBuilder builder2 = new DefaultMapRecordBuilder();
+        builder2.withMaskLength(cidr24);
+        builder2.withEidPrefixAfi(eid2);
+        builder2.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(rloc1).build()));
+        builder2.withRecordTtl(60);
+        mapDb.putMapRecord(eidRecord2, builder2.build(), true);
+
+        assertThat("Failed to fetch the EIDs mapped to RLOC",
+                mapDb.getEidRecordsByRloc(rloc1),
+                containsInAnyOrder(eidRecord1, eidRecord2));
+        assertThat(mapDb.getEidRecordCountByRloc(rloc2), is(1));
+
+        assertThat("Failed to withdraw the RLOC",
+                mapDb.withdrawRloc(rloc1), containsInAnyOrder(eidRecord1, eidRecord2));
+        assertThat(mapDb.getEidRecordCountByRloc(rloc1), is(0));
+        assertThat("Failed to keep the other RLOC of the EID",
+                mapDb.getMapRecordByEidRecord(eidRecord1, true).getLocatorCount(), is(1));
+        assertThat("Failed to remove the EID without any RLOC",
+                mapDb.getMapRecordByEidRecord(eidRecord2, true), nullValue());
+
+        mapDb.removeMapRecordByEid(eidRecord1);
+        assertThat(mapDb.getEidRecordCountByRloc(rloc2), is(0));
+    }
+
+    /**
+     * Tests notifying the mapping changes of an EID prefix.
+     */
+    @Test
+    public void testMappingChangeListener() {
+        LispEidRecord eidRecord = new LispEidRecord((byte) 24,
+                new LispIpv4Address(IpAddress.valueOf(EID_IP_CHANGE)));
+        List<LispEidRecord> changes = Lists.newArrayList();
+        LispMappingDatabase.MappingChangeListener listener = changes::add;
+        mapDb.addMappingChangeListener(listener);
+
+        try {
+            mapDb.putMapRecord(eidRecord, changeMapRecord(eidRecord, LOCATOR_IP_CHANGE_1), true);
+            mapDb.putMapRecord(eidRecord, changeMapRecord(eidRecord, LOCATOR_IP_CHANGE_1), true);
+            assertThat("Refreshing the same mapping is not a change", changes, hasSize(1));
+
+            mapDb.putMapRecord(eidRecord, changeMapRecord(eidRecord, LOCATOR_IP_CHANGE_2), true);
+            mapDb.removeMapRecordByEid(eidRecord);
+            assertThat(changes, contains(eidRecord, eidRecord, eidRecord));
+        } finally {
+            mapDb.removeMappingChangeListener(listener);
+        }
+    }
+
+    private LispMapRecord changeMapRecord(LispEidRecord eidRecord, String locatorIp) {
+        LispIpv4Address locator = new LispIpv4Address(IpAddress.valueOf(locatorIp));
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(eidRecord.getMaskLength());
+        builder.withEidPrefixAfi(eidRecord.getPrefix());
+        builder.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(locator).build()));
+        builder.withRecordTtl(60);
+        return builder.build();
+    }
+
+    private LispMapRecord sharedMapRecord(LispEidRecord eidRecord) {
+        LispIpv4Address locator = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_SHARED));
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(eidRecord.getMaskLength());
+        builder.withEidPrefixAfi(eidRecord.getPrefix());
+        builder.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(locator).build()));
+        builder.withRecordTtl(60);
+        return builder.build();
+    }
+
+    private LispLocator geoLocator(short latitude, byte latitudeMinute,
+                                   short longitude, byte longitudeMinute,
+                                   String address) {
+        return new DefaultLocatorBuilder().withLocatorAfi(
+                geoAddress(true, latitude, latitudeMinute, true,
+                           longitude, longitudeMinute, address)).build();
+    }
+
+    private LispEidRecord geoEidRecord(boolean north, short latitude,
+                                       byte latitudeMinute, boolean east,
+                                       short longitude, byte longitudeMinute,
+                                       String address) {
+        return new LispEidRecord((byte) 24, geoAddress(north, latitude,
+                latitudeMinute, east, longitude, longitudeMinute, address));
+    }
+
+    private LispMapRecord geoEidMapRecord(LispEidRecord eidRecord) {
+        LispIpv4Address locator = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP_GEO_EID));
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(eidRecord.getMaskLength());
+        builder.withEidPrefixAfi(eidRecord.getPrefix());
+        builder.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(locator).build()));
+        builder.withRecordTtl(60);
+        return builder.build();
+    }
+
+    private LispAfiAddress geoAddress(boolean north, short latitude,
+                                      byte latitudeMinute, boolean east,
+                                      short longitude, byte longitudeMinute,
+                                      String address) {
+        GeoCoordinateAddressBuilder builder = new GeoCoordinateAddressBuilder();
+        builder.withIsNorth(north);
+        builder.withLatitudeDegree(latitude);
+        builder.withLatitudeMinute(latitudeMinute);
+        builder.withIsEast(east);
+        builder.withLongitudeDegree(longitude);
+        builder.withLongitudeMinute(longitudeMinute);
+        builder.withAddress(new LispIpv4Address(IpAddress.valueOf(address)));
+        return builder.build();
+    }
+
+    private List<LispAfiAddress> eidPrefixes(List<LispMapRecord> mapRecords) {
+        return Lists.transform(mapRecords, LispMapRecord::getEidPrefixAfi);
+    }
 }
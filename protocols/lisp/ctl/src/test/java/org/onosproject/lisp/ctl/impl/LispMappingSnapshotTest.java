@@ -0,0 +1,113 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator.DefaultLocatorBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRecord.MapRecordBuilder;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for LISP mapping snapshot class.
+ */
+public class LispMappingSnapshotTest {
+
+    private static final String EID_IP = "10.5.1.0";
+    private static final String LOCATOR_IP = "123.7.1.1";
+
+    private final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+
+    private Path path;
+    private LispEidRecord eidRecord;
+    private LispMapRecord mapRecord;
+
+    @Before
+    public void setUp() throws IOException {
+        path = Files.createTempFile("lisp-mapping", ".snapshot");
+
+        byte cidr24 = (byte) 24;
+        LispIpv4Address eid = new LispIpv4Address(IpAddress.valueOf(EID_IP));
+        LispIpv4Address locator = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP));
+        eidRecord = new LispEidRecord(cidr24, eid);
+
+        MapRecordBuilder builder = new DefaultMapRecordBuilder();
+        builder.withMaskLength(cidr24);
+        builder.withEidPrefixAfi(eid);
+        builder.withLocators(ImmutableList.of(
+                new DefaultLocatorBuilder().withLocatorAfi(locator).build()));
+        builder.withRecordTtl(60);
+        mapRecord = builder.build();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mapDb.removeMapRecordByEid(eidRecord);
+        Files.deleteIfExists(path);
+    }
+
+    /**
+     * Tests restoring mapping records from a snapshot.
+     */
+    @Test
+    public void testWriteAndLoad() throws IOException {
+        LispMappingSnapshot snapshot = new LispMappingSnapshot(path);
+
+        mapDb.putMapRecord(eidRecord, mapRecord, true);
+        snapshot.write(mapDb);
+        mapDb.removeMapRecordByEid(eidRecord);
+
+        assertThat("Failed to restore the mapping record",
+                snapshot.load(mapDb) > 0, is(true));
+        assertThat("Failed to fetch the restored mapping record",
+                mapDb.getMapRecordByEidRecord(eidRecord, true), is(mapRecord));
+    }
+
+    /**
+     * Tests discarding a corrupted snapshot.
+     */
+    @Test
+    public void testCorruptedSnapshot() throws IOException {
+        LispMappingSnapshot snapshot = new LispMappingSnapshot(path);
+
+        mapDb.putMapRecord(eidRecord, mapRecord, true);
+        snapshot.write(mapDb);
+        mapDb.removeMapRecordByEid(eidRecord);
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0xff;
+        Files.write(path, bytes);
+
+        assertThat("Failed to discard the corrupted snapshot",
+                snapshot.load(mapDb), is(0));
+        assertThat("Unexpected mapping record is restored",
+                mapDb.getMapRecordByEidRecord(eidRecord, true), nullValue());
+    }
+}
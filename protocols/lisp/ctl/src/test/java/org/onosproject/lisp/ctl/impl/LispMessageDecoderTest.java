@@ -20,6 +20,9 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.socket.DatagramPacket;
 import org.junit.Test;
+import org.onosproject.lisp.msg.authentication.LispAuthenticationConfig;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRegister.DefaultRegisterBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRegister.RegisterWriter;
 import org.onosproject.lisp.msg.protocols.LispMapNotify;
 import org.onosproject.lisp.msg.protocols.LispMapRegister;
 import org.onosproject.lisp.msg.protocols.LispMapReply;
@@ -42,6 +45,8 @@ public class LispMessageDecoderTest {
     private static final byte MAP_REPLY = 2;
     private static final byte MAP_REGISTER = 3;
     private static final byte MAP_NOTIFY = 4;
+    private static final String AUTH_KEY = "onos";
+    private static final int AUTH_DATA_INDEX = 16;
 
 
     private ByteBuf getLispMapRequestBuffer() {
@@ -118,6 +123,20 @@ public class LispMessageDecoderTest {
         return buffer;
     }
 
+    private ByteBuf getAuthenticatedMapRegisterBuffer() throws Exception {
+        LispMapRegister register = new DefaultRegisterBuilder()
+                .withIsProxyMapReply(true)
+                .withIsWantMapNotify(false)
+                .withKeyId((short) 1)
+                .withAuthKey(AUTH_KEY)
+                .withNonce(1L)
+                .build();
+
+        ByteBuf buffer = Unpooled.buffer();
+        new RegisterWriter().writeTo(buffer, register);
+        return buffer;
+    }
+
     private DatagramPacket convToDatagram(ByteBuf byteBuf) {
         InetSocketAddress source = new InetSocketAddress(0);
         return new DatagramPacket(byteBuf, source);
@@ -152,4 +171,36 @@ public class LispMessageDecoderTest {
         assertThat(list.get(2), is(instanceOf(LispMapRegister.class)));
         assertThat(list.get(3), is(instanceOf(LispMapNotify.class)));
     }
+
+    @Test
+    public void testEarlyRegisterAuthentication() throws Exception {
+        LispAuthenticationConfig authConfig = LispAuthenticationConfig.getInstance();
+        String authKey = authConfig.lispAuthKey();
+        authConfig.updateLispAuthKey(AUTH_KEY);
+        LispMessageDecoder.setEarlyRegisterAuthentication(true);
+
+        try {
+            LispMessageDecoder decoder = new LispMessageDecoder();
+            long forged = LispMessageDecoder.forgedRegisters();
+
+            ByteBuf forgedBuff = getAuthenticatedMapRegisterBuffer();
+            forgedBuff.setByte(AUTH_DATA_INDEX, ~forgedBuff.getByte(AUTH_DATA_INDEX));
+
+            List<Object> list = Lists.newArrayList();
+            decoder.decode(new ChannelHandlerContextAdapter(),
+                    convToDatagram(getAuthenticatedMapRegisterBuffer()), list);
+            decoder.decode(new ChannelHandlerContextAdapter(),
+                    convToDatagram(forgedBuff), list);
+            decoder.decode(new ChannelHandlerContextAdapter(),
+                    convToDatagram(getLispMapReplyBuffer()), list);
+
+            assertThat(list.size(), is(2));
+            assertThat(list.get(0), is(instanceOf(LispMapRegister.class)));
+            assertThat(list.get(1), is(instanceOf(LispMapReply.class)));
+            assertThat(LispMessageDecoder.forgedRegisters(), is(forged + 1));
+        } finally {
+            LispMessageDecoder.setEarlyRegisterAuthentication(false);
+            authConfig.updateLispAuthKey(authKey);
+        }
+    }
 }
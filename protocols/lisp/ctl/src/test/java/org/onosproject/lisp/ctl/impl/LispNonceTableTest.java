@@ -0,0 +1,70 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for LISP nonce table class.
+ */
+public class LispNonceTableTest {
+
+    private static final int NONCES = 1000;
+
+    /**
+     * Tests inserting and removing pending requests by nonce.
+     */
+    @Test
+    public void testPutAndRemove() {
+        LispNonceTable<String> table = new LispNonceTable<>(4);
+
+        assertThat(table.put(1L, "one"), is(true));
+        assertThat(table.put(1L, "uno"), is(false));
+        assertThat(table.put(-1L, "minus one"), is(true));
+        assertThat(table.size(), is(2));
+
+        assertThat(table.remove(1L), is("one"));
+        assertThat(table.remove(1L), nullValue());
+        assertThat(table.remove(0L), nullValue());
+        assertThat(table.remove(-1L), is("minus one"));
+        assertThat(table.size(), is(0));
+    }
+
+    /**
+     * Tests that the remaining requests are found after growing the table
+     * and removing the others.
+     */
+    @Test
+    public void testGrowAndRemove() {
+        LispNonceTable<Long> table = new LispNonceTable<>(4);
+        for (long nonce = 1; nonce <= NONCES; nonce++) {
+            assertThat(table.put(nonce * 31, nonce), is(true));
+        }
+        assertThat(table.size(), is(NONCES));
+
+        for (long nonce = 1; nonce <= NONCES; nonce += 2) {
+            assertThat(table.remove(nonce * 31), is(nonce));
+        }
+        for (long nonce = 2; nonce <= NONCES; nonce += 2) {
+            assertThat(table.remove(nonce * 31), is(nonce));
+        }
+        assertThat(table.size(), is(0));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for LISP pending request table class.
+ */
+public class LispPendingRequestTableTest {
+
+    private static final long WINDOW = 100;
+
+    private long now;
+
+    private final Ticker ticker = new Ticker() {
+        @Override
+        public long read() {
+            return now;
+        }
+    };
+
+    /**
+     * Tests coalescing identical map-requests within the window.
+     */
+    @Test
+    public void testCoalescing() {
+        LispPendingRequestTable table = new LispPendingRequestTable(WINDOW, ticker);
+        List<LispEidRecord> eids1 = eids("10.9.1.0");
+        List<LispEidRecord> eids2 = eids("10.9.2.0");
+
+        assertThat(table.tryForward(eids1), is(true));
+        assertThat(table.tryForward(eids("10.9.1.0")), is(false));
+        assertThat(table.tryForward(eids2), is(true));
+        assertThat(table.size(), is(2L));
+
+        now += TimeUnit.MILLISECONDS.toNanos(WINDOW);
+        assertThat(table.tryForward(eids1), is(true));
+
+        assertThat(table.forwardedRequests(), is(3L));
+        assertThat(table.coalescedRequests(), is(1L));
+    }
+
+    private List<LispEidRecord> eids(String address) {
+        return ImmutableList.of(new LispEidRecord((byte) 24,
+                new LispIpv4Address(IpAddress.valueOf(address))));
+    }
+}
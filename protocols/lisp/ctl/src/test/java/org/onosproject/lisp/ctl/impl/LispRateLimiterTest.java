@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.LispType;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for LISP rate limiter class.
+ */
+public class LispRateLimiterTest {
+
+    private static final int MAP_REQUEST_RATE = 10;
+    private static final int MAP_REGISTER_RATE = 1;
+
+    private static final int REQUEST = LispType.LISP_MAP_REQUEST.getTypeCode();
+    private static final int REGISTER = LispType.LISP_MAP_REGISTER.getTypeCode();
+    private static final int NOTIFY = LispType.LISP_MAP_NOTIFY.getTypeCode();
+
+    private final LispRateLimiter limiter = LispRateLimiter.getInstance();
+    private final InetAddress source1 = IpAddress.valueOf("10.1.1.1").toInetAddress();
+    private final InetAddress source2 = IpAddress.valueOf("10.1.1.2").toInetAddress();
+
+    @Before
+    public void setUp() {
+        limiter.configure(true, ImmutableMap.of(
+                LispType.LISP_MAP_REQUEST, MAP_REQUEST_RATE,
+                LispType.LISP_MAP_REGISTER, MAP_REGISTER_RATE));
+    }
+
+    @After
+    public void tearDown() {
+        limiter.configure(false, ImmutableMap.of());
+    }
+
+    /**
+     * Tests that each source and type has its own budget.
+     */
+    @Test
+    public void testPerSourceBudget() {
+        long now = 0;
+
+        // a burst of a second worth of map-requests is allowed
+        for (int i = 0; i < MAP_REQUEST_RATE; i++) {
+            assertThat(limiter.tryAcquire(source1, REQUEST, now), is(true));
+        }
+        assertThat(limiter.tryAcquire(source1, REQUEST, now), is(false));
+
+        // neither the other types nor the other sources are affected
+        assertThat(limiter.tryAcquire(source1, REGISTER, now), is(true));
+        assertThat(limiter.tryAcquire(source1, REGISTER, now), is(false));
+        assertThat(limiter.tryAcquire(source2, REQUEST, now), is(true));
+
+        // a type without budget is not limited
+        for (int i = 0; i < MAP_REQUEST_RATE * 2; i++) {
+            assertThat(limiter.tryAcquire(source1, NOTIFY, now), is(true));
+        }
+
+        // tokens are refilled in proportion to the elapsed time
+        now += TimeUnit.SECONDS.toNanos(1) / MAP_REQUEST_RATE;
+        assertThat(limiter.tryAcquire(source1, REQUEST, now), is(true));
+        assertThat(limiter.tryAcquire(source1, REQUEST, now), is(false));
+        assertThat(limiter.trackedSources(), is(2));
+    }
+}
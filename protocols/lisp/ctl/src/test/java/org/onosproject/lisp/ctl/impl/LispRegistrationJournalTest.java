@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator.DefaultLocatorBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRegister.DefaultRegisterBuilder;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRegister;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Tests for LISP registration journal class.
+ */
+public class LispRegistrationJournalTest {
+
+    private static final String EID_IP_PREFIX = "10.6.";
+    private static final String LOCATOR_IP = "123.8.1.1";
+    private static final String SENDER_IP = "192.168.1.1";
+    private static final int SENDER_PORT = 4342;
+
+    private static final int SEGMENT_SIZE = 512;
+    private static final int MAX_SEGMENTS = 2;
+    private static final int QUEUE_SIZE = 1024;
+    private static final int BATCH_SIZE = 16;
+
+    private static final int EID_COUNT = 4;
+    private static final int ROUNDS = 16;
+
+    private final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("lisp-journal");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (int i = 0; i < EID_COUNT; i++) {
+            mapDb.removeMapRecordByEid(eidRecord(i));
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    /**
+     * Tests journaling with segment rotation and compaction, and replaying
+     * the journal into the mapping database.
+     */
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        LispRegistrationJournal journal =
+                new LispRegistrationJournal(directory, SEGMENT_SIZE, MAX_SEGMENTS,
+                                            QUEUE_SIZE, BATCH_SIZE);
+        journal.start();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < EID_COUNT; i++) {
+                journal.append(register(i));
+            }
+        }
+        journal.stop();
+
+        assertThat("Failed to queue the registrations",
+                journal.droppedEvents(), is(0L));
+
+        // compaction keeps at most one registration per EID in sealed segments
+        List<LispRegistrationJournal.RegistrationEvent> events = Lists.newArrayList();
+        int replayed = journal.replay(events::add);
+        assertThat("Failed to compact the journal",
+                replayed, lessThan(EID_COUNT * ROUNDS));
+        assertThat(events.get(0).sender(),
+                is(new InetSocketAddress(SENDER_IP, SENDER_PORT)));
+
+        journal.replay(mapDb);
+        for (int i = 0; i < EID_COUNT; i++) {
+            assertThat("Failed to replay the registration",
+                    mapDb.getMapRecordByEidRecord(eidRecord(i), true), is(mapRecord(i)));
+        }
+    }
+
+    /**
+     * Tests appending to a stopped journal.
+     */
+    @Test
+    public void testAppendWhenStopped() throws IOException {
+        LispRegistrationJournal journal = new LispRegistrationJournal(directory);
+        journal.append(register(0));
+
+        List<LispRegistrationJournal.RegistrationEvent> events = Lists.newArrayList();
+        journal.replay(events::add);
+        assertThat(events, hasSize(0));
+    }
+
+    private LispEidRecord eidRecord(int index) {
+        return new LispEidRecord((byte) 24, eidAddress(index));
+    }
+
+    private LispIpv4Address eidAddress(int index) {
+        return new LispIpv4Address(IpAddress.valueOf(EID_IP_PREFIX + index + ".0"));
+    }
+
+    private LispMapRecord mapRecord(int index) {
+        LispIpv4Address locator = new LispIpv4Address(IpAddress.valueOf(LOCATOR_IP));
+        return new DefaultMapRecordBuilder()
+                .withMaskLength((byte) 24)
+                .withEidPrefixAfi(eidAddress(index))
+                .withLocators(ImmutableList.of(
+                        new DefaultLocatorBuilder().withLocatorAfi(locator).build()))
+                .withRecordTtl(60)
+                .build();
+    }
+
+    private LispMapRegister register(int index) {
+        LispMapRegister register = new DefaultRegisterBuilder()
+                .withIsProxyMapReply(true)
+                .withIsWantMapNotify(false)
+                .withKeyId((short) 1)
+                .withAuthKey("onos")
+                .withNonce(1L)
+                .withMapRecords(ImmutableList.of(mapRecord(index)))
+                .build();
+        register.configSender(new InetSocketAddress(SENDER_IP, SENDER_PORT));
+        return register;
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator.DefaultLocatorBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
+import org.onosproject.lisp.msg.protocols.LispEidRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRecord;
+import org.onosproject.lisp.msg.protocols.LispMapRequest;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for LISP RLOC prober class.
+ */
+public class LispRlocProberTest {
+
+    private static final long PROBE_INTERVAL = 100;
+    private static final int MAX_TICKS = 100;
+
+    private static final IpAddress EID = IpAddress.valueOf("10.20.1.0");
+    private static final IpAddress RLOC = IpAddress.valueOf("123.20.1.1");
+    private static final IpAddress PROBE_SOURCE = IpAddress.valueOf("192.0.2.1");
+    private static final IpAddress LOOPBACK = IpAddress.valueOf("127.0.0.1");
+
+    private final LispMappingDatabase mapDb = LispMappingDatabase.getInstance();
+    private final LispRlocProber prober = LispRlocProber.getInstance();
+    private final List<Boolean> reachabilityChanges = Lists.newArrayList();
+
+    private LispEidRecord eidRecord;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUp() {
+        eidRecord = new LispEidRecord((byte) 24, new LispIpv4Address(EID));
+        LispMapRecord mapRecord = new DefaultMapRecordBuilder()
+                .withMaskLength((byte) 24)
+                .withEidPrefixAfi(new LispIpv4Address(EID))
+                .withLocators(ImmutableList.of(new DefaultLocatorBuilder()
+                        .withLocatorAfi(new LispIpv4Address(RLOC)).build()))
+                .withRecordTtl(60)
+                .build();
+        mapDb.putMapRecord(eidRecord, mapRecord, false);
+
+        channel = new EmbeddedChannel();
+        prober.setChannel(channel);
+    }
+
+    @After
+    public void tearDown() {
+        prober.stop();
+        prober.setChannel(null);
+        mapDb.removeMapRecordByEid(eidRecord);
+        channel.finishAndReleaseAll();
+    }
+
+    private void start(IpAddress localRloc) {
+        prober.start(PROBE_INTERVAL, localRloc, (rloc, reachable) -> {
+            if (rloc.equals(RLOC)) {
+                reachabilityChanges.add(reachable);
+            }
+        }, false);
+    }
+
+    /**
+     * Advances the wheel until a probe is sent to the RLOC under test. The
+     * probes to the RLOCs of the other records are skipped.
+     *
+     * @return probe map-request, or null if none has been sent
+     */
+    private LispMapRequest nextProbe() {
+        for (int i = 0; i < MAX_TICKS; i++) {
+            prober.tick();
+            List<LispMessage> probes;
+            while ((probes = channel.readOutbound()) != null) {
+                for (LispMessage probe : probes) {
+                    if (probe.getSender().getAddress().equals(RLOC.toInetAddress())) {
+                        return (LispMapRequest) probe;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tests that a probe carries the configured RLOC, and that a replied
+     * probe keeps the RLOC reachable.
+     */
+    @Test
+    public void testProbeAndReply() {
+        start(PROBE_SOURCE);
+
+        LispMapRequest probe = nextProbe();
+        assertThat(probe, is(notNullValue()));
+        assertThat(probe.isProbe(), is(true));
+        assertThat(probe.getItrRlocs(), contains(new LispIpv4Address(PROBE_SOURCE)));
+        assertThat(probe.getEids(), contains(eidRecord));
+
+        prober.handleProbeReply(probe.getNonce());
+        assertThat(nextProbe(), is(notNullValue()));
+        assertThat(prober.isReachable(RLOC), is(true));
+        assertThat(reachabilityChanges.isEmpty(), is(true));
+    }
+
+    /**
+     * Tests that an RLOC becomes unreachable after missing consecutive
+     * probes, and reachable again once it replies.
+     */
+    @Test
+    public void testMissAndUnreachable() {
+        start(PROBE_SOURCE);
+
+        // the first two misses are tolerated
+        nextProbe();
+        nextProbe();
+        nextProbe();
+        assertThat(prober.isReachable(RLOC), is(true));
+
+        // the third miss is found once the next probe is due
+        LispMapRequest probe = nextProbe();
+        assertThat(prober.isReachable(RLOC), is(false));
+        assertThat(reachabilityChanges, contains(false));
+
+        prober.handleProbeReply(probe.getNonce());
+        assertThat(nextProbe(), is(notNullValue()));
+        assertThat(prober.isReachable(RLOC), is(true));
+        assertThat(reachabilityChanges, contains(false, true));
+    }
+
+    /**
+     * Tests that no probe carries a loopback or wildcard RLOC, so that
+     * unanswerable probes do not make the RLOCs unreachable.
+     */
+    @Test
+    public void testNoLoopbackRloc() {
+        assertThat(LispRlocProber.isUsableRloc(LOOPBACK), is(false));
+        assertThat(LispRlocProber.isUsableRloc(IpAddress.valueOf("0.0.0.0")), is(false));
+        assertThat(LispRlocProber.isUsableRloc(PROBE_SOURCE), is(true));
+
+        start(LOOPBACK);
+        assertThat(nextProbe(), is(nullValue()));
+
+        // the embedded channel has no IP address to fall back on
+        prober.stop();
+        start(null);
+        assertThat(nextProbe(), is(nullValue()));
+        assertThat(prober.isReachable(RLOC), is(true));
+        assertThat(reachabilityChanges.isEmpty(), is(true));
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl;
+
+import com.google.common.collect.Lists;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.ctl.LispRouter;
+import org.onosproject.lisp.ctl.LispRouterAgent;
+import org.onosproject.lisp.ctl.LispRouterFactory;
+import org.onosproject.lisp.ctl.LispRouterId;
+import org.onosproject.lisp.msg.protocols.LispMessage;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for LISP router sweeper class.
+ */
+public class LispRouterSweeperTest {
+
+    private static final long TICK_MS = 1000;
+    private static final long IDLE_TIMEOUT = 10000;
+    private static final long START_TIME = 1000000;
+
+    private static final IpAddress ROUTER = IpAddress.valueOf("192.0.2.10");
+
+    private final LispRouterFactory routerFactory = LispRouterFactory.getInstance();
+    private final LispRouterRegistry registry = LispRouterRegistry.getInstance();
+    private final LispRouterSweeper sweeper = LispRouterSweeper.getInstance();
+    private final List<IpAddress> removedRouters = Lists.newArrayList();
+
+    private final LispRouterAgent agent = new LispRouterAgent() {
+        @Override
+        public boolean addConnectedRouter(LispRouterId routerId, LispRouter router) {
+            return true;
+        }
+
+        @Override
+        public void removeConnectedRouter(LispRouterId routerId) {
+        }
+
+        @Override
+        public void processUpstreamMessage(LispRouterId routerId, LispMessage message) {
+        }
+
+        @Override
+        public void processDownstreamMessage(LispRouterId routerId, LispMessage message) {
+        }
+
+        @Override
+        public void updateRouterSubscription(LispRouterId routerId, boolean subscribed) {
+        }
+    };
+
+    private EmbeddedChannel channel;
+    private long now;
+
+    @Before
+    public void setUp() {
+        routerFactory.setAgent(agent);
+        registry.clear();
+        sweeper.start(IDLE_TIMEOUT, routerId -> removedRouters.add(routerId.id()), false);
+
+        channel = new EmbeddedChannel();
+        now = START_TIME;
+        registry.getRouter(ROUTER, channel, now);
+    }
+
+    @After
+    public void tearDown() {
+        sweeper.stop();
+        registry.clear();
+        routerFactory.cleanAgent();
+    }
+
+    /**
+     * Tests that a silent router becomes suspect at its deadline, and is
+     * only removed after the hold time.
+     */
+    @Test
+    public void testSuspectAndRemove() {
+        long swept = sweeper.sweptRouters();
+
+        // the router is placed into the wheel at the first tick
+        advance(10);
+        assertThat(sweeper.suspectRouters(), is(0));
+
+        advance(1);
+        assertThat(sweeper.suspectRouters(), is(1));
+        assertThat(registry.getLastSeen(ROUTER), is(START_TIME));
+
+        // hold for the half of the idle timeout
+        advance(4);
+        assertThat(sweeper.suspectRouters(), is(1));
+        assertThat(removedRouters, empty());
+
+        advance(1);
+        assertThat(sweeper.suspectRouters(), is(0));
+        assertThat(sweeper.sweptRouters(), is(swept + 1));
+        assertThat(registry.getLastSeen(ROUTER), is(0L));
+        assertThat(removedRouters, contains(ROUTER));
+    }
+
+    /**
+     * Tests that a suspect router which is seen again is no longer suspect,
+     * and is not removed.
+     */
+    @Test
+    public void testSeenAgain() {
+        long swept = sweeper.sweptRouters();
+        advance(11);
+        assertThat(sweeper.suspectRouters(), is(1));
+
+        registry.getRouter(ROUTER, channel, now);
+        advance(5);
+        assertThat(sweeper.suspectRouters(), is(0));
+        assertThat(sweeper.sweptRouters(), is(swept));
+        assertThat(registry.getLastSeen(ROUTER), not(0L));
+        assertThat(removedRouters, empty());
+    }
+
+    /**
+     * Tests that a router which has been seen after it was found silent is
+     * not removed.
+     */
+    @Test
+    public void testConditionalRemove() {
+        assertThat(registry.removeRouter(ROUTER, START_TIME - TICK_MS), is(false));
+        assertThat(registry.getLastSeen(ROUTER), is(START_TIME));
+
+        assertThat(registry.removeRouter(ROUTER, START_TIME), is(true));
+        assertThat(registry.getLastSeen(ROUTER), is(0L));
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            now += TICK_MS;
+            sweeper.tick(now);
+        }
+    }
+}
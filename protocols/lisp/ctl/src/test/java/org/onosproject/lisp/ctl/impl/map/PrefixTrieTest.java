@@ -0,0 +1,157 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.ctl.impl.map;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+import org.onosproject.lisp.msg.types.LispIpv6Address;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Unit tests for persistent prefix trie.
+ */
+public class PrefixTrieTest {
+
+    private static final byte[] PREFIX_10_0_0_0 = {10, 0, 0, 0};
+    private static final byte[] PREFIX_10_1_0_0 = {10, 1, 0, 0};
+    private static final byte[] PREFIX_10_1_1_0 = {10, 1, 1, 0};
+    private static final byte[] ADDRESS_10_1_1_1 = {10, 1, 1, 1};
+    private static final byte[] ADDRESS_10_2_1_1 = {10, 2, 1, 1};
+    private static final byte[] ADDRESS_11_1_1_1 = {11, 1, 1, 1};
+    private static final byte[] PREFIX_20_0_0_0 = {20, 0, 0, 0};
+    private static final byte[] PREFIX_20_128_0_0 = {20, (byte) 128, 0, 0};
+    private static final byte[] ADDRESS_20_1_1_1 = {20, 1, 1, 1};
+
+    private PrefixTrie<String> trie;
+
+    @Before
+    public void setUp() {
+        trie = new PrefixTrie<>(32);
+        trie.put(PREFIX_10_0_0_0, 8, "10/8");
+        trie.put(PREFIX_10_1_0_0, 16, "10.1/16");
+        trie.put(PREFIX_10_1_1_0, 24, "10.1.1/24");
+    }
+
+    /**
+     * Tests longest prefix match and covering prefix lookup.
+     */
+    @Test
+    public void testMatches() {
+        assertThat(trie.longestMatch(ADDRESS_10_1_1_1, 32), is("10.1.1/24"));
+        assertThat(trie.longestMatch(ADDRESS_10_2_1_1, 32), is("10/8"));
+        assertThat(trie.longestMatch(ADDRESS_11_1_1_1, 32), nullValue());
+
+        assertThat(trie.matches(ADDRESS_10_1_1_1, 32),
+                   contains("10.1.1/24", "10.1/16", "10/8"));
+        assertThat(trie.matches(PREFIX_10_1_0_0, 16), contains("10.1/16", "10/8"));
+        assertThat(trie.matches(ADDRESS_11_1_1_1, 32), empty());
+    }
+
+    /**
+     * Tests visiting the more specific prefixes of a prefix.
+     */
+    @Test
+    public void testForEachCovered() {
+        List<String> covered = Lists.newArrayList();
+        trie.forEachCovered(PREFIX_10_1_0_0, 16, covered::add);
+        assertThat(covered, contains("10.1/16", "10.1.1/24"));
+
+        covered.clear();
+        trie.forEachCovered(ADDRESS_11_1_1_1, 8, covered::add);
+        assertThat(covered, empty());
+    }
+
+    /**
+     * Tests replacement and removal of prefixes.
+     */
+    @Test
+    public void testPutAndRemove() {
+        assertThat(trie.size(), is(3));
+        assertThat(trie.put(PREFIX_10_1_0_0, 16, "new"), is("10.1/16"));
+        assertThat(trie.size(), is(3));
+        assertThat(trie.get(PREFIX_10_1_0_0, 16), is("new"));
+
+        assertThat(trie.remove(PREFIX_10_1_1_0, 24), is("10.1.1/24"));
+        assertThat(trie.remove(PREFIX_10_1_1_0, 24), nullValue());
+        assertThat(trie.size(), is(2));
+        assertThat(trie.longestMatch(ADDRESS_10_1_1_1, 32), is("new"));
+    }
+
+    /**
+     * Tests merging and splitting of sibling prefixes with equal values.
+     */
+    @Test
+    public void testAggregation() {
+        PrefixTrie<String> aggregated = new PrefixTrie<>(32, String::equals);
+        aggregated.put(PREFIX_20_0_0_0, 9, "a");
+        aggregated.put(PREFIX_20_128_0_0, 9, "a");
+
+        PrefixTrie.Aggregate<String> aggregate =
+                aggregated.aggregate(ADDRESS_20_1_1_1, 32);
+        assertThat(aggregate.maskLength(), is(8));
+        assertThat(aggregate.address(), is(PREFIX_20_0_0_0));
+        assertThat(aggregate.value(), is("a"));
+
+        List<Integer> maskLengths = Lists.newArrayList();
+        aggregated.forEachAggregate(entry -> maskLengths.add(entry.maskLength()));
+        assertThat(maskLengths, contains(8));
+
+        aggregated.put(PREFIX_20_128_0_0, 9, "b");
+        aggregate = aggregated.aggregate(ADDRESS_20_1_1_1, 32);
+        assertThat(aggregate.maskLength(), is(9));
+        assertThat(aggregate.value(), is("a"));
+
+        maskLengths.clear();
+        aggregated.forEachAggregate(entry -> maskLengths.add(entry.maskLength()));
+        assertThat(maskLengths, contains(9, 9));
+
+        assertThat(trie.aggregate(ADDRESS_10_1_1_1, 32), nullValue());
+    }
+
+    /**
+     * Tests prefixes which are keyed on LISP IP addresses, interchangeably
+     * with their address bytes.
+     */
+    @Test
+    public void testLispIpAddressKeys() {
+        LispIpv4Address address = new LispIpv4Address(0x0a010101);
+        assertThat(trie.longestMatch(address, 32), is("10.1.1/24"));
+        assertThat(trie.matches(address, 16), contains("10.1/16", "10/8"));
+        assertThat(trie.get(new LispIpv4Address(0x0a010000), 16), is("10.1/16"));
+
+        assertThat(trie.put(new LispIpv4Address(0x0b000000), 8, "11/8"), nullValue());
+        assertThat(trie.longestMatch(ADDRESS_11_1_1_1, 32), is("11/8"));
+        assertThat(trie.remove(new LispIpv4Address(0x0b000000), 8), is("11/8"));
+
+        PrefixTrie<String> aggregated = new PrefixTrie<>(128, String::equals);
+        aggregated.put(new LispIpv6Address(0x20010db800000000L, 0L), 33, "a");
+        aggregated.put(new LispIpv6Address(0x20010db880000000L, 0L), 33, "a");
+
+        PrefixTrie.Aggregate<String> aggregate =
+                aggregated.aggregate(new LispIpv6Address(0x20010db800000000L, 1L), 128);
+        assertThat(aggregate.maskLength(), is(32));
+        assertThat(aggregate.prefix(), is(new LispIpv6Address(0x20010db800000000L, 0L)));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.MapRecordReader;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Abstract flyweight view of a LISP message which carries map records.
+ * <p>
+ * The offsets of the records are found by walking over the records once,
+ * without materializing them, when a record is accessed for the first time.
+ */
+public abstract class AbstractLispMapRecordsView extends AbstractLispMessageView {
+
+    private static final int RECORD_COUNT_INDEX = 3;
+
+    // record TTL (4), locator count (1), mask length (1), action (1),
+    // reserved (1) and map version number (2) precede the EID prefix
+    private static final int RECORD_TTL_OFFSET = 0;
+    private static final int LOCATOR_COUNT_OFFSET = 4;
+    private static final int MASK_LENGTH_OFFSET = 5;
+    private static final int EID_PREFIX_OFFSET = 10;
+
+    // priorities and weights (4) and flags (2) precede the locator address
+    private static final int LOCATOR_ADDRESS_OFFSET = 6;
+
+    private int[] recordOffsets;
+
+    /**
+     * Creates a view over the given buffer.
+     *
+     * @param content buffer which holds the message from index 0
+     */
+    protected AbstractLispMapRecordsView(ByteBuf content) {
+        super(content);
+    }
+
+    /**
+     * Obtains the index of the first record.
+     *
+     * @return index of the first record
+     */
+    protected abstract int recordsIndex();
+
+    /**
+     * Obtains record count value.
+     *
+     * @return record count value
+     */
+    public int getRecordCount() {
+        return content.getUnsignedByte(RECORD_COUNT_INDEX);
+    }
+
+    /**
+     * Obtains the TTL of a record, without materializing the record.
+     *
+     * @param index index of the record
+     * @return record TTL
+     * @throws LispParseError if the records cannot be walked over
+     */
+    public int getRecordTtl(int index) throws LispParseError {
+        return content.getInt(recordOffset(index) + RECORD_TTL_OFFSET);
+    }
+
+    /**
+     * Obtains the locator count of a record, without materializing the
+     * record.
+     *
+     * @param index index of the record
+     * @return locator count
+     * @throws LispParseError if the records cannot be walked over
+     */
+    public int getLocatorCount(int index) throws LispParseError {
+        return content.getUnsignedByte(recordOffset(index) + LOCATOR_COUNT_OFFSET);
+    }
+
+    /**
+     * Obtains the EID mask length of a record, without materializing the
+     * record.
+     *
+     * @param index index of the record
+     * @return EID mask length
+     * @throws LispParseError if the records cannot be walked over
+     */
+    public byte getMaskLength(int index) throws LispParseError {
+        return content.getByte(recordOffset(index) + MASK_LENGTH_OFFSET);
+    }
+
+    /**
+     * Materializes the EID prefix of a record, but not its locators.
+     *
+     * @param index index of the record
+     * @return EID prefix
+     * @throws LispParseError if the record cannot be parsed
+     * @throws LispReaderException if the record cannot be read
+     */
+    public LispAfiAddress getEidPrefixAfi(int index)
+            throws LispParseError, LispReaderException {
+        return readAddress(recordOffset(index) + EID_PREFIX_OFFSET);
+    }
+
+    /**
+     * Materializes a record along with its locators.
+     *
+     * @param index index of the record
+     * @return map record
+     * @throws LispParseError if the record cannot be parsed
+     * @throws LispReaderException if the record cannot be read
+     */
+    public LispMapRecord getMapRecord(int index)
+            throws LispParseError, LispReaderException {
+        ByteBuf byteBuf = content.duplicate().readerIndex(recordOffset(index));
+        return new MapRecordReader().readFrom(byteBuf);
+    }
+
+    /**
+     * Materializes all records.
+     *
+     * @return a collection of map records
+     * @throws LispParseError if a record cannot be parsed
+     * @throws LispReaderException if a record cannot be read
+     */
+    public List<LispMapRecord> getMapRecords()
+            throws LispParseError, LispReaderException {
+        int count = getRecordCount();
+        List<LispMapRecord> records = Lists.newArrayListWithCapacity(count);
+        ByteBuf byteBuf = content.duplicate().readerIndex(recordsIndex());
+        MapRecordReader reader = new MapRecordReader();
+        for (int i = 0; i < count; i++) {
+            records.add(reader.readFrom(byteBuf));
+        }
+        return records;
+    }
+
+    /**
+     * Obtains the offset of a record, walking over the records on the first
+     * access.
+     *
+     * @param index index of the record
+     * @return offset of the record
+     * @throws LispParseError if the records cannot be walked over
+     */
+    private int recordOffset(int index) throws LispParseError {
+        int count = getRecordCount();
+        checkElementIndex(index, count);
+
+        if (recordOffsets == null) {
+            int[] offsets = new int[count];
+            int offset = recordsIndex();
+            for (int i = 0; i < count; i++) {
+                offsets[i] = offset;
+                int locatorCount = content.getUnsignedByte(offset + LOCATOR_COUNT_OFFSET);
+                offset = skipAddress(offset + EID_PREFIX_OFFSET);
+                for (int j = 0; j < locatorCount; j++) {
+                    offset = skipAddress(offset + LOCATOR_ADDRESS_OFFSET);
+                }
+            }
+            recordOffsets = offsets;
+        }
+        return recordOffsets[index];
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import io.netty.buffer.ByteBuf;
+import org.onlab.packet.DeserializationException;
+import org.onlab.util.ByteOperator;
+import org.onosproject.lisp.msg.authentication.LispAuthenticationFactory;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+import org.onosproject.lisp.msg.types.LispAfiAddress.AfiAddressReader;
+
+import java.net.InetSocketAddress;
+
+import static org.onosproject.lisp.msg.authentication.LispAuthenticationKeyEnum.valueOf;
+
+/**
+ * Abstract flyweight view of a LISP message, whose buffer starts at index 0.
+ */
+public abstract class AbstractLispMessageView implements LispMessageView {
+
+    protected static final int NONCE_INDEX = 4;
+    protected static final int KEY_ID_INDEX = 12;
+    protected static final int AUTH_DATA_LENGTH_INDEX = 14;
+    protected static final int AUTH_DATA_INDEX = 16;
+
+    private static final int AFI_LENGTH = 2;
+    private static final int AFI_NO_ADDRESS = 0;
+    private static final int AFI_IP4 = 1;
+    private static final int AFI_IP6 = 2;
+    private static final int AFI_DISTINGUISHED_NAME = 17;
+    private static final int AFI_LCAF = 16387;
+    private static final int AFI_MAC = 16389;
+    private static final int IP4_LENGTH = 4;
+    private static final int IP6_LENGTH = 16;
+    private static final int MAC_LENGTH = 6;
+    private static final int LCAF_HEADER_LENGTH = 8;
+    private static final int LCAF_LENGTH_INDEX = 6;
+
+    protected final ByteBuf content;
+    private InetSocketAddress sender;
+
+    /**
+     * Creates a view over the given buffer.
+     *
+     * @param content buffer which holds the message from index 0
+     */
+    protected AbstractLispMessageView(ByteBuf content) {
+        this.content = content;
+    }
+
+    @Override
+    public long getNonce() {
+        return content.getLong(NONCE_INDEX);
+    }
+
+    @Override
+    public ByteBuf content() {
+        return content;
+    }
+
+    @Override
+    public void configSender(InetSocketAddress sender) {
+        this.sender = sender;
+    }
+
+    @Override
+    public InetSocketAddress getSender() {
+        return sender;
+    }
+
+    @Override
+    public LispMessage toMessage() throws LispParseError, LispReaderException,
+            DeserializationException {
+        ByteBuf byteBuf = content.duplicate().readerIndex(0);
+        LispMessageReader reader = LispMessageReaderFactory.getReader(byteBuf);
+        LispMessage message = (LispMessage) reader.readFrom(byteBuf);
+        if (sender != null) {
+            message.configSender(sender);
+        }
+        return message;
+    }
+
+    /**
+     * Obtains a flag bit of the message.
+     *
+     * @param index index of the byte
+     * @param bit   index of the bit in the byte
+     * @return flag value
+     */
+    protected boolean getFlag(int index, int bit) {
+        return ByteOperator.getBit(content.getByte(index), bit);
+    }
+
+    /**
+     * Obtains the key identifier of an authenticated message.
+     *
+     * @return key identifier
+     */
+    protected short keyId() {
+        return content.getShort(KEY_ID_INDEX);
+    }
+
+    /**
+     * Obtains the authentication data length of an authenticated message.
+     *
+     * @return authentication data length
+     */
+    protected short authDataLength() {
+        return content.getShort(AUTH_DATA_LENGTH_INDEX);
+    }
+
+    /**
+     * Obtains a copy of the authentication data of an authenticated message.
+     *
+     * @return authentication data
+     */
+    protected byte[] authData() {
+        byte[] authData = new byte[authDataLength() & 0xffff];
+        content.getBytes(AUTH_DATA_INDEX, authData);
+        return authData;
+    }
+
+    /**
+     * Checks the authentication data of an authenticated message against
+     * the one calculated over the message bytes as they are, with the
+     * authentication data set to zero.
+     *
+     * @param authKey authentication key
+     * @return true if the authentication data matches
+     */
+    protected boolean authenticate(String authKey) {
+        int authLength = authDataLength() & 0xffff;
+        byte[] bytes = new byte[content.readableBytes()];
+        content.getBytes(0, bytes);
+        for (int i = AUTH_DATA_INDEX; i < AUTH_DATA_INDEX + authLength; i++) {
+            bytes[i] = 0;
+        }
+
+        byte[] expected = LispAuthenticationFactory.getInstance()
+                .createAuthenticationData(valueOf(keyId()), authKey, bytes);
+        if (expected == null || expected.length != authLength) {
+            return false;
+        }
+        for (int i = 0; i < authLength; i++) {
+            if (expected[i] != content.getByte(AUTH_DATA_INDEX + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Materializes the AFI-encoded address at the given index.
+     *
+     * @param index index of the address family identifier
+     * @return LISP address
+     * @throws LispParseError if the address cannot be parsed
+     * @throws LispReaderException if the address cannot be read
+     */
+    protected LispAfiAddress readAddress(int index)
+            throws LispParseError, LispReaderException {
+        return new AfiAddressReader().readFrom(content.duplicate().readerIndex(index));
+    }
+
+    /**
+     * Skips the AFI-encoded address at the given index, without
+     * materializing it.
+     *
+     * @param index index of the address family identifier
+     * @return index next to the address
+     * @throws LispParseError if the address family is not supported
+     */
+    protected int skipAddress(int index) throws LispParseError {
+        int afi = content.getUnsignedShort(index);
+        switch (afi) {
+            case AFI_NO_ADDRESS:
+                return index + AFI_LENGTH;
+            case AFI_IP4:
+                return index + AFI_LENGTH + IP4_LENGTH;
+            case AFI_IP6:
+                return index + AFI_LENGTH + IP6_LENGTH;
+            case AFI_MAC:
+                return index + AFI_LENGTH + MAC_LENGTH;
+            case AFI_LCAF:
+                return index + LCAF_HEADER_LENGTH +
+                        content.getUnsignedShort(index + LCAF_LENGTH_INDEX);
+            case AFI_DISTINGUISHED_NAME:
+                // a distinguished name is read up to the end of the message
+                return content.writerIndex();
+            default:
+                throw new LispParseError("Unsupported address family: " + afi);
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.onosproject.lisp.msg.protocols;
 
 import com.google.common.base.Objects;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import org.onlab.packet.Data;
 import org.onlab.packet.DeserializationException;
@@ -207,8 +208,7 @@ public final class DefaultLispEncapsulatedControl extends AbstractLispMessage
 
             UDP innerUdp = (UDP) innerIpHeader.getPayload();
             Data data = (Data) innerUdp.getPayload();
-            ByteBuf msgBuffer = Unpooled.buffer();
-            msgBuffer.writeBytes(data.getData());
+            ByteBuf msgBuffer = Unpooled.wrappedBuffer(data.getData());
 
             LispMessageReader reader = LispMessageReaderFactory.getReader(msgBuffer);
             LispMessage innerMessage = (LispMessage) reader.readFrom(msgBuffer);
@@ -254,10 +254,15 @@ public final class DefaultLispEncapsulatedControl extends AbstractLispMessage
             byteBuf.writeByte((byte) UNUSED_ZERO);
             byteBuf.writeByte((byte) UNUSED_ZERO);
 
-            ByteBuf buffer = Unpooled.buffer();
-            message.getControlMessage().writeTo(buffer);
-            byte[] dataBytes = new byte[buffer.writerIndex()];
-            buffer.getBytes(0, dataBytes, 0, buffer.writerIndex());
+            ByteBuf buffer = PooledByteBufAllocator.DEFAULT.heapBuffer();
+            byte[] dataBytes;
+            try {
+                message.getControlMessage().writeTo(buffer);
+                dataBytes = new byte[buffer.writerIndex()];
+                buffer.getBytes(0, dataBytes, 0, buffer.writerIndex());
+            } finally {
+                buffer.release();
+            }
 
             message.innerUdp().setPayload(new Data(dataBytes));
             message.innerIpHeader().setPayload(message.innerUdp());
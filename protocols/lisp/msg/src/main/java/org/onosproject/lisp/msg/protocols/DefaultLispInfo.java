@@ -17,15 +17,12 @@ package org.onosproject.lisp.msg.protocols;
 
 import io.netty.buffer.ByteBuf;
 import org.onlab.util.ByteOperator;
-import org.onlab.util.ImmutableByteSequence;
 import org.onosproject.lisp.msg.exceptions.LispParseError;
 import org.onosproject.lisp.msg.exceptions.LispReaderException;
 import org.onosproject.lisp.msg.exceptions.LispWriterException;
 import org.onosproject.lisp.msg.types.LispAfiAddress;
 import org.onosproject.lisp.msg.types.LispAfiAddress.AfiAddressWriter;
 
-import java.util.Arrays;
-
 /**
  * A class that contains a set of helper methods for LISP info request and reply.
  */
@@ -114,12 +111,27 @@ public class DefaultLispInfo extends AbstractLispMessage implements LispInfo {
     @Override
     public byte[] getAuthData() {
         if (authData != null && authData.length != 0) {
-            return ImmutableByteSequence.copyFrom(authData).asArray();
+            return authData.clone();
         } else {
             return new byte[0];
         }
     }
 
+    /**
+     * Obtains the authentication data of the given message, without copying
+     * it if the message is of this class.
+     *
+     * @param message LISP message
+     * @return authentication data
+     */
+    private static byte[] authData(LispInfo message) {
+        if (message instanceof DefaultLispInfo) {
+            byte[] authData = ((DefaultLispInfo) message).authData;
+            return authData != null ? authData : new byte[0];
+        }
+        return message.getAuthData();
+    }
+
     @Override
     public int getTtl() {
         return ttl;
@@ -203,14 +215,7 @@ public class DefaultLispInfo extends AbstractLispMessage implements LispInfo {
         byteBuf.writeShort(message.getAuthDataLength());
 
         // authentication data
-        byte[] data = message.getAuthData();
-        byte[] clone;
-        if (data != null) {
-            clone = data.clone();
-            Arrays.fill(clone, (byte) UNUSED_ZERO);
-        }
-
-        byteBuf.writeBytes(data);
+        byteBuf.writeBytes(authData(message));
 
         /// TTL
         byteBuf.writeInt(message.getTtl());
@@ -17,7 +17,7 @@ package org.onosproject.lisp.msg.protocols;
 
 import com.google.common.base.Objects;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.onosproject.lisp.msg.types.LispAfiAddress;
 import org.onosproject.lisp.msg.authentication.LispAuthenticationFactory;
 import org.onosproject.lisp.msg.authentication.LispAuthenticationKeyEnum;
@@ -166,7 +166,7 @@ public final class DefaultLispInfoReply extends DefaultLispInfo implements LispI
         @Override
         public InfoReplyBuilder withAuthData(byte[] authenticationData) {
             if (authenticationData != null) {
-                this.authData = authenticationData;
+                this.authData = authenticationData.clone();
             }
             return this;
         }
@@ -214,17 +214,19 @@ public final class DefaultLispInfoReply extends DefaultLispInfo implements LispI
                 Arrays.fill(tmpAuthData, (byte) 0);
                 authData = tmpAuthData;
 
-                ByteBuf byteBuf = Unpooled.buffer();
+                ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+                byte[] bytes;
                 try {
                     new DefaultLispInfoReply(infoReply, nonce, keyId, authDataLength,
                             authData, ttl, maskLength, eidPrefix, natLcafAddress).writeTo(byteBuf);
                 } catch (LispWriterException e) {
                     log.warn("Failed to serialize info reply", e);
+                } finally {
+                    bytes = new byte[byteBuf.readableBytes()];
+                    byteBuf.readBytes(bytes);
+                    byteBuf.release();
                 }
 
-                byte[] bytes = new byte[byteBuf.readableBytes()];
-                byteBuf.readBytes(bytes);
-
                 if (authKey == null) {
                     log.warn("Must specify authentication key");
                 }
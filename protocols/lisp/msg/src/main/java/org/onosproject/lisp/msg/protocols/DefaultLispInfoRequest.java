@@ -17,7 +17,7 @@ package org.onosproject.lisp.msg.protocols;
 
 import com.google.common.base.Objects;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.onosproject.lisp.msg.authentication.LispAuthenticationFactory;
 import org.onosproject.lisp.msg.exceptions.LispParseError;
 import org.onosproject.lisp.msg.exceptions.LispReaderException;
@@ -158,7 +158,7 @@ public class DefaultLispInfoRequest extends DefaultLispInfo
         @Override
         public InfoRequestBuilder withAuthData(byte[] authenticationData) {
             if (authenticationData != null) {
-                this.authData = authenticationData;
+                this.authData = authenticationData.clone();
             }
             return this;
         }
@@ -201,7 +201,8 @@ public class DefaultLispInfoRequest extends DefaultLispInfo
                 Arrays.fill(tmpAuthData, (byte) 0);
                 authData = tmpAuthData;
 
-                ByteBuf byteBuf = Unpooled.buffer();
+                ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+                byte[] bytes;
                 try {
                     new DefaultLispInfoRequest(infoReply, nonce, keyId,
                                                authDataLength, authData, ttl,
@@ -209,11 +210,12 @@ public class DefaultLispInfoRequest extends DefaultLispInfo
                             .writeTo(byteBuf);
                 } catch (LispWriterException e) {
                     log.warn("Failed to serialize info request", e);
+                } finally {
+                    bytes = new byte[byteBuf.readableBytes()];
+                    byteBuf.readBytes(bytes);
+                    byteBuf.release();
                 }
 
-                byte[] bytes = new byte[byteBuf.readableBytes()];
-                byteBuf.readBytes(bytes);
-
                 if (authKey == null) {
                     log.warn("Must specify authentication key");
                 }
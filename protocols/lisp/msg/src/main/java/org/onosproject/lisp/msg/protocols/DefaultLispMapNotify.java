@@ -19,8 +19,7 @@ import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
-import org.onlab.util.ImmutableByteSequence;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.onosproject.lisp.msg.exceptions.LispParseError;
 import org.onosproject.lisp.msg.exceptions.LispReaderException;
 import org.onosproject.lisp.msg.authentication.LispAuthenticationFactory;
@@ -71,7 +70,7 @@ public final class DefaultLispMapNotify extends AbstractLispMessage
         this.keyId = keyId;
         this.authDataLength = authDataLength;
         this.authData = authData;
-        this.mapRecords = mapRecords;
+        this.mapRecords = ImmutableList.copyOf(mapRecords);
     }
 
     @Override
@@ -112,15 +111,30 @@ public final class DefaultLispMapNotify extends AbstractLispMessage
     @Override
     public byte[] getAuthData() {
         if (authData != null && authData.length != 0) {
-            return ImmutableByteSequence.copyFrom(authData).asArray();
+            return authData.clone();
         } else {
             return new byte[0];
         }
     }
 
+    /**
+     * Obtains the authentication data of the given message, without copying
+     * it if the message is of this class.
+     *
+     * @param message LISP message
+     * @return authentication data
+     */
+    private static byte[] authData(LispMapNotify message) {
+        if (message instanceof DefaultLispMapNotify) {
+            byte[] authData = ((DefaultLispMapNotify) message).authData;
+            return authData != null ? authData : new byte[0];
+        }
+        return message.getAuthData();
+    }
+
     @Override
     public List<LispMapRecord> getMapRecords() {
-        return ImmutableList.copyOf(mapRecords);
+        return mapRecords;
     }
 
     @Override
@@ -196,7 +210,7 @@ public final class DefaultLispMapNotify extends AbstractLispMessage
         @Override
         public NotifyBuilder withAuthData(byte[] authData) {
             if (authData != null) {
-                this.authData = authData;
+                this.authData = authData.clone();
             } else {
                 this.authData = new byte[0];
             }
@@ -223,17 +237,19 @@ public final class DefaultLispMapNotify extends AbstractLispMessage
                 Arrays.fill(tmpAuthData, (byte) 0);
                 authData = tmpAuthData;
 
-                ByteBuf byteBuf = Unpooled.buffer();
+                ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+                byte[] bytes;
                 try {
                     new DefaultLispMapNotify(nonce, keyId, authDataLength,
                             authData, mapRecords).writeTo(byteBuf);
                 } catch (LispWriterException e) {
                     log.warn("Failed to serialize map notify message", e);
+                } finally {
+                    bytes = new byte[byteBuf.readableBytes()];
+                    byteBuf.readBytes(bytes);
+                    byteBuf.release();
                 }
 
-                byte[] bytes = new byte[byteBuf.readableBytes()];
-                byteBuf.readBytes(bytes);
-
                 if (authKey == null) {
                     log.warn("Must specify authentication key");
                 }
@@ -322,12 +338,9 @@ public final class DefaultLispMapNotify extends AbstractLispMessage
             byteBuf.writeShort(message.getKeyId());
 
             // authentication data and its length
-            if (message.getAuthData() == null) {
-                byteBuf.writeShort((short) 0);
-            } else {
-                byteBuf.writeShort(message.getAuthData().length);
-                byteBuf.writeBytes(message.getAuthData());
-            }
+            byte[] authData = authData(message);
+            byteBuf.writeShort(authData.length);
+            byteBuf.writeBytes(authData);
 
             // serialize map records
             MapRecordWriter writer = new MapRecordWriter();
@@ -62,7 +62,7 @@ public final class DefaultLispMapRecord extends AbstractLispRecord
                                  short mapVersionNumber, LispAfiAddress eidPrefixAfi,
                                  List<LispLocator> locators) {
         super(recordTtl, maskLength, action, authoritative, mapVersionNumber, eidPrefixAfi);
-        this.locators = locators;
+        this.locators = ImmutableList.copyOf(locators);
     }
 
     @Override
@@ -72,7 +72,7 @@ public final class DefaultLispMapRecord extends AbstractLispRecord
 
     @Override
     public List<LispLocator> getLocators() {
-        return ImmutableList.copyOf(locators);
+        return locators;
     }
 
     @Override
@@ -60,7 +60,7 @@ public final class DefaultLispMapReferral extends AbstractLispMessage
     private DefaultLispMapReferral(long nonce,
                                    List<LispReferralRecord> referralRecords) {
         this.nonce = nonce;
-        this.referralRecords = referralRecords;
+        this.referralRecords = ImmutableList.copyOf(referralRecords);
     }
 
     @Override
@@ -90,7 +90,7 @@ public final class DefaultLispMapReferral extends AbstractLispMessage
 
     @Override
     public List<LispReferralRecord> getReferralRecords() {
-        return ImmutableList.copyOf(referralRecords);
+        return referralRecords;
     }
 
     @Override
@@ -19,9 +19,8 @@ import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.onlab.util.ByteOperator;
-import org.onlab.util.ImmutableByteSequence;
 import org.onosproject.lisp.msg.authentication.LispAuthenticationFactory;
 import org.onosproject.lisp.msg.exceptions.LispParseError;
 import org.onosproject.lisp.msg.exceptions.LispReaderException;
@@ -77,7 +76,7 @@ public final class DefaultLispMapRegister extends AbstractLispMessage
         this.keyId = keyId;
         this.authDataLength = authDataLength;
         this.authData = authData;
-        this.mapRecords = mapRecords;
+        this.mapRecords = ImmutableList.copyOf(mapRecords);
         this.proxyMapReply = proxyMapReply;
         this.wantMapNotify = wantMapNotify;
     }
@@ -130,15 +129,30 @@ public final class DefaultLispMapRegister extends AbstractLispMessage
     @Override
     public byte[] getAuthData() {
         if (authData != null && authData.length != 0) {
-            return ImmutableByteSequence.copyFrom(authData).asArray();
+            return authData.clone();
         } else {
             return new byte[0];
         }
     }
 
+    /**
+     * Obtains the authentication data of the given message, without copying
+     * it if the message is of this class.
+     *
+     * @param message LISP message
+     * @return authentication data
+     */
+    private static byte[] authData(LispMapRegister message) {
+        if (message instanceof DefaultLispMapRegister) {
+            byte[] authData = ((DefaultLispMapRegister) message).authData;
+            return authData != null ? authData : new byte[0];
+        }
+        return message.getAuthData();
+    }
+
     @Override
     public List<LispMapRecord> getMapRecords() {
-        return ImmutableList.copyOf(mapRecords);
+        return mapRecords;
     }
 
     @Override
@@ -233,7 +247,7 @@ public final class DefaultLispMapRegister extends AbstractLispMessage
         @Override
         public RegisterBuilder withAuthData(byte[] authenticationData) {
             if (authenticationData != null) {
-                this.authData = authenticationData;
+                this.authData = authenticationData.clone();
             }
             return this;
         }
@@ -258,17 +272,19 @@ public final class DefaultLispMapRegister extends AbstractLispMessage
                 Arrays.fill(tmpAuthData, (byte) 0);
                 authData = tmpAuthData;
 
-                ByteBuf byteBuf = Unpooled.buffer();
+                ByteBuf byteBuf = PooledByteBufAllocator.DEFAULT.heapBuffer();
+                byte[] bytes;
                 try {
                     new DefaultLispMapRegister(nonce, keyId, authDataLength, authData,
                             mapRecords, proxyMapReply, wantMapNotify).writeTo(byteBuf);
                 } catch (LispWriterException e) {
                     log.warn("Failed to serialize map register message", e);
+                } finally {
+                    bytes = new byte[byteBuf.readableBytes()];
+                    byteBuf.readBytes(bytes);
+                    byteBuf.release();
                 }
 
-                byte[] bytes = new byte[byteBuf.readableBytes()];
-                byteBuf.readBytes(bytes);
-
                 if (authKey == null) {
                     log.warn("Must specify authentication key");
                 }
@@ -390,12 +406,9 @@ public final class DefaultLispMapRegister extends AbstractLispMessage
             byteBuf.writeShort(message.getKeyId());
 
             // authentication data and its length
-            if (message.getAuthData() == null) {
-                byteBuf.writeShort((short) 0);
-            } else {
-                byteBuf.writeShort(message.getAuthData().length);
-                byteBuf.writeBytes(message.getAuthData());
-            }
+            byte[] authData = authData(message);
+            byteBuf.writeShort(authData.length);
+            byteBuf.writeBytes(authData);
 
             // serialize map records
             MapRecordWriter writer = new MapRecordWriter();
@@ -61,7 +61,7 @@ public final class DefaultLispMapReply extends AbstractLispMessage
         this.probe = probe;
         this.etr = etr;
         this.security = security;
-        this.mapRecords = mapRecords;
+        this.mapRecords = ImmutableList.copyOf(mapRecords);
     }
 
     @Override
@@ -106,7 +106,7 @@ public final class DefaultLispMapReply extends AbstractLispMessage
 
     @Override
     public List<LispMapRecord> getMapRecords() {
-        return ImmutableList.copyOf(mapRecords);
+        return mapRecords;
     }
 
     @Override
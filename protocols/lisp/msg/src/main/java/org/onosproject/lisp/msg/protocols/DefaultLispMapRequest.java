@@ -50,6 +50,8 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
     private final boolean smr;
     private final boolean pitr;
     private final boolean smrInvoked;
+    private final boolean notificationRequested;
+    private final List<LispEidRecord> notificationRequestedEids;
     private final int replyRecord;
 
     static final RequestWriter WRITER;
@@ -70,6 +72,9 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
      * @param smr            smr flag
      * @param pitr           pitr flag
      * @param smrInvoked     smrInvoked flag
+     * @param notificationRequested notification requested flag
+     * @param notificationRequestedEids EID records for which notification
+     *                                  is requested
      * @param replyReocrd    size of map-reply record
      */
     private DefaultLispMapRequest(long nonce, LispAfiAddress sourceEid,
@@ -77,17 +82,21 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
                                   List<LispEidRecord> eidRecords,
                                   boolean authoritative, boolean mapDataPresent,
                                   boolean probe, boolean smr, boolean pitr,
-                                  boolean smrInvoked, int replyReocrd) {
+                                  boolean smrInvoked, boolean notificationRequested,
+                                  List<LispEidRecord> notificationRequestedEids,
+                                  int replyReocrd) {
         this.nonce = nonce;
         this.sourceEid = sourceEid;
-        this.itrRlocs = itrRlocs;
-        this.eidRecords = eidRecords;
+        this.itrRlocs = ImmutableList.copyOf(itrRlocs);
+        this.eidRecords = ImmutableList.copyOf(eidRecords);
         this.authoritative = authoritative;
         this.mapDataPresent = mapDataPresent;
         this.probe = probe;
         this.smr = smr;
         this.pitr = pitr;
         this.smrInvoked = smrInvoked;
+        this.notificationRequested = notificationRequested;
+        this.notificationRequestedEids = ImmutableList.copyOf(notificationRequestedEids);
         this.replyRecord = replyReocrd;
     }
 
@@ -136,6 +145,16 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
         return smrInvoked;
     }
 
+    @Override
+    public boolean isNotificationRequested() {
+        return notificationRequested;
+    }
+
+    @Override
+    public List<LispEidRecord> getNotificationRequestedEids() {
+        return notificationRequestedEids;
+    }
+
     @Override
     public int getRecordCount() {
         return eidRecords.size();
@@ -153,12 +172,12 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
 
     @Override
     public List<LispAfiAddress> getItrRlocs() {
-        return ImmutableList.copyOf(itrRlocs);
+        return itrRlocs;
     }
 
     @Override
     public List<LispEidRecord> getEids() {
-        return ImmutableList.copyOf(eidRecords);
+        return eidRecords;
     }
 
     @Override
@@ -180,6 +199,7 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
                 .add("SMR", smr)
                 .add("Proxy ITR", pitr)
                 .add("SMR Invoked", smrInvoked)
+                .add("Notification requested", notificationRequested)
                 .add("Size of reply record", replyRecord).toString();
     }
 
@@ -200,13 +220,15 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
                 Objects.equal(smr, that.smr) &&
                 Objects.equal(pitr, that.pitr) &&
                 Objects.equal(smrInvoked, that.smrInvoked) &&
+                Objects.equal(notificationRequested, that.notificationRequested) &&
                 Objects.equal(replyRecord, that.replyRecord);
     }
 
     @Override
     public int hashCode() {
         return Objects.hashCode(nonce, sourceEid, authoritative,
-                mapDataPresent, probe, smr, pitr, smrInvoked, replyRecord);
+                mapDataPresent, probe, smr, pitr, smrInvoked,
+                notificationRequested, replyRecord);
     }
 
     public static final class DefaultRequestBuilder implements RequestBuilder {
@@ -221,6 +243,8 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
         private boolean smr;
         private boolean pitr;
         private boolean smrInvoked;
+        private boolean notificationRequested;
+        private List<LispEidRecord> notificationRequestedEids;
         private int replyRecord;
 
         @Override
@@ -264,6 +288,20 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
             return this;
         }
 
+        @Override
+        public RequestBuilder withIsNotificationRequested(boolean notificationRequested) {
+            this.notificationRequested = notificationRequested;
+            return this;
+        }
+
+        @Override
+        public RequestBuilder withNotificationRequestedEids(List<LispEidRecord> records) {
+            if (records != null) {
+                this.notificationRequestedEids = ImmutableList.copyOf(records);
+            }
+            return this;
+        }
+
         @Override
         public RequestBuilder withNonce(long nonce) {
             this.nonce = nonce;
@@ -303,8 +341,15 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
 
             checkArgument((itrRlocs != null) && (!itrRlocs.isEmpty()), "Must have an ITR RLOC entry");
 
+            List<LispEidRecord> notifiedEids = notificationRequestedEids;
+            if (notifiedEids == null) {
+                notifiedEids = notificationRequested ? eidRecords : ImmutableList.of();
+            }
+
             return new DefaultLispMapRequest(nonce, sourceEid, itrRlocs, eidRecords,
-                    authoritative, mapDataPresent, probe, smr, pitr, smrInvoked, replyRecord);
+                    authoritative, mapDataPresent, probe, smr, pitr, smrInvoked,
+                    notificationRequested || !notifiedEids.isEmpty(),
+                    notifiedEids, replyRecord);
         }
     }
 
@@ -319,6 +364,7 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
         private static final int SMR_INDEX = 0;
         private static final int PITR_INDEX = 7;
         private static final int SMR_INVOKED_INDEX = 6;
+        private static final int NOTIFICATION_REQUESTED_INDEX = 7;
 
         @Override
         public LispMapRequest readFrom(ByteBuf byteBuf) throws LispParseError, LispReaderException {
@@ -368,10 +414,17 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
                 itrRlocs.add(new AfiAddressReader().readFrom(byteBuf));
             }
 
-            // deserialize a collection of EID records
+            // deserialize a collection of EID records, the first bit of the
+            // reserved field of an EID record is notification requested bit
             List<LispEidRecord> eidRecords = Lists.newArrayList();
+            List<LispEidRecord> notificationRequestedEids = Lists.newArrayList();
             for (int i = 0; i < recordCount; i++) {
-                eidRecords.add(new EidRecordReader().readFrom(byteBuf));
+                byte reserved = byteBuf.getByte(byteBuf.readerIndex());
+                LispEidRecord eidRecord = new EidRecordReader().readFrom(byteBuf);
+                eidRecords.add(eidRecord);
+                if (ByteOperator.getBit(reserved, NOTIFICATION_REQUESTED_INDEX)) {
+                    notificationRequestedEids.add(eidRecord);
+                }
             }
 
             // reply record -> 32 bits
@@ -389,6 +442,7 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
                         .withIsSmr(smr)
                         .withIsPitr(pitr)
                         .withIsSmrInvoked(smrInvoked)
+                        .withNotificationRequestedEids(notificationRequestedEids)
                         .withNonce(nonce)
                         .withSourceEid(sourceEid)
                         .withEidRecords(eidRecords)
@@ -411,6 +465,7 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
 
         private static final int PITR_SHIFT_BIT = 7;
         private static final int SMR_INVOKED_SHIFT_BIT = 6;
+        private static final int NOTIFICATION_REQUESTED_SHIFT_BIT = 7;
 
         private static final int ENABLE_BIT = 1;
         private static final int DISABLE_BIT = 0;
@@ -484,8 +539,17 @@ public final class DefaultLispMapRequest extends AbstractLispMessage
             EidRecordWriter recordWriter = new EidRecordWriter();
             List<LispEidRecord> records = message.getEids();
 
+            List<LispEidRecord> notifiedRecords = message.getNotificationRequestedEids();
+
             for (int i = 0; i < records.size(); i++) {
+                int recordIndex = byteBuf.writerIndex();
                 recordWriter.writeTo(byteBuf, records.get(i));
+
+                // notification requested flag bit of this record only
+                if (notifiedRecords.contains(records.get(i))) {
+                    byteBuf.setByte(recordIndex, byteBuf.getByte(recordIndex) |
+                            ENABLE_BIT << NOTIFICATION_REQUESTED_SHIFT_BIT);
+                }
             }
 
             // reply record
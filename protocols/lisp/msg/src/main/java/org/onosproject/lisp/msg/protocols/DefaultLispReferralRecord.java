@@ -68,8 +68,8 @@ public final class DefaultLispReferralRecord extends AbstractLispRecord
                                       List<LispSignature> signatures) {
         super(recordTtl, maskLength, action, authoritative, mapVersionNumber, eidPrefixAfi);
         this.incomplete = incomplete;
-        this.referrals = referrals;
-        this.signatures = signatures;
+        this.referrals = ImmutableList.copyOf(referrals);
+        this.signatures = ImmutableList.copyOf(signatures);
     }
 
     @Override
@@ -89,12 +89,12 @@ public final class DefaultLispReferralRecord extends AbstractLispRecord
 
     @Override
     public List<LispReferral> getReferrals() {
-        return ImmutableList.copyOf(referrals);
+        return referrals;
     }
 
     @Override
     public List<LispSignature> getSignatures() {
-        return ImmutableList.copyOf(signatures);
+        return signatures;
     }
 
     @Override
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Flyweight view of a LISP encapsulated control message.
+ * <p>
+ * The encapsulated message is viewed in place as well, over the payload of
+ * the inner IPv4 and UDP headers.
+ */
+public final class LispEncapsulatedControlView extends AbstractLispMessageView {
+
+    private static final int SECURITY_INDEX = 3;
+
+    private static final int IP_HEADER_INDEX = 4;
+    private static final int IP_TOTAL_LENGTH_OFFSET = 2;
+    private static final int IP_HEADER_LENGTH_MASK = 0x0f;
+    private static final int IP_HEADER_LENGTH_UNIT = 4;
+    private static final int UDP_HEADER_LENGTH = 8;
+
+    private LispMessageView innerMessage;
+
+    /**
+     * Creates a view over the given buffer.
+     *
+     * @param content buffer which holds the message from index 0
+     */
+    LispEncapsulatedControlView(ByteBuf content) {
+        super(content);
+    }
+
+    @Override
+    public LispType getType() {
+        return LispType.LISP_ENCAPSULATED_CONTROL;
+    }
+
+    @Override
+    public long getNonce() {
+        return getInnerMessage().getNonce();
+    }
+
+    /**
+     * Obtains security flag.
+     *
+     * @return security flag
+     */
+    public boolean isSecurity() {
+        return getFlag(0, SECURITY_INDEX);
+    }
+
+    /**
+     * Obtains a view of the encapsulated message.
+     *
+     * @return view of the encapsulated message
+     */
+    public LispMessageView getInnerMessage() {
+        if (innerMessage == null) {
+            int headerLength = (content.getUnsignedByte(IP_HEADER_INDEX) &
+                    IP_HEADER_LENGTH_MASK) * IP_HEADER_LENGTH_UNIT;
+            int totalLength = content.getUnsignedShort(IP_HEADER_INDEX +
+                                                       IP_TOTAL_LENGTH_OFFSET);
+            int start = IP_HEADER_INDEX + headerLength + UDP_HEADER_LENGTH;
+            int length = totalLength - headerLength - UDP_HEADER_LENGTH;
+
+            innerMessage = LispMessageViewFactory.getView(content.slice(start, length));
+        }
+        return innerMessage;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import io.netty.buffer.ByteBuf;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+
+/**
+ * Flyweight view of a LISP info request or info reply message.
+ */
+public final class LispInfoView extends AbstractLispMessageView {
+
+    private static final int INFO_REPLY_INDEX = 3;
+
+    // TTL (4) and reserved (1) precede the mask length, followed by the prefix
+    private static final int MASK_LENGTH_OFFSET = 5;
+    private static final int PREFIX_OFFSET = 6;
+
+    /**
+     * Creates a view over the given buffer.
+     *
+     * @param content buffer which holds the message from index 0
+     */
+    LispInfoView(ByteBuf content) {
+        super(content);
+    }
+
+    @Override
+    public LispType getType() {
+        return LispType.LISP_INFO;
+    }
+
+    /**
+     * Obtains info reply flag.
+     *
+     * @return info reply flag
+     */
+    public boolean isInfoReply() {
+        return getFlag(0, INFO_REPLY_INDEX);
+    }
+
+    /**
+     * Obtains key identifier.
+     *
+     * @return key identifier
+     */
+    public short getKeyId() {
+        return keyId();
+    }
+
+    /**
+     * Obtains authentication data length.
+     *
+     * @return authentication data length
+     */
+    public short getAuthDataLength() {
+        return authDataLength();
+    }
+
+    /**
+     * Obtains a copy of the authentication data.
+     *
+     * @return authentication data
+     */
+    public byte[] getAuthData() {
+        return authData();
+    }
+
+    /**
+     * Checks the authentication data of the message with the given key.
+     *
+     * @param authKey authentication key
+     * @return true if the authentication data matches
+     */
+    public boolean isAuthentic(String authKey) {
+        return authenticate(authKey);
+    }
+
+    /**
+     * Obtains TTL value.
+     *
+     * @return TTL value
+     */
+    public int getTtl() {
+        return content.getInt(prefixIndex());
+    }
+
+    /**
+     * Obtains EID mask length.
+     *
+     * @return EID mask length
+     */
+    public byte getMaskLength() {
+        return content.getByte(prefixIndex() + MASK_LENGTH_OFFSET);
+    }
+
+    /**
+     * Materializes the EID prefix.
+     *
+     * @return EID prefix
+     * @throws LispParseError if the address cannot be parsed
+     * @throws LispReaderException if the address cannot be read
+     */
+    public LispAfiAddress getPrefix() throws LispParseError, LispReaderException {
+        return readAddress(prefixIndex() + PREFIX_OFFSET);
+    }
+
+    private int prefixIndex() {
+        return AUTH_DATA_INDEX + (authDataLength() & 0xffff);
+    }
+}
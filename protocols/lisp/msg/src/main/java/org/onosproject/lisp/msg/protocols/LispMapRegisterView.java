@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Flyweight view of a LISP map register message.
+ */
+public final class LispMapRegisterView extends AbstractLispMapRecordsView {
+
+    private static final int PROXY_MAP_REPLY_INDEX = 3;
+    private static final int WANT_MAP_NOTIFY_INDEX = 0;
+    private static final int WANT_MAP_NOTIFY_BYTE = 2;
+
+    /**
+     * Creates a view over the given buffer.
+     *
+     * @param content buffer which holds the message from index 0
+     */
+    LispMapRegisterView(ByteBuf content) {
+        super(content);
+    }
+
+    @Override
+    public LispType getType() {
+        return LispType.LISP_MAP_REGISTER;
+    }
+
+    @Override
+    protected int recordsIndex() {
+        return AUTH_DATA_INDEX + (authDataLength() & 0xffff);
+    }
+
+    /**
+     * Obtains proxy map reply flag.
+     *
+     * @return proxy map reply flag
+     */
+    public boolean isProxyMapReply() {
+        return getFlag(0, PROXY_MAP_REPLY_INDEX);
+    }
+
+    /**
+     * Obtains want map notify flag.
+     *
+     * @return want map notify flag
+     */
+    public boolean isWantMapNotify() {
+        return getFlag(WANT_MAP_NOTIFY_BYTE, WANT_MAP_NOTIFY_INDEX);
+    }
+
+    /**
+     * Obtains key identifier.
+     *
+     * @return key identifier
+     */
+    public short getKeyId() {
+        return keyId();
+    }
+
+    /**
+     * Obtains authentication data length.
+     *
+     * @return authentication data length
+     */
+    public short getAuthDataLength() {
+        return authDataLength();
+    }
+
+    /**
+     * Obtains a copy of the authentication data.
+     *
+     * @return authentication data
+     */
+    public byte[] getAuthData() {
+        return authData();
+    }
+
+    /**
+     * Checks the authentication data of the message with the given key,
+     * without materializing the records.
+     *
+     * @param authKey authentication key
+     * @return true if the authentication data matches
+     */
+    public boolean isAuthentic(String authKey) {
+        return authenticate(authKey);
+    }
+}
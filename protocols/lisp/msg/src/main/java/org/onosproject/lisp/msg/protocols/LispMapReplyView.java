@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Flyweight view of a LISP map reply message.
+ */
+public final class LispMapReplyView extends AbstractLispMapRecordsView {
+
+    private static final int PROBE_INDEX = 3;
+    private static final int ETR_INDEX = 2;
+    private static final int SECURITY_INDEX = 1;
+    private static final int RECORDS_INDEX = 12;
+
+    /**
+     * Creates a view over the given buffer.
+     *
+     * @param content buffer which holds the message from index 0
+     */
+    LispMapReplyView(ByteBuf content) {
+        super(content);
+    }
+
+    @Override
+    public LispType getType() {
+        return LispType.LISP_MAP_REPLY;
+    }
+
+    @Override
+    protected int recordsIndex() {
+        return RECORDS_INDEX;
+    }
+
+    /**
+     * Obtains probe flag.
+     *
+     * @return probe flag
+     */
+    public boolean isProbe() {
+        return getFlag(0, PROBE_INDEX);
+    }
+
+    /**
+     * Obtains ETR flag.
+     *
+     * @return ETR flag
+     */
+    public boolean isEtr() {
+        return getFlag(0, ETR_INDEX);
+    }
+
+    /**
+     * Obtains security flag.
+     *
+     * @return security flag
+     */
+    public boolean isSecurity() {
+        return getFlag(0, SECURITY_INDEX);
+    }
+}
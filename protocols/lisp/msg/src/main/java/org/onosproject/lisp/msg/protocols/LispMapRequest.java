@@ -97,6 +97,22 @@ public interface LispMapRequest extends LispMessage {
      */
     boolean isSmrInvoked();
 
+    /**
+     * Obtains notification requested flag, which denotes that the ITR
+     * subscribes to the mapping updates of the requested EIDs.
+     *
+     * @return notification requested flag
+     */
+    boolean isNotificationRequested();
+
+    /**
+     * Obtains the EID records whose notification requested bit is set, that
+     * is, the EIDs to whose mapping updates the ITR subscribes.
+     *
+     * @return EID records for which notification is requested
+     */
+    List<LispEidRecord> getNotificationRequestedEids();
+
     /**
      * Obtains record count value.
      *
@@ -192,6 +208,24 @@ public interface LispMapRequest extends LispMessage {
          */
         RequestBuilder withIsSmrInvoked(boolean smrInvoked);
 
+        /**
+         * Sets notification requested flag.
+         *
+         * @param notificationRequested notification requested flag
+         * @return RequestBuilder object
+         */
+        RequestBuilder withIsNotificationRequested(boolean notificationRequested);
+
+        /**
+         * Sets the EID records for which notification is requested. If they
+         * are not set, notification is requested for all EID records as long
+         * as the notification requested flag is set.
+         *
+         * @param records EID records for which notification is requested
+         * @return RequestBuilder object
+         */
+        RequestBuilder withNotificationRequestedEids(List<LispEidRecord> records);
+
         /**
          * Sets nonce value.
          *
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+import org.onosproject.lisp.msg.protocols.LispEidRecord.EidRecordReader;
+import org.onosproject.lisp.msg.types.LispAfiAddress;
+
+import java.util.List;
+
+/**
+ * Flyweight view of a LISP map request message.
+ */
+public final class LispMapRequestView extends AbstractLispMessageView {
+
+    private static final int AUTHORITATIVE_INDEX = 3;
+    private static final int MAP_DATA_PRESENT_INDEX = 2;
+    private static final int PROBE_INDEX = 1;
+    private static final int SMR_INDEX = 0;
+    private static final int PITR_INDEX = 7;
+    private static final int SMR_INVOKED_INDEX = 6;
+
+    private static final int FLAGS_BYTE = 1;
+    private static final int ITR_RLOC_COUNT_INDEX = 2;
+    private static final int RECORD_COUNT_INDEX = 3;
+    private static final int SOURCE_EID_INDEX = 12;
+
+    /**
+     * Creates a view over the given buffer.
+     *
+     * @param content buffer which holds the message from index 0
+     */
+    LispMapRequestView(ByteBuf content) {
+        super(content);
+    }
+
+    @Override
+    public LispType getType() {
+        return LispType.LISP_MAP_REQUEST;
+    }
+
+    /**
+     * Obtains authoritative flag.
+     *
+     * @return authoritative flag
+     */
+    public boolean isAuthoritative() {
+        return getFlag(0, AUTHORITATIVE_INDEX);
+    }
+
+    /**
+     * Obtains map data present flag.
+     *
+     * @return map data present flag
+     */
+    public boolean isMapDataPresent() {
+        return getFlag(0, MAP_DATA_PRESENT_INDEX);
+    }
+
+    /**
+     * Obtains probe flag.
+     *
+     * @return probe flag
+     */
+    public boolean isProbe() {
+        return getFlag(0, PROBE_INDEX);
+    }
+
+    /**
+     * Obtains SMR flag.
+     *
+     * @return SMR flag
+     */
+    public boolean isSmr() {
+        return getFlag(0, SMR_INDEX);
+    }
+
+    /**
+     * Obtains PITR flag.
+     *
+     * @return PITR flag
+     */
+    public boolean isPitr() {
+        return getFlag(FLAGS_BYTE, PITR_INDEX);
+    }
+
+    /**
+     * Obtains SMR invoked flag.
+     *
+     * @return SMR invoked flag
+     */
+    public boolean isSmrInvoked() {
+        return getFlag(FLAGS_BYTE, SMR_INVOKED_INDEX);
+    }
+
+    /**
+     * Obtains the number of ITR RLOCs.
+     *
+     * @return the number of ITR RLOCs
+     */
+    public int getItrRlocCount() {
+        // the ITR-RLOC count field holds the number of RLOCs minus one
+        return content.getUnsignedByte(ITR_RLOC_COUNT_INDEX) + 1;
+    }
+
+    /**
+     * Obtains record count value.
+     *
+     * @return record count value
+     */
+    public int getRecordCount() {
+        return content.getUnsignedByte(RECORD_COUNT_INDEX);
+    }
+
+    /**
+     * Materializes the source EID address.
+     *
+     * @return source EID address
+     * @throws LispParseError if the address cannot be parsed
+     * @throws LispReaderException if the address cannot be read
+     */
+    public LispAfiAddress getSourceEid() throws LispParseError, LispReaderException {
+        return readAddress(SOURCE_EID_INDEX);
+    }
+
+    /**
+     * Materializes the ITR RLOC addresses.
+     *
+     * @return a collection of ITR RLOC addresses
+     * @throws LispParseError if an address cannot be parsed
+     * @throws LispReaderException if an address cannot be read
+     */
+    public List<LispAfiAddress> getItrRlocs() throws LispParseError, LispReaderException {
+        int count = getItrRlocCount();
+        List<LispAfiAddress> rlocs = Lists.newArrayListWithCapacity(count);
+        int index = skipAddress(SOURCE_EID_INDEX);
+        for (int i = 0; i < count; i++) {
+            rlocs.add(readAddress(index));
+            index = skipAddress(index);
+        }
+        return rlocs;
+    }
+
+    /**
+     * Materializes the EID records, without materializing the ITR RLOCs.
+     *
+     * @return a collection of EID records
+     * @throws LispParseError if a record cannot be parsed
+     * @throws LispReaderException if a record cannot be read
+     */
+    public List<LispEidRecord> getEidRecords() throws LispParseError, LispReaderException {
+        int index = skipAddress(SOURCE_EID_INDEX);
+        for (int i = 0; i < getItrRlocCount(); i++) {
+            index = skipAddress(index);
+        }
+
+        int count = getRecordCount();
+        List<LispEidRecord> records = Lists.newArrayListWithCapacity(count);
+        ByteBuf byteBuf = content.duplicate().readerIndex(index);
+        EidRecordReader reader = new EidRecordReader();
+        for (int i = 0; i < count; i++) {
+            records.add(reader.readFrom(byteBuf));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import io.netty.buffer.ByteBuf;
+import org.onlab.packet.DeserializationException;
+import org.onosproject.lisp.msg.exceptions.LispParseError;
+import org.onosproject.lisp.msg.exceptions.LispReaderException;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Flyweight view of a LISP message.
+ * <p>
+ * A view reads the fields of a message on demand from the byte buffer which
+ * holds the message, and only materializes the records and addresses which
+ * are accessed. A view does not own its buffer: the buffer must be kept
+ * retained for as long as the view is in use, and the message must be
+ * converted through {@link #toMessage()} if it is to be kept beyond that.
+ */
+public interface LispMessageView {
+
+    /**
+     * Obtains LISP message type.
+     *
+     * @return LISP message type
+     */
+    LispType getType();
+
+    /**
+     * Obtains nonce value.
+     *
+     * @return nonce value
+     */
+    long getNonce();
+
+    /**
+     * Obtains the byte buffer which holds the message, whose reader index
+     * is at the start of the message.
+     *
+     * @return byte buffer
+     */
+    ByteBuf content();
+
+    /**
+     * Configures the sender's IP address with port number.
+     *
+     * @param sender LISP message sender
+     */
+    void configSender(InetSocketAddress sender);
+
+    /**
+     * Obtains the sender's IP address with port number.
+     *
+     * @return sender's IP address with port number
+     */
+    InetSocketAddress getSender();
+
+    /**
+     * Materializes the whole message as a LISP message object, which does
+     * not refer to the byte buffer any longer.
+     *
+     * @return LISP message
+     * @throws LispParseError if the message cannot be parsed
+     * @throws LispReaderException if the message cannot be read
+     * @throws DeserializationException if an inner IP header cannot be
+     *         deserialized
+     */
+    LispMessage toMessage() throws LispParseError, LispReaderException,
+            DeserializationException;
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A factory class which creates flyweight views of LISP messages.
+ */
+public final class LispMessageViewFactory {
+
+    private static final int TYPE_SHIFT_BIT = 4;
+
+    // non-instantiable
+    private LispMessageViewFactory() {
+    }
+
+    /**
+     * Obtains a view of the LISP message in the readable bytes of the given
+     * buffer. The view shares the content and the reference count of the
+     * buffer, and neither the indices nor the content of the buffer are
+     * modified.
+     *
+     * @param buffer netty byte buffer
+     * @return LISP message view
+     */
+    public static LispMessageView getView(ByteBuf buffer) {
+        ByteBuf content = buffer.slice();
+
+        LispType type = LispType.valueOf(
+                (short) (content.getUnsignedByte(0) >> TYPE_SHIFT_BIT));
+
+        switch (type) {
+            case LISP_MAP_REQUEST:
+                return new LispMapRequestView(content);
+            case LISP_MAP_REPLY:
+                return new LispMapReplyView(content);
+            case LISP_MAP_REGISTER:
+                return new LispMapRegisterView(content);
+            case LISP_MAP_NOTIFY:
+                return new LispMapNotifyView(content);
+            case LISP_INFO:
+                return new LispInfoView(content);
+            case LISP_ENCAPSULATED_CONTROL:
+                return new LispEncapsulatedControlView(content);
+            case UNKNOWN:
+                throw new IllegalArgumentException("Unknown message type: "
+                                                           + type);
+            default:
+                throw new IllegalArgumentException("Undefined message type: "
+                                                           + type);
+        }
+    }
+}
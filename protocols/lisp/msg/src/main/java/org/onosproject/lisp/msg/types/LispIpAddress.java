@@ -28,7 +28,7 @@ import org.onosproject.lisp.msg.types.LispIpv6Address.Ipv6AddressWriter;
  */
 public abstract class LispIpAddress extends LispAfiAddress {
 
-    protected final IpAddress address;
+    private IpAddress address;
 
     /**
      * Initializes LISP locator's IP address with AFI enum.
@@ -41,28 +41,83 @@ public abstract class LispIpAddress extends LispAfiAddress {
         this.address = address;
     }
 
+    /**
+     * Initializes LISP locator's IP address with AFI enum, whose IP address
+     * object is built from the primitive value on demand.
+     *
+     * @param afi AFI enum
+     */
+    protected LispIpAddress(AddressFamilyIdentifierEnum afi) {
+        super(afi);
+    }
+
     /**
      * Obtains LISP locator's IP address.
      *
      * @return IP address
      */
     public IpAddress getAddress() {
-        return address;
+        // IP address is immutable, so that a racy initialization is harmless
+        IpAddress ipAddress = address;
+        if (ipAddress == null) {
+            ipAddress = IpAddress.valueOf(version(), toOctets());
+            address = ipAddress;
+        }
+        return ipAddress;
     }
 
-    @Override
-    public int hashCode() {
-        return address.hashCode();
-    }
+    /**
+     * Obtains the IP version of the address.
+     *
+     * @return IP version
+     */
+    public abstract IpAddress.Version version();
 
-    @Override
-    public boolean equals(Object obj) {
-        return address.equals(obj);
-    }
+    /**
+     * Obtains the length of the address in bits.
+     *
+     * @return bit length
+     */
+    public abstract int bitLength();
+
+    /**
+     * Obtains the raw bytes of the address in network byte order, without
+     * building an IP address object.
+     *
+     * @return raw bytes of the address
+     */
+    public abstract byte[] toOctets();
+
+    /**
+     * Obtains a bit of the address, counted from the most significant bit.
+     *
+     * @param index index of the bit
+     * @return true if the bit is set
+     */
+    public abstract boolean getBit(int index);
+
+    /**
+     * Checks whether the address falls within the given prefix.
+     *
+     * @param prefix     prefix address
+     * @param maskLength prefix mask length
+     * @return true if the first mask length bits of both addresses are equal;
+     *         false if the prefix is of the other address family
+     */
+    public abstract boolean isWithin(LispIpAddress prefix, int maskLength);
+
+    /**
+     * Obtains the address whose bits beyond the given mask length are
+     * cleared.
+     *
+     * @param maskLength mask length
+     * @return masked address
+     */
+    public abstract LispIpAddress mask(int maskLength);
 
     @Override
     public String toString() {
-        return address.toString();
+        return getAddress().toString();
     }
 
     /**
@@ -95,10 +150,10 @@ public abstract class LispIpAddress extends LispAfiAddress {
         @Override
         public void writeTo(ByteBuf byteBuf, LispIpAddress address)
                                                     throws LispWriterException {
-            if (address.getAddress().isIp4()) {
+            if (address instanceof LispIpv4Address) {
                 new Ipv4AddressWriter().writeTo(byteBuf, (LispIpv4Address) address);
             }
-            if (address.getAddress().isIp6()) {
+            if (address instanceof LispIpv6Address) {
                 new Ipv6AddressWriter().writeTo(byteBuf, (LispIpv6Address) address);
             }
         }
@@ -20,15 +20,22 @@ import org.onlab.packet.IpAddress;
 import org.onosproject.lisp.msg.exceptions.LispParseError;
 import org.onosproject.lisp.msg.exceptions.LispWriterException;
 
-import java.util.Objects;
-
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 
 /**
  * IPv4 address that is used by LISP Locator.
+ * <p>
+ * The address is held as a primitive integer, so that parsing, writing,
+ * hashing and prefix matching do not allocate.
  */
 public class LispIpv4Address extends LispIpAddress {
 
+    private static final int BIT_LENGTH = 32;
+    private static final int BYTE_SIZE = 8;
+
+    private final int value;
+
     /**
      * Initializes LISP locator's IPv4 address.
      *
@@ -37,6 +44,77 @@ public class LispIpv4Address extends LispIpAddress {
     public LispIpv4Address(IpAddress address) {
         super(address, AddressFamilyIdentifierEnum.IP4);
         checkArgument(address.isIp4());
+        this.value = address.getIp4Address().toInt();
+    }
+
+    /**
+     * Initializes LISP locator's IPv4 address from its integer value.
+     *
+     * @param value IPv4 address in network byte order
+     */
+    public LispIpv4Address(int value) {
+        super(AddressFamilyIdentifierEnum.IP4);
+        this.value = value;
+    }
+
+    /**
+     * Obtains the integer value of the address.
+     *
+     * @return IPv4 address in network byte order
+     */
+    public int toInt() {
+        return value;
+    }
+
+    @Override
+    public IpAddress.Version version() {
+        return IpAddress.Version.INET;
+    }
+
+    @Override
+    public int bitLength() {
+        return BIT_LENGTH;
+    }
+
+    @Override
+    public byte[] toOctets() {
+        byte[] octets = new byte[BIT_LENGTH / BYTE_SIZE];
+        for (int i = 0; i < octets.length; i++) {
+            octets[i] = (byte) (value >>> (BIT_LENGTH - BYTE_SIZE * (i + 1)));
+        }
+        return octets;
+    }
+
+    @Override
+    public boolean getBit(int index) {
+        checkElementIndex(index, BIT_LENGTH);
+        return (value << index) < 0;
+    }
+
+    @Override
+    public boolean isWithin(LispIpAddress prefix, int maskLength) {
+        if (!(prefix instanceof LispIpv4Address)) {
+            return false;
+        }
+        return ((value ^ ((LispIpv4Address) prefix).value) & netmask(maskLength)) == 0;
+    }
+
+    @Override
+    public LispIpv4Address mask(int maskLength) {
+        int masked = value & netmask(maskLength);
+        return masked == value ? this : new LispIpv4Address(masked);
+    }
+
+    /**
+     * Obtains the netmask of the given mask length.
+     *
+     * @param maskLength mask length
+     * @return netmask
+     */
+    private static int netmask(int maskLength) {
+        checkArgument(maskLength >= 0 && maskLength <= BIT_LENGTH,
+                      "Invalid mask length %s", maskLength);
+        return maskLength == 0 ? 0 : -1 << (BIT_LENGTH - maskLength);
     }
 
     @Override
@@ -47,15 +125,14 @@ public class LispIpv4Address extends LispIpAddress {
 
         if (obj instanceof LispIpv4Address) {
             final LispIpv4Address other = (LispIpv4Address) obj;
-            return Objects.equals(this.address, other.address) &&
-                    Objects.equals(this.getAfi(), other.getAfi());
+            return this.value == other.value;
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(address, getAfi());
+        return value;
     }
 
     /**
@@ -63,16 +140,9 @@ public class LispIpv4Address extends LispIpAddress {
      */
     public static class Ipv4AddressReader implements LispAddressReader<LispIpv4Address> {
 
-        private static final int SIZE_OF_IPV4_ADDRESS = 4;
-
         @Override
         public LispIpv4Address readFrom(ByteBuf byteBuf) throws LispParseError {
-
-            byte[] ipByte = new byte[SIZE_OF_IPV4_ADDRESS];
-            byteBuf.readBytes(ipByte);
-            IpAddress ipAddress = IpAddress.valueOf(IpAddress.Version.INET, ipByte);
-
-            return new LispIpv4Address(ipAddress);
+            return new LispIpv4Address(byteBuf.readInt());
         }
     }
 
@@ -83,8 +153,7 @@ public class LispIpv4Address extends LispIpAddress {
 
         @Override
         public void writeTo(ByteBuf byteBuf, LispIpv4Address address) throws LispWriterException {
-            byte[] ipByte = address.getAddress().getIp4Address().toOctets();
-            byteBuf.writeBytes(ipByte);
+            byteBuf.writeInt(address.toInt());
         }
     }
 }
@@ -20,15 +20,25 @@ import org.onlab.packet.IpAddress;
 import org.onosproject.lisp.msg.exceptions.LispParseError;
 import org.onosproject.lisp.msg.exceptions.LispWriterException;
 
-import java.util.Objects;
-
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 
 /**
  * IPv6 address that is used by LISP Locator.
+ * <p>
+ * The address is held as two primitive longs, so that parsing, writing,
+ * hashing and prefix matching do not allocate.
  */
 public class LispIpv6Address extends LispIpAddress {
 
+    private static final int BIT_LENGTH = 128;
+    private static final int LONG_SIZE = 64;
+    private static final int BYTE_SIZE = 8;
+    private static final int BYTE_MASK = 0xff;
+
+    private final long highBits;
+    private final long lowBits;
+
     /**
      * Initializes LISP locator's IPv6 address.
      *
@@ -37,6 +47,135 @@ public class LispIpv6Address extends LispIpAddress {
     public LispIpv6Address(IpAddress address) {
         super(address, AddressFamilyIdentifierEnum.IP6);
         checkArgument(address.isIp6());
+        byte[] octets = address.toOctets();
+        this.highBits = toLong(octets, 0);
+        this.lowBits = toLong(octets, LONG_SIZE / BYTE_SIZE);
+    }
+
+    /**
+     * Initializes LISP locator's IPv6 address from its long values.
+     *
+     * @param highBits most significant 64 bits of the address
+     * @param lowBits  least significant 64 bits of the address
+     */
+    public LispIpv6Address(long highBits, long lowBits) {
+        super(AddressFamilyIdentifierEnum.IP6);
+        this.highBits = highBits;
+        this.lowBits = lowBits;
+    }
+
+    /**
+     * Obtains the most significant 64 bits of the address.
+     *
+     * @return most significant 64 bits
+     */
+    public long getHighBits() {
+        return highBits;
+    }
+
+    /**
+     * Obtains the least significant 64 bits of the address.
+     *
+     * @return least significant 64 bits
+     */
+    public long getLowBits() {
+        return lowBits;
+    }
+
+    @Override
+    public IpAddress.Version version() {
+        return IpAddress.Version.INET6;
+    }
+
+    @Override
+    public int bitLength() {
+        return BIT_LENGTH;
+    }
+
+    @Override
+    public byte[] toOctets() {
+        byte[] octets = new byte[BIT_LENGTH / BYTE_SIZE];
+        int half = octets.length / 2;
+        for (int i = 0; i < half; i++) {
+            int shift = LONG_SIZE - BYTE_SIZE * (i + 1);
+            octets[i] = (byte) (highBits >>> shift);
+            octets[half + i] = (byte) (lowBits >>> shift);
+        }
+        return octets;
+    }
+
+    @Override
+    public boolean getBit(int index) {
+        checkElementIndex(index, BIT_LENGTH);
+        return index < LONG_SIZE ? (highBits << index) < 0 :
+                                   (lowBits << (index - LONG_SIZE)) < 0;
+    }
+
+    @Override
+    public boolean isWithin(LispIpAddress prefix, int maskLength) {
+        if (!(prefix instanceof LispIpv6Address)) {
+            return false;
+        }
+        LispIpv6Address other = (LispIpv6Address) prefix;
+        return ((highBits ^ other.highBits) & highNetmask(maskLength)) == 0 &&
+               ((lowBits ^ other.lowBits) & lowNetmask(maskLength)) == 0;
+    }
+
+    @Override
+    public LispIpv6Address mask(int maskLength) {
+        long maskedHigh = highBits & highNetmask(maskLength);
+        long maskedLow = lowBits & lowNetmask(maskLength);
+        return maskedHigh == highBits && maskedLow == lowBits ?
+                this : new LispIpv6Address(maskedHigh, maskedLow);
+    }
+
+    /**
+     * Obtains the netmask of the most significant 64 bits.
+     *
+     * @param maskLength mask length
+     * @return netmask of the most significant 64 bits
+     */
+    private static long highNetmask(int maskLength) {
+        checkArgument(maskLength >= 0 && maskLength <= BIT_LENGTH,
+                      "Invalid mask length %s", maskLength);
+        return netmask(Math.min(maskLength, LONG_SIZE));
+    }
+
+    /**
+     * Obtains the netmask of the least significant 64 bits.
+     *
+     * @param maskLength mask length
+     * @return netmask of the least significant 64 bits
+     */
+    private static long lowNetmask(int maskLength) {
+        checkArgument(maskLength >= 0 && maskLength <= BIT_LENGTH,
+                      "Invalid mask length %s", maskLength);
+        return netmask(Math.max(maskLength - LONG_SIZE, 0));
+    }
+
+    /**
+     * Obtains the netmask of a 64 bits long.
+     *
+     * @param maskLength mask length, from 0 to 64
+     * @return netmask
+     */
+    private static long netmask(int maskLength) {
+        return maskLength == 0 ? 0L : -1L << (LONG_SIZE - maskLength);
+    }
+
+    /**
+     * Reads a long from the given bytes in network byte order.
+     *
+     * @param octets raw bytes
+     * @param offset offset of the long
+     * @return long value
+     */
+    private static long toLong(byte[] octets, int offset) {
+        long value = 0L;
+        for (int i = 0; i < LONG_SIZE / BYTE_SIZE; i++) {
+            value = (value << BYTE_SIZE) | (octets[offset + i] & BYTE_MASK);
+        }
+        return value;
     }
 
     @Override
@@ -47,15 +186,15 @@ public class LispIpv6Address extends LispIpAddress {
 
         if (obj instanceof LispIpv6Address) {
             final LispIpv6Address other = (LispIpv6Address) obj;
-            return Objects.equals(this.address, other.address) &&
-                    Objects.equals(this.getAfi(), other.getAfi());
+            return this.highBits == other.highBits &&
+                    this.lowBits == other.lowBits;
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(address, getAfi());
+        return 31 * Long.hashCode(highBits) + Long.hashCode(lowBits);
     }
 
     /**
@@ -63,16 +202,11 @@ public class LispIpv6Address extends LispIpAddress {
      */
     public static class Ipv6AddressReader implements LispAddressReader<LispIpv6Address> {
 
-        private static final int SIZE_OF_IPV6_ADDRESS = 16;
-
         @Override
         public LispIpv6Address readFrom(ByteBuf byteBuf) throws LispParseError {
-
-            byte[] ipByte = new byte[SIZE_OF_IPV6_ADDRESS];
-            byteBuf.readBytes(ipByte);
-            IpAddress ipAddress = IpAddress.valueOf(IpAddress.Version.INET6, ipByte);
-
-            return new LispIpv6Address(ipAddress);
+            long highBits = byteBuf.readLong();
+            long lowBits = byteBuf.readLong();
+            return new LispIpv6Address(highBits, lowBits);
         }
     }
 
@@ -84,8 +218,8 @@ public class LispIpv6Address extends LispIpAddress {
         @Override
         public void writeTo(ByteBuf byteBuf, LispIpv6Address address)
                                                 throws LispWriterException {
-            byte[] ipByte = address.getAddress().getIp6Address().toOctets();
-            byteBuf.writeBytes(ipByte);
+            byteBuf.writeLong(address.getHighBits());
+            byteBuf.writeLong(address.getLowBits());
         }
     }
 }
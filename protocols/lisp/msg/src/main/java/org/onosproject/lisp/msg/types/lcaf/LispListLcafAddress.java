@@ -80,7 +80,7 @@ public final class LispListLcafAddress extends LispLcafAddress {
         checkArgument(checkAddressValidity(addresses), "Malformed addresses, please " +
                 "specify IPv4 address first, and then specify IPv6 address");
 
-        this.addresses = addresses;
+        this.addresses = ImmutableList.copyOf(addresses);
     }
 
     /**
@@ -98,7 +98,7 @@ public final class LispListLcafAddress extends LispLcafAddress {
         checkArgument(checkAddressValidity(addresses), "Malformed addresses, please " +
                 "specify IPv4 address first, and then specify IPv6 address");
 
-        this.addresses = addresses;
+        this.addresses = ImmutableList.copyOf(addresses);
     }
 
     /**
@@ -135,7 +135,7 @@ public final class LispListLcafAddress extends LispLcafAddress {
      * @return a set of AFI addresses
      */
     public List<LispAfiAddress> getAddresses() {
-        return ImmutableList.copyOf(addresses);
+        return addresses;
     }
 
     @Override
@@ -144,7 +144,7 @@ public final class LispNatLcafAddress extends LispLcafAddress {
      * @return a collection of RTR RLOC addresses
      */
     public List<LispAfiAddress> getRtrRlocAddresses() {
-        return ImmutableList.copyOf(rtrRlocAddresses);
+        return rtrRlocAddresses;
     }
 
     @Override
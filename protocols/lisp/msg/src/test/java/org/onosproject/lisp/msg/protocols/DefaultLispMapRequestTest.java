@@ -35,6 +35,7 @@ import org.onosproject.lisp.msg.types.LispIpv4Address;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 
 /**
@@ -74,6 +75,7 @@ public final class DefaultLispMapRequestTest {
                         .withIsProbe(false)
                         .withIsSmr(true)
                         .withIsSmrInvoked(false)
+                        .withIsNotificationRequested(true)
                         .withSourceEid(ipv4Eid1)
                         .withItrRlocs(rlocs1)
                         .withEidRecords(records1)
@@ -91,6 +93,7 @@ public final class DefaultLispMapRequestTest {
                         .withIsProbe(false)
                         .withIsSmr(true)
                         .withIsSmrInvoked(false)
+                        .withIsNotificationRequested(true)
                         .withSourceEid(ipv4Eid1)
                         .withItrRlocs(rlocs1)
                         .withEidRecords(records2)
@@ -143,6 +146,7 @@ public final class DefaultLispMapRequestTest {
         assertThat(request.isProbe(), is(false));
         assertThat(request.isSmr(), is(true));
         assertThat(request.isSmrInvoked(), is(false));
+        assertThat(request.isNotificationRequested(), is(true));
         assertThat(request.getNonce(), is(1L));
         assertThat(request.getRecordCount(), is(2));
         assertThat(request.getReplyRecord(), is(1));
@@ -159,4 +163,28 @@ public final class DefaultLispMapRequestTest {
 
         new EqualsTester().addEqualityGroup(request1, deserialized).testEquals();
     }
+
+    @Test
+    public void testNotificationRequestedSerialization()
+            throws LispReaderException, LispWriterException, LispParseError {
+        LispEidRecord notified = getEidRecord();
+        LispEidRecord other = new LispEidRecord((byte) 32,
+                new LispIpv4Address(IpAddress.valueOf(EID_IP_ADDRESS_1)));
+
+        LispMapRequest request = new DefaultRequestBuilder()
+                        .withSourceEid(new LispIpv4Address(IpAddress.valueOf(EID_IP_ADDRESS_1)))
+                        .withItrRlocs(ImmutableList.of(
+                                new LispIpv4Address(IpAddress.valueOf(RLOC_IP_ADDRESS_1_1))))
+                        .withEidRecords(ImmutableList.of(other, notified))
+                        .withNotificationRequestedEids(ImmutableList.of(notified))
+                        .withNonce(3L)
+                        .build();
+
+        ByteBuf byteBuf = Unpooled.buffer();
+        new RequestWriter().writeTo(byteBuf, request);
+        LispMapRequest deserialized = new RequestReader().readFrom(byteBuf);
+
+        assertThat(deserialized.isNotificationRequested(), is(true));
+        assertThat(deserialized.getNotificationRequestedEids(), contains(notified));
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.onosproject.lisp.msg.protocols;
+
+import com.google.common.collect.ImmutableList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Before;
+import org.junit.Test;
+import org.onlab.packet.IpAddress;
+import org.onosproject.lisp.msg.protocols.DefaultLispLocator.DefaultLocatorBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRecord.DefaultMapRecordBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRegister.DefaultRegisterBuilder;
+import org.onosproject.lisp.msg.protocols.DefaultLispMapRequest.DefaultRequestBuilder;
+import org.onosproject.lisp.msg.types.LispIpv4Address;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Unit tests for flyweight views of LISP messages.
+ */
+public final class LispMessageViewTest {
+
+    private static final String AUTH_KEY = "onos";
+    private static final String EID_ADDRESS_1 = "10.1.1.0";
+    private static final String EID_ADDRESS_2 = "10.1.2.0";
+    private static final String RLOC_ADDRESS_1 = "192.168.1.1";
+    private static final String RLOC_ADDRESS_2 = "192.168.1.2";
+
+    private LispMapRegister register;
+    private LispMapRequest request;
+
+    @Before
+    public void setup() {
+        register = new DefaultRegisterBuilder()
+                        .withIsProxyMapReply(true)
+                        .withIsWantMapNotify(true)
+                        .withKeyId((short) 1)
+                        .withAuthKey(AUTH_KEY)
+                        .withNonce(1L)
+                        .withMapRecords(ImmutableList.of(
+                                getMapRecord(EID_ADDRESS_1, 2),
+                                getMapRecord(EID_ADDRESS_2, 1)))
+                        .build();
+
+        request = new DefaultRequestBuilder()
+                        .withIsAuthoritative(true)
+                        .withIsProbe(true)
+                        .withIsPitr(false)
+                        .withIsSmrInvoked(true)
+                        .withSourceEid(ipv4(EID_ADDRESS_1))
+                        .withItrRlocs(ImmutableList.of(ipv4(RLOC_ADDRESS_1),
+                                                       ipv4(RLOC_ADDRESS_2)))
+                        .withEidRecords(ImmutableList.of(
+                                new LispEidRecord((byte) 24, ipv4(EID_ADDRESS_2))))
+                        .withNonce(2L)
+                        .build();
+    }
+
+    private LispIpv4Address ipv4(String address) {
+        return new LispIpv4Address(IpAddress.valueOf(address));
+    }
+
+    private LispMapRecord getMapRecord(String eid, int locatorCount) {
+        ImmutableList.Builder<LispLocator> locators = ImmutableList.builder();
+        for (int i = 0; i < locatorCount; i++) {
+            locators.add(new DefaultLocatorBuilder()
+                                .withPriority((byte) 1)
+                                .withWeight((byte) 100)
+                                .withMulticastPriority((byte) 1)
+                                .withMulticastWeight((byte) 100)
+                                .withRouted(true)
+                                .withLocatorAfi(ipv4(RLOC_ADDRESS_1))
+                                .build());
+        }
+
+        return new DefaultMapRecordBuilder()
+                .withRecordTtl(100)
+                .withIsAuthoritative(true)
+                .withMapVersionNumber((short) 1)
+                .withMaskLength((byte) 24)
+                .withAction(LispMapReplyAction.NoAction)
+                .withEidPrefixAfi(ipv4(eid))
+                .withLocators(locators.build())
+                .build();
+    }
+
+    private LispMessageView getView(LispMessage message) throws Exception {
+        ByteBuf byteBuf = Unpooled.buffer();
+        message.writeTo(byteBuf);
+        return LispMessageViewFactory.getView(byteBuf);
+    }
+
+    /**
+     * Tests the fields of a map-register which are read on demand.
+     */
+    @Test
+    public void testMapRegisterView() throws Exception {
+        LispMessageView view = getView(register);
+        assertThat(view, is(instanceOf(LispMapRegisterView.class)));
+
+        LispMapRegisterView registerView = (LispMapRegisterView) view;
+        assertThat(registerView.getNonce(), is(1L));
+        assertThat(registerView.getKeyId(), is((short) 1));
+        assertThat(registerView.isProxyMapReply(), is(true));
+        assertThat(registerView.isWantMapNotify(), is(true));
+        assertThat(registerView.getAuthData(), is(register.getAuthData()));
+        assertThat(registerView.getRecordCount(), is(2));
+
+        // the second record is found without materializing the first one
+        assertThat(registerView.getEidPrefixAfi(1), is(ipv4(EID_ADDRESS_2)));
+        assertThat(registerView.getLocatorCount(0), is(2));
+        assertThat(registerView.getRecordTtl(1), is(100));
+        assertThat(registerView.getMaskLength(1), is((byte) 24));
+        assertThat(registerView.getMapRecord(1), is(register.getMapRecords().get(1)));
+        assertThat(registerView.getMapRecords(), is(register.getMapRecords()));
+    }
+
+    /**
+     * Tests the authentication of a map-register over its bytes.
+     */
+    @Test
+    public void testMapRegisterAuthentication() throws Exception {
+        LispMapRegisterView view = (LispMapRegisterView) getView(register);
+        assertThat(view.isAuthentic(AUTH_KEY), is(true));
+        assertThat(view.isAuthentic("wrong"), is(false));
+
+        // tampering with a record breaks the authentication
+        view.content().setInt(view.content().writerIndex() - 4, 0);
+        assertThat(view.isAuthentic(AUTH_KEY), is(false));
+    }
+
+    /**
+     * Tests the fields of a map-request which are read on demand.
+     */
+    @Test
+    public void testMapRequestView() throws Exception {
+        LispMapRequestView view = (LispMapRequestView) getView(request);
+        assertThat(view.getNonce(), is(2L));
+        assertThat(view.isAuthoritative(), is(true));
+        assertThat(view.isProbe(), is(true));
+        assertThat(view.isPitr(), is(false));
+        assertThat(view.isSmrInvoked(), is(true));
+        assertThat(view.getItrRlocCount(), is(2));
+        assertThat(view.getSourceEid(), is(ipv4(EID_ADDRESS_1)));
+        assertThat(view.getItrRlocs(), is(request.getItrRlocs()));
+        assertThat(view.getEidRecords(), is(request.getEids()));
+    }
+
+    /**
+     * Tests that a view is materialized into the same message.
+     */
+    @Test
+    public void testToMessage() throws Exception {
+        assertThat(getView(register).toMessage(), is(register));
+        assertThat(getView(request).toMessage(), is(request));
+    }
+}
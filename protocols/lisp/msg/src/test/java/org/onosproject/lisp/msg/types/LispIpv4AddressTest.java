@@ -71,4 +71,30 @@ public class LispIpv4AddressTest {
 
         new EqualsTester().addEqualityGroup(address1, deserialized).testEquals();
     }
+
+    @Test
+    public void testPrimitiveConstruction() {
+        LispIpv4Address ipv4Address = new LispIpv4Address(0xc0a80101);
+        assertThat(ipv4Address, is(address1));
+        assertThat(ipv4Address.toInt(), is(address1.toInt()));
+        assertThat(ipv4Address.getAddress(), is(IpAddress.valueOf("192.168.1.1")));
+        assertThat(ipv4Address.toOctets(), is(address1.getAddress().toOctets()));
+    }
+
+    @Test
+    public void testPrefixMatching() {
+        LispIpv4Address prefix = new LispIpv4Address(IpAddress.valueOf("192.168.0.0"));
+
+        assertThat(address1.isWithin(prefix, 16), is(true));
+        assertThat(address1.isWithin(prefix, 24), is(false));
+        assertThat(address1.isWithin(address2, 0), is(true));
+        assertThat(address1.isWithin(address1, 32), is(true));
+        assertThat(address1.isWithin(new LispIpv6Address(0L, 0L), 0), is(false));
+
+        assertThat(address1.mask(16), is(prefix));
+        assertThat(address1.mask(32), is(address1));
+        assertThat(address1.getBit(0), is(true));
+        assertThat(address1.getBit(2), is(false));
+        assertThat(address1.getBit(31), is(true));
+    }
 }
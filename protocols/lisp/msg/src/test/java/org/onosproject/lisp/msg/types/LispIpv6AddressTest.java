@@ -72,4 +72,34 @@ public class LispIpv6AddressTest {
 
         new EqualsTester().addEqualityGroup(address1, deserialized).testEquals();
     }
+
+    @Test
+    public void testPrimitiveConstruction() {
+        LispIpv6Address ipv6Address =
+                new LispIpv6Address(0x1111222233334444L, 0x5555666677778885L);
+        assertThat(ipv6Address, is(address1));
+        assertThat(ipv6Address.getHighBits(), is(address1.getHighBits()));
+        assertThat(ipv6Address.getLowBits(), is(address1.getLowBits()));
+        assertThat(ipv6Address.getAddress(),
+                   is(IpAddress.valueOf("1111:2222:3333:4444:5555:6666:7777:8885")));
+        assertThat(ipv6Address.toOctets(), is(address1.getAddress().toOctets()));
+    }
+
+    @Test
+    public void testPrefixMatching() {
+        LispIpv6Address prefix = new LispIpv6Address(0x1111222233334444L, 0L);
+
+        assertThat(address1.isWithin(prefix, 64), is(true));
+        assertThat(address1.isWithin(prefix, 65), is(true));
+        assertThat(address1.isWithin(prefix, 66), is(false));
+        assertThat(address1.isWithin(address2, 126), is(true));
+        assertThat(address1.isWithin(address2, 127), is(false));
+        assertThat(address1.isWithin(new LispIpv4Address(0), 0), is(false));
+
+        assertThat(address1.mask(64), is(prefix));
+        assertThat(address1.mask(128), is(address1));
+        assertThat(address1.getBit(0), is(false));
+        assertThat(address1.getBit(3), is(true));
+        assertThat(address1.getBit(127), is(true));
+    }
 }
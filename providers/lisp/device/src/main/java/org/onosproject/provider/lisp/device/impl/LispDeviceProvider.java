@@ -26,6 +26,7 @@ import org.onlab.packet.ChassisId;
 import org.onosproject.core.ApplicationId;
 import org.onosproject.core.CoreService;
 import org.onosproject.lisp.ctl.LispController;
+import org.onosproject.lisp.ctl.LispRouter;
 import org.onosproject.lisp.ctl.LispRouterId;
 import org.onosproject.lisp.ctl.LispRouterListener;
 import org.onosproject.net.AnnotationKeys;
@@ -114,6 +115,12 @@ public class LispDeviceProvider extends AbstractProvider implements DeviceProvid
     @Override
     public void triggerProbe(DeviceId deviceId) {
         log.info("Triggering probe on device {}", deviceId);
+
+        // reachability is probed by LISP controller, and only synced here
+        LispRouterId routerId = LispRouterId.routerId(deviceId.uri());
+        if (controller.getRouter(routerId) != null) {
+            connectDevice(routerId);
+        }
     }
 
     @Override
@@ -123,9 +130,9 @@ public class LispDeviceProvider extends AbstractProvider implements DeviceProvid
 
     @Override
     public boolean isReachable(DeviceId deviceId) {
-        // TODO: need to provide a way to send probe message to LISP router,
-        // to check the device reachability.
-        return true;
+        // a router is disconnected while its RLOC does not reply to probes
+        LispRouter router = controller.getRouter(LispRouterId.routerId(deviceId.uri()));
+        return router != null && router.isConnected();
     }
 
     @Override
@@ -173,6 +180,7 @@ public class LispDeviceProvider extends AbstractProvider implements DeviceProvid
             boolean isReachable = isReachable(deviceId);
             if (isReachable && !deviceService.isAvailable(deviceId)) {
                 // TODO: handle the mastership logic
+                providerService.deviceConnected(deviceId, deviceDescription);
             } else if (!isReachable && deviceService.isAvailable(deviceId)) {
                 providerService.deviceDisconnected(deviceId);
             }
@@ -206,7 +214,8 @@ public class LispDeviceProvider extends AbstractProvider implements DeviceProvid
 
         @Override
         public void routerChanged(LispRouterId routerId) {
-
+            connectDevice(routerId);
+            log.debug("LISP router {} changed", routerId);
         }
     }
 